@@ -378,6 +378,27 @@ TopicModel.selectAllByForum = SELECT t.*, p.user_id AS last_user_id, p.post_time
 	AND p.need_moderate = 0 \
 	ORDER BY t.topic_type DESC, (CASE WHEN t.topic_type=3 AND p.post_edit_time IS NOT NULL THEN p.post_edit_time ELSE p.post_time END) DESC
 
+# Keyset pagination: ":after:" is replaced by TopicModel.selectAllByForumAfterCondition
+# when starting after a given topic. The ORDER BY must stay in line with TopicTypeComparator
+TopicModel.selectAllByForumAfter = SELECT t.*, p.user_id AS last_user_id, p.post_time, p.post_edit_time, (SELECT SUM(p.attach) \
+        FROM jforum_posts p \
+        WHERE p.topic_id = t.topic_id \
+        AND p.need_moderate = 0) AS attach \
+	FROM jforum_topics t, jforum_posts p \
+	WHERE (t.forum_id = ? OR t.topic_moved_id = ?) \
+	AND p.post_id = t.topic_last_post_id \
+	AND p.need_moderate = 0 \
+	:after: \
+	ORDER BY (CASE WHEN t.topic_type = 3 THEN 0 ELSE t.topic_type END) DESC, \
+	(CASE WHEN t.topic_type = 3 AND p.post_edit_time IS NOT NULL THEN p.post_edit_time ELSE p.post_time END) DESC, \
+	t.topic_id DESC
+
+TopicModel.selectAllByForumAfterCondition = AND ((CASE WHEN t.topic_type = 3 THEN 0 ELSE t.topic_type END) < ? \
+	OR ((CASE WHEN t.topic_type = 3 THEN 0 ELSE t.topic_type END) = ? \
+	AND ((CASE WHEN t.topic_type = 3 AND p.post_edit_time IS NOT NULL THEN p.post_edit_time ELSE p.post_time END) < ? \
+	OR ((CASE WHEN t.topic_type = 3 AND p.post_edit_time IS NOT NULL THEN p.post_edit_time ELSE p.post_time END) = ? \
+	AND t.topic_id < ?))))
+
 TopicModel.topicPosters = SELECT user_id, username, user_karma, user_avatar, user_allowavatar, user_regdate, user_posts, \
     user_icq, user_from, user_email, rank_id, user_sig, user_attachsig, user_viewemail, user_skype, user_website, \
     user_sig, user_twitter \
@@ -394,6 +415,7 @@ TopicModel.deleteByForum = SELECT topic_id FROM jforum_topics where forum_id = ?
 TopicModel.delete = DELETE FROM jforum_topics WHERE topic_id = ?
 TopicModel.deletePosts = DELETE FROM jforum_posts WHERE topic_id = ?
 TopicModel.incrementTotalViews = UPDATE jforum_topics SET topic_views = topic_views + 1 WHERE topic_id = ?
+TopicModel.addTotalViews = UPDATE jforum_topics SET topic_views = topic_views + ? WHERE topic_id = ?
 TopicModel.incrementTotalReplies = UPDATE jforum_topics SET topic_replies = topic_replies + 1 WHERE topic_id = ?
 TopicModel.decrementTotalReplies = UPDATE jforum_topics SET topic_replies = topic_replies - 1 WHERE topic_id = ?
 TopicModel.setLastPostId = UPDATE jforum_topics SET topic_last_post_id = ? WHERE topic_id = ?
@@ -736,10 +758,14 @@ AttachmentModel.selectAttachmentById = SELECT a.attach_id, a.user_id, a.post_id,
     WHERE a.attach_id = ? \
     AND a.attach_id = d.attach_id
     
-AttachmentModel.updateAttachment = UPDATE jforum_attach_desc SET description = ?, download_count = ? WHERE attach_id = ?
+AttachmentModel.updateAttachment = UPDATE jforum_attach_desc SET description = ? WHERE attach_id = ?
+AttachmentModel.addDownloadCount = UPDATE jforum_attach_desc SET download_count = COALESCE(download_count, 0) + ? WHERE attach_id = ?
 AttachmentModel.removeAttachment = DELETE FROM jforum_attach WHERE attach_id = ?
 AttachmentModel.removeAttachmentInfo = DELETE FROM jforum_attach_desc WHERE attach_id = ?
 AttachmentModel.countPostAttachments = SELECT COUNT(1) FROM jforum_attach WHERE post_id = ?
+AttachmentModel.countReferences = SELECT COUNT(1) FROM jforum_attach_desc WHERE physical_filename = ?
+AttachmentModel.selectPhysicalFilenames = SELECT attach_id, physical_filename FROM jforum_attach_desc
+AttachmentModel.updatePhysicalFilename = UPDATE jforum_attach_desc SET physical_filename = ? WHERE attach_id = ?
 AttachmentModel.deleteGroupQuota = DELETE FROM jforum_attach_quota
 AttachmentModel.setGroupQuota = INSERT INTO jforum_attach_quota (group_id, quota_limit_id) VALUES (?, ?)
 AttachmentModel.selectGroupsQuotaLimits = SELECT group_id, quota_limit_id FROM jforum_attach_quota
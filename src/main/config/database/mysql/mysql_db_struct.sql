@@ -462,7 +462,8 @@ CREATE TABLE jforum_attach_desc (
   thumb TINYINT(1) DEFAULT 0,
   extension_id INT,
   INDEX idx_att_d_att (attach_id),
-  INDEX idx_att_d_ext (extension_id)
+  INDEX idx_att_d_ext (extension_id),
+  INDEX idx_att_d_phys (physical_filename)
 ) ENGINE=InnoDB;
 
 --
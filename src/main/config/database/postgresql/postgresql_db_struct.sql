@@ -458,6 +458,7 @@ CREATE TABLE jforum_attach_desc (
 );
 CREATE INDEX idx_att_d_att ON jforum_attach_desc(attach_id);
 CREATE INDEX idx_att_d_ext ON jforum_attach_desc(extension_id);
+CREATE INDEX idx_att_d_phys ON jforum_attach_desc(physical_filename);
 
 --
 -- Table structure for table 'jforum_attach_quota'
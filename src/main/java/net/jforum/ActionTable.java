@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import net.jforum.exceptions.ForumException;
+
+/**
+ * The actions of each module class, resolved once to method handles: 
+ * the constructor and every public method without arguments, by name. 
+ * {@link JForum} creates the commands through it, and {@link Command#process} 
+ * runs the requested action with it instead of looking the method up by reflection.
+ */
+public final class ActionTable
+{
+	private static final Logger LOGGER = Logger.getLogger(ActionTable.class);
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Command.class);
+	private static final MethodType ACTION_TYPE = MethodType.methodType(void.class, Command.class);
+	private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+	private ActionTable() {}
+
+	/**
+	 * Resolves the actions of all module classes.
+	 * 
+	 * @param modules the module names and their classes, as in <code>modulesMapping.properties</code>
+	 */
+	public static void build(final Properties modules)
+	{
+		ENTRIES.clear();
+
+		for (final Object className : modules.values()) {
+			try {
+				entry(className.toString().trim());
+			}
+			catch (ForumException e) {
+				LOGGER.warn("Module class " + className + " could not be loaded: " + e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Creates a command.
+	 * 
+	 * @param className the command class
+	 * @return a new instance of it
+	 */
+	public static Command newCommand(final String className)
+	{
+		try {
+			return (Command)entry(className).constructor.invokeExact();
+		}
+		catch (RuntimeException | Error e) {
+			throw e;
+		}
+		catch (Throwable e) {
+			throw new ForumException(e);
+		}
+	}
+
+	/**
+	 * @param commandClass the command class
+	 * @param action the action name
+	 * @return the method of the action, taking the command, or <code>null</code> if there is none
+	 */
+	public static MethodHandle getAction(final Class<? extends Command> commandClass, final String action)
+	{
+		return action == null ? null : entry(commandClass.getName()).actions.get(action);
+	}
+
+	private static Entry entry(final String className)
+	{
+		Entry entry = ENTRIES.get(className);
+
+		if (entry == null) {
+			try {
+				entry = compile(Class.forName(className));
+			}
+			catch (ReflectiveOperationException e) {
+				throw new ForumException(e);
+			}
+
+			ENTRIES.put(className, entry);
+		}
+
+		return entry;
+	}
+
+	private static Entry compile(final Class<?> type) throws ReflectiveOperationException
+	{
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		final Map<String, MethodHandle> actions = new HashMap<>();
+
+		for (final Method method : type.getMethods()) {
+			if (method.getParameterCount() > 0 || Modifier.isStatic(method.getModifiers()) 
+					|| method.isBridge() || method.getDeclaringClass() == Object.class) {
+				continue;
+			}
+
+			MethodHandle handle;
+
+			try {
+				handle = lookup.unreflect(method);
+			}
+			catch (IllegalAccessException e) {
+				// Public, but declared in a class not visible from here
+				method.setAccessible(true);
+				handle = lookup.unreflect(method);
+			}
+
+			actions.put(method.getName(), handle.asType(ACTION_TYPE));
+		}
+
+		final MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class)).asType(CONSTRUCTOR_TYPE);
+
+		return new Entry(constructor, actions);
+	}
+
+	private static final class Entry
+	{
+		final MethodHandle constructor;
+		final Map<String, MethodHandle> actions;
+
+		Entry(final MethodHandle constructor, final Map<String, MethodHandle> actions)
+		{
+			this.constructor = constructor;
+			this.actions = actions;
+		}
+	}
+}
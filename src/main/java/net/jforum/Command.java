@@ -44,6 +44,7 @@ package net.jforum;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -58,6 +59,7 @@ import net.jforum.repository.Tpl;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 import net.jforum.util.preferences.TemplateKeys;
+import net.jforum.util.stats.Metrics;
 
 /**
  * <code>Command</code> Pattern implementation.
@@ -69,8 +71,6 @@ import net.jforum.util.preferences.TemplateKeys;
 public abstract class Command 
 {
 	private static final Logger LOGGER = Logger.getLogger(Command.class);
-	private static final Class<?>[] NO_ARGS_CLASS = new Class[0];
-	private static final Object[] NO_ARGS_OBJECT = new Object[0];
 	
 	private transient boolean ignoreAction;
 	
@@ -118,15 +118,30 @@ public abstract class Command
 		final String action = this.request.getAction();
 
 		if (!this.ignoreAction) {
+			final long started = Metrics.start();
+			final MethodHandle handle = ActionTable.getAction(this.getClass(), action);
+
+			// Only the actions which exist, as the requested name may be anything
+			final String invoked = this.getClass().getSimpleName() + "." + (handle == null ? "list" : action);
+			JForumExecutionContext.setInvokedAction(invoked);
+
 			try {
-				this.getClass().getMethod(action, NO_ARGS_CLASS).invoke(this, NO_ARGS_OBJECT);
-			}
-			catch (NoSuchMethodException e) {		
-				this.list();		
+				if (handle == null) {
+					this.list();
+				}
+				else {
+					try {
+						handle.invokeExact(this);
+					}
+					catch (Throwable e) {
+						throw new ForumException(e);
+					}
+				}
 			}
-			catch (Exception e)
-            {
-                throw new ForumException(e);
+			finally {
+				if (started != 0) {
+					Metrics.stop(Metrics.ACTION, invoked, started);
+				}
 			}
 		}
 		
@@ -152,22 +167,24 @@ public abstract class Command
                 append('/').append(this.templateName).toString();
         
 		if (StringUtils.isNotBlank(extraTemplatePath)) {
-			LOGGER.debug("Template file is " + extraTemplatePath + File.separator + templateFile);
-			if (!new File(extraTemplatePath, templateFile).isFile()) {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Template file is " + extraTemplatePath + File.separator + templateFile);
+			}
+			if (!Tpl.fileExists(extraTemplatePath, templateFile)) {
 	        	throw new TemplateNotFoundException("Template file " + templateFile + " doesn't exist");
 	        }
 		}
 		else {
-			LOGGER.debug("Template file is " + defaultTemplatePath + File.separator + templateFile);
-	        if (!new File(defaultTemplatePath, templateFile).isFile()) {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Template file is " + defaultTemplatePath + File.separator + templateFile);
+			}
+	        if (!Tpl.fileExists(defaultTemplatePath, templateFile)) {
 	        	throw new TemplateNotFoundException("Template file " + templateFile + " doesn't exist");
 	        }			
 		}
         
 		try {
-            return JForumExecutionContext.getTemplateConfig().getTemplate(
-                new StringBuilder(SystemGlobals.getValue(ConfigKeys.TEMPLATE_DIR)).
-                append('/').append(this.templateName).toString(),
+            return JForumExecutionContext.getTemplateConfig().getTemplate(templateFile, 
                 SystemGlobals.getValue(ConfigKeys.ENCODING));
         }
         catch (IOException e) {
@@ -49,6 +49,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.quartz.SchedulerException;
@@ -67,6 +68,7 @@ import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.QueriesFileListener;
 import net.jforum.util.preferences.SystemGlobals;
 import net.jforum.util.preferences.SystemGlobalsListener;
+import net.jforum.util.preferences.TemplatesListener;
 
 /**
  * General utilities methods for loading configurations for JForum.
@@ -205,9 +207,27 @@ public final class ConfigLoader
             // Quartz Properties
             FileMonitor.getInstance().addFileChangeListener(new SystemGlobalsListener(),
                                                             SystemGlobals.getValue(ConfigKeys.QUARTZ_CONFIG), fileChangesDelay);
+
+            // Templates
+            FileMonitor.getInstance().addFileChangeListener(new TemplatesListener(),
+                                                            SystemGlobals.getValue(ConfigKeys.TEMPLATES_MAPPING), fileChangesDelay);
+
+            FileMonitor.getInstance().addDirectoryChangeListener(new TemplatesListener(), templatesDir(), fileChangesDelay);
         }
     }
 
+    /**
+     * @return the directory with the template files
+     */
+    static String templatesDir()
+    {
+        final String extraTemplatePath = SystemGlobals.getValue(ConfigKeys.FREEMARKER_EXTRA_TEMPLATE_PATH);
+
+        return StringUtils.isNotBlank(extraTemplatePath)
+            ? extraTemplatePath
+            : SystemGlobals.getApplicationPath() + File.separator + "templates";
+    }
+
     public static void loadDaoImplementation()
     {
         // Start the dao.driver implementation
@@ -265,6 +285,16 @@ public final class ConfigLoader
         }
     }
 
+    /**
+     * Gets the cache engine started by {@link #startCacheEngine()}
+     * 
+     * @return the cache engine, or <code>null</code> if it was not started yet
+     */
+    public static CacheEngine getCacheEngine()
+    {
+        return cache;
+    }
+
     public static void stopCacheEngine()
     {
         if (cache != null) {
@@ -275,6 +305,9 @@ public final class ConfigLoader
     public static void startSearchIndexer()
     {
         SearchFacade.init();
+
+        // a reindex interrupted by the last shutdown carries on where it stopped
+        SearchFacade.manager().resumeInterruptedReindex();
     }
 
     /**
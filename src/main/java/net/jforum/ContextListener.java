@@ -76,7 +76,7 @@ public class ContextListener implements ServletContextListener {
         final String containerInfo = application.getServerInfo();
 		SystemGlobals.setValue("server.info", containerInfo);
 		SystemGlobals.setValue("servlet.version", application.getMajorVersion()+"."+application.getMinorVersion());
-		// initialize EventBus
+		// initialize board statistics
 		Stats.init();
         LOGGER.info(application.getContextPath() + " initialized in " + containerInfo);
     }
@@ -85,7 +85,7 @@ public class ContextListener implements ServletContextListener {
      * @see javax.servlet.ServletContextListener#contextDestroyed(javax.servlet.ServletContextEvent)
      */
     @Override public void contextDestroyed (ServletContextEvent sce) {
-		// stop EventBus
+		// stop board statistics
         Stats.stop();
 /*
         Enumeration<Driver> drivers = DriverManager.getDrivers();
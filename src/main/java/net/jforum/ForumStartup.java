@@ -71,6 +71,7 @@ public final class ForumStartup
 		try {
 			if (DBConnection.createInstance()) {
 				DBConnection.getImplementation().init();
+				ReplicaConnections.start();
 				result = true;
 			}
 		}
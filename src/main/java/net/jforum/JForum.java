@@ -46,7 +46,6 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
-import java.lang.reflect.InvocationTargetException;
 import java.sql.Connection;
 import java.sql.Statement;
 import java.util.List;
@@ -68,31 +67,38 @@ import net.jforum.api.integration.mail.pop.POPJobStarter;
 import net.jforum.context.JForumContext;
 import net.jforum.context.RequestContext;
 import net.jforum.context.ResponseContext;
+import net.jforum.context.SessionContext;
+import net.jforum.context.web.UploadReceiver;
 import net.jforum.context.web.WebRequestContext;
 import net.jforum.context.web.WebResponseContext;
-import net.jforum.dao.DataAccessDriver;
 import net.jforum.dao.MySQLVersionWorkarounder;
 import net.jforum.dao.SqlServerVersionWorkarounder;
-import net.jforum.dao.UserDAO;
-import net.jforum.entities.Banlist;
-import net.jforum.entities.User;
 import net.jforum.entities.UserSession;
 import net.jforum.exceptions.ExceptionWriter;
 import net.jforum.exceptions.ForumStartupException;
+import net.jforum.repository.AttachmentDownloadCounter;
 import net.jforum.repository.BBCodeRepository;
 import net.jforum.repository.BanlistRepository;
 import net.jforum.repository.ModulesRepository;
 import net.jforum.repository.RankingRepository;
 import net.jforum.repository.RegEmailRepository;
+import net.jforum.repository.RenderedPostStore;
 import net.jforum.repository.SecurityRepository;
 import net.jforum.repository.SmiliesRepository;
+import net.jforum.repository.TopicViewCounter;
+import net.jforum.search.SearchFacade;
 import net.jforum.summary.SummaryScheduler;
 import net.jforum.util.FileMonitor;
 import net.jforum.util.I18n;
 import net.jforum.util.bbcode.BBCodeHandler;
+import net.jforum.util.image.ThumbnailGenerator;
+import net.jforum.util.mail.MailOutbox;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
+import net.jforum.util.stats.Metrics;
 import net.jforum.util.stats.StatsEvent;
+import net.jforum.view.forum.common.AttachmentDeduplicator;
+import net.jforum.view.forum.common.AttachmentReceiver;
 
 /**
  * Front Controller.
@@ -104,6 +110,10 @@ public class JForum extends JForumBaseServlet
     private static final Logger LOGGER = Logger.getLogger(JForum.class);
 
     private static final long serialVersionUID = 7160936607198716279L;
+    /** Session attribute with the time of the user's last request that may have changed something */
+    private static final String LAST_WRITE = "jforum.lastWrite";
+
+    private static final UploadReceiver ATTACHMENTS = new AttachmentReceiver();
 
     /**
      * @see javax.servlet.Servlet#init(javax.servlet.ServletConfig)
@@ -153,6 +163,12 @@ public class JForum extends JForumBaseServlet
             JForumExecutionContext.finish();
         }
 
+		// drops the rendered posts of other BB codes, smilies or HTML settings
+		RenderedPostStore.start();
+
+		// resumes the mail left over from the last run
+		MailOutbox.start();
+
 		// may kick off reindexing, so needs the DB fully started up
 		ConfigLoader.startSearchIndexer();
     }
@@ -167,13 +183,15 @@ public class JForum extends JForumBaseServlet
         JForumContext forumContext = null;
         RequestContext request = null;
         ResponseContext response = null;
+        String metricName = "unknown";
+        final long started = Metrics.start();
         final String encoding = SystemGlobals.getValue(ConfigKeys.ENCODING);
 
         try {
             // Initializes the execution context
             final JForumExecutionContext executionContext = JForumExecutionContext.get();
 
-            request = new WebRequestContext(req);
+            request = new WebRequestContext(req, ATTACHMENTS);
             response = new WebResponseContext(res);
 
             this.checkDatabaseStatus();
@@ -216,6 +234,7 @@ public class JForum extends JForumBaseServlet
                 response.sendRedirect(request.getContextPath());
             }
             else {
+                metricName = module;
                 final boolean shouldBan = this.shouldBan(request.getRemoteAddr());
 
                 if (shouldBan && !"logout".equals(request.getAction())) {
@@ -248,6 +267,7 @@ public class JForum extends JForumBaseServlet
                     context.put("colorLightGray", SystemGlobals.getValue("color.lightgray"));
 
                     new StatsEvent("All page requests", req.getRequestURL()).record();
+                    executionContext.setReplicaRead(this.isReplicaRead(req, request, module));
                     out = this.processCommand(out, request, response, encoding, context, moduleClass);
                 }
             }
@@ -256,7 +276,19 @@ public class JForum extends JForumBaseServlet
             this.handleException(out, response, encoding, e, request);
         }
         finally {
-            this.handleFinally(out, forumContext, response);
+            try {
+                this.handleFinally(out, forumContext, response);
+            }
+            finally {
+                // the attachments which were not saved with a message, once the
+                // ones which were are committed
+                if (request != null) {
+                    ((WebRequestContext)request).deleteUploads();
+                    JForumExecutionContext.finish();
+                }
+
+                Metrics.stop(Metrics.REQUEST, metricName, started);
+            }
         }
     }
 
@@ -268,6 +300,11 @@ public class JForum extends JForumBaseServlet
         final Command command = this.retrieveCommand(moduleClass);
         final Template template = command.process(request, response, context);
 
+        // The page may take a while to reach the client, so don't keep the connection meanwhile
+        if (SystemGlobals.getBoolValue(ConfigKeys.DATABASE_RELEASE_BEFORE_RENDER)) {
+            JForumExecutionContext.releaseConnection();
+        }
+
         if (JForumExecutionContext.getRedirectTo() == null) {
             String contentType = JForumExecutionContext.getContentType();
 
@@ -295,6 +332,36 @@ public class JForum extends JForumBaseServlet
         return outWriter;
     }
 
+    /**
+     * Reads may go to a replica on GET requests to read-only actions, 
+     * unless the user ran any other action a moment ago and may not find its changes there yet.
+     */
+    private boolean isReplicaRead(final HttpServletRequest req, final RequestContext request, final String module)
+    {
+        final ReplicaConnections replicas = ReplicaConnections.getInstance();
+
+        if (!replicas.isEnabled()) {
+            return false;
+        }
+
+        final SessionContext session = request.getSessionContext();
+        final long now = System.currentTimeMillis();
+
+        // Any action which is not known to only read may write, whatever the method (posts.watch is a GET)
+        if (!replicas.isReadOnlyAction(module, request.getAction())) {
+            session.setAttribute(LAST_WRITE, Long.valueOf(now));
+            return false;
+        }
+
+        if (!"GET".equalsIgnoreCase(req.getMethod())) {
+            return false;
+        }
+
+        final Long lastWrite = (Long)session.getAttribute(LAST_WRITE);
+
+        return lastWrite == null || now - lastWrite.longValue() >= SystemGlobals.getIntValue(ConfigKeys.DATABASE_REPLICA_STICKINESS) * 1000L;
+    }
+
     private void checkDatabaseStatus()
     {
         if (!DBConnection.getImplementation().isDatabaseUp()) {
@@ -330,6 +397,7 @@ public class JForum extends JForumBaseServlet
                                  {
         JForumExecutionContext.enableRollback();
         new StatsEvent("Error page", exception.getMessage()).record();
+        Metrics.increment(Metrics.REQUEST, "errors");
 
         if (exception.toString().indexOf("ClientAbortException") == -1) {
             if (response != null) {
@@ -372,20 +440,14 @@ public class JForum extends JForumBaseServlet
 
     private boolean shouldBan(final String ip)
     {
-        final Banlist banlist = new Banlist();
-
-        final UserDAO dao = DataAccessDriver.getInstance().newUserDAO();
-        final User user = dao.selectById(SessionFacade.getUserSession().getUserId());
-        banlist.setUserId(user.getId());
-        banlist.setEmail(user.getEmail());
-        banlist.setIp(ip);
+        final UserSession userSession = SessionFacade.getUserSession();
 
-        return BanlistRepository.shouldBan(banlist);
+        return BanlistRepository.shouldBan(userSession.getUserId(), userSession.getEmail(), ip);
     }
 
-    private Command retrieveCommand(final String moduleClass) throws InstantiationException, IllegalAccessException, ClassNotFoundException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException, SecurityException
+    private Command retrieveCommand(final String moduleClass)
     {
-        return (Command)Class.forName(moduleClass).getDeclaredConstructor().newInstance();
+        return ActionTable.newCommand(moduleClass);
     }
 
     /** 
@@ -410,6 +472,40 @@ public class JForum extends JForumBaseServlet
         LOGGER.debug("Close file monitors ...");
         closeFileMonitor();
 
+        // release the search index
+        try {
+            SearchFacade.stop();
+        }
+        catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+
+        // write the buffered topic views and attachment downloads
+        try {
+            TopicViewCounter.stop();
+        }
+        catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+
+        try {
+            AttachmentDownloadCounter.stop();
+        }
+        catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+
+        ThumbnailGenerator.stop();
+        AttachmentDeduplicator.stop();
+
+        // undelivered mail stays in the outbox directory
+        try {
+            MailOutbox.stop();
+        }
+        catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+
         // invalidate all sessions to force SessionFacade.storeSessionData()		
         if (LOGGER.isDebugEnabled()) {
         	LOGGER.debug("Current sessions: " + SessionFacade.size());
@@ -435,6 +531,7 @@ public class JForum extends JForumBaseServlet
                 JForumExecutionContext.finish();
             }
             DBConnection.getImplementation().realReleaseAllConnections();
+            ReplicaConnections.stop();
         }
         catch (Exception e) { 
             LOGGER.error(e.getMessage(), e); 
@@ -456,6 +553,8 @@ public class JForum extends JForumBaseServlet
         FileMonitor.getInstance().removeFileChangeListener(SystemGlobals.getValue(ConfigKeys.DEFAULT_CONFIG));
         FileMonitor.getInstance().removeFileChangeListener(SystemGlobals.getValue(ConfigKeys.SQL_QUERIES_DRIVER));
         FileMonitor.getInstance().removeFileChangeListener(SystemGlobals.getValue(ConfigKeys.SQL_QUERIES_GENERIC));
+        FileMonitor.getInstance().removeFileChangeListener(SystemGlobals.getValue(ConfigKeys.TEMPLATES_MAPPING));
+        FileMonitor.getInstance().removeFileChangeListener(ConfigLoader.templatesDir());
 
         final String baseDir = I18n.getBaseDir();
         final Properties localeNames = I18n.getLocaleNames();
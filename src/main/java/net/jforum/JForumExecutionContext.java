@@ -59,6 +59,8 @@ import net.jforum.context.ResponseContext;
 import net.jforum.exceptions.ForumException;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
+import net.jforum.util.stats.MeteredConnection;
+import net.jforum.util.stats.Metrics;
 
 /**
  * Data execution context. 
@@ -73,6 +75,12 @@ public class JForumExecutionContext
 	private static final BeansWrapper BEANS_WRAPPER = new BeansWrapperBuilder(Configuration.VERSION_2_3_33).build();
 
 	private transient Connection conn;
+	private transient Connection meteredConn;
+	private transient long connectionStart;
+	private transient String invokedAction;
+	private transient boolean replicaRead;
+	private transient Connection replicaConn;
+	private transient Connection meteredReplicaConn;
     private ForumContext forumContext;
     private transient final SimpleHash context = new SimpleHash(BEANS_WRAPPER); 
     private transient String redirectTo;
@@ -140,6 +148,7 @@ public class JForumExecutionContext
 	public void setConnection(final Connection conn)
 	{
 		this.conn = conn;
+		this.meteredConn = null;
 	}
 
 	/**
@@ -168,12 +177,69 @@ public class JForumExecutionContext
             }
 
 			executionContext.setConnection(conn);
+			executionContext.connectionStart = Metrics.start();
 			set(executionContext);
 		}
+
+		if (conn != null && Metrics.isEnabled()) {
+			if (executionContext.meteredConn == null) {
+				executionContext.meteredConn = MeteredConnection.wrap(conn);
+			}
+
+			return executionContext.meteredConn;
+		}
 	    
 		return conn; 
 	}
 
+	/**
+	 * Gets a connection for reads that may see data a few seconds old. 
+	 * That is a connection to a replica, if the request was marked with 
+	 * {@link #setReplicaRead(boolean)} and some replica is available, 
+	 * or else the same as {@link #getConnection()}.
+	 * Data that goes into the caches should not be read with it.
+	 * 
+	 * @return Connection
+	 */
+	public static Connection getReadConnection()
+	{
+		final JForumExecutionContext executionContext = get();
+
+		if (!executionContext.replicaRead) {
+			return getConnection();
+		}
+
+		if (executionContext.replicaConn == null) {
+			executionContext.replicaConn = ReplicaConnections.getInstance().getConnection();
+
+			if (executionContext.replicaConn == null) {
+				executionContext.replicaRead = false;
+				return getConnection();
+			}
+
+			executionContext.meteredReplicaConn = null;
+		}
+
+		if (Metrics.isEnabled()) {
+			if (executionContext.meteredReplicaConn == null) {
+				executionContext.meteredReplicaConn = MeteredConnection.wrap(executionContext.replicaConn);
+			}
+
+			return executionContext.meteredReplicaConn;
+		}
+
+		return executionContext.replicaConn;
+	}
+
+	/**
+	 * Sets if {@link #getReadConnection()} may use a replica
+	 * @param replicaRead boolean
+	 */
+	public void setReplicaRead(final boolean replicaRead)
+	{
+		this.replicaRead = replicaRead;
+	}
+
     public static ForumContext getForumContext()
     {
         return userData.get().forumContext;
@@ -297,7 +363,25 @@ public class JForumExecutionContext
 	 */
 	public static void finish()
 	{
-		final Connection conn = JForumExecutionContext.getConnection(false);
+		releaseConnection();
+		userData.set(null);
+	}
+
+	/**
+	 * Commits (or rolls back) and returns the current connections to their pools, 
+	 * keeping the rest of the execution context. 
+	 * A later call to {@link #getConnection()} gets a new connection.
+	 */
+	public static void releaseConnection()
+	{
+		final JForumExecutionContext executionContext = get();
+		final Connection conn = executionContext.conn;
+
+		if (executionContext.replicaConn != null) {
+			ReplicaConnections.getInstance().releaseConnection(executionContext.replicaConn);
+			executionContext.replicaConn = null;
+			executionContext.meteredReplicaConn = null;
+		}
 
 		if (conn != null) {
 			if (SystemGlobals.getBoolValue(ConfigKeys.DATABASE_USE_TRANSACTIONS)) {
@@ -325,9 +409,33 @@ public class JForumExecutionContext
 			catch (Exception e) {
 				LOGGER.error("Error while releasing the connection : " + e, e);
 			}
+
+			executionContext.setConnection(null);
+			Metrics.stop(Metrics.CONNECTION, executionContext.connectionOwner(), executionContext.connectionStart);
+			executionContext.connectionStart = 0;
 		}
+	}
 
-		userData.set(null);
+	/**
+	 * Sets the action the request runs, once the method that handles it is known
+	 * 
+	 * @param action the command class and method, as in <code>ForumAction.list</code>
+	 */
+	public static void setInvokedAction(final String action)
+	{
+		get().invokedAction = action;
+	}
+
+	/**
+	 * @return the action the connection was used for, as in <code>ForumAction.list</code>
+	 */
+	private String connectionOwner()
+	{
+		if (this.invokedAction != null) {
+			return this.invokedAction;
+		}
+
+		return this.forumContext == null ? "background" : "request";
 	}
 
 	/**
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Connection pools to read-only replicas of the database, used by 
+ * {@link JForumExecutionContext#getReadConnection()}.
+ * <p>
+ * Replicas are used in turn. One that fails to give a connection is skipped for 
+ * <code>database.replica.retry.seconds</code>, and when none is available 
+ * the reads go to the main database.
+ * </p>
+ */
+public class ReplicaConnections
+{
+	private static final Logger LOGGER = Logger.getLogger(ReplicaConnections.class);
+
+	private static volatile ReplicaConnections instance = new ReplicaConnections(
+		Collections.<String>emptyList(), null, 0, 0, 0, 0, Collections.<String>emptySet());
+
+	private final List<Replica> replicas = new ArrayList<>();
+	private final AtomicInteger next = new AtomicInteger();
+	private final long retryMillis;
+	private final Set<String> actions;
+
+	/**
+	 * @param urls the JDBC URLs of the replicas
+	 * @param driver the JDBC driver class, or <code>null</code> to let the driver manager find it
+	 * @param poolMin the minimum number of idle connections of each replica
+	 * @param poolMax the maximum number of connections to each replica
+	 * @param timeoutMillis how long to wait for a connection before trying another replica
+	 * @param retryMillis how long a failed replica is not used
+	 * @param actions the read-only actions, as <code>module.action</code> or <code>module.*</code>
+	 */
+	public ReplicaConnections(List<String> urls, String driver, int poolMin, int poolMax, 
+		long timeoutMillis, long retryMillis, Set<String> actions)
+	{
+		this.retryMillis = retryMillis;
+		this.actions = actions;
+
+		for (String url : urls) {
+			HikariConfig config = new HikariConfig();
+
+			if (StringUtils.isNotBlank(driver)) {
+				config.setDriverClassName(driver);
+			}
+
+			config.setJdbcUrl(url);
+			config.setMinimumIdle(poolMin);
+			config.setMaximumPoolSize(Math.max(1, poolMax));
+			config.setConnectionTimeout(Math.max(250, timeoutMillis));
+			config.setReadOnly(true);
+			config.setAutoCommit(true);
+			// Start even if the replica is down, it is skipped until it is back
+			config.setInitializationFailTimeout(-1);
+			config.setPoolName("jforum-replica-" + (this.replicas.size() + 1));
+
+			this.replicas.add(new Replica(config.getPoolName(), new HikariDataSource(config)));
+		}
+	}
+
+	/**
+	 * Creates the pools of the replicas in <code>database.replica.urls</code>, 
+	 * closing the previous ones.
+	 */
+	public static void start()
+	{
+		List<String> urls = new ArrayList<>();
+
+		for (String url : StringUtils.split(StringUtils.defaultString(SystemGlobals.getValue(ConfigKeys.DATABASE_REPLICA_URLS)), ',')) {
+			if (StringUtils.isNotBlank(url)) {
+				urls.add(url.trim());
+			}
+		}
+
+		Set<String> actions = new HashSet<>();
+
+		for (String action : StringUtils.split(StringUtils.defaultString(SystemGlobals.getValue(ConfigKeys.DATABASE_REPLICA_ACTIONS)), ',')) {
+			if (StringUtils.isNotBlank(action)) {
+				actions.add(action.trim());
+			}
+		}
+
+		ReplicaConnections previous = instance;
+
+		instance = new ReplicaConnections(urls, 
+			SystemGlobals.getValue(ConfigKeys.DATABASE_CONNECTION_DRIVER),
+			SystemGlobals.getIntValue(ConfigKeys.DATABASE_POOL_MIN),
+			SystemGlobals.getIntValue(ConfigKeys.DATABASE_POOL_MAX),
+			SystemGlobals.getIntValue(ConfigKeys.DATABASE_REPLICA_TIMEOUT),
+			SystemGlobals.getIntValue(ConfigKeys.DATABASE_REPLICA_RETRY) * 1000L,
+			actions);
+
+		previous.close();
+
+		if (!urls.isEmpty()) {
+			LOGGER.info("Reading from " + urls.size() + " database replica(s)");
+		}
+	}
+
+	/**
+	 * Closes the pools of the replicas.
+	 */
+	public static void stop()
+	{
+		instance.close();
+	}
+
+	public static ReplicaConnections getInstance()
+	{
+		return instance;
+	}
+
+	/**
+	 * @return <code>true</code> if there is any replica configured
+	 */
+	public boolean isEnabled()
+	{
+		return !this.replicas.isEmpty();
+	}
+
+	/**
+	 * @param module the module name
+	 * @param action the action name
+	 * @return <code>true</code> if the action only reads, so may use a replica
+	 */
+	public boolean isReadOnlyAction(String module, String action)
+	{
+		return this.actions.contains(module + ".*") || this.actions.contains(module + "." + action);
+	}
+
+	/**
+	 * Gets a connection to some available replica.
+	 * 
+	 * @return the connection, or <code>null</code> if no replica is available
+	 */
+	public Connection getConnection()
+	{
+		int size = this.replicas.size();
+
+		if (size == 0) {
+			return null;
+		}
+
+		int first = Math.floorMod(this.next.getAndIncrement(), size);
+
+		for (int i = 0; i < size; i++) {
+			Replica replica = this.replicas.get((first + i) % size);
+			long now = System.currentTimeMillis();
+
+			if (replica.downUntil > now) {
+				continue;
+			}
+
+			try {
+				return replica.dataSource.getConnection();
+			}
+			catch (SQLException e) {
+				LOGGER.warn(replica.name + " is not available, not using it for " 
+					+ (this.retryMillis / 1000) + " seconds: " + e.getMessage());
+				replica.downUntil = now + this.retryMillis;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns a connection to its pool
+	 * 
+	 * @param conn a connection from {@link #getConnection()}
+	 */
+	public void releaseConnection(Connection conn)
+	{
+		try {
+			conn.close();
+		}
+		catch (SQLException e) {
+			LOGGER.error(e.getMessage(), e);
+		}
+	}
+
+	void close()
+	{
+		for (Replica replica : this.replicas) {
+			replica.dataSource.close();
+		}
+	}
+
+	private static final class Replica
+	{
+		final String name;
+		final HikariDataSource dataSource;
+		volatile long downUntil;
+
+		Replica(String name, HikariDataSource dataSource)
+		{
+			this.name = name;
+			this.dataSource = dataSource;
+		}
+	}
+}
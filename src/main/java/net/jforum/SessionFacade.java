@@ -393,6 +393,29 @@ public class SessionFacade implements Cacheable
 		return val != null ? val : Collections.emptySet();
 	}
 
+	/**
+	 * Changes the email kept in every session of the user, 
+	 * after it was changed in the database.
+	 * 
+	 * @param userId the user id
+	 * @param email the new email
+	 */
+	public static void updateUserEmail(int userId, String email) {
+		List<String> sessionIds;
+
+		synchronized (FQN) {
+			sessionIds = new ArrayList<>(findSessionIdsOfUser(userId));
+		}
+
+		for (String sessionId : sessionIds) {
+			UserSession us = getUserSession(sessionId);
+
+			if (us != null && us.getUserId() == userId) {
+				us.setEmail(email);
+			}
+		}
+	}
+
 	/**
 	 * Verify is the user is logged in.
 	 * 
@@ -104,6 +104,7 @@ public class POPPostAction
 					final UserSession userSession = new UserSession();
 					userSession.setUserId(user.getId());
 					userSession.setUsername(userSession.getUsername());
+					userSession.setEmail(user.getEmail());
 					userSession.setSessionId(sessionId);
 					userSession.setStartTime(new Date(System.currentTimeMillis()));
 
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.api.rest;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.StringUtils;
+
+import freemarker.template.SimpleHash;
+import freemarker.template.Template;
+import net.jforum.Command;
+import net.jforum.ConfigLoader;
+import net.jforum.JForumExecutionContext;
+import net.jforum.context.RequestContext;
+import net.jforum.context.ResponseContext;
+import net.jforum.exceptions.APIException;
+import net.jforum.exceptions.ForumException;
+import net.jforum.util.preferences.TemplateKeys;
+import net.jforum.util.stats.Metrics;
+
+/**
+ * Exports the board metrics in the Prometheus text format, 
+ * for example at <code>/metricsApi/list.page?api_key=...</code>
+ * 
+ * @see Metrics#writeText(Writer, net.jforum.cache.CacheEngine)
+ */
+public class MetricsREST extends Command {
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+	@Override
+	public void list() {
+		try {
+			this.authenticate();
+
+			JForumExecutionContext.enableCustomContent(true);
+			JForumExecutionContext.setContentType(CONTENT_TYPE);
+			this.response.setContentType(CONTENT_TYPE);
+
+			Writer out = new OutputStreamWriter(this.response.getOutputStream(), StandardCharsets.UTF_8);
+			Metrics.writeText(out, ConfigLoader.getCacheEngine());
+		}
+		catch (APIException e) {
+			this.setTemplateName(TemplateKeys.API_ERROR);
+			this.context.put("exception", e);
+		}
+		catch (IOException e) {
+			throw new ForumException(e);
+		}
+	}
+
+	/**
+	 * Tries to authenticate the user accessing the API
+	 * @throws APIException if the authentication fails
+	 */
+	private void authenticate()
+	{
+		final String apiKey = this.request.getParameter("api_key");
+
+		if (StringUtils.isBlank(apiKey) || !new RESTAuthentication().validateApiKey(apiKey)) {
+			throw new APIException("The provided API authentication information is not valid");
+		}
+	}
+
+	@Override public Template process(final RequestContext request, final ResponseContext response, final SimpleHash context)
+	{
+		JForumExecutionContext.setContentType("text/xml");
+		return super.process(request, response, context);
+	}
+}
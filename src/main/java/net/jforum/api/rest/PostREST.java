@@ -114,6 +114,7 @@ public class PostREST extends Command {
 			final UserSession userSession = SessionFacade.getUserSession();
 			userSession.setUserId(user.getId());
 			userSession.setUsername(user.getUsername());
+			userSession.setEmail(user.getEmail());
 			final String sessionId = userSession.getSessionId(); 
 			userSession.setStartTime(new Date(System.currentTimeMillis()));
 			SessionFacade.makeLogged();
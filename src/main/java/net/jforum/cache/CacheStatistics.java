@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on Oct 18, 2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.cache;
+
+import java.util.Objects;
+
+/**
+ * Point in time usage counters of a single cache FQN.
+ * 
+ * @see ConcurrentCacheEngine#getStatistics()
+ */
+public class CacheStatistics implements Comparable<CacheStatistics>
+{
+	private final String fqn;
+	private final int size;
+	private final int maxEntries;
+	private final long ttlSeconds;
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long expirations;
+	
+	public CacheStatistics(final String fqn, final int size, final int maxEntries, final long ttlSeconds,
+		final long hits, final long misses, final long evictions, final long expirations)
+	{
+		this.fqn = fqn;
+		this.size = size;
+		this.maxEntries = maxEntries;
+		this.ttlSeconds = ttlSeconds;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+	}
+	
+	public String getFqn()
+	{
+		return this.fqn;
+	}
+	
+	public int getSize()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * @return the maximum number of entries, or zero if unbounded
+	 */
+	public int getMaxEntries()
+	{
+		return this.maxEntries;
+	}
+	
+	/**
+	 * @return the time to live of the entries, or zero if they never expire
+	 */
+	public long getTtlSeconds()
+	{
+		return this.ttlSeconds;
+	}
+	
+	public long getHits()
+	{
+		return this.hits;
+	}
+	
+	public long getMisses()
+	{
+		return this.misses;
+	}
+	
+	public long getEvictions()
+	{
+		return this.evictions;
+	}
+	
+	public long getExpirations()
+	{
+		return this.expirations;
+	}
+	
+	/**
+	 * @return the percentage of lookups which found an entry
+	 */
+	public double getHitRatio()
+	{
+		final long total = this.hits + this.misses;
+		
+		return total == 0 ? 0 : this.hits * 100.0 / total;
+	}
+	
+	@Override public int compareTo(final CacheStatistics other)
+	{
+		return this.fqn.compareTo(other.fqn);
+	}
+	
+	@Override public boolean equals(final Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		
+		if (!(o instanceof CacheStatistics)) {
+			return false;
+		}
+		
+		return this.fqn.equals(((CacheStatistics)o).fqn);
+	}
+	
+	@Override public int hashCode()
+	{
+		return Objects.hash(this.fqn);
+	}
+}
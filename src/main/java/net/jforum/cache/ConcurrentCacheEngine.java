@@ -0,0 +1,451 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on Oct 18, 2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * In-process cache engine built on top of concurrent maps.
+ * <p>
+ * Every FQN is stored in its own region, which may optionally be bounded
+ * (<i>cache.concurrent.max.entries</i>) and have its entries expire after
+ * some time (<i>cache.concurrent.ttl</i>, in seconds). Both settings can be
+ * overridden for a single FQN by appending its name to the key, for example
+ * <i>cache.concurrent.max.entries.posts</i>. A value of zero means
+ * unbounded / no expiration, which is the default, since most repositories
+ * rely on their entries being present once loaded.
+ * </p>
+ * <p>
+ * Bounded regions evict using the CLOCK (second chance) algorithm, an
+ * approximation of LRU which does not need any lock on reads.
+ * Each region keeps hit, miss, eviction and expiration counters,
+ * available through {@link #getStatistics()}.
+ * </p>
+ */
+public class ConcurrentCacheEngine implements CacheEngine
+{
+	private static final Logger LOGGER = Logger.getLogger(ConcurrentCacheEngine.class);
+	
+	private transient ConcurrentMap<String, Region> regions;
+	
+	/**
+	 * @see net.jforum.cache.CacheEngine#init()
+	 */
+	@Override public void init()
+	{
+		this.regions = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * @see net.jforum.cache.CacheEngine#stop()
+	 */
+	@Override public void stop()
+	{
+		this.regions.clear();
+	}
+	
+	/**
+	 * @see net.jforum.cache.CacheEngine#add(java.lang.String, java.lang.Object)
+	 */
+	@Override public void add(final String key, final Object value)
+	{
+		this.add(DUMMY_FQN, key, value);
+	}
+	
+	/**
+	 * @see net.jforum.cache.CacheEngine#add(java.lang.String, java.lang.String, java.lang.Object)
+	 */
+	@Override public void add(final String fqn, final String key, final Object value)
+	{
+		this.region(fqn).put(key, value);
+	}
+	
+	/**
+	 * @see net.jforum.cache.CacheEngine#get(java.lang.String, java.lang.String)
+	 */
+	@Override public Object get(final String fqn, final String key)
+	{
+		return this.region(fqn).get(key);
+	}
+	
+	/**
+	 * @see net.jforum.cache.CacheEngine#get(java.lang.String)
+	 */
+	@Override public Object get(final String fqn)
+	{
+		final Region region = this.regions.get(fqn);
+		
+		return region == null ? null : region.asMap();
+	}
+	
+	/**
+	 * @see net.jforum.cache.CacheEngine#getValues(java.lang.String)
+	 */
+	@Override public Collection<Object> getValues(final String fqn)
+	{
+		final Region region = this.regions.get(fqn);
+		
+		return region == null ? new ArrayList<>() : region.values();
+	}
+	
+	/**
+	 * @see net.jforum.cache.CacheEngine#remove(java.lang.String, java.lang.String)
+	 */
+	@Override public void remove(final String fqn, final String key)
+	{
+		final Region region = this.regions.get(fqn);
+		if (region != null) {
+			region.remove(key);
+		}
+	}
+	
+	/**
+	 * Removes all entries of some FQN. The region itself, and therefore
+	 * its statistics, is kept.
+	 * 
+	 * @see net.jforum.cache.CacheEngine#remove(java.lang.String)
+	 */
+	@Override public void remove(final String fqn)
+	{
+		final Region region = this.regions.get(fqn);
+		if (region != null) {
+			region.clear();
+		}
+	}
+	
+	/**
+	 * Gets the usage statistics of each FQN known to the cache.
+	 * 
+	 * @return the statistics, ordered by FQN
+	 */
+	public List<CacheStatistics> getStatistics()
+	{
+		final List<CacheStatistics> list = new ArrayList<>();
+		
+		for (final Region region : this.regions.values()) {
+			list.add(region.statistics());
+		}
+		
+		list.sort(null);
+		return list;
+	}
+	
+	private Region region(final String fqn)
+	{
+		Region region = this.regions.get(fqn);
+		
+		if (region == null) {
+			region = this.regions.computeIfAbsent(fqn, name -> 
+				new Region(name, configuredValue(ConfigKeys.CACHE_CONCURRENT_MAX_ENTRIES, name), 
+					configuredValue(ConfigKeys.CACHE_CONCURRENT_TTL, name) * 1000L));
+		}
+		
+		return region;
+	}
+	
+	private static int configuredValue(final String key, final String fqn)
+	{
+		String value = fqn.length() > 0 ? SystemGlobals.getValue(key + "." + fqn) : null;
+		
+		if (value == null || value.trim().length() == 0) {
+			value = SystemGlobals.getValue(key);
+		}
+		
+		if (value == null || value.trim().length() == 0) {
+			return 0;
+		}
+		
+		try {
+			return Math.max(0, Integer.parseInt(value.trim()));
+		}
+		catch (NumberFormatException e) {
+			LOGGER.warn("Invalid value for " + key + " (" + fqn + "): " + value);
+			return 0;
+		}
+	}
+	
+	private static final class Entry
+	{
+		final String key;
+		volatile Object value;
+		volatile long expiresAt;
+		volatile boolean referenced;
+		volatile boolean removed;
+		
+		Entry(final String key)
+		{
+			this.key = key;
+		}
+		
+		boolean isExpired(final long now)
+		{
+			return this.expiresAt > 0 && this.expiresAt <= now;
+		}
+	}
+	
+	private static final class Region
+	{
+		private final String fqn;
+		private final int maxEntries;
+		private final long ttl;
+		private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+		private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger clockSize = new AtomicInteger();
+		private final AtomicLong nextPurge = new AtomicLong();
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
+		private final LongAdder expirations = new LongAdder();
+		
+		Region(final String fqn, final int maxEntries, final long ttl)
+		{
+			this.fqn = fqn;
+			this.maxEntries = maxEntries;
+			this.ttl = ttl;
+		}
+		
+		Object get(final String key)
+		{
+			final Entry entry = this.entries.get(key);
+			
+			if (entry == null) {
+				this.misses.increment();
+				return null;
+			}
+			
+			if (this.ttl > 0 && entry.isExpired(System.currentTimeMillis())) {
+				this.expire(entry);
+				this.misses.increment();
+				return null;
+			}
+			
+			entry.referenced = true;
+			this.hits.increment();
+			
+			return entry.value;
+		}
+		
+		void put(final String key, final Object value)
+		{
+			final long expiresAt = this.ttl > 0 ? System.currentTimeMillis() + this.ttl : 0;
+			final Entry[] created = new Entry[1];
+			
+			this.entries.compute(key, (k, current) -> {
+				Entry entry = current;
+				
+				if (entry == null) {
+					entry = new Entry(k);
+					created[0] = entry;
+				}
+				
+				entry.value = value;
+				entry.expiresAt = expiresAt;
+				
+				return entry;
+			});
+			
+			if (created[0] != null && this.maxEntries > 0) {
+				this.clock.offer(created[0]);
+				this.clockSize.incrementAndGet();
+				this.evictIfNeeded();
+			}
+			
+			if (this.ttl > 0) {
+				this.purgeExpired();
+			}
+		}
+		
+		void remove(final String key)
+		{
+			final Entry entry = this.entries.remove(key);
+			if (entry != null) {
+				entry.removed = true;
+			}
+		}
+		
+		void clear()
+		{
+			for (final Entry entry : this.entries.values()) {
+				entry.removed = true;
+			}
+			
+			this.entries.clear();
+			this.clock.clear();
+			this.clockSize.set(0);
+		}
+		
+		Map<String, Object> asMap()
+		{
+			final long now = System.currentTimeMillis();
+			final Map<String, Object> map = new HashMap<>();
+			
+			for (final Entry entry : this.entries.values()) {
+				if (!entry.isExpired(now)) {
+					map.put(entry.key, entry.value);
+				}
+			}
+			
+			return map;
+		}
+		
+		Collection<Object> values()
+		{
+			final long now = System.currentTimeMillis();
+			final List<Object> list = new ArrayList<>(this.entries.size());
+			
+			for (final Entry entry : this.entries.values()) {
+				if (!entry.isExpired(now)) {
+					list.add(entry.value);
+				}
+			}
+			
+			return list;
+		}
+		
+		CacheStatistics statistics()
+		{
+			return new CacheStatistics(this.fqn, this.entries.size(), this.maxEntries, this.ttl / 1000, 
+				this.hits.sum(), this.misses.sum(), this.evictions.sum(), this.expirations.sum());
+		}
+		
+		private void expire(final Entry entry)
+		{
+			if (this.entries.remove(entry.key, entry)) {
+				entry.removed = true;
+				this.expirations.increment();
+			}
+		}
+		
+		/**
+		 * Walks the clock hand until the region is back to its capacity.
+		 * Recently read entries get a second chance, the others are evicted.
+		 */
+		private void evictIfNeeded()
+		{
+			int budget = 2 * this.maxEntries + 16;
+			final long now = System.currentTimeMillis();
+			
+			while (this.entries.size() > this.maxEntries && budget-- > 0) {
+				final Entry candidate = this.clock.poll();
+				
+				if (candidate == null) {
+					break;
+				}
+				
+				if (candidate.removed) {
+					this.clockSize.decrementAndGet();
+					continue;
+				}
+				
+				if (candidate.isExpired(now)) {
+					this.clockSize.decrementAndGet();
+					this.expire(candidate);
+					continue;
+				}
+				
+				if (candidate.referenced) {
+					candidate.referenced = false;
+					this.clock.offer(candidate);
+					continue;
+				}
+				
+				this.clockSize.decrementAndGet();
+				
+				if (this.entries.remove(candidate.key, candidate)) {
+					candidate.removed = true;
+					this.evictions.increment();
+				}
+			}
+			
+			// Explicit removals leave stale nodes behind
+			if (this.clockSize.get() > 2 * this.maxEntries) {
+				int stale = 0;
+				
+				for (final Iterator<Entry> iter = this.clock.iterator(); iter.hasNext(); ) {
+					if (iter.next().removed) {
+						iter.remove();
+						stale++;
+					}
+				}
+				
+				this.clockSize.addAndGet(-stale);
+			}
+		}
+		
+		/**
+		 * Removes expired entries at most once per TTL period, so regions which
+		 * are written but never read again do not grow forever.
+		 */
+		private void purgeExpired()
+		{
+			final long now = System.currentTimeMillis();
+			final long next = this.nextPurge.get();
+			
+			if (now < next || !this.nextPurge.compareAndSet(next, now + this.ttl)) {
+				return;
+			}
+			
+			for (final Entry entry : this.entries.values()) {
+				if (entry.isExpired(now)) {
+					this.expire(entry);
+				}
+			}
+		}
+	}
+}
@@ -258,4 +258,12 @@ public interface ResponseContext
 	 * @exception IllegalStateException If the response was committed before this method call
 	 */
 	void sendError(int statusCode) throws IOException;
+
+	/**
+	 * Sets the status code for this response, for the cases which are not errors, 
+	 * as <code>206 Partial Content</code> or <code>304 Not Modified</code>.
+	 * 
+	 * @param statusCode the status code
+	 */
+	void setStatus(int statusCode);
 }
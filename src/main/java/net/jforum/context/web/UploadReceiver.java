@@ -36,30 +36,37 @@
  * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
  * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
  * 
- * Created on 03/03/2004 - 21:25:09
+ * Created on 18/10/2026
  * The JForum Project
  * http://www.jforum.net
  */
-package net.jforum.util.mail;
+package net.jforum.context.web;
+
+import java.io.IOException;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemStream;
 
 /**
- * @author Rafael Steil
- * @version $Id$
+ * Takes the files of a multipart request while it is read, as soon as the headers of each one
+ * arrive, instead of having them written to the temporary directory first.
  */
-public class EmailSenderTask implements Runnable
+public interface UploadReceiver
 {
-	private final transient Spammer spammer;
-
-	public EmailSenderTask(final Spammer spammer)
-	{
-		this.spammer = spammer;
-	}
+	/**
+	 * @param request the request being read. Only the form fields sent before the file are in it.
+	 * @param fieldName the name of the form field
+	 * @return <code>true</code> if the file should be given to {@link #receive(WebRequestContext, FileItemStream)}
+	 */
+	boolean accepts(WebRequestContext request, String fieldName);
 
 	/**
-	 * @see java.lang.Runnable#run()
+	 * Reads a file.
+	 * 
+	 * @param request the request being read. Only the form fields sent before the file are in it.
+	 * @param part the file
+	 * @return the parameter value, or <code>null</code> to drop the file
+	 * @throws IOException
 	 */
-	@Override public void run()
-	{
-		this.spammer.dispatchMessages();
-	}
+	FileItem receive(WebRequestContext request, FileItemStream part) throws IOException;
 }
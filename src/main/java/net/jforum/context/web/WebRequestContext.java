@@ -44,11 +44,9 @@ package net.jforum.context.web;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -57,10 +55,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.apache.commons.fileupload.servlet.ServletRequestContext;
+import org.apache.commons.fileupload.util.Streams;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
@@ -83,6 +84,7 @@ public class WebRequestContext extends HttpServletRequestWrapper implements Requ
 
 	private static final String MODULE = "module";
 	private static final String ACTION = "action";
+	private static final int MAX_PARTS = 100;
 
 	private transient final Map<String, Object> query;
 
@@ -96,6 +98,16 @@ public class WebRequestContext extends HttpServletRequestWrapper implements Requ
 	 * @throws IOException
 	 */
 	public WebRequestContext (final HttpServletRequest superRequest) throws IOException
+	{
+		this(superRequest, null);
+	}
+
+	/**
+	 * @param superRequest Original <code>HttpServletRequest</code> instance
+	 * @param receiver Takes the uploaded files it accepts, may be <code>null</code>
+	 * @throws IOException
+	 */
+	public WebRequestContext (final HttpServletRequest superRequest, final UploadReceiver receiver) throws IOException
 	{
 		super(superRequest);
 
@@ -128,7 +140,7 @@ public class WebRequestContext extends HttpServletRequestWrapper implements Requ
 			isMultipart = ServletFileUpload.isMultipartContent(new ServletRequestContext(superRequest));
 
 			if (isMultipart) {
-			    this.handleMultipart(superRequest, encoding);
+			    this.handleMultipart(superRequest, encoding, receiver);
 			}
 		}
 
@@ -233,12 +245,16 @@ public class WebRequestContext extends HttpServletRequestWrapper implements Requ
         return new WebSessionContext(this.getSession());
     }
 
-    /**
+	/**
+	 * Reads the parts one after the other, as they arrive. The files the receiver accepts 
+	 * are given to it, the others are kept in the temporary directory.
+	 * 
 	 * @param superRequest HttpServletRequest
 	 * @param encoding String
-	 * @throws UnsupportedEncodingException
+	 * @param receiver UploadReceiver, may be <code>null</code>
+	 * @throws IOException
 	 */
-	private void handleMultipart(final HttpServletRequest superRequest, final String encoding) throws UnsupportedEncodingException
+	private void handleMultipart(final HttpServletRequest superRequest, final String encoding, final UploadReceiver receiver) throws IOException
 	{
 		String tmpPath = new StringBuilder(256)
 		    .append(SystemGlobals.getApplicationPath())
@@ -263,30 +279,78 @@ public class WebRequestContext extends HttpServletRequestWrapper implements Requ
 			tmpDir = new File(tmpPath);
 		}
 
-		ServletFileUpload upload = new ServletFileUpload(new DiskFileItemFactory(100 * 1024, tmpDir));
+		DiskFileItemFactory factory = new DiskFileItemFactory(100 * 1024, tmpDir);
+		ServletFileUpload upload = new ServletFileUpload(factory);
 		upload.setHeaderEncoding(encoding);
-		upload.setFileCountMax(100);
 
 		try {
-			List<FileItem> items = upload.parseRequest(superRequest);
+			int parts = 0;
 
-			for (Iterator<FileItem> iter = items.iterator(); iter.hasNext(); ) {
-				FileItem item = iter.next();
+			for (FileItemIterator iter = upload.getItemIterator(superRequest); iter.hasNext(); ) {
+				FileItemStream part = iter.next();
 
-				if (item.isFormField()) {
-					this.addParameter(item.getFieldName(), item.getString(encoding));
-				} else {
-					if (item.getSize() > 0) {
-						// We really don't want to call addParameter(), as it should
-						// not be possible to have multiple values for a InputStream data
-						this.query.put(item.getFieldName(), item);
-					}
+				if (++parts > MAX_PARTS) {
+					throw new MultipartHandlingException("Error while processing multipart content: more than " 
+						+ MAX_PARTS + " parts");
+				}
+
+				if (part.isFormField()) {
+					this.addParameter(part.getFieldName(), Streams.asString(part.openStream(), encoding));
+					continue;
+				}
+
+				// A file input left empty
+				if (part.getName() == null || part.getName().length() == 0) {
+					continue;
+				}
+
+				FileItem item;
+
+				if (receiver != null && receiver.accepts(this, part.getFieldName())) {
+					item = receiver.receive(this, part);
+				}
+				else {
+					item = factory.createItem(part.getFieldName(), part.getContentType(), false, part.getName());
+					item.setHeaders(part.getHeaders());
+					Streams.copy(part.openStream(), item.getOutputStream(), true);
+				}
+
+				if (item != null && item.getSize() > 0) {
+					// We really don't want to call addParameter(), as it should
+					// not be possible to have multiple values for a InputStream data
+					this.query.put(part.getFieldName(), item);
+				}
+				else if (item != null) {
+					item.delete();
 				}
 			}
 		}
 		catch (FileUploadException e) {
+			this.deleteUploads();
 			throw new MultipartHandlingException("Error while processing multipart content: " + e);
 		}
+		catch (IOException | RuntimeException e) {
+			this.deleteUploads();
+			throw e;
+		}
+	}
+
+	/**
+	 * Deletes the uploaded files which were not written to their place, 
+	 * see {@link FileItem#write(File)}. Called when the request is done.
+	 */
+	public void deleteUploads()
+	{
+		for (Object value : this.query.values()) {
+			if (value instanceof FileItem) {
+				try {
+					((FileItem)value).delete();
+				}
+				catch (Exception e) {
+					LOGGER.warn("Could not delete the upload " + ((FileItem)value).getName() + ": " + e);
+				}
+			}
+		}
 	}
 
 	/**
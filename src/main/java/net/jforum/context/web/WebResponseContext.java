@@ -136,6 +136,11 @@ public class WebResponseContext implements ResponseContext
 		response.sendError(statusCode);
 	}
 
+	@Override public void setStatus(final int statusCode)
+	{
+		response.setStatus(statusCode);
+	}
+
 	@Override public void addHeader(final String name, final String value)
 	{
 		response.addHeader(name, value);
@@ -72,6 +72,13 @@ public interface AttachmentDAO
 	 */
 	void updateAttachment(Attachment attachment);
 	
+	/**
+	 * Adds to the download count of each attachment, in a single batch
+	 * 
+	 * @param downloads Map of attachment ID to the number of downloads to add
+	 */
+	void addDownloadCounts(Map<Integer, Integer> downloads);
+	
 	/**
 	 * Remove an attachment.
 	 * 
@@ -80,6 +87,30 @@ public interface AttachmentDAO
 	 */
 	void removeAttachment(int id, int postId);
 	
+	/**
+	 * Counts the attachments stored in a file. More than one attachment
+	 * shares a file when attachments are stored by their content.
+	 * 
+	 * @param physicalFilename the file, relative to the attachments directory
+	 * @return the number of attachments stored in the file
+	 */
+	int countReferences(String physicalFilename);
+	
+	/**
+	 * Gets the file of every attachment.
+	 * 
+	 * @return Map of attachment ID to its file, relative to the attachments directory
+	 */
+	Map<Integer, String> selectPhysicalFilenames();
+	
+	/**
+	 * Moves an attachment to another file.
+	 * 
+	 * @param attachId the attachment id
+	 * @param physicalFilename the new file, relative to the attachments directory
+	 */
+	void updatePhysicalFilename(int attachId, String physicalFilename);
+	
 	/**
 	 * Gets the attachments of some message.
 	 * 
@@ -110,6 +110,19 @@ public interface TopicDAO
 	 */
 	List<Topic> selectAllByForumByLimit(int forumId, int startFrom, int count) ;
 
+	/**
+	 * Selects the topics of a forum which are listed after a given one, in the order
+	 * of {@link net.jforum.util.TopicTypeComparator}, with the topic id breaking ties.
+	 * The database seeks to the given topic instead of skipping rows, 
+	 * so deep pages cost the same as the first one.
+	 * 
+	 * @param forumId The forum id to select the topics
+	 * @param after The last topic of the previous page, or <code>null</code> to start from the first topic
+	 * @param count The maximum number of topics to return
+	 * @return <code>List</code> with the topics found
+	 */
+	List<Topic> selectAllByForumAfter(int forumId, Topic after, int count) ;
+
     /**
      * Selects all topics associated to a specific user and belonging to
      * given forums
@@ -176,6 +189,13 @@ public interface TopicDAO
 	 * @param topicId The topic ID to increment the total number of views
 	 */
 	void incrementTotalViews(int topicId) ;
+
+	/**
+	 * Adds to the number of times each topic was saw, in a single batch
+	 * 
+	 * @param views Map of topic ID to the number of views to add
+	 */
+	void addTotalViews(Map<Integer, Integer> views) ;
 	
 	/**
 	 * Increments the number of replies the topic has
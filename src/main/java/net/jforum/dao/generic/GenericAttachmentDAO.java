@@ -48,6 +48,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -677,6 +678,84 @@ public class GenericAttachmentDAO extends AutoKeys implements net.jforum.dao.Att
 		}
 	}
 
+	/**
+	 * @see net.jforum.dao.AttachmentDAO#countReferences(java.lang.String)
+	 */
+	@Override public int countReferences(final String physicalFilename)
+	{
+		int count = 0;
+
+		PreparedStatement pstmt = null;
+		ResultSet resultSet = null;
+		try {
+			pstmt = JForumExecutionContext.getConnection().prepareStatement(
+					SystemGlobals.getSql("AttachmentModel.countReferences"));
+			pstmt.setString(1, physicalFilename);
+
+			resultSet = pstmt.executeQuery();
+			if (resultSet.next()) {
+				count = resultSet.getInt(1);
+			}
+
+			return count;
+		}
+		catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+		finally {
+			DbUtils.close(resultSet, pstmt);
+		}
+	}
+
+	/**
+	 * @see net.jforum.dao.AttachmentDAO#selectPhysicalFilenames()
+	 */
+	@Override public Map<Integer, String> selectPhysicalFilenames()
+	{
+		final Map<Integer, String> map = new HashMap<>();
+
+		PreparedStatement pstmt = null;
+		ResultSet resultSet = null;
+		try {
+			pstmt = JForumExecutionContext.getConnection().prepareStatement(
+					SystemGlobals.getSql("AttachmentModel.selectPhysicalFilenames"));
+
+			resultSet = pstmt.executeQuery();
+			while (resultSet.next()) {
+				map.put(Integer.valueOf(resultSet.getInt("attach_id")), resultSet.getString("physical_filename"));
+			}
+
+			return map;
+		}
+		catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+		finally {
+			DbUtils.close(resultSet, pstmt);
+		}
+	}
+
+	/**
+	 * @see net.jforum.dao.AttachmentDAO#updatePhysicalFilename(int, java.lang.String)
+	 */
+	@Override public void updatePhysicalFilename(final int attachId, final String physicalFilename)
+	{
+		PreparedStatement pstmt = null;
+		try {
+			pstmt = JForumExecutionContext.getConnection().prepareStatement(
+					SystemGlobals.getSql("AttachmentModel.updatePhysicalFilename"));
+			pstmt.setString(1, physicalFilename);
+			pstmt.setInt(2, attachId);
+			pstmt.executeUpdate();
+		}
+		catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+		finally {
+			DbUtils.close(pstmt);
+		}
+	}
+
 	/**
 	 * @see net.jforum.dao.AttachmentDAO#updateAttachment(net.jforum.entities.Attachment)
 	 */
@@ -687,8 +766,7 @@ public class GenericAttachmentDAO extends AutoKeys implements net.jforum.dao.Att
 			pstmt = JForumExecutionContext.getConnection().prepareStatement(
 					SystemGlobals.getSql("AttachmentModel.updateAttachment"));
 			pstmt.setString(1, attachment.getInfo().getComment());
-			pstmt.setInt(2, attachment.getInfo().getDownloadCount());
-			pstmt.setInt(3, attachment.getId());
+			pstmt.setInt(2, attachment.getId());
 			pstmt.executeUpdate();
 		}
 		catch (SQLException e) {
@@ -699,6 +777,32 @@ public class GenericAttachmentDAO extends AutoKeys implements net.jforum.dao.Att
 		}
 	}
 
+	/**
+	 * @see net.jforum.dao.AttachmentDAO#addDownloadCounts(java.util.Map)
+	 */
+	@Override public void addDownloadCounts(final Map<Integer, Integer> downloads)
+	{
+		PreparedStatement pstmt = null;
+		try {
+			pstmt = JForumExecutionContext.getConnection().prepareStatement(
+					SystemGlobals.getSql("AttachmentModel.addDownloadCount"));
+
+			for (final Map.Entry<Integer, Integer> entry : downloads.entrySet()) {
+				pstmt.setInt(1, entry.getValue().intValue());
+				pstmt.setInt(2, entry.getKey().intValue());
+				pstmt.addBatch();
+			}
+
+			pstmt.executeBatch();
+		}
+		catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+		finally {
+			DbUtils.close(pstmt);
+		}
+	}
+
 	/**
 	 * @see net.jforum.dao.AttachmentDAO#selectAttachments(int)
 	 */
@@ -736,6 +840,7 @@ public class GenericAttachmentDAO extends AutoKeys implements net.jforum.dao.Att
 		attachment.setPrivmsgsId(resultSet.getInt("privmsgs_id"));
 
 		final AttachmentInfo attachmentInfo = new AttachmentInfo();
+		attachmentInfo.setAttachId(attachment.getId());
 		attachmentInfo.setComment(resultSet.getString("description"));
 		attachmentInfo.setDownloadCount(resultSet.getInt("download_count"));
 		attachmentInfo.setFilesize(resultSet.getLong("filesize"));
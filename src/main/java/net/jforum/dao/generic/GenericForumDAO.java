@@ -736,7 +736,7 @@ public class GenericForumDAO extends AutoKeys implements net.jforum.dao.ForumDAO
 		ForumStats forumStats = new ForumStats();
 		forumStats.setPosts(this.getTotalMessages());
 
-		Connection conn = JForumExecutionContext.getConnection();
+		Connection conn = JForumExecutionContext.getReadConnection();
 
 		// Total Users
 		Statement stmt = null;
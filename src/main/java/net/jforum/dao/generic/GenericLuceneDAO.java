@@ -162,7 +162,7 @@ public class GenericLuceneDAO implements LuceneDAO
 			String sql = SystemGlobals.getSql("SearchModel.getPostsDataForLucene");
 			sql = sql.replaceAll(":posts:", this.buildInClause(postIds));
 			
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(sql);
+			pstmt = JForumExecutionContext.getReadConnection().prepareStatement(sql);
 			rs = pstmt.executeQuery();
 			
 			while (rs.next()) {
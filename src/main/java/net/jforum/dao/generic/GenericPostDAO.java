@@ -42,6 +42,7 @@
  */
 package net.jforum.dao.generic;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -349,7 +350,8 @@ public class GenericPostDAO extends AutoKeys implements net.jforum.dao.PostDAO
 	 */
 	@Override public List<Post> selectAllByTopic(int topicId)
 	{
-		return this.selectAllByTopicByLimit(topicId, 0, -1);
+		// Fills the post cache, so it has to see the latest writes
+		return this.selectAllByTopic(JForumExecutionContext.getConnection(), topicId, 0, -1);
 	}
 
 	/**
@@ -359,6 +361,11 @@ public class GenericPostDAO extends AutoKeys implements net.jforum.dao.PostDAO
 	 * in that case in order to avoid a limit of Integer.MAX_VALUE
 	 */
 	@Override public List<Post> selectAllByTopicByLimit(int topicId, int startFrom, int count)
+	{
+		return this.selectAllByTopic(JForumExecutionContext.getReadConnection(), topicId, startFrom, count);
+	}
+
+	private List<Post> selectAllByTopic(Connection conn, int topicId, int startFrom, int count)
 	{
 		List<Post> l = new ArrayList<>();
 
@@ -370,7 +377,7 @@ public class GenericPostDAO extends AutoKeys implements net.jforum.dao.PostDAO
 		ResultSet rs = null;
 
 		try {
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(sql);
+			pstmt = conn.prepareStatement(sql);
 			pstmt.setInt(1, topicId);
 			if (count >= 0) {
 				pstmt.setInt(2, startFrom);
@@ -494,7 +501,7 @@ public class GenericPostDAO extends AutoKeys implements net.jforum.dao.PostDAO
 		ResultSet rs = null;
 
 		try {
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(
+			pstmt = JForumExecutionContext.getReadConnection().prepareStatement(
 				SystemGlobals.getSql("PostModel.selectLatestByForumForRSS"));
 			pstmt.setInt(1, forumId);
 			pstmt.setInt(2, limit);
@@ -524,7 +531,7 @@ public class GenericPostDAO extends AutoKeys implements net.jforum.dao.PostDAO
 		ResultSet rs = null;
 
 		try {
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(
+			pstmt = JForumExecutionContext.getReadConnection().prepareStatement(
 				SystemGlobals.getSql("PostModel.selectLatestForRSS"));
 			pstmt.setInt(1, limit);
 
@@ -554,7 +561,7 @@ public class GenericPostDAO extends AutoKeys implements net.jforum.dao.PostDAO
 		ResultSet rs = null;
 
 		try {
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(
+			pstmt = JForumExecutionContext.getReadConnection().prepareStatement(
 				SystemGlobals.getSql("PostModel.selectHotForRSS"));
 			pstmt.setInt(1, limit);
 
@@ -42,6 +42,7 @@
  */
 package net.jforum.dao.generic;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -69,6 +70,7 @@ import net.jforum.repository.ForumRepository;
 import net.jforum.search.SearchArgs;
 import net.jforum.search.SearchResult;
 import net.jforum.util.DbUtils;
+import net.jforum.util.TopicTypeComparator;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 
@@ -377,6 +379,32 @@ public class GenericTopicDAO extends AutoKeys implements TopicDAO
 		}
 	}
 
+	/**
+	 * @see net.jforum.dao.TopicDAO#addTotalViews(java.util.Map)
+	 */
+	@Override public void addTotalViews(Map<Integer, Integer> views)
+	{
+		PreparedStatement pstmt = null;
+		try {
+			pstmt = JForumExecutionContext.getConnection().prepareStatement(
+				SystemGlobals.getSql("TopicModel.addTotalViews"));
+
+			for (Map.Entry<Integer, Integer> entry : views.entrySet()) {
+				pstmt.setInt(1, entry.getValue().intValue());
+				pstmt.setInt(2, entry.getKey().intValue());
+				pstmt.addBatch();
+			}
+
+			pstmt.executeBatch();
+		}
+		catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+		finally {
+			DbUtils.close(pstmt);
+		}
+	}
+
 	/**
 	 * @see net.jforum.dao.TopicDAO#incrementTotalReplies(int)
 	 */
@@ -443,7 +471,8 @@ public class GenericTopicDAO extends AutoKeys implements TopicDAO
 	 */
 	@Override public List<Topic> selectAllByForum(int forumId)
 	{
-		return this.selectAllByForumByLimit(forumId, 0, -1);
+		// Meant for filling caches, so it has to see the latest writes
+		return this.selectAllByForum(JForumExecutionContext.getConnection(), forumId, 0, -1);
 	}
 
 	/**
@@ -453,6 +482,11 @@ public class GenericTopicDAO extends AutoKeys implements TopicDAO
 	 * in that case in order to avoid a limit of Integer.MAX_VALUE
 	 */
 	@Override public List<Topic> selectAllByForumByLimit(int forumId, int startFrom, int count)
+	{
+		return this.selectAllByForum(JForumExecutionContext.getReadConnection(), forumId, startFrom, count);
+	}
+
+	private List<Topic> selectAllByForum(Connection conn, int forumId, int startFrom, int count)
 	{
 		String sql = (count < 0)
 					? SystemGlobals.getSql("TopicModel.selectAllByForum")
@@ -461,7 +495,7 @@ public class GenericTopicDAO extends AutoKeys implements TopicDAO
 		PreparedStatement pstmt = null;
 
 		try {
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(sql);
+			pstmt = conn.prepareStatement(sql);
 			pstmt.setInt(1, forumId);
 			pstmt.setInt(2, forumId);
 			if (count >= 0) {
@@ -479,6 +513,47 @@ public class GenericTopicDAO extends AutoKeys implements TopicDAO
 		}
 	}
 
+	/**
+	 * @see net.jforum.dao.TopicDAO#selectAllByForumAfter(int, Topic, int)
+	 */
+	@Override public List<Topic> selectAllByForumAfter(int forumId, Topic after, int count)
+	{
+		String sql = SystemGlobals.getSql("TopicModel.selectAllByForumAfter")
+			.replaceAll(":after:", after == null ? "" : SystemGlobals.getSql("TopicModel.selectAllByForumAfterCondition"));
+
+		PreparedStatement pstmt = null;
+
+		try {
+			pstmt = JForumExecutionContext.getConnection().prepareStatement(sql);
+			// Not all databases share a syntax for LIMIT, but all drivers stop reading at the max rows
+			pstmt.setMaxRows(count);
+
+			int index = 1;
+			pstmt.setInt(index++, forumId);
+			pstmt.setInt(index++, forumId);
+
+			if (after != null) {
+				// Same expressions as in the query: wiki pages are listed as normal topics
+				int type = after.getType() == Topic.TYPE_WIKI ? Topic.TYPE_NORMAL : after.getType();
+				Timestamp time = new Timestamp(TopicTypeComparator.sortTime(after).getTime());
+
+				pstmt.setInt(index++, type);
+				pstmt.setInt(index++, type);
+				pstmt.setTimestamp(index++, time);
+				pstmt.setTimestamp(index++, time);
+				pstmt.setInt(index++, after.getId());
+			}
+
+			return this.fillTopicsData(pstmt);
+		}
+		catch (SQLException e) {
+			throw new DatabaseException(e);
+		}
+		finally {
+			DbUtils.close(pstmt);
+		}
+	}
+
 	/**
 	 * @see net.jforum.dao.TopicDAO#selectByUserByLimit(int, int, int)
 	 */
@@ -1193,7 +1268,7 @@ public class GenericTopicDAO extends AutoKeys implements TopicDAO
 		try {
 			StringBuilder sql = new StringBuilder(SystemGlobals.getSql("TopicModel.topicPosters"));
 
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(
+			pstmt = JForumExecutionContext.getReadConnection().prepareStatement(
 				SystemGlobals.getSql("TopicModel.distinctPosters"));
 			pstmt.setInt(1, topicId);
 
@@ -1213,7 +1288,7 @@ public class GenericTopicDAO extends AutoKeys implements TopicDAO
 				sql.replace(index, index + 5, sb.substring(0, sb.length() - 1));
 			}
 
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(sql.toString());
+			pstmt = JForumExecutionContext.getReadConnection().prepareStatement(sql.toString());
 			rs = pstmt.executeQuery();
 
 			while (rs.next()) {
@@ -73,7 +73,7 @@ public class HsqldbTopicDAO extends GenericTopicDAO
 		PreparedStatement pstmt = null;
 
 		try {
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(sql);
+			pstmt = JForumExecutionContext.getReadConnection().prepareStatement(sql);
 			pstmt.setInt(1, startFrom);
 			pstmt.setInt(2, count);
 			pstmt.setInt(3, forumId);
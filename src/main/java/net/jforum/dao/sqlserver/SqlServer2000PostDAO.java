@@ -77,7 +77,7 @@ public class SqlServer2000PostDAO extends GenericPostDAO
 		ResultSet rs = null;
 
 		try {
-			pstmt = JForumExecutionContext.getConnection().prepareStatement(sql);
+			pstmt = JForumExecutionContext.getReadConnection().prepareStatement(sql);
 			pstmt.setInt(1, topicId);
 
 			rs = pstmt.executeQuery();
@@ -140,7 +140,7 @@ public class SqlServer2000PostDAO extends GenericPostDAO
         ResultSet rs = null;
         
         try {
-            pstmt = JForumExecutionContext.getConnection().prepareStatement(sql);
+            pstmt = JForumExecutionContext.getReadConnection().prepareStatement(sql);
             pstmt.setInt(1, forumId);
             
             rs = pstmt.executeQuery();
@@ -172,7 +172,7 @@ public class SqlServer2000PostDAO extends GenericPostDAO
         ResultSet rs = null;
         
         try {
-            pstmt = JForumExecutionContext.getConnection().prepareStatement(sql);
+            pstmt = JForumExecutionContext.getReadConnection().prepareStatement(sql);
             
             rs = pstmt.executeQuery();
             
@@ -203,7 +203,7 @@ public class SqlServer2000PostDAO extends GenericPostDAO
         ResultSet rs = null;
         
         try {
-            pstmt = JForumExecutionContext.getConnection().prepareStatement(sql);
+            pstmt = JForumExecutionContext.getReadConnection().prepareStatement(sql);
             
             rs = pstmt.executeQuery();
             
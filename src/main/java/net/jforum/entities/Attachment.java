@@ -44,6 +44,7 @@ package net.jforum.entities;
 
 import java.io.File;
 
+import net.jforum.util.image.ThumbnailGenerator;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 
@@ -149,10 +150,15 @@ public class Attachment
 		    + "/" + this.info.getPhysicalFilename();
 		String realPath = SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_STORE_DIR)
 		    + "/" + this.info.getPhysicalFilename();
-		if (new File(realPath + "_thumb").exists()) {
+		File thumb = ThumbnailGenerator.thumbFile(realPath, ThumbnailGenerator.getDefaultSize());
+		if (thumb.length() > 0) {
 			return urlPath + "_thumb";
-		} else {
+		} else if (thumb.exists()) {
+			// The image is small enough to be its own thumb
 			return urlPath;
+		} else {
+			// Not created yet, the action waits for it
+			return "posts/thumbnail/" + this.id + SystemGlobals.getValue(ConfigKeys.SERVLET_EXTENSION);
 		}    
 	}
 
@@ -66,6 +66,7 @@ public class Topic implements Serializable
 	private int id;
 	private int forumId;
 	private int totalViews;
+	private int pendingViews;
 	private int totalReplies;
 	private int status;
 	private int type;
@@ -188,12 +189,13 @@ public class Topic implements Serializable
 	}
 
 	/**
-	 * Returns the total number of views
+	 * Returns the total number of views, including the ones not written to the database yet
 	 * 
 	 * @return int value with the total number of views
+	 * @see #setPendingViews(int)
 	 */
 	public int getTotalViews() {
-		return this.totalViews;
+		return this.totalViews + this.pendingViews;
 	}
 
 	/**
@@ -322,6 +324,16 @@ public class Topic implements Serializable
 		this.totalViews = totalViews;
 	}
 
+	/**
+	 * Sets the views counted but not written to the database yet
+	 * 
+	 * @param pendingViews the views to add to the total
+	 * @see net.jforum.repository.TopicViewCounter
+	 */
+	public void setPendingViews(int pendingViews) {
+		this.pendingViews = pendingViews;
+	}
+
 	/**
 	 * Sets the type.
 	 * 
@@ -84,6 +84,7 @@ public class UserSession implements Serializable
 	
 	private String sessionId;
 	private String username;
+	private String email;
 	private String lang;
 	private String ip;
 
@@ -109,6 +110,7 @@ public class UserSession implements Serializable
 		this.userId = userSession.getUserId();
 		this.sessionId = userSession.getSessionId();
 		this.username = userSession.getUsername();
+		this.email = userSession.getEmail();
 		this.autoLogin = userSession.isAutoLogin();
 		this.lang = userSession.getLang();
 		this.privateMessages = userSession.getPrivateMessages();
@@ -184,6 +186,14 @@ public class UserSession implements Serializable
 		this.username = username;
 	}
 
+	/**
+	 * Set user's email, kept here so the ban list can be checked without a database lookup
+	 */
+	public void setEmail(final String email)
+	{
+		this.email = email;
+	}
+
 	public void setSessionId(final String sessionId)
 	{
 		this.sessionId = sessionId;
@@ -272,6 +282,14 @@ public class UserSession implements Serializable
 		return this.username;
 	}
 
+	/**
+	 * Gets the user's email, or <code>null</code> for anonymous users
+	 */
+	public String getEmail()
+	{
+		return this.email;
+	}
+
 	/**
 	 * Gets auto-login status
 	 * 
@@ -353,11 +371,12 @@ public class UserSession implements Serializable
 		this.setLastVisit(new Date(System.currentTimeMillis()));
 		this.setUserId(SystemGlobals.getIntValue(ConfigKeys.ANONYMOUS_USER_ID));
 		this.setUsername(I18n.getMessage("Guest"));
+		this.setEmail(null);
 	}
 
 	/**
 	 * Sets a new user session information using information from a <code>User</code> instance.
-	 * This method sets the user id, username, the number of private messages, the session's start
+	 * This method sets the user id, username, email, the number of private messages, the session's start
 	 * time ( set to the current date and time ) and the language.
 	 * 
 	 * @param user The <code>User</code> instance to get data from
@@ -366,6 +385,7 @@ public class UserSession implements Serializable
 	{
 		this.setUserId(user.getId());
 		this.setUsername(user.getUsername());
+		this.setEmail(user.getEmail());
 		this.setPrivateMessages(user.getPrivateMessagesCount());
 		this.setStartTime(new Date(System.currentTimeMillis()));
 		this.setLang(user.getLang());
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.util.Collections;
+
+import net.jforum.dao.DataAccessDriver;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Counts attachment downloads in memory and writes them to the database periodically,
+ * in a single batch, the same way {@link TopicViewCounter} does for topic views.
+ * <p>
+ * The downloads not written yet are added when the attachments of a post are listed.
+ * Setting <code>attachments.downloads.writebehind.enabled</code> to <code>false</code>
+ * makes every download update the database right away.
+ */
+public final class AttachmentDownloadCounter
+{
+	private static final WriteBehindCounter DOWNLOADS = new WriteBehindCounter("attachment downloads", 
+		ConfigKeys.ATTACHMENTS_DOWNLOADS_FLUSH_INTERVAL, deltas -> DataAccessDriver.getInstance().newAttachmentDAO().addDownloadCounts(deltas));
+
+	private AttachmentDownloadCounter() {}
+
+	/**
+	 * Registers a download of the attachment
+	 * 
+	 * @param attachId the attachment id
+	 */
+	public static void increment(int attachId)
+	{
+		if (!SystemGlobals.getBoolValue(ConfigKeys.ATTACHMENTS_DOWNLOADS_WRITEBEHIND_ENABLED)) {
+			DataAccessDriver.getInstance().newAttachmentDAO().addDownloadCounts(
+				Collections.singletonMap(Integer.valueOf(attachId), Integer.valueOf(1)));
+			return;
+		}
+
+		DOWNLOADS.increment(attachId);
+	}
+
+	/**
+	 * @param attachId the attachment id
+	 * @return the number of downloads of the attachment which were not written to the database yet
+	 */
+	public static int pending(int attachId)
+	{
+		return DOWNLOADS.pending(attachId);
+	}
+
+	/**
+	 * Writes all pending downloads to the database.
+	 */
+	public static void flush()
+	{
+		DOWNLOADS.flush();
+	}
+
+	/**
+	 * Stops the periodic writes and flushes what is still pending.
+	 */
+	public static void stop()
+	{
+		DOWNLOADS.stop();
+	}
+}
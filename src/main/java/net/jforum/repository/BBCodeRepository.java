@@ -73,6 +73,7 @@ public class BBCodeRepository implements Cacheable
 	public static void setBBCollection(final BBCodeHandler bbCollection)
 	{
 		cache.add(FQN, BBCOLLECTION, bbCollection);
+		RenderedPostStore.invalidate();
 	}
 	
 	public static BBCodeHandler getBBCollection()
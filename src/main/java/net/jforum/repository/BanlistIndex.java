@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import net.jforum.entities.Banlist;
+
+/**
+ * Immutable, compiled form of the ban list. User ids and emails are kept in hash sets
+ * and IP entries in a binary trie, so a check costs at most the length of the address
+ * instead of a scan over all entries.
+ * <p>
+ * IP entries may be exact IPv4 or IPv6 addresses, CIDR blocks (<code>10.0.0.0/8</code>, 
+ * <code>2001:db8::/32</code>) or IPv4 patterns with wildcard octets (<code>192.168.*.*</code>, 
+ * <code>*.168.7.*</code>). As before, a pattern made only of wildcards matches nothing.
+ * Anything else is compared as plain text, ignoring case.
+ */
+public final class BanlistIndex
+{
+	private static final Logger LOGGER = Logger.getLogger(BanlistIndex.class);
+
+	public static final BanlistIndex EMPTY = new BanlistIndex();
+
+	private final Set<Integer> userIds = new HashSet<>();
+	private final Set<String> emails = new HashSet<>();
+	private final Set<String> rawIps = new HashSet<>();
+	private final Node ipv4 = new Node();
+	private final Node ipv6 = new Node();
+
+	private BanlistIndex() {}
+
+	public static BanlistIndex build(Collection<Banlist> entries)
+	{
+		BanlistIndex index = new BanlistIndex();
+
+		for (Banlist ban : entries) {
+			index.add(ban);
+		}
+
+		return index;
+	}
+
+	/**
+	 * @param userId the user id, or 0 if unknown
+	 * @param email the user's email, may be <code>null</code>
+	 * @param ip the remote address, may be <code>null</code>
+	 * @return <code>true</code> if any of the values is banned
+	 */
+	public boolean matches(int userId, String email, String ip)
+	{
+		if (userId > 0 && this.userIds.contains(Integer.valueOf(userId))) {
+			return true;
+		}
+
+		if (StringUtils.isNotEmpty(email) && this.emails.contains(email)) {
+			return true;
+		}
+
+		if (StringUtils.isEmpty(ip)) {
+			return false;
+		}
+
+		if (!this.rawIps.isEmpty() && this.rawIps.contains(ip.trim().toLowerCase(Locale.ENGLISH))) {
+			return true;
+		}
+
+		byte[] address = parseAddress(ip.trim());
+
+		if (address == null) {
+			return false;
+		}
+
+		return matches(address.length == 4 ? this.ipv4 : this.ipv6, address, 0);
+	}
+
+	private void add(Banlist ban)
+	{
+		if (ban.getUserId() > 0) {
+			this.userIds.add(Integer.valueOf(ban.getUserId()));
+		}
+
+		if (StringUtils.isNotEmpty(ban.getEmail())) {
+			this.emails.add(ban.getEmail());
+		}
+
+		if (StringUtils.isNotEmpty(ban.getIp())) {
+			this.addIp(ban.getIp().trim());
+		}
+	}
+
+	private void addIp(String ip)
+	{
+		int slash = ip.indexOf('/');
+
+		if (slash > -1) {
+			byte[] address = parseAddress(ip.substring(0, slash));
+			int prefix = -1;
+
+			try {
+				prefix = Integer.parseInt(ip.substring(slash + 1).trim());
+			}
+			catch (NumberFormatException e) {
+				// handled below
+			}
+
+			if (address != null && prefix >= 0 && prefix <= address.length * 8) {
+				this.insert(address, prefix, null);
+				return;
+			}
+		}
+		else if (ip.indexOf('*') > -1) {
+			if (this.addWildcard(ip)) {
+				return;
+			}
+		}
+		else {
+			byte[] address = parseAddress(ip);
+
+			if (address != null) {
+				this.insert(address, address.length * 8, null);
+				return;
+			}
+		}
+
+		LOGGER.debug("Ban list entry " + ip + " is not an IP address, comparing it as text");
+		this.rawIps.add(ip.toLowerCase(Locale.ENGLISH));
+	}
+
+	private boolean addWildcard(String ip)
+	{
+		StringTokenizer tokenizer = new StringTokenizer(ip, ".");
+
+		if (tokenizer.countTokens() != 4) {
+			// Could never match an IPv4 address
+			return true;
+		}
+
+		byte[] address = new byte[4];
+		boolean[] wildcard = new boolean[4];
+		boolean onlyStars = true;
+		int prefix = 0;
+
+		for (int i = 0; i < 4; i++) {
+			String token = tokenizer.nextToken();
+
+			if (token.charAt(0) == '*') {
+				wildcard[i] = true;
+				continue;
+			}
+
+			int value = parseOctet(token);
+
+			if (value < 0) {
+				return false;
+			}
+
+			address[i] = (byte)value;
+			onlyStars = false;
+			prefix = (i + 1) * 8;
+		}
+
+		if (!onlyStars) {
+			// Trailing wildcards are just a shorter prefix
+			this.insert(address, prefix, wildcard);
+		}
+
+		return true;
+	}
+
+	private void insert(byte[] address, int prefix, boolean[] wildcardOctets)
+	{
+		Node node = address.length == 4 ? this.ipv4 : this.ipv6;
+		int bit = 0;
+
+		while (bit < prefix && !node.terminal) {
+			if (wildcardOctets != null && bit % 8 == 0 && wildcardOctets[bit / 8]) {
+				if (node.anyOctet == null) {
+					node.anyOctet = new Node();
+				}
+
+				node = node.anyOctet;
+				bit += 8;
+			}
+			else if (bitAt(address, bit)) {
+				if (node.one == null) {
+					node.one = new Node();
+				}
+
+				node = node.one;
+				bit++;
+			}
+			else {
+				if (node.zero == null) {
+					node.zero = new Node();
+				}
+
+				node = node.zero;
+				bit++;
+			}
+		}
+
+		node.terminal = true;
+	}
+
+	private static boolean matches(Node node, byte[] address, int bit)
+	{
+		while (node != null) {
+			if (node.terminal) {
+				return true;
+			}
+
+			if (bit == address.length * 8) {
+				return false;
+			}
+
+			if (node.anyOctet != null && bit % 8 == 0 && matches(node.anyOctet, address, bit + 8)) {
+				return true;
+			}
+
+			node = bitAt(address, bit) ? node.one : node.zero;
+			bit++;
+		}
+
+		return false;
+	}
+
+	private static boolean bitAt(byte[] address, int bit)
+	{
+		return (address[bit >> 3] & (0x80 >> (bit & 7))) != 0;
+	}
+
+	/**
+	 * Parses an IPv4 or IPv6 literal, never doing any name lookup.
+	 * IPv4-mapped IPv6 addresses are returned as IPv4.
+	 * 
+	 * @return the address bytes, or <code>null</code> if it is not an IP literal
+	 */
+	static byte[] parseAddress(String ip)
+	{
+		if (ip.indexOf(':') > -1) {
+			int zone = ip.indexOf('%');
+			String literal = zone > -1 ? ip.substring(0, zone) : ip;
+
+			if (literal.startsWith("[") && literal.endsWith("]")) {
+				literal = literal.substring(1, literal.length() - 1);
+			}
+
+			if (literal.isEmpty()) {
+				return null;
+			}
+
+			for (int i = 0; i < literal.length(); i++) {
+				char c = literal.charAt(i);
+
+				// Anything else could make InetAddress resolve it as a host name
+				if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+					return null;
+				}
+			}
+
+			try {
+				return InetAddress.getByName(literal).getAddress();
+			}
+			catch (UnknownHostException e) {
+				return null;
+			}
+		}
+
+		StringTokenizer tokenizer = new StringTokenizer(ip, ".");
+
+		if (tokenizer.countTokens() != 4 || ip.startsWith(".") || ip.endsWith(".") || ip.contains("..")) {
+			return null;
+		}
+
+		byte[] address = new byte[4];
+
+		for (int i = 0; i < 4; i++) {
+			int value = parseOctet(tokenizer.nextToken());
+
+			if (value < 0) {
+				return null;
+			}
+
+			address[i] = (byte)value;
+		}
+
+		return address;
+	}
+
+	private static int parseOctet(String token)
+	{
+		if (token.isEmpty() || token.length() > 3) {
+			return -1;
+		}
+
+		int value = 0;
+
+		for (int i = 0; i < token.length(); i++) {
+			char c = token.charAt(i);
+
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+
+			value = value * 10 + (c - '0');
+		}
+
+		return value <= 255 ? value : -1;
+	}
+
+	private static final class Node
+	{
+		Node zero;
+		Node one;
+		Node anyOctet;
+		boolean terminal;
+	}
+}
@@ -63,7 +63,8 @@ public class BanlistRepository implements Cacheable
 	private static CacheEngine cache;
 	private static final String FQN = "banlist";
 	private static final String BANLIST = "banlistCollection";
-	private static boolean empty = false;
+	private static final Object MUTEX = new Object();
+	private static volatile BanlistIndex index;
 	
 	/**
 	 * @see net.jforum.cache.Cacheable#setCacheEngine(net.jforum.cache.CacheEngine)
@@ -79,72 +80,92 @@ public class BanlistRepository implements Cacheable
 	}
 	
 	public static boolean shouldBan(Banlist ban) {
-		boolean status = false;
-				
-		Map<Integer, Banlist> map = banlist();
-		if (map.isEmpty() && !empty) {
+		return shouldBan(ban.getUserId(), ban.getEmail(), ban.getIp());
+	}
+
+	/**
+	 * Checks the ban list without touching the database, 
+	 * except for the first call, which loads it.
+	 * 
+	 * @param userId the user id
+	 * @param email the user's email, may be <code>null</code>
+	 * @param ip the remote address, may be <code>null</code>
+	 * @return <code>true</code> if any of the values is banned
+	 */
+	public static boolean shouldBan(int userId, String email, String ip) {
+		BanlistIndex current = index;
+
+		if (current == null) {
 			loadBanlist();
-			map = banlist();
-		}
-		for (Banlist current: map.values()) {			
-			if (current.matches(ban)) {
-				status = true;
-				break;
-			}
+			current = index;
 		}
-		
-		return status;
+
+		return current.matches(userId, email, ip);
 	}
 
 	public static void add(Banlist ban)
 	{
-		Map<Integer, Banlist> map = banlist();
-		map.put(Integer.valueOf(ban.getId()), ban);
-		
-		cache.add(FQN, BANLIST, map);
-		if (empty) {
-			empty = false;
+		synchronized (MUTEX) {
+			Map<Integer, Banlist> map = banlist();
+
+			if (map == null) {
+				// evicted from the cache, the database already has the new entry
+				loadBanlist();
+				return;
+			}
+
+			map.put(Integer.valueOf(ban.getId()), ban);
+
+			cache.add(FQN, BANLIST, map);
+			rebuild(map);
 		}
 	}
 	
 	public static void remove(int banlistId)
 	{
-		Map<Integer, Banlist> map = banlist();
-		
-		Integer key = Integer.valueOf(banlistId);
-		
-		if (map.containsKey(key)) {
-			map.remove(key);
-		}
-		
-		cache.add(FQN, BANLIST, map);
-		if (map.isEmpty()) {
-			empty = true;
+		synchronized (MUTEX) {
+			Map<Integer, Banlist> map = banlist();
+
+			if (map == null) {
+				loadBanlist();
+				return;
+			}
+
+			map.remove(Integer.valueOf(banlistId));
+
+			cache.add(FQN, BANLIST, map);
+			rebuild(map);
 		}
 	}
 	
 	private static Map<Integer, Banlist> banlist()
 	{
-		Map<Integer, Banlist> map = (Map<Integer, Banlist>)cache.get(FQN, BANLIST);
-        
-		if (map == null) {
-			map = new ConcurrentHashMap<>();
-		}
-		
-		return map;
+		return (Map<Integer, Banlist>)cache.get(FQN, BANLIST);
+	}
+
+	/**
+	 * Compiles a new index and only then makes it visible, 
+	 * so concurrent checks see either the old or the new ban list.
+	 */
+	private static void rebuild(Map<Integer, Banlist> map)
+	{
+		index = map.isEmpty() ? BanlistIndex.EMPTY : BanlistIndex.build(map.values());
 	}
 	
 	public static void loadBanlist() 
 	{
 		BanlistDAO dao = DataAccessDriver.getInstance().newBanlistDAO();
 		List<Banlist> list = dao.selectAll();
-		
-		if (list.size() == 0) {
-			empty = true;
-		} else {
+
+		synchronized (MUTEX) {
+			Map<Integer, Banlist> map = new ConcurrentHashMap<>();
+
 			for (Banlist ban: list) {
-				BanlistRepository.add(ban);			
+				map.put(Integer.valueOf(ban.getId()), ban);
 			}
+
+			cache.add(FQN, BANLIST, map);
+			rebuild(map);
 		}
 		LOGGER.debug("Loading banlist from DAO");
 	}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import net.jforum.entities.Topic;
+import net.jforum.util.TopicTypeComparator;
+
+/**
+ * The first topics of a forum, in listing order. Topics are kept in a skip list 
+ * ordered like {@link TopicTypeComparator}, with ties broken by 
+ * the newest topic id, and in a hash index by topic id. Adding or moving a topic 
+ * costs O(log n).
+ * <p>
+ * Changes are serialized per instance. Readers don't lock: {@link #getTopics()} 
+ * returns an immutable snapshot, which is built again only after a change.
+ */
+final class ForumTopicIndex implements Serializable
+{
+	private static final long serialVersionUID = 2208634145137392071L;
+
+	/** How many times a reader tries to build a snapshot while changes go on, before waiting for them */
+	private static final int SNAPSHOT_TRIES = 3;
+
+	private final ConcurrentNavigableMap<Key, Topic> ordered = new ConcurrentSkipListMap<>();
+	private final Map<Integer, Key> byId = new ConcurrentHashMap<>();
+
+	/** Odd while a change is in progress */
+	private volatile long version;
+	private transient volatile Snapshot snapshot;
+
+	ForumTopicIndex() {}
+
+	/**
+	 * @param topics the first topics of the forum
+	 */
+	ForumTopicIndex(Collection<Topic> topics)
+	{
+		for (Topic topic : topics) {
+			this.put(topic);
+		}
+	}
+
+	/**
+	 * Adds a topic, or moves it to where it now sorts. If that makes the index 
+	 * hold more than <code>capacity</code> topics, the last one is dropped.
+	 * 
+	 * @param topic the topic
+	 * @param capacity the number of topics to keep
+	 * @return <code>false</code> if the topic went to the end of a full index. 
+	 * Topics which are not in the index may then come before it, so the index 
+	 * is cleared and must be loaded again.
+	 */
+	synchronized boolean add(Topic topic, int capacity)
+	{
+		this.version++;
+
+		try {
+			boolean full = this.byId.size() >= capacity;
+			Key key = this.put(topic);
+
+			if (this.byId.size() > capacity) {
+				Map.Entry<Key, Topic> last = this.ordered.pollLastEntry();
+				this.byId.remove(Integer.valueOf(last.getKey().id));
+			}
+			else if (full && this.ordered.lastKey() == key) {
+				this.ordered.clear();
+				this.byId.clear();
+				return false;
+			}
+
+			return true;
+		}
+		finally {
+			this.version++;
+		}
+	}
+
+	/**
+	 * Replaces a topic which is in the index, moving it if it now sorts elsewhere. 
+	 * 
+	 * @param topic the new topic data
+	 * @param capacity the number of topics to keep
+	 * @return <code>false</code> if the index was cleared, as in {@link #add(Topic, int)}
+	 */
+	synchronized boolean update(Topic topic, int capacity)
+	{
+		return !this.contains(topic.getId()) || this.add(topic, capacity);
+	}
+
+	private Key put(Topic topic)
+	{
+		Key key = new Key(topic);
+		Key previous = this.byId.put(Integer.valueOf(key.id), key);
+
+		if (previous != null) {
+			this.ordered.remove(previous);
+		}
+
+		this.ordered.put(key, topic);
+
+		return key;
+	}
+
+	synchronized void clear()
+	{
+		this.version++;
+		this.ordered.clear();
+		this.byId.clear();
+		this.version++;
+	}
+
+	/**
+	 * @param topicId the topic id
+	 * @return the cached topic, or <code>null</code> if it is not in the index
+	 */
+	Topic get(int topicId)
+	{
+		Key key = this.byId.get(Integer.valueOf(topicId));
+
+		return key == null ? null : this.ordered.get(key);
+	}
+
+	boolean contains(int topicId)
+	{
+		return this.byId.containsKey(Integer.valueOf(topicId));
+	}
+
+	int size()
+	{
+		return this.byId.size();
+	}
+
+	/**
+	 * @return an immutable list of the topics, in listing order
+	 */
+	List<Topic> getTopics()
+	{
+		Snapshot current = this.snapshot;
+
+		if (current != null && current.version == this.version) {
+			return current.topics;
+		}
+
+		for (int i = 0; i < SNAPSHOT_TRIES; i++) {
+			long before = this.version;
+
+			if ((before & 1) == 0) {
+				List<Topic> topics = new ArrayList<>(this.ordered.values());
+
+				if (this.version == before) {
+					return this.publish(new Snapshot(before, topics)).topics;
+				}
+			}
+
+			Thread.yield();
+		}
+
+		synchronized (this) {
+			return this.publish(new Snapshot(this.version, new ArrayList<>(this.ordered.values()))).topics;
+		}
+	}
+
+	private Snapshot publish(Snapshot built)
+	{
+		Snapshot current = this.snapshot;
+
+		if (current == null || current.version < built.version) {
+			this.snapshot = built;
+		}
+
+		return built;
+	}
+
+	private static final class Snapshot
+	{
+		final long version;
+		final List<Topic> topics;
+
+		Snapshot(long version, List<Topic> topics)
+		{
+			this.version = version;
+			this.topics = Collections.unmodifiableList(topics);
+		}
+	}
+
+	/**
+	 * The sort values of a topic when it was added, so it can still be found 
+	 * if the instance is changed afterwards
+	 */
+	static final class Key implements Comparable<Key>, Serializable
+	{
+		private static final long serialVersionUID = -4128370315871405922L;
+
+		final int type;
+		final long time;
+		final int id;
+
+		Key(Topic topic)
+		{
+			// Wiki pages are not sorted especially
+			this.type = topic.getType() == Topic.TYPE_WIKI ? Topic.TYPE_NORMAL : topic.getType();
+
+			Date date = TopicTypeComparator.sortTime(topic);
+			this.time = date == null ? 0 : date.getTime();
+			this.id = topic.getId();
+		}
+
+		@Override public int compareTo(Key other)
+		{
+			if (this.type != other.type) {
+				return this.type > other.type ? -1 : 1;
+			}
+
+			if (this.time != other.time) {
+				return this.time > other.time ? -1 : 1;
+			}
+
+			return Integer.compare(other.id, this.id);
+		}
+
+		@Override public boolean equals(Object o)
+		{
+			return o instanceof Key && this.compareTo((Key)o) == 0;
+		}
+
+		@Override public int hashCode()
+		{
+			return this.id;
+		}
+	}
+}
@@ -49,6 +49,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
+import net.jforum.ActionTable;
 import net.jforum.ConfigLoader;
 import net.jforum.JForumExecutionContext;
 import net.jforum.util.preferences.ConfigKeys;
@@ -72,7 +73,10 @@ public class ModulesRepository
 	 */
 	public static void init(final String baseDir)
 	{
-		cache.put(ENTRIES, ConfigLoader.loadModulesMapping(baseDir));
+		final Properties modules = ConfigLoader.loadModulesMapping(baseDir);
+
+		ActionTable.build(modules);
+		cache.put(ENTRIES, modules);
 	}
 	
 	public static int size()
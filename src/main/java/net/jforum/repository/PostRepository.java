@@ -45,7 +45,6 @@ package net.jforum.repository;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -54,8 +53,6 @@ import net.jforum.cache.Cacheable;
 import net.jforum.dao.DataAccessDriver;
 import net.jforum.dao.PostDAO;
 import net.jforum.entities.Post;
-import net.jforum.util.preferences.ConfigKeys;
-import net.jforum.util.preferences.SystemGlobals;
 import net.jforum.view.forum.common.PostCommon;
 
 /**
@@ -116,28 +113,11 @@ public class PostRepository implements Cacheable
 			posts = pm.selectAllByTopic(topicId);
 			
 			for (Iterator<Post> iter = posts.iterator(); iter.hasNext(); ) {
-				PostCommon.preparePostForDisplay(iter.next());
+				PostCommon.prepareStoredPostForDisplay(iter.next());
 			}
 	
-			Map<String, List<Post>> topics = (Map<String, List<Post>>)cache.get(FQN);
-			final int CACHE_SIZE = SystemGlobals.getIntValue(ConfigKeys.POSTS_CACHE_SIZE);
-			if (topics == null || topics.isEmpty() || topics.size() < CACHE_SIZE) {								
-				cache.add(FQN, tid, posts);
-			}
-			else {
-				if (!(topics instanceof LinkedHashMap<?, ?>)) {
-					topics = new LinkedHashMap<String, List<Post>>(topics) {
-						private static final long serialVersionUID = -4868402767486935543L;
-
-						@Override protected boolean removeEldestEntry(java.util.Map.Entry<String, List<Post>> eldest) {
-							return this.size() > CACHE_SIZE;
-						}
-					};
-				}
-				
-				topics.put(tid, posts);
-				cache.add(FQN, topics);
-			}
+			// The engine bounds FQN, see cache.concurrent.max.entries.posts
+			cache.add(FQN, tid, posts);
 		}
 		
 		int size = posts.size();
@@ -157,6 +137,7 @@ public class PostRepository implements Cacheable
 		synchronized (MUTEX_FQN) {
 			String tid = Integer.toString(topicId);			
 			List<Post> posts = (List<Post>)cache.get(FQN, tid);			
+			RenderedPostStore.remove(post.getId());
 			if (posts != null) {
 				posts.remove(post);				
 				cache.add(FQN, tid, posts);
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import net.jforum.entities.Post;
+import net.jforum.entities.Smilie;
+import net.jforum.util.Hash;
+import net.jforum.util.bbcode.BBCode;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps the final HTML of each post on disk, so posts that are not in 
+ * the posts cache anymore don't have to go through the sanitizer and the 
+ * BB code / smilies processing again.
+ * <p>
+ * Entries live in <code>posts.rendered.cache.dir/&lt;version&gt;/&lt;postId / 1000&gt;/&lt;postId&gt;</code>, 
+ * where the version is a hash of everything the rendering depends on (BB codes, smilies 
+ * and the allowed HTML settings). Each entry also records the post and edit times and 
+ * a hash of the source text, so an edited post simply misses and gets rendered again.
+ * Any I/O problem is logged and treated as a miss.
+ * <p>
+ * The directories of other versions are deleted at startup and whenever the version 
+ * changes. When the entries go over <code>posts.rendered.cache.max.size</code> megabytes, 
+ * the oldest ones are deleted until they take three quarters of it.
+ */
+public final class RenderedPostStore
+{
+	private static final Logger LOGGER = Logger.getLogger(RenderedPostStore.class);
+
+	/** Bump when the layout of the entries, or the rendering code itself, changes */
+	private static final int FORMAT = 1;
+
+	private static final Object MUTEX = new Object();
+	private static volatile File versionDir;
+	private static volatile boolean started;
+
+	/** Bytes taken by the entries of the current version, as far as known */
+	private static final AtomicLong SIZE = new AtomicLong();
+	private static final AtomicBoolean TRIMMING = new AtomicBoolean();
+
+	private RenderedPostStore() {}
+
+	public static boolean isEnabled()
+	{
+		return SystemGlobals.getBoolValue(ConfigKeys.POSTS_RENDERED_CACHE_ENABLED);
+	}
+
+	/**
+	 * Deletes the entries of other versions and measures the current one. 
+	 * Must be called once the BB codes and smilies are loaded.
+	 */
+	public static void start()
+	{
+		if (isEnabled()) {
+			started = true;
+			versionDir();
+		}
+	}
+
+	/**
+	 * Replaces the text and subject of the post with the stored rendered version, if there is one.
+	 * 
+	 * @param post the post, as read from the database
+	 * @return <code>true</code> if the post was filled from the store
+	 */
+	public static boolean load(Post post)
+	{
+		if (!isEnabled() || post.getText() == null) {
+			return false;
+		}
+
+		File file = entryFile(post.getId());
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != FORMAT 
+				|| in.readLong() != time(post) 
+				|| in.readLong() != editTime(post) 
+				|| in.readInt() != sourceHash(post)) {
+				return false;
+			}
+
+			String subject = readString(in);
+			String text = readString(in);
+
+			post.setSubject(subject);
+			post.setText(text);
+
+			return true;
+		}
+		catch (FileNotFoundException e) {
+			return false;
+		}
+		catch (IOException e) {
+			LOGGER.warn("Could not read the rendered post " + file + ": " + e);
+			return false;
+		}
+	}
+
+	/**
+	 * Stores the rendered text and subject of a post.
+	 * 
+	 * @param source the post as read from the database, before rendering
+	 * @param rendered the same post after {@link net.jforum.view.forum.common.PostCommon#preparePostForDisplay(Post)}
+	 */
+	public static void store(Post source, Post rendered)
+	{
+		if (!isEnabled() || source.getText() == null) {
+			return;
+		}
+
+		File file = entryFile(source.getId());
+		File tmp = new File(file.getParentFile(), file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(FORMAT);
+				out.writeLong(time(source));
+				out.writeLong(editTime(source));
+				out.writeInt(sourceHash(source));
+				writeString(out, rendered.getSubject());
+				writeString(out, rendered.getText());
+			}
+
+			long length = tmp.length();
+
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			// A replaced entry is counted twice, which only makes the next trim come a bit earlier
+			if (SIZE.addAndGet(length) > maxSize() && TRIMMING.compareAndSet(false, true)) {
+				background("jforum-rendered-posts-trim", () -> {
+					try {
+						trim();
+					}
+					finally {
+						TRIMMING.set(false);
+					}
+				});
+			}
+		}
+		catch (IOException e) {
+			LOGGER.warn("Could not store the rendered post " + file + ": " + e);
+			tmp.delete();
+		}
+	}
+
+	public static void remove(int postId)
+	{
+		if (isEnabled()) {
+			File file = entryFile(postId);
+			long length = file.length();
+
+			if (file.delete()) {
+				SIZE.addAndGet(-length);
+			}
+		}
+	}
+
+	/**
+	 * Must be called whenever something the rendering depends on changes, 
+	 * like the BB codes, the smilies or the HTML settings. 
+	 * Entries of older versions are deleted in background.
+	 */
+	public static void invalidate()
+	{
+		versionDir = null;
+
+		// During startup the smilies may not be loaded yet, so wait for start()
+		if (started && isEnabled()) {
+			versionDir();
+		}
+	}
+
+	/**
+	 * Deletes the oldest entries of the current version, until they take 
+	 * three quarters of the maximum size.
+	 */
+	static void trim()
+	{
+		final File dir = versionDir();
+		final List<File> files = new ArrayList<>();
+
+		try (Stream<Path> paths = Files.walk(dir.toPath())) {
+			paths.filter(Files::isRegularFile).forEach(path -> files.add(path.toFile()));
+		}
+		catch (IOException e) {
+			LOGGER.warn("Could not list the rendered posts at " + dir + ": " + e);
+			return;
+		}
+
+		final long target = maxSize() / 4 * 3;
+		long total = 0;
+
+		for (File file : files) {
+			total += file.length();
+		}
+
+		if (total > target) {
+			files.sort(Comparator.comparingLong(File::lastModified));
+
+			for (File file : files) {
+				if (total <= target) {
+					break;
+				}
+
+				long length = file.length();
+
+				if (file.delete()) {
+					total -= length;
+				}
+			}
+		}
+
+		SIZE.set(total);
+	}
+
+	static File entryFile(int postId)
+	{
+		return new File(new File(versionDir(), Integer.toString(postId / 1000)), Integer.toString(postId));
+	}
+
+	private static File versionDir()
+	{
+		File dir = versionDir;
+
+		if (dir == null) {
+			synchronized (MUTEX) {
+				dir = versionDir;
+
+				if (dir == null) {
+					File baseDir = new File(SystemGlobals.getValue(ConfigKeys.POSTS_RENDERED_CACHE_DIR));
+					dir = new File(baseDir, configVersion());
+					versionDir = dir;
+					SIZE.set(0);
+					purgeStaleVersions(baseDir, dir);
+				}
+			}
+		}
+
+		return dir;
+	}
+
+	/**
+	 * Hashes everything the rendered HTML depends on besides the post itself.
+	 */
+	static String configVersion()
+	{
+		StringBuilder sb = new StringBuilder(4096).append(FORMAT).append('\n');
+
+		for (BBCode bb : BBCodeRepository.getBBCollection().getBbList()) {
+			sb.append(bb.getTagName()).append('\0')
+				.append(bb.getRegex()).append('\0')
+				.append(bb.getReplace()).append('\0')
+				.append(bb.getClassName()).append('\0')
+				.append(bb.alwaysProcess()).append('\0')
+				.append(bb.removeQuotes()).append('\0')
+				.append(bb.getLockedForSmilies()).append('\n');
+		}
+
+		for (Smilie smilie : SmiliesRepository.getSmilies()) {
+			sb.append(smilie.getCode()).append('\0').append(smilie.getUrl()).append('\n');
+		}
+
+		sb.append(SystemGlobals.getValue(ConfigKeys.HTML_TAGS_WELCOME)).append('\n')
+			.append(SystemGlobals.getValue(ConfigKeys.HTML_ATTRIBUTES_WELCOME)).append('\n')
+			.append(SystemGlobals.getValue(ConfigKeys.HTML_LINKS_ALLOW_PROTOCOLS)).append('\n')
+			.append(SystemGlobals.getValue(ConfigKeys.HTML_LINKS_ALLOW_RELATIVE)).append('\n')
+			.append(SystemGlobals.getValue(ConfigKeys.FORUM_LINK));
+
+		return Hash.md5(sb.toString()).substring(0, 16).toLowerCase();
+	}
+
+	/**
+	 * Deletes the directories of other versions and measures the current one, in background
+	 */
+	private static void purgeStaleVersions(final File baseDir, final File current)
+	{
+		background("jforum-rendered-posts-purge", () -> {
+			final File[] stale = baseDir.listFiles(f -> f.isDirectory() 
+				&& f.getName().matches("[0-9a-f]{16}") 
+				&& !f.getName().equals(current.getName()));
+
+			if (stale != null) {
+				for (File dir : stale) {
+					try {
+						deleteRecursively(dir.toPath());
+					}
+					catch (IOException e) {
+						LOGGER.warn("Could not delete the stale rendered posts at " + dir + ": " + e);
+					}
+				}
+			}
+
+			if (current.isDirectory()) {
+				try (Stream<Path> paths = Files.walk(current.toPath())) {
+					SIZE.addAndGet(paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum());
+				}
+				catch (IOException e) {
+					LOGGER.warn("Could not measure the rendered posts at " + current + ": " + e);
+				}
+			}
+		});
+	}
+
+	private static void background(final String name, final Runnable task)
+	{
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private static long maxSize()
+	{
+		long megabytes = SystemGlobals.getIntValue(ConfigKeys.POSTS_RENDERED_CACHE_MAX_SIZE);
+		return megabytes > 0 ? megabytes * 1024 * 1024 : Long.MAX_VALUE;
+	}
+
+	private static void deleteRecursively(Path root) throws IOException
+	{
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+			{
+				Files.deleteIfExists(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException
+			{
+				Files.deleteIfExists(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static long time(Post post)
+	{
+		return post.getTime() != null ? post.getTime().getTime() : 0;
+	}
+
+	private static long editTime(Post post)
+	{
+		return post.getEditTime() != null ? post.getEditTime().getTime() : 0;
+	}
+
+	/**
+	 * Covers changes that don't touch the edit time, like manual database updates
+	 */
+	private static int sourceHash(Post post)
+	{
+		int hash = post.getText().hashCode();
+		hash = 31 * hash + (post.getSubject() != null ? post.getSubject().hashCode() : 0);
+		hash = 31 * hash + (post.isHtmlEnabled() ? 1 : 0);
+		hash = 31 * hash + (post.isBbCodeEnabled() ? 2 : 0);
+		hash = 31 * hash + (post.isSmiliesEnabled() ? 4 : 0);
+
+		return hash;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException
+	{
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
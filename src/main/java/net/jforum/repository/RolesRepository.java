@@ -42,6 +42,11 @@
  */
 package net.jforum.repository;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import net.jforum.cache.CacheEngine;
 import net.jforum.cache.Cacheable;
 import net.jforum.dao.generic.security.SecurityCommon;
@@ -56,6 +61,9 @@ public class RolesRepository implements Cacheable
 	private static final String FQN = "roles";
 	private static CacheEngine cache;
 	
+	/** The cached sets of groups */
+	private static final Set<String> KEYS = ConcurrentHashMap.newKeySet();
+	
 	/**
 	 * @see net.jforum.cache.Cacheable#setCacheEngine(net.jforum.cache.CacheEngine)
 	 */
@@ -85,9 +93,29 @@ public class RolesRepository implements Cacheable
 	 */
 	public static void clear()
 	{
+		KEYS.clear();
 		cache.remove(FQN);
 	}
 	
+	/**
+	 * Removes the roles of a group, and the merged roles of every set of groups including it.
+	 * 
+	 * @param groupId The group id
+	 */
+	public static void clear(final int groupId)
+	{
+		final String id = Integer.toString(groupId);
+		
+		for (final Iterator<String> iter = KEYS.iterator(); iter.hasNext(); ) {
+			final String key = iter.next();
+			
+			if (Arrays.asList(key.split(",")).contains(id)) {
+				iter.remove();
+				cache.remove(FQN, key);
+			}
+		}
+	}
+	
 	/**
 	 * Get merged roles from a set of groups
 	 * @param ids The group ids
@@ -106,6 +134,9 @@ public class RolesRepository implements Cacheable
 	 */
 	public static void addGroupRoles(final int[] groupIds, final RoleCollection roles)
 	{
-		cache.add(FQN, SecurityCommon.groupIdAsString(groupIds), roles);
+		final String key = SecurityCommon.groupIdAsString(groupIds);
+		
+		KEYS.add(key);
+		cache.add(FQN, key, roles);
 	}
 }
@@ -42,6 +42,12 @@
  */
 package net.jforum.repository;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.log4j.Logger;
 
 import net.jforum.JForumExecutionContext;
@@ -51,6 +57,8 @@ import net.jforum.cache.Cacheable;
 import net.jforum.dao.DataAccessDriver;
 import net.jforum.dao.GroupSecurityDAO;
 import net.jforum.dao.UserDAO;
+import net.jforum.dao.generic.security.SecurityCommon;
+import net.jforum.entities.Group;
 import net.jforum.entities.User;
 import net.jforum.entities.UserSession;
 import net.jforum.exceptions.SecurityLoadException;
@@ -65,6 +73,9 @@ public class SecurityRepository implements Cacheable
 	private static final Logger LOGGER = Logger.getLogger(SecurityRepository.class);
 	private static CacheEngine cache;
 	private static final String FQN = "security";
+	
+	/** The permissions of each set of groups, by the sorted group ids */
+	private static final Map<String, PermissionControl> BY_GROUPS = new ConcurrentHashMap<>();
 
 	/**
 	 * @see net.jforum.cache.Cacheable#setCacheEngine(net.jforum.cache.CacheEngine)
@@ -149,11 +160,25 @@ public class SecurityRepository implements Cacheable
 		String userId = Integer.toString(user.getId());
 		
 		if (force || cache.get(FQN, userId) == null) {
-			PermissionControl pc = new PermissionControl();
+			String signature = groupSignature(user);
+			PermissionControl pc = BY_GROUPS.get(signature);
 			
-			// load roles
-			GroupSecurityDAO dao = DataAccessDriver.getInstance().newGroupSecurityDAO();
-			pc.setRoles(dao.loadRolesByUserGroups(user));
+			if (pc == null || pc.isStale()) {
+				pc = new PermissionControl();
+				
+				// load roles
+				GroupSecurityDAO dao = DataAccessDriver.getInstance().newGroupSecurityDAO();
+				pc.setRoles(dao.loadRolesByUserGroups(user));
+				
+				PermissionControl existing = BY_GROUPS.putIfAbsent(signature, pc);
+				
+				if (existing != null && !existing.isStale()) {
+					pc = existing;
+				}
+				else if (existing != null) {
+					BY_GROUPS.put(signature, pc);
+				}
+			}
 			
 			cache.add(FQN, userId, pc);			
 			return pc;
@@ -162,6 +187,24 @@ public class SecurityRepository implements Cacheable
 		return SecurityRepository.get(user.getId());
 	}
 	
+	/**
+	 * @param user the user
+	 * @return the sorted ids of the user's groups, as in <code>1,4,7</code>
+	 */
+	private static String groupSignature(User user)
+	{
+		List<Group> groups = user.getGroupsList();
+		int[] ids = new int[groups.size()];
+		
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = groups.get(i).getId();
+		}
+		
+		Arrays.sort(ids);
+		
+		return SecurityCommon.groupIdAsString(ids);
+	}
+	
 	/**
 	 * Check if the logged user has access to the role. 
 	 * This method gets user's id from its session.
@@ -232,9 +275,9 @@ public class SecurityRepository implements Cacheable
 	{
 		PermissionControl pc = (PermissionControl)cache.get(FQN, Integer.toString(userId));
 		
-		if (pc == null) {			
+		if (pc == null || pc.isStale()) {			
 			try {
-				pc = load(userId);
+				pc = load(userId, pc != null);
 			}
 			catch (Exception e) {
 				throw new SecurityLoadException(e);
@@ -270,6 +313,31 @@ public class SecurityRepository implements Cacheable
 	 */
 	public static synchronized void clean()
 	{
+		for (PermissionControl pc : BY_GROUPS.values()) {
+			pc.markStale();
+		}
+		
+		BY_GROUPS.clear();
 		cache.remove(FQN);
 	}
+	
+	/**
+	 * Drops the permissions of the users of some group. 
+	 * The users of other groups keep theirs.
+	 * 
+	 * @param groupId The id of the group whose roles changed
+	 */
+	public static synchronized void invalidateGroup(int groupId)
+	{
+		String id = Integer.toString(groupId);
+		
+		for (Iterator<Map.Entry<String, PermissionControl>> iter = BY_GROUPS.entrySet().iterator(); iter.hasNext(); ) {
+			Map.Entry<String, PermissionControl> entry = iter.next();
+			
+			if (Arrays.asList(entry.getKey().split(",")).contains(id)) {
+				entry.getValue().markStale();
+				iter.remove();
+			}
+		}
+	}
 }
@@ -1,14 +1,15 @@
 package net.jforum.repository;
 
-import java.util.List;
+import java.util.Map;
 
 import net.jforum.dao.DataAccessDriver;
 import net.jforum.dao.SpamDAO;
+import net.jforum.util.SpamFilter;
 import net.jforum.util.stats.StatsEvent;
 
 public class SpamRepository {
 
-	private static List<String> cache;
+	private static volatile SpamFilter filter;
 
 	static {
 		load();
@@ -17,29 +18,32 @@ public class SpamRepository {
 	public static void load() {
 		try {
 		    final SpamDAO spamDao = DataAccessDriver.getInstance().newSpamDAO();
-            cache =  spamDao.selectAll();
+            filter = new SpamFilter(spamDao.selectAll(), filter);
 		} catch (Exception e) {
 			throw new RuntimeException("Error loading spam patterns: ", e);
 		}
 	}
 
 	public static int size() {
-		return (cache != null ? cache.size() : 0);
+		return (filter != null ? filter.size() : 0);
+	}
+
+	/**
+	 * @return how many times each pattern matched, in list order
+	 */
+	public static Map<String, Long> hitCounts() {
+		return filter.hitCounts();
 	}
 
 	public static String findSpam (final String text) {
-		if (text != null) {
-			for (final String pattern : cache) {
-				//LOGGER.info("checking text.size="+text.length()+" for "+pattern);
-				if (text.matches("(?si).*" + pattern + ".*")) {
-					// gather some stats about how pervasive spamming actually is
-					new StatsEvent("Spam", pattern).record();
-					return pattern;
-				}
-			}
+		final String pattern = filter.find(text);
+
+		if (pattern != null) {
+			// gather some stats about how pervasive spamming actually is
+			new StatsEvent("Spam", pattern).record();
 		}
 
-		return null;
+		return pattern;
 	}
 }
 
@@ -43,11 +43,12 @@
 package net.jforum.repository;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import net.jforum.cache.CacheEngine;
@@ -55,7 +56,6 @@ import net.jforum.cache.Cacheable;
 import net.jforum.dao.DataAccessDriver;
 import net.jforum.dao.TopicDAO;
 import net.jforum.entities.Topic;
-import net.jforum.util.TopicTypeComparator;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 
@@ -71,12 +71,16 @@ public class TopicRepository implements Cacheable {
 	private static final String FQN_FORUM = FQN + "/byforum";
 	private static final String RELATION = "relation";
 	private static final String FQN_LOADED = FQN + "/loaded";
-	private static final Comparator<Topic> TYPE_COMPARATOR = new TopicTypeComparator();
 
 	private static CacheEngine cache;
 
 	private static final Object MUTEX_RECENT = new Object();
-	private static final Object MUTEX_FQN_FORUM = new Object();
+	private static final Object MUTEX_RELATION = new Object();
+	private static final Map<Integer, Object> FORUM_LOCKS = new ConcurrentHashMap<>();
+
+	/** Forum id to the last topic of pages beyond the cached ones, by the position that follows it */
+	private static final Map<Integer, NavigableMap<Integer, Topic>> PAGE_ANCHORS = new ConcurrentHashMap<>();
+	private static final int MAX_PAGE_ANCHORS = 256;
 
 	private static int maxRecentTopics = SystemGlobals.getIntValue(ConfigKeys.TOPICS_PER_PAGE);
 
@@ -95,6 +99,57 @@ public class TopicRepository implements Cacheable {
 		return "1".equals(cache.get(FQN_LOADED, Integer.toString(forumId)));
 	}
 
+	/**
+	 * Gets the lock to hold while loading the topics of a forum, 
+	 * so loading one forum doesn't hold up the others.
+	 * 
+	 * @param forumId The forum id
+	 * @return the lock for the forum
+	 */
+	public static Object getForumLock(int forumId) {
+		return FORUM_LOCKS.computeIfAbsent(Integer.valueOf(forumId), id -> new Object());
+	}
+
+	/**
+	 * Gets the closest known page start at or before a position in the forum's topic list,
+	 * beyond the cached topics.
+	 * 
+	 * @param forumId The forum id
+	 * @param start The position of the wanted page
+	 * @return The position, mapped to the topic just before it, or <code>null</code> if none is known
+	 */
+	public static Map.Entry<Integer, Topic> getPageAnchor(int forumId, int start) {
+		NavigableMap<Integer, Topic> anchors = PAGE_ANCHORS.get(Integer.valueOf(forumId));
+
+		if (anchors == null) {
+			return null;
+		}
+
+		synchronized (anchors) {
+			return anchors.floorEntry(Integer.valueOf(start));
+		}
+	}
+
+	/**
+	 * Remembers where a page of the forum's topic list starts, so the next one 
+	 * can be selected from there instead of from the top.
+	 * 
+	 * @param forumId The forum id
+	 * @param start The position of the page that follows the topic
+	 * @param topic The topic just before that position
+	 */
+	public static void addPageAnchor(int forumId, int start, Topic topic) {
+		NavigableMap<Integer, Topic> anchors = PAGE_ANCHORS.computeIfAbsent(Integer.valueOf(forumId), id -> new TreeMap<>());
+
+		synchronized (anchors) {
+			anchors.put(Integer.valueOf(start), topic);
+
+			if (anchors.size() > MAX_PAGE_ANCHORS) {
+				anchors.pollFirstEntry();
+			}
+		}
+	}
+
 	/**
 	 * Add topic to the FIFO stack
 	 * 
@@ -183,22 +238,26 @@ public class TopicRepository implements Cacheable {
 	}
 
 	/**
-	 * Add topics to the cache
+	 * Add topics to the cache. Only the first <code>topic.cache.size</code> are kept.
 	 * 
 	 * @param forumId The forum id to which the topics are related
-	 * @param topics The topics to add
+	 * @param topics The first topics of the forum, in listing order
 	 */
 	public static void addAll(int forumId, List<Topic> topics) {
 		if (SystemGlobals.getBoolValue(ConfigKeys.TOPIC_CACHE_ENABLED)) {
-			synchronized (MUTEX_FQN_FORUM) {
-				cache.add(FQN_FORUM, Integer.toString(forumId), new LinkedList<>(topics));
+			int topicCacheSize = SystemGlobals.getIntValue(ConfigKeys.TOPIC_CACHE_SIZE);
 
-				Map<Integer, Integer> m = (Map<Integer, Integer>) cache.get(FQN, RELATION);
+			if (topics.size() > topicCacheSize) {
+				topics = topics.subList(0, topicCacheSize);
+			}
 
-				if (m == null) {
-					m = new ConcurrentHashMap<>();
-				}
+			ForumTopicIndex index = new ForumTopicIndex(topics);
+
+			synchronized (getForumLock(forumId)) {
+				PAGE_ANCHORS.remove(Integer.valueOf(forumId));
+				cache.add(FQN_FORUM, Integer.toString(forumId), index);
 
+				Map<Integer, Integer> m = getRelations();
 				Integer fId = Integer.valueOf(forumId);
 
 				for (Iterator<Topic> iter = topics.iterator(); iter.hasNext();) {
@@ -213,14 +272,36 @@ public class TopicRepository implements Cacheable {
 		}
 	}
 
+	private static Map<Integer, Integer> getRelations() {
+		Map<Integer, Integer> m = (Map<Integer, Integer>) cache.get(FQN, RELATION);
+
+		if (m == null) {
+			synchronized (MUTEX_RELATION) {
+				m = (Map<Integer, Integer>) cache.get(FQN, RELATION);
+
+				if (m == null) {
+					m = new ConcurrentHashMap<>();
+					cache.add(FQN, RELATION, m);
+				}
+			}
+		}
+
+		return m;
+	}
+
+	private static ForumTopicIndex getIndex(int forumId) {
+		return (ForumTopicIndex) cache.get(FQN_FORUM, Integer.toString(forumId));
+	}
+
 	/**
 	 * Clears the cache
 	 * 
 	 * @param forumId The forum id to clear the cache
 	 */
 	public static void clearCache(int forumId) {
-		synchronized (MUTEX_FQN_FORUM) {
-			cache.add(FQN_FORUM, Integer.toString(forumId), new LinkedList<>());
+		synchronized (getForumLock(forumId)) {
+			PAGE_ANCHORS.remove(Integer.valueOf(forumId));
+			cache.add(FQN_FORUM, Integer.toString(forumId), new ForumTopicIndex());
 			cache.remove(FQN, RELATION); 
 			// TODO: is the next line necessary or not? https://coderanch.com/t/425011#1887278
 			// cache.remove(FQN_LOADED, Integer.toString(forumId));
@@ -228,7 +309,8 @@ public class TopicRepository implements Cacheable {
 	}
 
 	/**
-	 * Adds a new topic to the cache
+	 * Adds a new topic to the cache. Nothing is done if the topics 
+	 * of the forum are not cached, as they are loaded on the next listing.
 	 * 
 	 * @param topic The topic to add
 	 */
@@ -237,40 +319,24 @@ public class TopicRepository implements Cacheable {
 			return;
 		}
 
-		synchronized (MUTEX_FQN_FORUM) {
-			String forumId = Integer.toString(topic.getForumId());
-			LinkedList<Topic> forumTopicsList = (LinkedList<Topic>) cache.get(FQN_FORUM, forumId);
-
-			if (forumTopicsList == null) {
-				forumTopicsList = new LinkedList<>();
-				forumTopicsList.add(topic);
-			} else {
-				boolean contains = forumTopicsList.contains(topic);
-
-				// If the cache is full, remove the eldest element
-				int topicCacheSize = SystemGlobals.getIntValue(ConfigKeys.TOPIC_CACHE_SIZE);
-				if (!contains && forumTopicsList.size() + 1 > topicCacheSize) {
-					forumTopicsList.removeLast();
-				} else if (contains) {
-					forumTopicsList.remove(topic);
-				}
-
-				forumTopicsList.add(topic);
-				forumTopicsList.sort(TYPE_COMPARATOR);
-			}
-
-			cache.add(FQN_FORUM, forumId, forumTopicsList);
+		// Anchors are list positions, which the new or bumped topic shifts
+		PAGE_ANCHORS.remove(Integer.valueOf(topic.getForumId()));
 
-			Map<Integer, Integer> m = (Map<Integer, Integer>) cache.get(FQN, RELATION);
+		ForumTopicIndex index = getIndex(topic.getForumId());
 
-			if (m == null) {
-				m = new ConcurrentHashMap<>();
-			}
+		if (index == null) {
+			return;
+		}
 
-			m.put(Integer.valueOf(topic.getId()), Integer.valueOf(forumId));
+		// The cache holds the first topics of the forum. When the topic went to 
+		// the end of it, topics which are not cached may come before, so the 
+		// index is emptied and the next listing loads it again
+		index.add(topic, SystemGlobals.getIntValue(ConfigKeys.TOPIC_CACHE_SIZE));
+		cache.add(FQN_FORUM, Integer.toString(topic.getForumId()), index);
 
-			cache.add(FQN, RELATION, m);
-		}
+		Map<Integer, Integer> m = getRelations();
+		m.put(Integer.valueOf(topic.getId()), Integer.valueOf(topic.getForumId()));
+		cache.add(FQN, RELATION, m);
 	}
 
 	/**
@@ -280,18 +346,14 @@ public class TopicRepository implements Cacheable {
 	 */
 	public static void updateTopic(Topic topic) {
 		if (SystemGlobals.getBoolValue(ConfigKeys.TOPIC_CACHE_ENABLED)) {
-			synchronized (MUTEX_FQN_FORUM) {
-				String forumId = Integer.toString(topic.getForumId());
-				List<Topic> forumTopicsList = (List<Topic>) cache.get(FQN_FORUM, forumId);
+			// The topic may have moved in the list, shifting the anchored positions
+			PAGE_ANCHORS.remove(Integer.valueOf(topic.getForumId()));
 
-				if (forumTopicsList != null) {
-					int index = forumTopicsList.indexOf(topic);
+			ForumTopicIndex forumIndex = getIndex(topic.getForumId());
 
-					if (index > -1) {
-						forumTopicsList.set(index, topic);
-						cache.add(FQN_FORUM, forumId, forumTopicsList);
-					}
-				}
+			if (forumIndex != null && forumIndex.contains(topic.getId())) {
+				forumIndex.update(topic, SystemGlobals.getIntValue(ConfigKeys.TOPIC_CACHE_SIZE));
+				cache.add(FQN_FORUM, Integer.toString(topic.getForumId()), forumIndex);
 			}
 
 			synchronized (MUTEX_RECENT) {
@@ -338,15 +400,9 @@ public class TopicRepository implements Cacheable {
 			}
 		}
 
-		List<Topic> l = (List<Topic>) cache.get(FQN_FORUM, Integer.toString(topic.getForumId()));
+		ForumTopicIndex index = getIndex(topic.getForumId());
 
-		int index = -1;
-
-		if (l != null) {
-			index = l.indexOf(topic);
-		}
-
-		return (index == -1 ? null : l.get(index));
+		return index == null ? null : index.get(topic.getId());
 	}
 
 	/**
@@ -360,30 +416,24 @@ public class TopicRepository implements Cacheable {
 			return false;
 		}
 
-		String forumId = Integer.toString(topic.getForumId());
-		List<Topic> list = (List<Topic>) cache.get(FQN_FORUM, forumId);
+		ForumTopicIndex index = getIndex(topic.getForumId());
 
-		return list == null ? false : list.contains(topic);
+		return index == null ? false : index.contains(topic.getId());
 	}
 
 	/**
 	 * Get all cached topics related to a forum.
 	 * 
 	 * @param forumid The forum id
-	 * @return <code>ArrayList</code> with the topics.
+	 * @return An immutable list with the topics, in listing order.
 	 */
 	public static List<Topic> getTopics(int forumid) {
-		List<Topic> returnList = null;
+		ForumTopicIndex index = null;
+
 		if (SystemGlobals.getBoolValue(ConfigKeys.TOPIC_CACHE_ENABLED)) {
-			synchronized (MUTEX_FQN_FORUM) {
-				returnList = (List<Topic>) cache.get(FQN_FORUM,	Integer.toString(forumid));				
-			}
+			index = getIndex(forumid);
 		}
 
-		if (returnList == null) {
-			return new ArrayList<>();
-		} else {
-			return new ArrayList<>(returnList);
-		}
+		return index == null ? new ArrayList<>() : index.getTopics();
 	}
 }
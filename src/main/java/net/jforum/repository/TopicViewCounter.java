@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.util.Map;
+
+import net.jforum.dao.DataAccessDriver;
+import net.jforum.entities.Topic;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Counts topic views in memory and writes them to the database periodically,
+ * in a single batch, instead of running one UPDATE per page view.
+ * <p>
+ * Topic listings add the views not written yet through {@link Topic#setPendingViews(int)}.
+ * Setting <code>topic.views.writebehind.enabled</code> to <code>false</code>
+ * makes every view update the database right away, as it used to.
+ */
+public final class TopicViewCounter
+{
+	private static final WriteBehindCounter VIEWS = new WriteBehindCounter("topic views", 
+		ConfigKeys.TOPIC_VIEWS_FLUSH_INTERVAL, TopicViewCounter::write);
+
+	private TopicViewCounter() {}
+
+	/**
+	 * Registers a view of the topic
+	 * 
+	 * @param topic the topic being viewed. In synchronous mode its total views is incremented as well
+	 */
+	public static void increment(Topic topic)
+	{
+		if (!SystemGlobals.getBoolValue(ConfigKeys.TOPIC_VIEWS_WRITEBEHIND_ENABLED)) {
+			DataAccessDriver.getInstance().newTopicDAO().incrementTotalViews(topic.getId());
+			topic.setTotalViews(topic.getTotalViews() + 1);
+			return;
+		}
+
+		VIEWS.increment(topic.getId());
+	}
+
+	/**
+	 * @param topicId the topic id
+	 * @return the number of views of the topic which were not written to the database yet
+	 */
+	public static int pending(int topicId)
+	{
+		return VIEWS.pending(topicId);
+	}
+
+	/**
+	 * Writes all pending views to the database.
+	 */
+	public static void flush()
+	{
+		VIEWS.flush();
+	}
+
+	/**
+	 * Stops the periodic writes and flushes what is still pending.
+	 */
+	public static void stop()
+	{
+		VIEWS.stop();
+	}
+
+	private static void write(Map<Integer, Integer> deltas)
+	{
+		DataAccessDriver.getInstance().newTopicDAO().addTotalViews(deltas);
+
+		for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+			// The cached instance doesn't come from the database again, so keep it current
+			Topic cached = TopicRepository.getTopic(new Topic(entry.getKey().intValue()));
+
+			if (cached != null) {
+				int delta = entry.getValue().intValue();
+
+				cached.setPendingViews(0);
+				cached.setTotalViews(cached.getTotalViews() + delta);
+				cached.setPendingViews(Math.max(0, VIEWS.pending(cached.getId()) - delta));
+			}
+		}
+	}
+}
@@ -42,9 +42,12 @@
  */
 package net.jforum.repository;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.jforum.cache.CacheEngine;
 import net.jforum.cache.Cacheable;
@@ -61,6 +64,12 @@ public class Tpl implements Cacheable
 	
 	private static CacheEngine cache;
 	
+	/** Template names by key, after the fallback from mobile pages */
+	private static final Map<String, String> RESOLVED = new ConcurrentHashMap<>();
+	
+	/** If each template file exists, by its path */
+	private static final Map<String, Boolean> FILES = new ConcurrentHashMap<>();
+	
 	/**
 	 * @see net.jforum.cache.Cacheable#setCacheEngine(net.jforum.cache.CacheEngine)
 	 */
@@ -90,6 +99,7 @@ public class Tpl implements Cacheable
                 String key = (String) iter.next();
                 cache.add(FQN, key, p.getProperty(key));
             }
+            RESOLVED.clear();
         } catch (Exception e) {
             e.printStackTrace();
             throw new ConfigLoadException("Error while trying to load " + filename + ": " + e);
@@ -103,6 +113,21 @@ public class Tpl implements Cacheable
 	 * @return The html template filename
 	 */
 	public static String name (final String key)
+	{
+		String result = RESOLVED.get(key);
+
+		if (result == null) {
+			result = resolve(key);
+
+			if (result != null) {
+				RESOLVED.put(key, result);
+			}
+		}
+
+		return result;
+	}
+
+	private static String resolve (final String key)
 	{
         String result = (String) cache.get(FQN, key);
 		//LOGGER.info("name("+key+")="+result);
@@ -123,4 +148,33 @@ public class Tpl implements Cacheable
 
 		return result;
 	}
+
+	/**
+	 * Checks if a template file exists. The answer is kept until 
+	 * {@link #clearFiles()} is called, when the template files change.
+	 * 
+	 * @param dir the templates directory
+	 * @param file the template file, relative to <code>dir</code>
+	 * @return <code>true</code> if the file exists
+	 */
+	public static boolean fileExists (final String dir, final String file)
+	{
+		final String path = dir + File.separatorChar + file;
+		Boolean exists = FILES.get(path);
+
+		if (exists == null) {
+			exists = Boolean.valueOf(new File(dir, file).isFile());
+			FILES.put(path, exists);
+		}
+
+		return exists.booleanValue();
+	}
+
+	/**
+	 * Forgets which template files exist
+	 */
+	public static void clearFiles ()
+	{
+		FILES.clear();
+	}
 }
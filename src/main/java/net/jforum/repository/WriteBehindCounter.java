@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import net.jforum.JForumExecutionContext;
+import net.jforum.util.preferences.SystemGlobals;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Counts events per id in memory and hands them to a writer periodically,
+ * in a single batch, instead of running one UPDATE per event.
+ * <p>
+ * Counters with nothing to write for two rounds are dropped. A counter is retired
+ * before it is removed, so an increment racing with the removal either lands
+ * before the retirement, and stops it, or is retried on a fresh counter.
+ */
+public class WriteBehindCounter
+{
+	private static final Logger LOGGER = Logger.getLogger(WriteBehindCounter.class);
+
+	private final String name;
+	private final String intervalKey;
+	private final Consumer<Map<Integer, Integer>> writer;
+	private final ConcurrentMap<Integer, Counter> counters = new ConcurrentHashMap<>();
+	private final Object mutex = new Object();
+	private ScheduledExecutorService flusher;
+
+	/**
+	 * @param name what is being counted, used for the flusher thread and the logs
+	 * @param intervalKey the key of the seconds between two writes
+	 * @param writer writes the counts of a round, sorted by id. If it throws, the counts are kept for the next round
+	 */
+	public WriteBehindCounter(String name, String intervalKey, Consumer<Map<Integer, Integer>> writer)
+	{
+		this.name = name;
+		this.intervalKey = intervalKey;
+		this.writer = writer;
+	}
+
+	/**
+	 * Counts one event of the id. Starts the periodic writes if they are not running.
+	 * 
+	 * @param id the id
+	 */
+	public void increment(int id)
+	{
+		Integer key = Integer.valueOf(id);
+
+		while (true) {
+			Counter counter = this.counters.get(key);
+
+			if (counter == null) {
+				counter = this.counters.computeIfAbsent(key, k -> new Counter());
+				this.start();
+			}
+
+			if (counter.increment()) {
+				return;
+			}
+
+			this.counters.remove(key, counter);
+		}
+	}
+
+	/**
+	 * @param id the id
+	 * @return the number of events of the id which were not written yet
+	 */
+	public int pending(int id)
+	{
+		Counter counter = this.counters.get(Integer.valueOf(id));
+		return counter == null ? 0 : (int)counter.pending();
+	}
+
+	/**
+	 * Writes all pending counts.
+	 * 
+	 * @return the counts written, by id. Empty if there was nothing to write or the write failed
+	 */
+	public Map<Integer, Integer> flush()
+	{
+		synchronized (this.mutex) {
+			// Sorted, so concurrent flushes from other nodes lock the rows in the same order
+			Map<Integer, Integer> deltas = new TreeMap<>();
+			Map<Integer, Counter> flushing = new TreeMap<>();
+
+			for (Iterator<Map.Entry<Integer, Counter>> iter = this.counters.entrySet().iterator(); iter.hasNext(); ) {
+				Map.Entry<Integer, Counter> entry = iter.next();
+				Counter counter = entry.getValue();
+				long delta = counter.pending();
+
+				if (delta > 0) {
+					deltas.put(entry.getKey(), Integer.valueOf((int)delta));
+					flushing.put(entry.getKey(), counter);
+					counter.idle = false;
+				}
+				else if (counter.idle) {
+					// Nothing in two rounds. Only retired if still nothing is pending
+					if (counter.retire()) {
+						this.counters.remove(entry.getKey(), counter);
+					}
+				}
+				else {
+					counter.idle = true;
+				}
+			}
+
+			if (deltas.isEmpty()) {
+				return Collections.emptyMap();
+			}
+
+			try {
+				this.writer.accept(deltas);
+			}
+			catch (Exception e) {
+				LOGGER.error("Could not write the " + this.name + " of " + deltas.size() + " ids, will retry: " + e, e);
+				if (JForumExecutionContext.exists()) {
+					JForumExecutionContext.enableRollback();
+				}
+				return Collections.emptyMap();
+			}
+			finally {
+				JForumExecutionContext.finish();
+			}
+
+			for (Map.Entry<Integer, Counter> entry : flushing.entrySet()) {
+				entry.getValue().flushed += deltas.get(entry.getKey()).intValue();
+			}
+
+			return deltas;
+		}
+	}
+
+	/**
+	 * Stops the periodic writes and flushes what is still pending.
+	 */
+	public void stop()
+	{
+		synchronized (this.mutex) {
+			if (this.flusher != null) {
+				this.flusher.shutdown();
+				this.flusher = null;
+			}
+		}
+
+		this.flush();
+	}
+
+	int size()
+	{
+		return this.counters.size();
+	}
+
+	private void start()
+	{
+		synchronized (this.mutex) {
+			if (this.flusher != null) {
+				return;
+			}
+
+			int seconds = Math.max(1, SystemGlobals.getIntValue(this.intervalKey));
+
+			this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "jforum-" + this.name.replace(' ', '-'));
+				thread.setDaemon(true);
+				return thread;
+			});
+
+			this.flusher.scheduleWithFixedDelay(() -> {
+				try {
+					this.flush();
+				}
+				catch (Exception e) {
+					LOGGER.error(e.getMessage(), e);
+				}
+			}, seconds, seconds, TimeUnit.SECONDS);
+		}
+	}
+
+	private static final class Counter
+	{
+		private static final long RETIRED = -1;
+
+		final AtomicLong events = new AtomicLong();
+
+		/** Only changed by the flusher, while holding the mutex */
+		volatile long flushed;
+		boolean idle;
+
+		boolean increment()
+		{
+			while (true) {
+				long current = this.events.get();
+
+				if (current == RETIRED) {
+					return false;
+				}
+
+				if (this.events.compareAndSet(current, current + 1)) {
+					return true;
+				}
+			}
+		}
+
+		boolean retire()
+		{
+			return this.events.compareAndSet(this.flushed, RETIRED);
+		}
+
+		long pending()
+		{
+			long current = this.events.get();
+			return current == RETIRED ? 0 : current - this.flushed;
+		}
+	}
+}
@@ -49,12 +49,15 @@ import net.jforum.exceptions.ForumException;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
@@ -80,20 +83,23 @@ public class LuceneContentCollector
 		this.settings = settings;
 	}
 
-	public List<Post> collect (SearchArgs args, ScoreDoc[] results, Query query) {
+	/**
+	 * Loads the posts of one page of hits.
+	 * 
+	 * @param args the search arguments
+	 * @param results the hits of the page to display, at most {@link SearchArgs#fetchCount()}
+	 * @param query the query, used for highlighting
+	 * @param searcher the searcher which produced the hits
+	 * @return the posts
+	 */
+	public List<Post> collect (SearchArgs args, ScoreDoc[] results, Query query, IndexSearcher searcher) {
 		try {
-			int finalResultSize = Math.min(args.fetchCount(), results.length - args.startFrom());
+			int finalResultSize = Math.min(args.fetchCount(), results.length);
 			int[] postIds = new int[finalResultSize];
-			//LOGGER.debug(String.format("collect: results=%d, args.fetchCount=%d, args.startFrom=%d",
-			//				results.length, args.fetchCount(), args.startFrom()));
-
-			IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(this.settings.directory()));
-			for (int docIndex = args.startFrom(), i = 0; 
-					i < finalResultSize;
-					docIndex++, i++) {
-				ScoreDoc hit = results[docIndex];
-		        Document doc = searcher.doc(hit.doc);
-				postIds[i] = Integer.parseInt(doc.get(SearchFields.Keyword.POST_ID));
+			List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+
+			for (int i = 0; i < finalResultSize; i++) {
+				postIds[i] = this.postId(searcher, leaves, results[i].doc);
 			}
 			return this.retrieveRealPosts(postIds, query);
 		} catch (Exception e) {
@@ -101,6 +107,20 @@ public class LuceneContentCollector
 		}		
 	}
 
+	private int postId (IndexSearcher searcher, List<LeafReaderContext> leaves, int docId) throws IOException
+	{
+		LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+		NumericDocValues values = leaf.reader().getNumericDocValues(SearchFields.Keyword.POST_ID);
+
+		if (values != null && values.advanceExact(docId - leaf.docBase)) {
+			return (int) values.longValue();
+		}
+
+		// indexed before post ids were kept as doc values
+		Document doc = searcher.doc(docId, Collections.singleton(SearchFields.Keyword.POST_ID));
+		return Integer.parseInt(doc.get(SearchFields.Keyword.POST_ID));
+	}
+
 	private List<Post> retrieveRealPosts (int[] postIds, Query query) throws IOException, InvalidTokenOffsetsException
 	{
 		List<Post> posts = DataAccessDriver.getInstance().newLuceneDAO().getPostsData(postIds);
@@ -51,8 +51,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
@@ -63,14 +68,12 @@ import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.RAMDirectory;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 
+import net.jforum.JForumExecutionContext;
 import net.jforum.dao.AttachmentDAO;
 import net.jforum.dao.DataAccessDriver;
 import net.jforum.entities.Attachment;
@@ -81,6 +84,14 @@ import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 
 /**
+ * Keeps the index in sync with the posts. Changes made through {@link #create(Post)},
+ * {@link #update(Post)} and {@link #delete(Post)} are queued and applied by a
+ * background thread, so the thread saving the post never waits for the index. 
+ * Pending changes to the same post are coalesced, and the index is committed after 
+ * <code>lucene.indexer.commit.docs</code> changes or 
+ * <code>lucene.indexer.commit.interval</code> seconds, whatever comes first. 
+ * Searches see the changes as soon as each batch is applied.
+ * 
  * @author Rafael Steil
  */
 public class LuceneIndexer
@@ -88,19 +99,38 @@ public class LuceneIndexer
 	private static final Logger LOGGER = Logger.getLogger(LuceneIndexer.class);
 
 	private LuceneSettings settings;
-	private Directory ramDirectory;
-	private IndexWriter ramWriter;
-	private int ramNumDocs;
-	private List<NewDocumentAdded> newDocumentAddedList = new ArrayList<>();
+	private List<NewDocumentAdded> newDocumentAddedList = new CopyOnWriteArrayList<>();
 
 	private AttachmentDAO attachDAO;
 	private String attachDir = SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_STORE_DIR);
 
+	// changes waiting for the worker, by post id; also the monitor for the fields below
+	private final Map<Integer, PendingChange> pending = new LinkedHashMap<>();
+	private int inFlight;
+	private long inFlightSince;
+	private boolean running = true;
+
+	private final int batchSize;
+	private final int commitDocs;
+	private final long commitInterval;
+	private final Thread worker;
+
+	// only touched by the worker
+	private int uncommitted;
+	private volatile long lastCommitTime = System.currentTimeMillis();
+
 	public LuceneIndexer(final LuceneSettings settings)
 	{
 		this.settings = settings;
-		this.createRAMWriter();
 		this.attachDAO = DataAccessDriver.getInstance().newAttachmentDAO();
+
+		this.batchSize = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.LUCENE_INDEXER_BATCH_SIZE));
+		this.commitDocs = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.LUCENE_INDEXER_COMMIT_DOCS));
+		this.commitInterval = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.LUCENE_INDEXER_COMMIT_INTERVAL)) * 1000L;
+
+		this.worker = new Thread(this::processQueue, "jforum-lucene-indexer");
+		this.worker.setDaemon(true);
+		this.worker.start();
 	}
 
 	public void watchNewDocuDocumentAdded(NewDocumentAdded newDoc)
@@ -108,125 +138,285 @@ public class LuceneIndexer
 		this.newDocumentAddedList.add(newDoc);
 	}
 
+	/**
+	 * Adds a post straight to the index, bypassing the queue. 
+	 * Used when reindexing; call {@link #commit()} at the end.
+	 * 
+	 * @param post the post to index
+	 */
 	public void batchCreate(final Post post)
 	{
-		synchronized (LOGGER) {
+		try {
+			final Document document = this.createDocument(post);
+			if (document != null) {
+				this.settings.indexWriter().addDocument(document);
+			}
+		}
+		catch (IOException e) {
+			throw new SearchException(e);
+		}
+	}
+
+	/**
+	 * Commits the index and makes every change visible to searches.
+	 */
+	public void commit()
+	{
+		try {
+			this.settings.indexWriter().commit();
+			this.lastCommitTime = System.currentTimeMillis();
+		}
+		catch (IOException e) {
+			throw new SearchException(e);
+		}
+		finally {
+			this.notifyNewDocumentAdded();
+		}
+	}
+
+	public void create(final Post post)
+	{
+		this.enqueue(post, false);
+	}
+
+	public void update(final Post post)
+	{
+		this.enqueue(post, false);
+	}
+
+	public void delete(final Post post)
+	{
+		this.enqueue(post, true);
+	}
+
+	/**
+	 * Waits until all changes queued so far are applied and visible to searches.
+	 */
+	public void flush()
+	{
+		synchronized (this.pending) {
 			try {
-				final Document document = this.createDocument(post);
-				if (document != null) {
-					this.ramWriter.addDocument(document);
-					this.flushRAMDirectoryIfNecessary();
+				while ((!this.pending.isEmpty() || this.inFlight > 0) && this.worker.isAlive()) {
+					this.pending.wait(1000);
 				}
 			}
-			catch (IOException e) {
-				throw new SearchException(e);
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 			}
 		}
 	}
 
-	private void createRAMWriter()
+	/**
+	 * Applies the queued changes, commits and stops the background thread. 
+	 * Changes queued afterwards are ignored.
+	 */
+	public void stop()
 	{
-		try {
-			if (this.ramWriter != null) {
-				this.ramWriter.close();
-			}
+		synchronized (this.pending) {
+			this.running = false;
+			this.pending.notifyAll();
+		}
 
-			this.ramDirectory = new RAMDirectory();
-			final IndexWriterConfig conf = new IndexWriterConfig(this.settings.analyzer()).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-			this.ramWriter = new IndexWriter(this.ramDirectory, conf);
-			this.ramNumDocs = SystemGlobals.getIntValue(ConfigKeys.LUCENE_INDEXER_RAM_NUMDOCS);
+		try {
+			this.worker.join();
 		}
-		catch (IOException e) {
-			throw new SearchException(e);
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
-	private void flushRAMDirectoryIfNecessary()
+	/**
+	 * @return the number of changes not yet applied to the index
+	 */
+	public int getQueueDepth()
 	{
-		if (this.ramWriter.getDocStats().maxDoc >= this.ramNumDocs) {
-			this.flushRAMDirectory();
+		synchronized (this.pending) {
+			return this.pending.size() + this.inFlight;
 		}
 	}
 
-	public void flushRAMDirectory()
+	/**
+	 * @return for how long, in milliseconds, the oldest change not yet applied has been waiting
+	 */
+	public long getIndexingLag()
 	{
-		synchronized (LOGGER) {
-			IndexWriter writer = null;
+		synchronized (this.pending) {
+			long oldest = this.inFlightSince;
 
-			try {
-				final IndexWriterConfig conf = new IndexWriterConfig(this.settings.analyzer()).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-				writer = new IndexWriter(this.settings.directory(), conf);
-				this.ramWriter.commit();
-				this.ramWriter.close();
-				writer.addIndexes(new Directory[] { this.ramDirectory });
-				writer.forceMergeDeletes();
-
-				this.createRAMWriter();
+			for (PendingChange change : this.pending.values()) {
+				if (oldest == 0 || change.queuedAt < oldest) {
+					oldest = change.queuedAt;
+				}
 			}
-			catch (IOException e) {
-				throw new SearchException(e);
+
+			return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+		}
+	}
+
+	public Date getLastCommitTime()
+	{
+		return new Date(this.lastCommitTime);
+	}
+
+	private void enqueue(final Post post, final boolean delete)
+	{
+		// the worker reads the post later on, so keep what it looks like now
+		final Post copy;
+		if (delete) {
+			copy = new Post(post.getId());
+		}
+		else {
+			copy = new Post(post);
+			copy.setTopicType(post.getTopicType());
+		}
+
+		synchronized (this.pending) {
+			if (!this.running) {
+				LOGGER.warn("Indexer already stopped, ignoring change to post " + post.getId());
+				return;
 			}
-			finally {
-				if (writer != null) {
-					try { 
-						writer.commit(); 
-						writer.close();
 
-						this.notifyNewDocumentAdded();
+			final PendingChange previous = this.pending.get(post.getId());
+			final long queuedAt = previous != null ? previous.queuedAt : System.currentTimeMillis();
+			this.pending.put(post.getId(), new PendingChange(copy, delete, queuedAt));
+			this.pending.notifyAll();
+		}
+	}
+
+	private void processQueue()
+	{
+		try {
+			List<PendingChange> batch;
+			while ((batch = this.nextBatch()) != null) {
+				try {
+					if (!batch.isEmpty()) {
+						this.applyChanges(batch);
 					}
-					catch (Exception e) {
-						LOGGER.error(e.toString(), e);
+
+					if (this.uncommitted >= this.commitDocs
+						|| (this.uncommitted > 0 && System.currentTimeMillis() - this.lastCommitTime >= this.commitInterval)) {
+						this.commitPending();
 					}
 				}
+				catch (RuntimeException e) {
+					LOGGER.error("Error updating the search index: " + e, e);
+				}
+				finally {
+					this.batchDone();
+				}
 			}
 		}
+		catch (InterruptedException e) {
+			LOGGER.warn("Search indexer interrupted, " + this.getQueueDepth() + " changes were not indexed");
+		}
+		finally {
+			if (this.uncommitted > 0) {
+				try {
+					this.commitPending();
+				}
+				catch (RuntimeException e) {
+					LOGGER.error(e.toString(), e);
+				}
+			}
+
+			this.batchDone();
+		}
 	}
 
-	public void create(final Post post)
+	/**
+	 * Waits for changes to apply, or until the next commit is due.
+	 * 
+	 * @return the changes to apply, possibly none, or <code>null</code> when stopped
+	 */
+	private List<PendingChange> nextBatch() throws InterruptedException
 	{
-		synchronized (LOGGER) {
-			IndexWriter writer = null;
+		synchronized (this.pending) {
+			if (this.pending.isEmpty() && this.running) {
+				final long timeout = this.uncommitted > 0
+					? Math.max(1, this.lastCommitTime + this.commitInterval - System.currentTimeMillis())
+					: 0;
+				this.pending.wait(timeout);
+			}
 
-			try {
-				final IndexWriterConfig conf = new IndexWriterConfig(this.settings.analyzer()).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-				writer = new IndexWriter(this.settings.directory(), conf);
+			if (this.pending.isEmpty()) {
+				return this.running ? Collections.<PendingChange>emptyList() : null;
+			}
 
-				final Document document = this.createDocument(post);
-				if (document != null) {
-					writer.addDocument(document);
+			final List<PendingChange> batch = new ArrayList<>(Math.min(this.pending.size(), this.batchSize));
+			long oldest = 0;
 
-					if (LOGGER.isDebugEnabled()) {
-						LOGGER.debug("Indexed " + document);
-					}
+			for (Iterator<PendingChange> iter = this.pending.values().iterator(); iter.hasNext() && batch.size() < this.batchSize; ) {
+				final PendingChange change = iter.next();
+				iter.remove();
+				batch.add(change);
+
+				if (oldest == 0 || change.queuedAt < oldest) {
+					oldest = change.queuedAt;
 				}
 			}
-			catch (Exception e) {
-				LOGGER.error(e.toString(), e);
-			}
-			finally {
-				if (writer != null) {
-					try {
-						writer.commit();
-						writer.close();
 
-						this.notifyNewDocumentAdded();
+			this.inFlight = batch.size();
+			this.inFlightSince = oldest;
+
+			return batch;
+		}
+	}
+
+	private void batchDone()
+	{
+		synchronized (this.pending) {
+			this.inFlight = 0;
+			this.inFlightSince = 0;
+			this.pending.notifyAll();
+		}
+	}
+
+	private void applyChanges(final List<PendingChange> batch)
+	{
+		try {
+			final IndexWriter writer = this.settings.indexWriter();
+
+			for (PendingChange change : batch) {
+				try {
+					final Term term = new Term(SearchFields.Keyword.POST_ID, String.valueOf(change.post.getId()));
+					final Document document = change.delete ? null : this.createDocument(change.post);
+
+					if (document == null) {
+						writer.deleteDocuments(term);
 					}
-					catch (Exception e) {
-						LOGGER.error(e.toString(), e);
+					else {
+						writer.updateDocument(term, document);
+
+						if (LOGGER.isDebugEnabled()) {
+							LOGGER.debug("Indexed " + document);
+						}
 					}
+
+					this.uncommitted++;
+				}
+				catch (IOException | RuntimeException e) {
+					LOGGER.error("Error indexing post " + change.post.getId() + ": " + e, e);
 				}
 			}
 		}
+		catch (IOException e) {
+			LOGGER.error("Can't open the index, " + batch.size() + " changes were not indexed: " + e, e);
+		}
+		finally {
+			// reading attachments may have opened a connection
+			JForumExecutionContext.finish();
+
+			this.notifyNewDocumentAdded();
+		}
 	}
 
-	public void update(final Post post)
+	private void commitPending()
 	{
-		if (this.performDelete(post)) {
-			this.create(post);
-		}
+		this.uncommitted = 0;
+		this.commit();
 	}
 
-	private Document createDocument(final Post post)
+	Document createDocument(final Post post)
 	{
 		if (post.isModerate())
 			return null;
@@ -235,6 +425,7 @@ public class LuceneIndexer
 
 		doc.add(new TextField(SearchFields.Indexed.SUBJECT, post.getSubject(), Field.Store.NO));
 		doc.add(new StringField(SearchFields.Keyword.POST_ID, String.valueOf(post.getId()), Field.Store.YES));
+		doc.add(new NumericDocValuesField(SearchFields.Keyword.POST_ID, post.getId()));
 		doc.add(new StringField(SearchFields.Keyword.FORUM_ID, String.valueOf(post.getForumId()), Field.Store.YES));
 		doc.add(new NumericDocValuesField(SearchFields.Keyword.FORUM_ID, post.getForumId()));
 		doc.add(new StringField(SearchFields.Keyword.TOPIC_ID, String.valueOf(post.getTopicId()), Field.Store.YES));
@@ -291,40 +482,17 @@ public class LuceneIndexer
 		}
 	}
 
-	public void delete(final Post post)
-	{
-		this.performDelete(post);
-	}
-
-	private boolean performDelete(final Post post)
+	private static class PendingChange
 	{
-		synchronized (LOGGER) {
-			IndexWriter writer = null;
-			boolean status = false;
-
-			try {
-				final IndexWriterConfig conf = new IndexWriterConfig(this.settings.analyzer()).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-				writer = new IndexWriter(this.settings.directory(), conf);
-				writer.deleteDocuments(new Term(SearchFields.Keyword.POST_ID, String.valueOf(post.getId())));
-				status = true;
-			}
-			catch (IOException e) {
-				LOGGER.error(e.toString(), e);
-			}
-			finally {
-				if (writer != null) {
-					try {
-						writer.commit();
-						writer.close();
-						this.flushRAMDirectory();
-					}
-					catch (IOException e) {
-						LOGGER.error(e.toString(), e);
-					}
-				}
-			}
-
-			return status;
+		final Post post;
+		final boolean delete;
+		final long queuedAt;
+
+		PendingChange(final Post post, final boolean delete, final long queuedAt)
+		{
+			this.post = post;
+			this.delete = delete;
+			this.queuedAt = queuedAt;
 		}
 	}
 }
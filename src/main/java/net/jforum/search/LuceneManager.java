@@ -71,6 +71,9 @@ public class LuceneManager
 
 	public void init()
 	{
+		// may be called again after a configuration change
+		this.stop();
+
 		String dirPath = SystemGlobals.getValue(ConfigKeys.LUCENE_INDEX_WRITE_PATH);
 
 		try {
@@ -81,7 +84,7 @@ public class LuceneManager
 
 			boolean reindex = false;
 			try {
-				DirectoryReader.open(settings.directory());
+				DirectoryReader.open(settings.directory()).close();
 			} catch (IOException | RuntimeException ex) {
 				LOGGER.warn("Index can't be opened, possibly because of an old index format: " + ex.getMessage());
 				LOGGER.warn("Reindexing all posts, which can take a while");
@@ -115,6 +118,42 @@ public class LuceneManager
 		}
 	}
 
+	/**
+	 * Indexes the pending changes and releases the index files.
+	 */
+	public void stop()
+	{
+		LuceneReindexer reindexer = LuceneReindexer.current();
+		if (reindexer != null && reindexer.isRunning()) {
+			reindexer.stop();
+		}
+
+		if (indexer != null) {
+			indexer.stop();
+		}
+
+		if (settings != null) {
+			settings.close();
+		}
+	}
+
+	/**
+	 * Resumes, in the background, a reindex that was stopped before it finished.
+	 */
+	public void resumeInterruptedReindex()
+	{
+		try {
+			LuceneReindexArgs args = LuceneReindexer.interruptedReindexArgs(settings);
+			if (args != null) {
+				LOGGER.info("Resuming the reindex from post " + args.getFirstPostId());
+				new LuceneReindexer(settings, args).startBackgroundProcess();
+			}
+		}
+		catch (IOException e) {
+			LOGGER.error("Can't check for an interrupted reindex: " + e, e);
+		}
+	}
+
 	public LuceneSearch luceneSearch()
 	{
 		return search;
@@ -44,35 +44,116 @@
 package net.jforum.search;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.util.BytesRef;
 
 import net.jforum.JForumExecutionContext;
 import net.jforum.dao.DataAccessDriver;
 import net.jforum.dao.LuceneDAO;
 import net.jforum.entities.Post;
 import net.jforum.exceptions.ForumException;
+import net.jforum.exceptions.SearchException;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 
 /**
+ * Rebuilds the index for a range of posts. Posts are read from the database
+ * by <code>lucene.reindexer.readers</code> threads, turned into documents by 
+ * <code>lucene.reindexer.builders</code> threads, and added to the index in
+ * post id order by the thread running the reindex. Every 
+ * <code>lucene.reindexer.checkpoint.docs</code> documents the index is committed 
+ * along with the next post id to index, so a reindex that didn't finish can be 
+ * resumed with {@link #interruptedReindexArgs(LuceneSettings)}. A reindex that
+ * failed is not resumed, as it would most likely fail again on every startup.
+ * 
  * @author Rafael Steil
  */
 public class LuceneReindexer
 {
 	private static final Logger LOGGER = Logger.getLogger(LuceneReindexer.class);
-    
+
+	private static final String CHECKPOINT_NEXT_POST_ID = "jforum.reindex.nextPostId";
+	private static final String CHECKPOINT_LAST_POST_ID = "jforum.reindex.lastPostId";
+
+	private static final long STOP_TIMEOUT = 30 * 1000L;
+
+	private static volatile LuceneReindexer current;
+
 	private LuceneSettings settings;
 	private LuceneReindexArgs args;
+
+	// progress, written by the thread running the reindex
+	private volatile long startTime;
+	private volatile long endTime;
+	private volatile int firstPostId;
+	private volatile int lastPostId;
+	private volatile int lastIndexedPostId;
+	private volatile int indexedPosts;
+
+	private volatile Thread runner;
+	private volatile boolean stopped;
     
 	public LuceneReindexer(LuceneSettings settings, LuceneReindexArgs args)
 	{
 		this.settings = settings;
 		this.args = args;
 	}
+
+	/**
+	 * @return the reindex running now, or the last one to run; <code>null</code> if none did
+	 */
+	public static LuceneReindexer current()
+	{
+		return current;
+	}
+
+	/**
+	 * Checks whether the last reindex stopped before finishing, eg because the
+	 * application was shut down, and builds the arguments to index the rest.
+	 * 
+	 * @param settings the index to check
+	 * @return the arguments to resume the reindex, or <code>null</code> if there is nothing to resume
+	 * @throws IOException if the index can't be read
+	 */
+	public static LuceneReindexArgs interruptedReindexArgs(LuceneSettings settings) throws IOException
+	{
+		final Map<String, String> checkpoint = SegmentInfos.readLatestCommit(settings.directory()).getUserData();
+		final String next = checkpoint.get(CHECKPOINT_NEXT_POST_ID);
+		final String last = checkpoint.get(CHECKPOINT_LAST_POST_ID);
+
+		if (next == null || last == null) {
+			return null;
+		}
+
+		// documents added after the checkpoint may have been committed as well
+		return new LuceneReindexArgs(null, null, Integer.parseInt(next), Integer.parseInt(last), 
+			true, LuceneReindexArgs.TYPE_MESSAGE, false);
+	}
     
 	public void startProcess()
 	{
@@ -83,115 +164,383 @@ public class LuceneReindexer
 	{
 		SystemGlobals.setValue(ConfigKeys.LUCENE_CURRENTLY_INDEXING, "1");
 
-		new Thread(() -> reindex()).start();
+		new Thread(() -> reindex(), "jforum-reindex").start();
+	}
+
+	/**
+	 * Stops the reindex without discarding its checkpoint, so it is resumed 
+	 * the next time the application starts. Waits a while for the documents 
+	 * already built to be committed.
+	 */
+	public void stop()
+	{
+		this.stopped = true;
+
+		final Thread thread = this.runner;
+		if (thread != null && thread != Thread.currentThread()) {
+			try {
+				thread.join(STOP_TIMEOUT);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public boolean isRunning()
+	{
+		return this.startTime > 0 && this.endTime == 0;
+	}
+
+	public Date getStartTime()
+	{
+		return this.startTime > 0 ? new Date(this.startTime) : null;
+	}
+
+	public long getElapsedMillis()
+	{
+		if (this.startTime == 0) {
+			return 0;
+		}
+
+		return (this.endTime > 0 ? this.endTime : System.currentTimeMillis()) - this.startTime;
+	}
+
+	public int getIndexedPosts()
+	{
+		return this.indexedPosts;
+	}
+
+	public long getPostsPerSecond()
+	{
+		final long elapsed = this.getElapsedMillis();
+		return elapsed > 0 ? this.indexedPosts * 1000L / elapsed : 0;
+	}
+
+	public int getFirstPostId()
+	{
+		return this.firstPostId;
+	}
+
+	public int getLastPostId()
+	{
+		return this.lastPostId;
+	}
+
+	public int getLastIndexedPostId()
+	{
+		return this.lastIndexedPostId;
 	}
 
 	private void reindex()
 	{
+		current = this;
+		this.runner = Thread.currentThread();
+		this.startTime = System.currentTimeMillis();
+		SystemGlobals.setValue(ConfigKeys.LUCENE_CURRENTLY_INDEXING, "1");
+
 		try {
 			if (args.recreate()) {
 				settings.createIndexDirectory(SystemGlobals.getValue(ConfigKeys.LUCENE_INDEX_WRITE_PATH));
 			}
 		}
 		catch (IOException e) {
+			this.endTime = System.currentTimeMillis();
+			SystemGlobals.setValue(ConfigKeys.LUCENE_CURRENTLY_INDEXING, "0");
 			throw new ForumException(e);
 		}
 
-		LuceneDAO dao = DataAccessDriver.getInstance().newLuceneDAO();
+		final LuceneDAO dao = DataAccessDriver.getInstance().newLuceneDAO();
+		final LuceneIndexer luceneIndexer = SearchFacade.manager().luceneIndexer();
 
-		LuceneSearch luceneSearch = SearchFacade.manager().luceneSearch();
-		LuceneIndexer luceneIndexer = SearchFacade.manager().luceneIndexer();
+		final int fetchCount = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.LUCENE_INDEXER_DB_FETCH_COUNT));
+		final int checkpointDocs = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.LUCENE_REINDEXER_CHECKPOINT_DOCS));
+		final int readers = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.LUCENE_REINDEXER_READERS));
+		int builders = SystemGlobals.getIntValue(ConfigKeys.LUCENE_REINDEXER_BUILDERS);
+		if (builders <= 0) {
+			builders = Runtime.getRuntime().availableProcessors();
+		}
 
-		int fetchCount = SystemGlobals.getIntValue(ConfigKeys.LUCENE_INDEXER_DB_FETCH_COUNT);
+		final ExecutorService readerPool = Executors.newFixedThreadPool(readers, new NamedThreadFactory("jforum-reindex-reader"));
+		final ExecutorService builderPool = Executors.newFixedThreadPool(builders, new NamedThreadFactory("jforum-reindex-builder"));
+		final int maxPendingRanges = (readers + builders) * 2;
+		boolean finished = false;
+		boolean failed = false;
 
 		try {
 			long processStart = System.currentTimeMillis();
 
-			int firstPostId = args.filterByMessage() ? args.getFirstPostId() : dao.firstPostIdByDate(args.getFromDate());
-			int lastPostId = args.filterByMessage()	? args.getLastPostId() : dao.lastPostIdByDate(args.getToDate());
+			this.findPostIdRange(dao);
+			LOGGER.info("LuceneReindexer: indexing posts " + this.firstPostId + " through " + this.lastPostId
+				+ " with " + readers + " readers and " + builders + " builders");
 
-			int dbFirstPostId = dao.firstPostIdByDate(new Date(0L));
-			int dbLastPostId = dao.lastPostIdByDate(new Date());
-			if (args.filterByMessage()) {
-				if (firstPostId < dbFirstPostId) {
-					firstPostId = dbFirstPostId;
-				}
-				if (lastPostId > dbLastPostId) {
-					lastPostId = dbLastPostId;
-				}
-			}
-			LOGGER.info("LuceneReindexer: indexing posts "+firstPostId+ " through "+lastPostId);
+			final IndexWriter writer = this.settings.indexWriter();
+			final Deque<CompletableFuture<Batch>> pendingRanges = new ArrayDeque<>();
 
+			long nextPostId = this.firstPostId;
 			int counter = 0;
-			int indexTotal = 0;
+			int sinceCheckpoint = 0;
 			long indexRangeStart = System.currentTimeMillis();
-			boolean hasMorePosts = true;
-			while (hasMorePosts) {
-				boolean contextFinished = false;
-
-				int toPostId = firstPostId + fetchCount < lastPostId
-					? (firstPostId + fetchCount - 1)
-					: lastPostId;
-
-				try {
-					JForumExecutionContext ex = JForumExecutionContext.get();
-					JForumExecutionContext.set(ex);
-
-					List<Post> l = dao.getPostsToIndex(firstPostId, toPostId);
-
-					if (counter >= 1000) {
-						long end = System.currentTimeMillis();
-						LOGGER.info("LuceneReindexer: indexed ~1000 documents in " 					    
-							+ (end - indexRangeStart) + " ms (" + indexTotal + " so far)");
-						indexRangeStart = end;
-						counter = 0;
-					}
 
-					JForumExecutionContext.finish();
-					contextFinished = true;
+			while (true) {
+				// keep the readers and builders busy, but don't get too far ahead of the writer
+				while (pendingRanges.size() < maxPendingRanges && nextPostId <= this.lastPostId && !this.isCancelled()) {
+					final int fromPostId = (int)nextPostId;
+					final int toPostId = (int)Math.min(nextPostId + fetchCount - 1, this.lastPostId);
 
-					for (Iterator<Post> iter = l.iterator(); iter.hasNext(); ) {
-						if ("0".equals(SystemGlobals.getValue(ConfigKeys.LUCENE_CURRENTLY_INDEXING))) {
-							hasMorePosts = false;						    
-							break;
-						}
+					pendingRanges.add(CompletableFuture
+						.supplyAsync(() -> this.readPosts(dao, fromPostId, toPostId), readerPool)
+						.thenApplyAsync(posts -> this.buildDocuments(luceneIndexer, toPostId, posts), builderPool));
 
-						Post post = iter.next();
+					nextPostId = (long)toPostId + 1;
+				}
 
-						if (!args.recreate() && args.avoidDuplicatedRecords()) {
-							if (luceneSearch.findDocumentByPostId(post.getId()) != null) {
-								continue;
-							}
-						}
+				if (pendingRanges.isEmpty() || this.isCancelled()) {
+					break;
+				}
 
-						luceneIndexer.batchCreate(post);
+				final Batch batch = pendingRanges.poll().get();
 
-						counter++;
-						indexTotal++;
-					}
+				if (!batch.complete) {
+					// cancelled while reading or building: the checkpoint must not skip the posts left out
+					break;
+				}
 
-					firstPostId += fetchCount;
-					hasMorePosts = hasMorePosts && toPostId < lastPostId;
+				if (args.recreate()) {
+					writer.addDocuments(batch.documents);
 				}
-				finally {
-					if (!contextFinished) {
-						JForumExecutionContext.finish();
+				else {
+					// a resumed or partial reindex replaces the documents already in the index
+					for (Document document : batch.documents) {
+						writer.updateDocument(new Term(SearchFields.Keyword.POST_ID, document.get(SearchFields.Keyword.POST_ID)), document);
 					}
 				}
+
+				this.lastIndexedPostId = batch.toPostId;
+				this.indexedPosts += batch.documents.size();
+				counter += batch.documents.size();
+				sinceCheckpoint += batch.documents.size();
+
+				if (sinceCheckpoint >= checkpointDocs) {
+					this.checkpoint(writer, luceneIndexer, batch.toPostId + 1);
+					sinceCheckpoint = 0;
+				}
+
+				if (counter >= 1000) {
+					long end = System.currentTimeMillis();
+					LOGGER.info("LuceneReindexer: indexed ~1000 documents in " 
+						+ (end - indexRangeStart) + " ms (" + this.indexedPosts + " so far, " 
+						+ this.getPostsPerSecond() + " per second)");
+					indexRangeStart = end;
+					counter = 0;
+				}
 			}
 
+			// either done or cancelled from the admin: nothing to resume
+			finished = !this.stopped;
+
 			long end = System.currentTimeMillis();
 
-			LOGGER.info("LuceneReindexer: Total time " + (end - processStart) + " ms");
+			LOGGER.info("LuceneReindexer: Total time " + (end - processStart) + " ms, " 
+				+ this.indexedPosts + " documents");
+		}
+		catch (ExecutionException e) {
+			failed = true;
+			LOGGER.error("LuceneReindexer: stopped after post " + this.lastIndexedPostId, e.getCause());
+			throw new ForumException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOGGER.warn("LuceneReindexer: interrupted after post " + this.lastIndexedPostId);
 		}
 		catch (Exception e) {
-			e.printStackTrace();
+			failed = true;
+			LOGGER.error("LuceneReindexer: stopped after post " + this.lastIndexedPostId, e);
 			throw new ForumException(e);
 		}
 		finally {
+			readerPool.shutdownNow();
+			builderPool.shutdownNow();
+
+			try {
+				if (failed) {
+					LOGGER.error("LuceneReindexer: the reindex failed and won't be resumed. Posts " 
+						+ (this.lastIndexedPostId + 1) + " through " + this.lastPostId + " have to be indexed again");
+				}
+
+				if (finished || failed) {
+					this.settings.indexWriter().setLiveCommitData(new HashMap<String, String>().entrySet());
+				}
+
+				luceneIndexer.commit();
+			}
+			catch (Exception e) {
+				LOGGER.error("LuceneReindexer: error committing the index: " + e, e);
+			}
+
 			SystemGlobals.setValue(ConfigKeys.LUCENE_CURRENTLY_INDEXING, "0");
+			this.endTime = System.currentTimeMillis();
+			this.runner = null;
+		}
+	}
+
+	private void findPostIdRange(final LuceneDAO dao)
+	{
+		try {
+			int first = args.filterByMessage() ? args.getFirstPostId() : dao.firstPostIdByDate(args.getFromDate());
+			int last = args.filterByMessage() ? args.getLastPostId() : dao.lastPostIdByDate(args.getToDate());
+
+			if (args.filterByMessage()) {
+				int dbFirstPostId = dao.firstPostIdByDate(new Date(0L));
+				int dbLastPostId = dao.lastPostIdByDate(new Date());
+
+				if (first < dbFirstPostId) {
+					first = dbFirstPostId;
+				}
+				if (last > dbLastPostId) {
+					last = dbLastPostId;
+				}
+			}
+
+			this.firstPostId = first;
+			this.lastPostId = last;
+		}
+		finally {
+			JForumExecutionContext.finish();
+		}
+	}
+
+	private boolean isCancelled()
+	{
+		return this.stopped || "0".equals(SystemGlobals.getValue(ConfigKeys.LUCENE_CURRENTLY_INDEXING));
+	}
+
+	private List<Post> readPosts(final LuceneDAO dao, final int fromPostId, final int toPostId)
+	{
+		if (this.isCancelled()) {
+			return null;
+		}
+
+		try {
+			return dao.getPostsToIndex(fromPostId, toPostId);
+		}
+		finally {
+			JForumExecutionContext.finish();
+		}
+	}
+
+	private Batch buildDocuments(final LuceneIndexer luceneIndexer, final int toPostId, final List<Post> posts)
+	{
+		if (posts == null) {
+			return new Batch(toPostId, Collections.<Document>emptyList(), false);
+		}
+
+		final List<Document> documents = new ArrayList<>(posts.size());
+		boolean complete = true;
+
+		try {
+			final Set<Integer> indexed = !args.recreate() && args.avoidDuplicatedRecords()
+				? this.indexedPostIds(posts)
+				: Collections.<Integer>emptySet();
+
+			for (Post post : posts) {
+				if (this.isCancelled()) {
+					complete = false;
+					break;
+				}
+
+				if (!indexed.contains(post.getId())) {
+					final Document document = luceneIndexer.createDocument(post);
+					if (document != null) {
+						documents.add(document);
+					}
+				}
+			}
+		}
+		finally {
+			// reading attachments may have opened a connection
+			JForumExecutionContext.finish();
+		}
+
+		return new Batch(toPostId, documents, complete);
+	}
+
+	/**
+	 * Looks up which of the posts are already in the index, with a single query.
+	 */
+	private Set<Integer> indexedPostIds(final List<Post> posts)
+	{
+		if (posts.isEmpty()) {
+			return Collections.emptySet();
+		}
+
+		final List<BytesRef> terms = new ArrayList<>(posts.size());
+		for (Post post : posts) {
+			terms.add(new BytesRef(String.valueOf(post.getId())));
+		}
+
+		final Set<Integer> indexed = new HashSet<>();
+
+		try {
+			final SearcherManager manager = this.settings.searcherManager();
+			final IndexSearcher searcher = manager.acquire();
+
+			try {
+				final Set<String> fields = Collections.singleton(SearchFields.Keyword.POST_ID);
+				for (ScoreDoc hit : searcher.search(new TermInSetQuery(SearchFields.Keyword.POST_ID, terms), posts.size()).scoreDocs) {
+					indexed.add(Integer.valueOf(searcher.doc(hit.doc, fields).get(SearchFields.Keyword.POST_ID)));
+				}
+			}
+			finally {
+				manager.release(searcher);
+			}
+		}
+		catch (IOException e) {
+			throw new SearchException(e);
+		}
+
+		return indexed;
+	}
+
+	private void checkpoint(final IndexWriter writer, final LuceneIndexer luceneIndexer, final int nextPostId)
+	{
+		final Map<String, String> checkpoint = new HashMap<>();
+		checkpoint.put(CHECKPOINT_NEXT_POST_ID, String.valueOf(nextPostId));
+		checkpoint.put(CHECKPOINT_LAST_POST_ID, String.valueOf(this.lastPostId));
+
+		writer.setLiveCommitData(checkpoint.entrySet());
+		luceneIndexer.commit();
+	}
+
+	private static class Batch
+	{
+		final int toPostId;
+		final List<Document> documents;
+		final boolean complete;
+
+		Batch(final int toPostId, final List<Document> documents, final boolean complete)
+		{
+			this.toPostId = toPostId;
+			this.documents = documents;
+			this.complete = complete;
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory
+	{
+		private final String prefix;
+		private final AtomicInteger count = new AtomicInteger();
+
+		NamedThreadFactory(final String prefix)
+		{
+			this.prefix = prefix;
+		}
 
-			luceneIndexer.flushRAMDirectory();
+		@Override public Thread newThread(final Runnable runnable)
+		{
+			final Thread thread = new Thread(runnable, this.prefix + "-" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
 		}
 	}
 }
@@ -46,31 +46,33 @@ package net.jforum.search;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
 
 import net.jforum.entities.Post;
 import net.jforum.exceptions.SearchException;
-import net.jforum.repository.ForumRepository;
 import net.jforum.util.I18n;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
 
 /**
  * @author Rafael Steil
@@ -79,32 +81,27 @@ public class LuceneSearch implements NewDocumentAdded
 {
 	private static final Logger LOGGER = Logger.getLogger(LuceneSearch.class);
 
-	private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
-	private final Lock read = rwl.readLock();
-	private final Lock write = rwl.writeLock();
-
-	private IndexSearcher searcher;
 	private LuceneSettings settings;
 	private LuceneContentCollector collector;
+	// cleared when the index still has documents without post id doc values
+	private volatile boolean sortByPostId = true;
 
 	public LuceneSearch (LuceneSettings settings, LuceneContentCollector collector)
 	{
 		this.settings = settings;
 		this.collector = collector;
 
-		this.openSearch();
-	}
-
-	@Override public void newDocumentAdded() {		
 		try {
-			write.lock();
-            // open a new searcher
-			openSearch();
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		} finally {
-			write.unlock();
+			// fail early if the index can't be opened
+			this.settings.searcherManager();
 		}
+		catch (IOException e) {
+			throw new SearchException(e.toString(), e);
+		}
+	}
+
+	@Override public void newDocumentAdded() {
+		this.settings.refreshSearcher();
 	}
 
 	/**
@@ -119,16 +116,19 @@ public class LuceneSearch implements NewDocumentAdded
 		Document doc = null;
 
 		try {
-			read.lock();
-			TopDocs results = searcher.search(new TermQuery(new Term(SearchFields.Keyword.POST_ID, String.valueOf(postId))), 1);
-			ScoreDoc[] hits = results.scoreDocs;
-			for (ScoreDoc hit : hits) {
-				doc = searcher.doc(hit.doc);
+			SearcherManager manager = this.settings.searcherManager();
+			IndexSearcher searcher = manager.acquire();
+			try {
+				TopDocs results = searcher.search(new TermQuery(new Term(SearchFields.Keyword.POST_ID, String.valueOf(postId))), 1);
+				ScoreDoc[] hits = results.scoreDocs;
+				for (ScoreDoc hit : hits) {
+					doc = searcher.doc(hit.doc);
+				}
+			} finally {
+				manager.release(searcher);
 			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
-		} finally {
-			read.unlock();
 		}
 
 		return doc;
@@ -137,9 +137,10 @@ public class LuceneSearch implements NewDocumentAdded
 	private SearchResult<Post> performSearch (SearchArgs args, LuceneContentCollector resultCollector)
 	{
 		SearchResult<Post> result;
+		SearcherManager manager = null;
+		IndexSearcher searcher = null;
 
 		try {
-			read.lock();
 			StringBuilder criteria = new StringBuilder(256);
 
 			this.filterByForum(args, criteria);
@@ -153,14 +154,38 @@ public class LuceneSearch implements NewDocumentAdded
 				Query query = new QueryParser(SearchFields.Indexed.CONTENTS, this.settings.analyzer()).parse(criteria.toString());
 				LOGGER.debug("query=["+query.toString()+"], criteria=["+criteria.toString()+"]");
 
-				final int totalPosts = ForumRepository.getTotalMessages();
-				TopFieldDocs tfd = searcher.search(query, totalPosts, getSorter(args));
+				manager = this.settings.searcherManager();
+				searcher = manager.acquire();
+
+				Sort sort = getSorter(args);
+				FieldDoc after = this.sortByPostId ? this.decodeCursor(args.getSearchAfter(), sort) : null;
+				int skip = after == null ? args.startFrom() : 0;
+				int topN = Math.max(1, skip + args.fetchCount());
+
+				// only keep the hits up to the requested page, not the whole index
+				TopFieldCollector topCollector = TopFieldCollector.create(sort, topN, after, this.totalHitsThreshold());
+				try {
+					searcher.search(query, topCollector);
+				} catch (IllegalStateException e) {
+					if (!this.sortByPostId) {
+						throw e;
+					}
+					// documents indexed before post ids had doc values can't be sorted by them
+					LOGGER.warn("Search results are paged by offset until the search index is rebuilt: " + e.getMessage());
+					this.sortByPostId = false;
+					return this.performSearch(args, resultCollector);
+				}
+				TopFieldDocs tfd = topCollector.topDocs();
 				ScoreDoc[] docs = tfd.scoreDocs;
 				TotalHits th = tfd.totalHits;
-				if (th.value > 0) {
-					result = new SearchResult<>(resultCollector.collect(args, docs, query), (int) th.value);
+				if (th.value > 0 && docs.length > skip) {
+					ScoreDoc[] page = Arrays.copyOfRange(docs, skip, docs.length);
+					String nextCursor = docs.length == topN && this.sortByPostId ? this.encodeCursor((FieldDoc) docs[docs.length - 1]) : null;
+					// all the hits are counted, not only the ones after the cursor. Past the threshold it is a lower bound
+					result = new SearchResult<>(resultCollector.collect(args, page, query, searcher), (int) th.value,
+						th.relation == TotalHits.Relation.EQUAL_TO, nextCursor);
 				} else {
-					result = new SearchResult<>(new ArrayList<>(), 0);
+					result = new SearchResult<>(new ArrayList<>(), (int) th.value);
 				}
 
 				LOGGER.debug((th.relation == TotalHits.Relation.EQUAL_TO ? "" : "minimum ") + "number of hits="+th.value);
@@ -168,37 +193,108 @@ public class LuceneSearch implements NewDocumentAdded
 		} catch (Exception e) {
 			throw new SearchException(e);
 		} finally {
-			read.unlock();
+			if (searcher != null) {
+				try {
+					manager.release(searcher);
+				} catch (IOException e) {
+					LOGGER.error(e.toString(), e);
+				}
+			}
 		}
 
 		return result;
 	}
 
-	// only options are relevance and date
-	private Sort getSorter (SearchArgs args) {
-		Sort sort;
+	private int totalHitsThreshold ()
+	{
+		if (SystemGlobals.getBoolValue(ConfigKeys.LUCENE_SEARCH_EXACT_TOTAL_HITS)) {
+			return Integer.MAX_VALUE;
+		}
 
-		SortField forumGroupingSortField = new SortField(SearchFields.Keyword.FORUM_ID, SortField.Type.INT, false);
-		SortField dateSortField = new SortField(SearchFields.Keyword.DATE, SortField.Type.LONG, args.isOrderDirectionDescending());
-		// TODO: for wiki topics, we should use the edit date, not the post date
+		return Math.max(1, SystemGlobals.getIntValue(ConfigKeys.LUCENE_SEARCH_TOTAL_HITS_THRESHOLD));
+	}
 
-		if ("time".equals(args.getOrderBy())) {
-			// sort by date
-			if (args.isGroupByForum()) {
-				sort = new Sort(new SortField[] { forumGroupingSortField, dateSortField });
-			} else {
-				sort = new Sort(new SortField[] { dateSortField });
+	/**
+	 * Encodes the position of the last hit of a page as <i>value_value...</i>, 
+	 * where each sort value is prefixed by its type. The last value is the post id, 
+	 * so the position doesn't depend on Lucene's document numbers, which change on merges.
+	 */
+	private String encodeCursor (FieldDoc last)
+	{
+		StringBuilder sb = new StringBuilder(32);
+
+		for (Object field : last.fields) {
+			if (sb.length() > 0) {
+				sb.append('_');
 			}
-		} else {
-			// sort by relevance
-			if (args.isGroupByForum()) {
-				sort = new Sort(new SortField[] { forumGroupingSortField, SortField.FIELD_SCORE });
+			if (field instanceof Float) {
+				sb.append('f');
+			} else if (field instanceof Long) {
+				sb.append('l');
+			} else if (field instanceof Integer) {
+				sb.append('i');
 			} else {
-				sort = new Sort(new SortField[] { SortField.FIELD_SCORE });
+				// not something we sort by
+				return null;
+			}
+			sb.append(field);
+		}
+
+		return sb.toString();
+	}
+
+	private FieldDoc decodeCursor (String cursor, Sort sort)
+	{
+		if (cursor.length() == 0) {
+			return null;
+		}
+
+		try {
+			String[] parts = cursor.split("_");
+			if (parts.length != sort.getSort().length) {
+				// made for some other ordering
+				return null;
 			}
+
+			Object[] fields = new Object[parts.length];
+			for (int i = 0; i < fields.length; i++) {
+				String value = parts[i].substring(1);
+				switch (parts[i].charAt(0)) {
+					case 'f': fields[i] = Float.valueOf(value); break;
+					case 'l': fields[i] = Long.valueOf(value); break;
+					case 'i': fields[i] = Integer.valueOf(value); break;
+					default: return null;
+				}
+			}
+
+			// the post id tells the hits apart, so any document number does
+			return new FieldDoc(Integer.MAX_VALUE, Float.NaN, fields);
+		} catch (RuntimeException e) {
+			LOGGER.debug("Ignoring invalid search cursor " + cursor);
+			return null;
+		}
+	}
+
+	// only options are relevance and date, then the post id to tell equal hits apart
+	private Sort getSorter (SearchArgs args) {
+		List<SortField> fields = new ArrayList<>(3);
+
+		if (args.isGroupByForum()) {
+			fields.add(new SortField(SearchFields.Keyword.FORUM_ID, SortField.Type.INT, false));
+		}
+
+		if ("time".equals(args.getOrderBy())) {
+			// TODO: for wiki topics, we should use the edit date, not the post date
+			fields.add(new SortField(SearchFields.Keyword.DATE, SortField.Type.LONG, args.isOrderDirectionDescending()));
+		} else {
+			fields.add(SortField.FIELD_SCORE);
+		}
+
+		if (this.sortByPostId) {
+			fields.add(new SortField(SearchFields.Keyword.POST_ID, SortField.Type.INT, args.isOrderDirectionDescending()));
 		}
 
-		return sort;
+		return new Sort(fields.toArray(new SortField[0]));
 	}
 
 	private void filterByDateRange (SearchArgs args, StringBuilder criteria)
@@ -340,14 +436,4 @@ public class LuceneSearch implements NewDocumentAdded
 			throw new SearchException(e);
 		}
 	}
-
-	private void openSearch()
-	{
-		try {
-			this.searcher = new IndexSearcher(DirectoryReader.open(this.settings.directory()));
-		}
-		catch (IOException e) {
-			throw new SearchException(e.toString(), e);
-		}
-	}
 }
@@ -54,10 +54,15 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.RAMDirectory;
 
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
 /**
  * @author Rafael Steil
  */
@@ -67,6 +72,8 @@ public class LuceneSettings
 
 	private Class<?> clazz;
 	private Directory directory;
+	private IndexWriter indexWriter;
+	private SearcherManager searcherManager;
 
 	public LuceneSettings (final Class<?> clazz)
 	{
@@ -75,6 +82,7 @@ public class LuceneSettings
 
 	public void useRAMDirectory() throws IOException
 	{
+		this.close();
 		this.directory = new RAMDirectory();
 		final IndexWriterConfig conf = new IndexWriterConfig(analyzer()).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
 		final IndexWriter writer = new IndexWriter(this.directory, conf);
@@ -83,6 +91,8 @@ public class LuceneSettings
 
 	public void useFSDirectory (final String indexDirectory) throws IOException
 	{
+		this.close();
+
 		if (!DirectoryReader.indexExists(FSDirectory.open(Paths.get(indexDirectory)))) {
 			this.createIndexDirectory(indexDirectory);
 		}
@@ -90,8 +100,16 @@ public class LuceneSettings
 		this.directory = FSDirectory.open(Paths.get(indexDirectory));
 	}
 
-	public void createIndexDirectory (final String directoryPath) throws IOException 
+	public synchronized void createIndexDirectory (final String directoryPath) throws IOException 
 	{
+		if (this.indexWriter != null && this.indexWriter.isOpen()) {
+			// the index is in use, so empty it rather than replacing the files under the writer
+			this.indexWriter.deleteAll();
+			this.indexWriter.commit();
+			this.refreshSearcher();
+			return;
+		}
+
 		final FSDirectory fsDir = FSDirectory.open(Paths.get(directoryPath));	    
 		final IndexWriterConfig conf = new IndexWriterConfig(analyzer()).setOpenMode(IndexWriterConfig.OpenMode.CREATE);
 		final IndexWriter writer = new IndexWriter(fsDir, conf);
@@ -103,6 +121,102 @@ public class LuceneSettings
 		return this.directory;
 	}
 
+	/**
+	 * Gets the writer shared by everything that changes {@link #directory()}.
+	 * It is opened on first use and kept open until {@link #close()}.
+	 * 
+	 * @return the index writer
+	 * @throws IOException if the index can't be opened
+	 */
+	public synchronized IndexWriter indexWriter() throws IOException
+	{
+		if (this.indexWriter != null && !this.indexWriter.isOpen()) {
+			// closed after an unrecoverable error; searchers still point to it
+			LOGGER.warn("Index writer was closed, reopening it: " + this.indexWriter.getTragicException());
+			this.closeSearcherManager();
+			this.indexWriter = null;
+		}
+
+		if (this.indexWriter == null) {
+			final IndexWriterConfig conf = new IndexWriterConfig(analyzer())
+				.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+				.setMaxBufferedDocs(Math.max(2, SystemGlobals.getIntValue(ConfigKeys.LUCENE_INDEXER_RAM_NUMDOCS)));
+			this.indexWriter = new IndexWriter(this.directory, conf);
+		}
+
+		return this.indexWriter;
+	}
+
+	/**
+	 * Gets the searcher manager shared by all searches on {@link #directory()}.
+	 * Searchers must be obtained with {@link SearcherManager#acquire()} 
+	 * and given back with {@link SearcherManager#release(IndexSearcher)}.
+	 * Searchers are opened from {@link #indexWriter()}, so they also see 
+	 * changes not yet committed.
+	 * 
+	 * @return the searcher manager
+	 * @throws IOException if the index can't be opened
+	 */
+	public synchronized SearcherManager searcherManager() throws IOException
+	{
+		if (this.searcherManager == null) {
+			this.searcherManager = new SearcherManager(this.indexWriter(), null);
+		}
+
+		return this.searcherManager;
+	}
+
+	/**
+	 * Makes changes applied to the index writer visible to new searches.
+	 * Does not wait if another thread is already refreshing.
+	 */
+	public void refreshSearcher()
+	{
+		final SearcherManager manager = this.searcherManager;
+
+		if (manager != null) {
+			try {
+				manager.maybeRefresh();
+			}
+			catch (IOException | RuntimeException e) {
+				LOGGER.error("Error refreshing the index searcher: " + e, e);
+			}
+		}
+	}
+
+	/**
+	 * Closes the searchers and commits and closes the writer.
+	 */
+	public synchronized void close()
+	{
+		this.closeSearcherManager();
+
+		if (this.indexWriter != null) {
+			try {
+				this.indexWriter.close();
+			}
+			catch (IOException | RuntimeException e) {
+				LOGGER.error(e.toString(), e);
+			}
+
+			this.indexWriter = null;
+		}
+	}
+
+	private synchronized void closeSearcherManager()
+	{
+		if (this.searcherManager != null) {
+			try {
+				this.searcherManager.close();
+			}
+			catch (IOException e) {
+				LOGGER.error(e.toString(), e);
+			}
+
+			this.searcherManager = null;
+		}
+	}
+
 	public Analyzer analyzer()
 	{
 		try {
@@ -68,6 +68,7 @@ public class SearchArgs
 	private Date toDate;
 	private MatchType matchType = MatchType.ALL_KEYWORDS;
 	private String searchIn = "ALL";
+	private String searchAfter;
 
 	private boolean groupByForum = false;
 
@@ -153,6 +154,23 @@ public class SearchArgs
 		return this.initialRecord;
 	}
 
+	/**
+	 * Sets the cursor returned by {@link SearchResult#getNextCursor()} for the previous page.
+	 * When present, results are fetched right after it instead of skipping
+	 * {@link #startFrom()} records, so deep pages cost the same as the first one.
+	 * 
+	 * @param searchAfter the cursor, or <code>null</code> to use offset paging
+	 */
+	public void setSearchAfter(String searchAfter)
+	{
+		this.searchAfter = searchAfter;
+	}
+
+	public String getSearchAfter()
+	{
+		return formatNullOrTrim(this.searchAfter);
+	}
+
 	public void setKeywords(String keywords)
 	{
 		this.keywords = keywords;
@@ -101,6 +101,13 @@ public final class SearchFacade
 		}
 	}
 
+	public static void stop()
+	{
+		if (searchManager != null) {
+			searchManager.stop();
+		}
+	}
+
 	public static LuceneManager manager()
 	{
 		return searchManager;
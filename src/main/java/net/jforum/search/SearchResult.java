@@ -54,12 +54,23 @@ public class SearchResult<T>
 
 	private transient int totalHits;
 
+	private transient boolean totalHitsExact = true;
+
+	private transient String nextCursor;
+
 	public SearchResult (final List<T> records, int totalHits)
 	{
 		this.records = records;
 		this.totalHits = totalHits;
 	}
 
+	public SearchResult (final List<T> records, int totalHits, boolean totalHitsExact, String nextCursor)
+	{
+		this(records, totalHits);
+		this.totalHitsExact = totalHitsExact;
+		this.nextCursor = nextCursor;
+	}
+
 	public List<T> getRecords()
 	{
 		return this.records;
@@ -75,4 +86,20 @@ public class SearchResult<T>
 		return totalHits;
 	}
 
+	/**
+	 * @return <code>false</code> if {@link #getTotalHits()} is only a lower bound
+	 */
+	public boolean isTotalHitsExact()
+	{
+		return totalHitsExact;
+	}
+
+	/**
+	 * @return the cursor to pass to {@link SearchArgs#setSearchAfter(String)} 
+	 * to fetch the next page, or <code>null</code> if there is none
+	 */
+	public String getNextCursor()
+	{
+		return nextCursor;
+	}
 }
@@ -43,11 +43,26 @@
 package net.jforum.security;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.jforum.dao.GroupSecurityDAO;
 
 /**
  * Methods and properties for all classes that need make use of security actions.
+ * <p>
+ * The roles are compiled on first use: granted roles go to a bitset indexed by role, 
+ * and the values of each role, which are mostly forum and category ids, to a bitset 
+ * indexed by value. A check then costs a map lookup of the role name and a bit test. 
+ * As the permissions come only from the groups, one instance is shared by all users 
+ * of the same groups - see {@link net.jforum.repository.SecurityRepository}.
+ * </p>
  * 
  * @author Rafael Steil
  * @version $Id$
@@ -56,13 +71,25 @@ public class PermissionControl implements Serializable
 {
 	private static final long serialVersionUID = -7637111886973342962L;
 
+	/** Role names to their index in the compiled bitsets, shared by all instances */
+	private static final Map<String, Integer> ROLE_INDEXES = new ConcurrentHashMap<>();
+
+	/** Values above this are not kept in bitsets */
+	private static final int MAX_BIT_VALUE = 1 << 20;
+
 	private RoleCollection roles;
 
 	private transient GroupSecurityDAO smodel;
 
+	private transient volatile Compiled compiled;
+
+	/** Set when the roles of the groups changed, so the instance must not be used anymore */
+	private transient volatile boolean stale;
+
 	public void setRoles(RoleCollection roles)
 	{
 		this.roles = roles;
+		this.compiled = null;
 	}
 
 	public void setSecurityModel(GroupSecurityDAO smodel)
@@ -70,6 +97,16 @@ public class PermissionControl implements Serializable
 		this.smodel = smodel;
 	}
 
+	public boolean isStale()
+	{
+		return this.stale;
+	}
+
+	public void markStale()
+	{
+		this.stale = true;
+	}
+
 	public void addRole(int id, Role role)
 	{
 		this.smodel.addRole(id, role);
@@ -111,7 +148,10 @@ public class PermissionControl implements Serializable
 	 */
 	public boolean canAccess(String roleName)
 	{
-		return this.roles.containsKey(roleName);
+		Compiled c = this.compiled();
+		Integer index = ROLE_INDEXES.get(roleName);
+
+		return index != null && c.granted.get(index.intValue());
 	}
 
 	/**
@@ -124,12 +164,136 @@ public class PermissionControl implements Serializable
 	 */
 	public boolean canAccess(String roleName, String roleValue)
 	{
-		Role role = this.roles.get(roleName);
+		Compiled c = this.compiled();
+		Integer index = ROLE_INDEXES.get(roleName);
+
+		if (index == null) {
+			return false;
+		}
+
+		int i = index.intValue();
 
-		if (role == null) {
+		if (!c.granted.get(i)) {
 			return false;
 		}
 
-		return role.getValues().contains(new RoleValue(roleValue));
+		int value = bitValue(roleValue);
+
+		if (value >= 0) {
+			return i < c.values.length && c.values[i] != null && c.values[i].get(value);
+		}
+
+		return i < c.otherValues.size() && c.otherValues.get(i) != null && c.otherValues.get(i).contains(roleValue);
+	}
+
+	private Compiled compiled()
+	{
+		Compiled c = this.compiled;
+
+		if (c == null) {
+			c = new Compiled(this.roles);
+			this.compiled = c;
+		}
+
+		return c;
+	}
+
+	private static int roleIndex(String roleName)
+	{
+		Integer index = ROLE_INDEXES.get(roleName);
+
+		if (index == null) {
+			synchronized (ROLE_INDEXES) {
+				index = ROLE_INDEXES.computeIfAbsent(roleName, name -> Integer.valueOf(ROLE_INDEXES.size()));
+			}
+		}
+
+		return index.intValue();
+	}
+
+	/**
+	 * @param value a role value
+	 * @return the value as a number, if it is written as one without leading zeros 
+	 * and is small enough for a bitset, or -1 otherwise
+	 */
+	static int bitValue(String value)
+	{
+		int length = value == null ? 0 : value.length();
+
+		if (length == 0 || length > 7 || (length > 1 && value.charAt(0) == '0')) {
+			return -1;
+		}
+
+		int result = 0;
+
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+
+			result = result * 10 + (c - '0');
+		}
+
+		return result < MAX_BIT_VALUE ? result : -1;
+	}
+
+	/**
+	 * The roles as bitsets: granted roles by role index, and 
+	 * the values of each role, as numbers or as text
+	 */
+	private static final class Compiled
+	{
+		final BitSet granted = new BitSet();
+		final BitSet[] values;
+		final List<Set<String>> otherValues;
+
+		@SuppressWarnings("unchecked")
+		Compiled(RoleCollection roles)
+		{
+			int size = 0;
+			int[] indexes = new int[roles == null ? 0 : roles.size()];
+			int n = 0;
+
+			if (roles != null) {
+				for (Role role : roles.values()) {
+					indexes[n] = roleIndex(role.getName());
+					size = Math.max(size, indexes[n] + 1);
+					n++;
+				}
+			}
+
+			this.values = new BitSet[size];
+			this.otherValues = new ArrayList<>(Collections.<Set<String>>nCopies(size, null));
+			n = 0;
+
+			if (roles != null) {
+				for (Role role : roles.values()) {
+					int i = indexes[n++];
+					this.granted.set(i);
+
+					for (Object o : role.getValues()) {
+						String value = ((RoleValue)o).getValue();
+						int bit = bitValue(value);
+
+						if (bit >= 0) {
+							if (this.values[i] == null) {
+								this.values[i] = new BitSet();
+							}
+
+							this.values[i].set(bit);
+						}
+						else {
+							if (this.otherValues.get(i) == null) {
+								this.otherValues.set(i, new HashSet<String>());
+							}
+
+							this.otherValues.get(i).add(value);
+						}
+					}
+				}
+			}
+		}
 	}
 }
@@ -55,6 +55,7 @@ import net.jforum.dao.DataAccessDriver;
 import net.jforum.dao.SummaryDAO;
 import net.jforum.entities.Post;
 import net.jforum.entities.User;
+import net.jforum.util.mail.MailOutbox;
 import net.jforum.util.mail.Spammer;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
@@ -106,7 +107,7 @@ public class SummaryModel extends Spammer
 				this.setTemplateParams(params);
 
 				this.prepareMessage(subject, SystemGlobals.getValue(ConfigKeys.MAIL_SUMMARY_FILE));
-				super.dispatchMessages();
+				MailOutbox.enqueue(this);
 			}
 		}
 	}
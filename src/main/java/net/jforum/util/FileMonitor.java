@@ -114,6 +114,55 @@ public class FileMonitor
 		}
     }
 
+	private static class DirectoryListenerAdaptor extends FileAlterationListenerAdaptor {
+		private FileChangeListener listener;
+
+		DirectoryListenerAdaptor (FileChangeListener listener) {
+			this.listener = listener;
+		}
+
+		@Override
+		public void onFileCreate (File file) {
+			listener.fileChanged(file.getAbsolutePath());
+		}
+
+		@Override
+		public void onFileChange (File file) {
+			listener.fileChanged(file.getAbsolutePath());
+		}
+
+		@Override
+		public void onFileDelete (File file) {
+			listener.fileChanged(file.getAbsolutePath());
+		}
+	}
+
+    /**
+     * Add a directory to the monitor. The listener is called for every file 
+     * created, changed or removed in it or in its subdirectories. 
+     * Stop watching it with {@link #removeFileChangeListener(String)}.
+     * 
+     * @param listener The file listener
+     * @param dirname The directory to watch
+     * @param period The watch interval (in milli seconds)
+     */
+    public void addDirectoryChangeListener (final FileChangeListener listener, final String dirname, final long period) {
+		final String absoluteDirname = new File(dirname).getAbsolutePath();
+        this.removeFileChangeListener(absoluteDirname);
+       	LOGGER.info("Watching " + absoluteDirname);
+
+		FileAlterationObserver observer = new FileAlterationObserver(absoluteDirname);
+		observer.addListener(new DirectoryListenerAdaptor(listener));
+
+		FileAlterationMonitor monitor = new FileAlterationMonitor(period, observer);
+		try {
+			monitor.start();
+			this.timerEntries.put(absoluteDirname, monitor);
+		} catch (Exception ex) {
+        	LOGGER.error("Error watching " + absoluteDirname + ": " + ex.getMessage());
+		}
+    }
+
     /**
      * Stop watching a file
      * 
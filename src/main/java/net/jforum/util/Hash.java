@@ -85,21 +85,29 @@ public final class Hash
 			throw new IllegalArgumentException("String to encrypt cannot be null or zero length");
 		}
 
-		final StringBuilder hexString = new StringBuilder();
-
 		try {
 			final MessageDigest msgDigest = MessageDigest.getInstance(algo);
 			msgDigest.update(str.getBytes());
-			final byte[] hash = msgDigest.digest();
-			for (byte b : hash) {
-				hexString.append(String.format("%02X", b));
-			}
+			return hex(msgDigest.digest());
 		}
 		catch (NoSuchAlgorithmException e) {
 			throw new ForumException(e);
 		}
+	}
+
+	/**
+	 * @param hash the bytes of a digest
+	 * @return the bytes in lowercase hexadecimal
+	 */
+	public static String hex(final byte[] hash)
+	{
+		final StringBuilder hexString = new StringBuilder(hash.length * 2);
+
+		for (byte b : hash) {
+			hexString.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
 
-		return hexString.toString().toLowerCase();
+		return hexString.toString();
 	}
 
 	private Hash() {}
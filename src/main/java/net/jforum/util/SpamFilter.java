@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Matches a text against all spam patterns at once. Patterns without regular expression
+ * syntax go to an Aho-Corasick automaton, so they cost a single pass over the text no matter
+ * how many there are; the others are compiled once and searched with <code>find()</code>.
+ * <p>
+ * Matching is case insensitive (US-ASCII only, as <code>(?i)</code> is), and, when more than 
+ * one pattern matches, the first one in the list is reported, as before.
+ */
+public final class SpamFilter
+{
+	private static final Logger LOGGER = Logger.getLogger(SpamFilter.class);
+	private static final String REGEX_CHARS = "\\[](){}.*+?^$|";
+
+	private final String[] patterns;
+	private final AtomicLong[] hits;
+	private final Automaton literals;
+	private final int[] regexIndexes;
+	private final Pattern[] regexes;
+
+	/**
+	 * @param patterns the spam patterns, in priority order
+	 * @param previous the filter being replaced, whose hit counts are carried over. May be <code>null</code>
+	 */
+	public SpamFilter(List<String> patterns, SpamFilter previous)
+	{
+		this.patterns = patterns.toArray(new String[0]);
+		this.hits = new AtomicLong[this.patterns.length];
+
+		Map<String, AtomicLong> previousHits = previous != null ? previous.hitsByPattern() : new HashMap<>();
+		List<String> literalPatterns = new ArrayList<>();
+		List<Integer> literalIndexes = new ArrayList<>();
+		List<Pattern> compiled = new ArrayList<>();
+		List<Integer> compiledIndexes = new ArrayList<>();
+
+		for (int i = 0; i < this.patterns.length; i++) {
+			String pattern = this.patterns[i];
+			AtomicLong counter = previousHits.get(pattern);
+			this.hits[i] = counter != null ? counter : new AtomicLong();
+
+			String literal = asLiteral(pattern);
+
+			if (literal != null) {
+				// An empty pattern would flag every single post
+				if (!literal.isEmpty()) {
+					literalPatterns.add(literal);
+					literalIndexes.add(Integer.valueOf(i));
+				}
+
+				continue;
+			}
+
+			try {
+				compiled.add(Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.DOTALL));
+				compiledIndexes.add(Integer.valueOf(i));
+			}
+			catch (PatternSyntaxException e) {
+				LOGGER.warn("Ignoring invalid spam pattern " + pattern + ": " + e.getDescription());
+			}
+		}
+
+		this.literals = new Automaton(literalPatterns, literalIndexes);
+		this.regexes = compiled.toArray(new Pattern[0]);
+		this.regexIndexes = new int[compiledIndexes.size()];
+
+		for (int i = 0; i < this.regexIndexes.length; i++) {
+			this.regexIndexes[i] = compiledIndexes.get(i).intValue();
+		}
+	}
+
+	/**
+	 * @param text the text to check
+	 * @return the first pattern that matches the text, or <code>null</code>
+	 */
+	public String find(String text)
+	{
+		if (text == null || this.patterns.length == 0) {
+			return null;
+		}
+
+		int first = this.literals.firstMatch(text);
+
+		for (int i = 0; i < this.regexes.length && this.regexIndexes[i] < first; i++) {
+			if (this.regexes[i].matcher(text).find()) {
+				first = this.regexIndexes[i];
+				break;
+			}
+		}
+
+		if (first == Integer.MAX_VALUE) {
+			return null;
+		}
+
+		this.hits[first].incrementAndGet();
+
+		return this.patterns[first];
+	}
+
+	public int size()
+	{
+		return this.patterns.length;
+	}
+
+	/**
+	 * @return how many times each pattern matched since the forum started, in list order
+	 */
+	public Map<String, Long> hitCounts()
+	{
+		Map<String, Long> result = new LinkedHashMap<>();
+
+		for (int i = 0; i < this.patterns.length; i++) {
+			result.put(this.patterns[i], Long.valueOf(this.hits[i].get()));
+		}
+
+		return result;
+	}
+
+	private Map<String, AtomicLong> hitsByPattern()
+	{
+		Map<String, AtomicLong> result = new HashMap<>();
+
+		for (int i = 0; i < this.patterns.length; i++) {
+			result.put(this.patterns[i], this.hits[i]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return the text the pattern matches, with escapes resolved, or <code>null</code>
+	 * if it uses any regular expression construct
+	 */
+	static String asLiteral(String pattern)
+	{
+		StringBuilder sb = new StringBuilder(pattern.length());
+
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+
+			if (c == '\\') {
+				if (i + 1 == pattern.length() || Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+					// \d, \s, \b, back references...
+					return null;
+				}
+
+				sb.append(pattern.charAt(++i));
+			}
+			else if (REGEX_CHARS.indexOf(c) > -1) {
+				return null;
+			}
+			else {
+				sb.append(c);
+			}
+		}
+
+		return sb.toString();
+	}
+
+	static char toLower(char c)
+	{
+		return c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c;
+	}
+
+	/**
+	 * Aho-Corasick automaton over lower case chars. Each state keeps its transitions 
+	 * as sorted arrays, and the lowest pattern index that ends there, including the
+	 * ones reachable through failure links.
+	 */
+	private static final class Automaton
+	{
+		private char[][] keys;
+		private int[][] targets;
+		private int[] fail;
+		private int[] output;
+		private int size;
+
+		Automaton(List<String> literals, List<Integer> indexes)
+		{
+			List<Map<Character, Integer>> transitions = new ArrayList<>();
+			List<Integer> outputs = new ArrayList<>();
+			transitions.add(new HashMap<>());
+			outputs.add(Integer.valueOf(Integer.MAX_VALUE));
+
+			for (int i = 0; i < literals.size(); i++) {
+				String literal = literals.get(i);
+				int state = 0;
+
+				for (int j = 0; j < literal.length(); j++) {
+					Character c = Character.valueOf(toLower(literal.charAt(j)));
+					Integer next = transitions.get(state).get(c);
+
+					if (next == null) {
+						next = Integer.valueOf(transitions.size());
+						transitions.get(state).put(c, next);
+						transitions.add(new HashMap<>());
+						outputs.add(Integer.valueOf(Integer.MAX_VALUE));
+					}
+
+					state = next.intValue();
+				}
+
+				outputs.set(state, Integer.valueOf(Math.min(outputs.get(state).intValue(), indexes.get(i).intValue())));
+			}
+
+			this.size = transitions.size();
+			this.keys = new char[this.size][];
+			this.targets = new int[this.size][];
+			this.fail = new int[this.size];
+			this.output = new int[this.size];
+
+			for (int state = 0; state < this.size; state++) {
+				Map<Character, Integer> map = transitions.get(state);
+				char[] k = new char[map.size()];
+				int n = 0;
+
+				for (Character c : map.keySet()) {
+					k[n++] = c.charValue();
+				}
+
+				Arrays.sort(k);
+				int[] t = new int[k.length];
+
+				for (int j = 0; j < k.length; j++) {
+					t[j] = map.get(Character.valueOf(k[j])).intValue();
+				}
+
+				this.keys[state] = k;
+				this.targets[state] = t;
+				this.output[state] = outputs.get(state).intValue();
+			}
+
+			// Breadth first, so the failure state of a parent is always ready
+			int[] queue = new int[this.size];
+			int head = 0;
+			int tail = 0;
+
+			for (int child : this.targets[0]) {
+				this.fail[child] = 0;
+				queue[tail++] = child;
+			}
+
+			while (head < tail) {
+				int state = queue[head++];
+
+				for (int j = 0; j < this.keys[state].length; j++) {
+					char c = this.keys[state][j];
+					int child = this.targets[state][j];
+					int f = this.fail[state];
+
+					while (f != 0 && this.next(f, c) < 0) {
+						f = this.fail[f];
+					}
+
+					int target = this.next(f, c);
+					this.fail[child] = target >= 0 ? target : 0;
+					this.output[child] = Math.min(this.output[child], this.output[this.fail[child]]);
+					queue[tail++] = child;
+				}
+			}
+		}
+
+		/**
+		 * @return the lowest index of the patterns found in the text, or <code>Integer.MAX_VALUE</code>
+		 */
+		int firstMatch(String text)
+		{
+			if (this.size == 1) {
+				return Integer.MAX_VALUE;
+			}
+
+			int best = Integer.MAX_VALUE;
+			int state = 0;
+
+			for (int i = 0; i < text.length() && best != 0; i++) {
+				char c = toLower(text.charAt(i));
+				int next;
+
+				while ((next = this.next(state, c)) < 0 && state != 0) {
+					state = this.fail[state];
+				}
+
+				state = next < 0 ? 0 : next;
+
+				if (this.output[state] < best) {
+					best = this.output[state];
+				}
+			}
+
+			return best;
+		}
+
+		private int next(int state, char c)
+		{
+			int j = Arrays.binarySearch(this.keys[state], c);
+			return j < 0 ? -1 : this.targets[state][j];
+		}
+	}
+}
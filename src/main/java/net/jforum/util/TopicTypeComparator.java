@@ -86,16 +86,7 @@ public class TopicTypeComparator implements Comparator<Topic>, Serializable
 			result = 1;
 		}
 		else if (type1 == type2) {
-			Date dt1 = topic1.getLastPostDate();
-			if (topic1.getLastEditTime() != null) {
-				dt1 = topic1.getLastEditTime();
-			}
-			Date dt2 = topic2.getLastPostDate();
-			if (topic2.getLastEditTime() != null) {
-				dt2 = topic2.getLastEditTime();
-			}
-
-			result = dt2.compareTo(dt1);
+			result = sortTime(topic2).compareTo(sortTime(topic1));
 		} 
 		else {
 			result = -1;
@@ -104,4 +95,19 @@ public class TopicTypeComparator implements Comparator<Topic>, Serializable
 		return result;
 	}
 
+	/**
+	 * Wiki pages are sorted by the last edit, other topics by their last post, 
+	 * as in TopicModel.selectAllByForumAfter.
+	 * 
+	 * @param topic the topic
+	 * @return the time the topic is sorted by
+	 */
+	public static Date sortTime(final Topic topic)
+	{
+		if (topic.getType() == Topic.TYPE_WIKI && topic.getLastEditTime() != null) {
+			return topic.getLastEditTime();
+		}
+
+		return topic.getLastPostDate();
+	}
 }
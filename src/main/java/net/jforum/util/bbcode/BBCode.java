@@ -43,16 +43,28 @@
 package net.jforum.util.bbcode;
 
 import java.io.Serializable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
 
 /**
  * Represents a UBB code. Each code is matched through a regular expression,
  * and can either be replace by a regexp replacement, or by specifying a Java class.
  * If the latter, then the handler class must implement the net.jforum.util.bbcode.Substitution interface.
+ * The regular expression and the handler class are only compiled and instantiated once, 
+ * the first time the code is applied.
  */
 
 public class BBCode implements Serializable
 {
 	private static final long serialVersionUID = -8744755081519897386L;
+	private static final Logger LOGGER = Logger.getLogger(BBCode.class);
+	private static final Pattern LEADING_FLAGS = Pattern.compile("^\\s*(\\(\\?[a-zA-Z]+\\)\\s*)*");
+	private static final Pattern LEADING_TAG = Pattern.compile("^\\\\\\[(/?\\w+)(?![*?+{])");
+	// The old code used to give up after this many class-based substitutions
+	private static final int MAX_SUBSTITUTIONS = 100;
+
 	private String tagName = "";
 	private String regex;
 	private String replace;
@@ -63,6 +75,8 @@ public class BBCode implements Serializable
 	private boolean isRegexpReplace = true;
 	private String lockForSmilies = null;
 
+	private transient volatile Compiled compiled;
+
 	public BBCode() {}
 
 	/**
@@ -92,6 +106,7 @@ public class BBCode implements Serializable
 	public void setRegex(String regex) 
 	{
 		this.regex = regex;
+		this.compiled = null;
 	}
 
 	/**
@@ -117,6 +132,7 @@ public class BBCode implements Serializable
 	{
 		this.replace = replace;
 		isRegexpReplace = true;
+		this.compiled = null;
 	}
 
 	/**
@@ -150,6 +166,7 @@ public class BBCode implements Serializable
 	{
 		this.className = className;
 		isRegexpReplace = false;
+		this.compiled = null;
 	}
 
 	public void enableAlwaysProcess()
@@ -185,4 +202,116 @@ public class BBCode implements Serializable
 	{
 		this.lockForSmilies = tag;
 	}
+
+	/**
+	 * Applies this code to the text. Gives the same result as 
+	 * <code>text.replaceAll(getRegex(), getReplace())</code>, or as feeding each 
+	 * match to the handler class, but skips the regular expression altogether 
+	 * when the text can't contain the tag.
+	 * 
+	 * @param text the text to process
+	 * @return the processed text
+	 */
+	public String apply(String text)
+	{
+		final Compiled c = this.compiled();
+
+		if (c.pattern == null || (c.tag != null && !containsTag(text, c.tag))) {
+			return text;
+		}
+
+		if (this.isRegexpReplace) {
+			return c.pattern.matcher(text).replaceAll(this.replace);
+		}
+
+		if (c.substitution == null) {
+			return text;
+		}
+
+		// the substitution may produce text the expression matches again, so start over after each one
+		String result = text;
+		final Matcher match = c.pattern.matcher(result);
+		int count = 0;
+
+		while (match.find() && count < MAX_SUBSTITUTIONS) {
+			result = result.substring(0, match.start(0)) + c.substitution.substitute(match.group(1))
+				+ result.substring(match.end(0));
+			match.reset(result);
+			count++;
+		}
+
+		return result;
+	}
+
+	private Compiled compiled()
+	{
+		Compiled c = this.compiled;
+
+		if (c == null) {
+			c = new Compiled(this);
+			this.compiled = c;
+		}
+
+		return c;
+	}
+
+	/**
+	 * Case-insensitive search for "[" + tag.
+	 */
+	private static boolean containsTag(String text, String tag)
+	{
+		int pos = text.indexOf('[');
+
+		while (pos > -1) {
+			if (text.regionMatches(true, pos + 1, tag, 0, tag.length())) {
+				return true;
+			}
+
+			pos = text.indexOf('[', pos + 1);
+		}
+
+		return false;
+	}
+
+	/**
+	 * The parts of a code that are expensive to build.
+	 */
+	private static final class Compiled
+	{
+		final Pattern pattern;
+		final Substitution substitution;
+		// when not null, the expression can only match text containing "[" + tag
+		final String tag;
+
+		Compiled(BBCode bb)
+		{
+			Pattern p = null;
+			Substitution subst = null;
+			String t = null;
+
+			try {
+				if (bb.regex != null) {
+					p = Pattern.compile(bb.regex);
+
+					// only trust a tag the expression starts with, after its flags
+					final String body = LEADING_FLAGS.matcher(bb.regex).replaceFirst("");
+					final Matcher m = LEADING_TAG.matcher(body);
+					if (m.find() && body.indexOf('|') == -1) {
+						t = m.group(1);
+					}
+				}
+
+				if (!bb.isRegexpReplace && bb.className != null) {
+					subst = (Substitution)Class.forName(bb.className).getDeclaredConstructor().newInstance();
+				}
+			}
+			catch (Exception ex) {
+				LOGGER.error("error handling '" + bb.tagName + "' BB code: " + ex.getMessage());
+			}
+
+			this.pattern = p;
+			this.substitution = subst;
+			this.tag = t;
+		}
+	}
 }
@@ -125,6 +125,55 @@ public class BBCodeHandler extends DefaultHandler implements Serializable
 		return this.bbMap.get(tagName);
 	}
 
+	/**
+	 * Applies all codes except the code tags, in the order they are configured.
+	 * 
+	 * @param text the text to process
+	 * @return the processed text
+	 */
+	public String processTags(String text)
+	{
+		for (BBCode bb : this.bbMap.values()) {
+			if (!bb.getTagName().startsWith("code")) {
+				text = bb.apply(text);
+			}
+		}
+
+		return text;
+	}
+
+	/**
+	 * Applies the code tags to a [code] block.
+	 * 
+	 * @param text the code block
+	 * @return the processed block
+	 */
+	public String processCodeTags(String text)
+	{
+		for (BBCode bb : this.bbMap.values()) {
+			if (bb.getTagName().startsWith("code")) {
+				text = bb.apply(text);
+			}
+		}
+
+		return text;
+	}
+
+	/**
+	 * Applies the codes that are processed even when BB codes are disabled.
+	 * 
+	 * @param text the text to process
+	 * @return the processed text
+	 */
+	public String processAlwaysProcessTags(String text)
+	{
+		for (BBCode bb : this.alwaysProcessMap.values()) {
+			text = bb.apply(text);
+		}
+
+		return text;
+	}
+
 	@Override public void startElement (String uri, String localName, String tag, Attributes attrs)
 	{
 		if ("match".equals(tag)) {
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.image;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.imageio.ImageIO;
+
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Creates the thumbnails of attached images in the background, with a bounded number of threads,
+ * and keeps them next to the image. The thumbnail of the default size, given by
+ * <code>attachments.images.thumb.maxsize.w</code> and <code>.h</code>, is named <i>image</i>_thumb,
+ * the others, listed in <code>attachments.images.thumb.sizes</code>, <i>image</i>_thumb_<i>width</i>x<i>height</i>.
+ * <p>
+ * Images which fit the size, or cannot be read, get an empty thumbnail file, 
+ * which means the image itself should be shown.
+ */
+public final class ThumbnailGenerator
+{
+	private static final Logger LOGGER = Logger.getLogger(ThumbnailGenerator.class);
+
+	private static final ConcurrentMap<String, Future<File>> PENDING = new ConcurrentHashMap<>();
+	private static final Object MUTEX = new Object();
+	private static ThreadPoolExecutor executor;
+
+	private ThumbnailGenerator() {}
+
+	/**
+	 * @return the size of the thumbnails shown with the messages
+	 */
+	public static Dimension getDefaultSize()
+	{
+		return new Dimension(SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_IMAGES_MAX_THUMB_W),
+			SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_IMAGES_MAX_THUMB_H));
+	}
+
+	/**
+	 * @return the default size followed by the ones of <code>attachments.images.thumb.sizes</code>
+	 */
+	public static List<Dimension> getSizes()
+	{
+		List<Dimension> sizes = new ArrayList<>();
+		sizes.add(getDefaultSize());
+
+		String values = SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_IMAGES_THUMB_SIZES);
+
+		if (values != null) {
+			for (String value : values.split(",")) {
+				Dimension size = parseSize(value.trim());
+
+				if (size != null && !sizes.contains(size)) {
+					sizes.add(size);
+				}
+			}
+		}
+
+		return sizes;
+	}
+
+	/**
+	 * Finds a configured size
+	 * 
+	 * @param value a size as <i>width</i>x<i>height</i>
+	 * @return the size, or <code>null</code> if it is not one of {@link #getSizes()}
+	 */
+	public static Dimension findSize(String value)
+	{
+		Dimension size = parseSize(value);
+		return size != null && getSizes().contains(size) ? size : null;
+	}
+
+	static Dimension parseSize(String value)
+	{
+		int index = value == null ? -1 : value.indexOf('x');
+
+		if (index < 1) {
+			return null;
+		}
+
+		try {
+			int width = Integer.parseInt(value.substring(0, index));
+			int height = Integer.parseInt(value.substring(index + 1));
+
+			return width > 0 && height > 0 ? new Dimension(width, height) : null;
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param path the complete path to the image
+	 * @param size the thumbnail size
+	 * @return the thumbnail file, which may not exist yet
+	 */
+	public static File thumbFile(String path, Dimension size)
+	{
+		if (size.equals(getDefaultSize())) {
+			return new File(path + "_thumb");
+		}
+
+		return new File(path + "_thumb_" + size.width + "x" + size.height);
+	}
+
+	/**
+	 * Queues the creation of the thumbnail of the default size. When the queue is full it is skipped,
+	 * and created the first time it is asked for.
+	 * 
+	 * @param path the complete path to the image
+	 */
+	public static void submit(String path)
+	{
+		submit(path, getDefaultSize());
+	}
+
+	/**
+	 * Gets a thumbnail, waiting up to <code>attachments.images.thumb.wait</code> milliseconds
+	 * for its creation.
+	 * 
+	 * @param path the complete path to the image
+	 * @param size the thumbnail size
+	 * @return the thumbnail, or <code>null</code> if the image itself should be shown, 
+	 * or the thumbnail could not be created in time
+	 */
+	public static File get(String path, Dimension size)
+	{
+		File thumb = thumbFile(path, size);
+
+		if (thumb.exists()) {
+			return thumb.length() > 0 ? thumb : null;
+		}
+
+		Future<File> future = submit(path, size);
+
+		if (future == null) {
+			return null;
+		}
+
+		try {
+			return future.get(SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_IMAGES_THUMB_WAIT), TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException e) {
+			return null;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException e) {
+			LOGGER.error("Could not create " + thumb + ": " + e.getCause(), e.getCause());
+			return null;
+		}
+	}
+
+	/**
+	 * Removes the thumbnails of all sizes
+	 * 
+	 * @param path the complete path to the image
+	 */
+	public static void delete(String path)
+	{
+		for (Dimension size : getSizes()) {
+			File thumb = thumbFile(path, size);
+
+			if (thumb.exists() && !thumb.delete()) {
+				LOGGER.error("Delete thumb file failed: " + thumb.getName());
+			}
+		}
+	}
+
+	/**
+	 * Stops the threads. Thumbnails not created yet will be when they are asked for.
+	 */
+	public static void stop()
+	{
+		synchronized (MUTEX) {
+			if (executor != null) {
+				executor.shutdownNow();
+				executor = null;
+			}
+		}
+	}
+
+	private static Future<File> submit(String path, Dimension size)
+	{
+		File thumb = thumbFile(path, size);
+		String key = thumb.getPath();
+		Future<File> pending = PENDING.get(key);
+
+		if (pending != null) {
+			return pending;
+		}
+
+		FutureTask<File> task = new FutureTask<>(() -> {
+			try {
+				return create(new File(path), size, thumb);
+			}
+			finally {
+				PENDING.remove(key);
+			}
+		});
+
+		pending = PENDING.putIfAbsent(key, task);
+
+		if (pending != null) {
+			return pending;
+		}
+
+		try {
+			executor().execute(task);
+			return task;
+		}
+		catch (RejectedExecutionException e) {
+			PENDING.remove(key);
+			LOGGER.warn("Too many thumbnails waiting, skipping " + thumb.getName());
+			return null;
+		}
+	}
+
+	private static File create(File image, Dimension size, File thumb) throws IOException
+	{
+		if (thumb.exists()) {
+			return thumb.length() > 0 ? thumb : null;
+		}
+
+		if (!image.exists()) {
+			return null;
+		}
+
+		BufferedImage source = null;
+
+		try {
+			source = ImageIO.read(image);
+		}
+		catch (IOException e) {
+			LOGGER.warn("Could not read " + image + ": " + e);
+		}
+
+		if (source == null || (source.getWidth() <= size.width && source.getHeight() <= size.height)) {
+			thumb.createNewFile();
+			return null;
+		}
+
+		BufferedImage resized = ImageUtils.resizeImage(source, ImageUtils.IMAGE_JPEG, size.width, size.height);
+
+		// So the thumbnail is never served half written
+		File temp = new File(thumb.getPath() + ".tmp");
+
+		if (!ImageUtils.saveImage(resized, temp.getPath(), ImageUtils.IMAGE_JPEG)) {
+			throw new IOException("No JPEG writer for " + thumb);
+		}
+
+		Files.move(temp.toPath(), thumb.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		return thumb;
+	}
+
+	private static ThreadPoolExecutor executor()
+	{
+		synchronized (MUTEX) {
+			if (executor == null) {
+				int threads = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_IMAGES_THUMB_THREADS));
+				int queue = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_IMAGES_THUMB_QUEUE));
+
+				executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queue), r -> {
+					Thread thread = new Thread(r, "jforum-thumbnails");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				});
+				executor.allowCoreThreadTimeOut(true);
+			}
+
+			return executor;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.mail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+
+import net.markenwerk.utils.mail.dkim.DkimException;
+import net.markenwerk.utils.mail.dkim.DkimSigner;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Holds the DKIM private key, so it is read and parsed once instead of 
+ * for every email. It is loaded again when the DKIM settings change or 
+ * the key file is replaced. Each email gets its own signer, as a signer 
+ * keeps its digest state while signing and can't be shared by the 
+ * outbox threads.
+ */
+final class DkimSignerCache
+{
+	private static final Logger LOGGER = Logger.getLogger(DkimSignerCache.class);
+
+	private static final Object MUTEX = new Object();
+
+	// Guarded by MUTEX
+	private static String settings;
+	private static long lastModified;
+	private static long length;
+	private static RSAPrivateKey key;
+
+	private DkimSignerCache() {}
+
+	/**
+	 * @return a new signer, or <code>null</code> if DKIM is not configured or the key can't be loaded
+	 */
+	static DkimSigner getSigner()
+	{
+		String signingDomain = SystemGlobals.getValue(ConfigKeys.MAIL_DKIM_SIGNING_DOMAIN);
+		String derFile = SystemGlobals.getValue(ConfigKeys.MAIL_DKIM_DER_FILE);
+
+		// no point in trying DKIM if the relevant properties have not been set
+		if (StringUtils.isEmpty(signingDomain) || StringUtils.isEmpty(derFile)) {
+			return null;
+		}
+
+		String selector = SystemGlobals.getValue(ConfigKeys.MAIL_DKIM_SELECTOR);
+		String identity = SystemGlobals.getValue(ConfigKeys.MAIL_DKIM_IDENTITY);
+		String current = signingDomain + '\n' + selector + '\n' + identity + '\n' + derFile;
+
+		File file = new File(derFile);
+		long fileModified = file.lastModified();
+		long fileLength = file.length();
+		RSAPrivateKey privateKey;
+
+		synchronized (MUTEX) {
+			if (!current.equals(settings) || fileModified != lastModified || fileLength != length) {
+				settings = current;
+				lastModified = fileModified;
+				length = fileLength;
+
+				// A key that fails to load is not tried again until the file or the settings change
+				try {
+					key = (RSAPrivateKey) KeyFactory.getInstance("RSA")
+						.generatePrivate(new PKCS8EncodedKeySpec(Files.readAllBytes(file.toPath())));
+					newSigner(signingDomain, selector, identity, key);
+				}
+				catch (Exception e) {
+					LOGGER.warn("Can't use DKIM: " + e.getMessage());
+					key = null;
+				}
+			}
+
+			privateKey = key;
+		}
+
+		if (privateKey == null) {
+			return null;
+		}
+
+		try {
+			return newSigner(signingDomain, selector, identity, privateKey);
+		}
+		catch (DkimException e) {
+			LOGGER.warn("Can't use DKIM: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static DkimSigner newSigner(String signingDomain, String selector, String identity, RSAPrivateKey privateKey) throws DkimException
+	{
+		DkimSigner signer = new DkimSigner(signingDomain, selector, privateKey);
+		signer.setIdentity(identity);
+		return signer;
+	}
+}
@@ -76,9 +76,11 @@ public class ForumNewTopicSpammer extends Spammer
 		params.put("unwatch", unwatch);
 
 		this.setUsers(users);
+		this.setVariantsOnly(true);
 
-		if (post != null) {
-			post = PostCommon.preparePostForDisplay(post);
+		// The contents only go to those who asked for them, see mailNewTopic.txt
+		if (post != null && wantsContents(users)) {
+			post = PostCommon.prepareStoredPostForDisplay(new Post(post));
 			params.put("message", post.getText());
 		}
 
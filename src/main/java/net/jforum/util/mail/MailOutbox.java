@@ -0,0 +1,748 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.mail;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.MimeMessage;
+
+import org.apache.log4j.Logger;
+
+import net.jforum.util.BoundedLinkedHashMap;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Queue of outgoing mail. Messages are written to <code>mail.outbox.dir</code>
+ * when enqueued and removed once every recipient got them, so nothing is lost
+ * when the queue is full or the board restarts.
+ * <p>
+ * A small pool of threads delivers the queue, at most one message every
+ * <code>mail.smtp.delay</code> milliseconds. Failed deliveries are retried with
+ * an increasing delay, and after <code>mail.outbox.retry.max</code> attempts the
+ * message is moved to the "failed" subdirectory. Recipients that recently got
+ * the same Message-ID are skipped.
+ */
+public final class MailOutbox
+{
+	private static final Logger LOGGER = Logger.getLogger(MailOutbox.class);
+
+	private static final int FORMAT = 1;
+	private static final String MIME_SUFFIX = ".eml";
+	private static final String META_SUFFIX = ".meta";
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final String FAILED_DIR = "failed";
+	private static final long MAX_RETRY_DELAY = TimeUnit.HOURS.toMillis(6);
+
+	private static final Object MUTEX = new Object();
+	private static final Deque<OutboxMessage> QUEUE = new ArrayDeque<>();
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+	private static final AtomicInteger WAITING_RETRY = new AtomicInteger();
+	private static final AtomicLong PENDING = new AtomicLong();
+	private static final AtomicLong SENT = new AtomicLong();
+	private static final AtomicLong FAILURES = new AtomicLong();
+	private static final AtomicLong GIVEN_UP = new AtomicLong();
+	private static final AtomicLong DUPLICATES = new AtomicLong();
+
+	// All guarded by MUTEX. The dispatcher is null while the outbox is stopped
+	private static ScheduledThreadPoolExecutor dispatcher;
+	private static int workers;
+	private static int maxWorkers;
+	private static long nextSendAt;
+
+	private static volatile File spoolDir;
+	private static volatile Map<String, Boolean> recent = Collections.emptyMap();
+
+	private MailOutbox() {}
+
+	/**
+	 * Starts the delivery threads and resumes the messages left in the spool directory.
+	 */
+	public static void start()
+	{
+		synchronized (MUTEX) {
+			if (dispatcher != null) {
+				return;
+			}
+
+			File dir = new File(SystemGlobals.getValue(ConfigKeys.MAIL_OUTBOX_DIR));
+
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				LOGGER.warn("Could not create the mail outbox directory " + dir + ", queued mail will be lost on restart");
+			}
+
+			spoolDir = dir.isDirectory() ? dir : null;
+			recent = Collections.synchronizedMap(new BoundedLinkedHashMap<String, Boolean>(
+				Math.max(1, SystemGlobals.getIntValue(ConfigKeys.MAIL_OUTBOX_DEDUP_SIZE))));
+			maxWorkers = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.MAIL_OUTBOX_THREADS));
+			workers = 0;
+			nextSendAt = 0;
+
+			AtomicInteger threadNumber = new AtomicInteger();
+			dispatcher = new ScheduledThreadPoolExecutor(maxWorkers, r -> {
+				Thread thread = new Thread(r, "jforum-mail-outbox-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			dispatcher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+			int idle = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.MAIL_SMTP_POOL_IDLE));
+			dispatcher.scheduleWithFixedDelay(SmtpTransportPool::evictIdle, idle, idle, TimeUnit.SECONDS);
+
+			if (spoolDir != null) {
+				loadSpool();
+			}
+
+			wake();
+		}
+	}
+
+	/**
+	 * Stops the delivery threads. Whatever was not delivered yet stays in
+	 * the spool directory, and is sent after the next start.
+	 */
+	public static void stop()
+	{
+		ScheduledThreadPoolExecutor executor;
+
+		synchronized (MUTEX) {
+			executor = dispatcher;
+			dispatcher = null;
+		}
+
+		if (executor == null) {
+			return;
+		}
+
+		executor.shutdown();
+
+		try {
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+				executor.shutdownNow();
+			}
+		}
+		catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		SmtpTransportPool.closeAll();
+
+		synchronized (MUTEX) {
+			for (OutboxMessage entry : QUEUE) {
+				if (!isSpooled(entry)) {
+					LOGGER.warn("Discarding message " + entry.getId() + " to " + entry.getRecipients().size() + " recipients, it could not be written to disk");
+				}
+			}
+
+			QUEUE.clear();
+			WAITING_RETRY.set(0);
+			PENDING.set(0);
+		}
+	}
+
+	/**
+	 * Renders the messages of the spammer and queues them for delivery.
+	 * If the outbox is not running they are sent right away, on the calling thread.
+	 * 
+	 * @param spammer the spammer, ready to dispatch its messages
+	 */
+	public static void enqueue(Spammer spammer)
+	{
+		try {
+			List<OutboxMessage> messages = spammer.prepareMail();
+
+			if (!isRunning()) {
+				send(messages);
+				return;
+			}
+
+			for (OutboxMessage entry : messages) {
+				enqueue(entry);
+			}
+		}
+		catch (Exception e) {
+			LOGGER.error("Error while dispatching the message. " + e, e);
+		}
+	}
+
+	/**
+	 * Delivers the messages on the calling thread, without retries or pacing.
+	 */
+	static void send(List<OutboxMessage> messages) throws MessagingException
+	{
+		try (MailSender sender = new MailSender()) {
+			for (OutboxMessage entry : messages) {
+				MimeMessage message = sender.parse(entry.getMime());
+
+				for (String recipient : entry.getRecipients()) {
+					sender.send(message, recipient);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of messages waiting for delivery or for a retry
+	 */
+	public static int getQueuedMessages()
+	{
+		synchronized (MUTEX) {
+			return QUEUE.size() + WAITING_RETRY.get();
+		}
+	}
+
+	/**
+	 * @return the number of recipients the queued messages still have to be sent to
+	 */
+	public static long getPendingRecipients()
+	{
+		return PENDING.get();
+	}
+
+	/**
+	 * @return the number of emails sent since startup
+	 */
+	public static long getSent()
+	{
+		return SENT.get();
+	}
+
+	/**
+	 * @return the number of failed delivery attempts since startup
+	 */
+	public static long getFailures()
+	{
+		return FAILURES.get();
+	}
+
+	/**
+	 * @return the number of recipients that were given up on since startup
+	 */
+	public static long getGivenUp()
+	{
+		return GIVEN_UP.get();
+	}
+
+	/**
+	 * @return the number of recipients skipped since startup, as they already got the message
+	 */
+	public static long getDuplicates()
+	{
+		return DUPLICATES.get();
+	}
+
+	private static boolean isRunning()
+	{
+		synchronized (MUTEX) {
+			return dispatcher != null;
+		}
+	}
+
+	private static void enqueue(OutboxMessage entry)
+	{
+		// The same address twice in the list only gets the message once
+		Set<String> seen = new HashSet<>();
+
+		for (Iterator<String> iter = entry.getRecipients().iterator(); iter.hasNext(); ) {
+			if (!seen.add(iter.next().toLowerCase(Locale.ROOT))) {
+				iter.remove();
+				DUPLICATES.incrementAndGet();
+			}
+		}
+
+		if (entry.getRecipients().isEmpty()) {
+			return;
+		}
+
+		entry.setId(String.format("%013d-%05d", System.currentTimeMillis(), SEQUENCE.incrementAndGet() % 100000));
+
+		if (spool(entry)) {
+			entry.setMime(null);
+		}
+
+		synchronized (MUTEX) {
+			PENDING.addAndGet(entry.getRecipients().size());
+			QUEUE.add(entry);
+			wake();
+		}
+	}
+
+	/**
+	 * Starts delivery threads while there are more queued messages than threads. 
+	 * Must hold MUTEX.
+	 */
+	private static void wake()
+	{
+		while (dispatcher != null && workers < maxWorkers && workers < QUEUE.size()) {
+			workers++;
+			dispatcher.execute(MailOutbox::drain);
+		}
+	}
+
+	private static void drain()
+	{
+		boolean done = false;
+
+		try (MailSender sender = new MailSender()) {
+			while (!done) {
+				OutboxMessage entry;
+
+				synchronized (MUTEX) {
+					entry = dispatcher == null ? null : QUEUE.poll();
+
+					if (entry == null) {
+						workers--;
+						return;
+					}
+				}
+
+				long pause = deliver(entry, sender);
+
+				if (pause > 0) {
+					synchronized (MUTEX) {
+						// The worker keeps its slot while waiting, rather than sleeping on it
+						if (dispatcher != null) {
+							dispatcher.schedule(MailOutbox::drain, pause, TimeUnit.MILLISECONDS);
+						}
+						else {
+							workers--;
+						}
+					}
+
+					done = true;
+				}
+			}
+		}
+		catch (Exception e) {
+			LOGGER.error("Error while delivering mail: " + e, e);
+
+			synchronized (MUTEX) {
+				workers--;
+				wake();
+			}
+		}
+	}
+
+	/**
+	 * Sends the message to its remaining recipients.
+	 * 
+	 * @return how many milliseconds to wait until the next email may be sent,
+	 * if the entry was put back in the queue for that, or zero
+	 */
+	private static long deliver(OutboxMessage entry, MailSender sender)
+	{
+		MimeMessage message;
+
+		try {
+			byte[] mime = entry.getMime();
+			message = sender.parse(mime != null ? mime : Files.readAllBytes(file(entry, MIME_SUFFIX).toPath()));
+		}
+		catch (IOException | MessagingException e) {
+			LOGGER.error("Could not read queued message " + entry.getId() + ": " + e, e);
+			entry.setLastError(e.toString());
+			giveUp(entry);
+			return 0;
+		}
+
+		int checkpoint = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.MAIL_OUTBOX_CHECKPOINT));
+		int sent = 0;
+
+		for (Iterator<String> iter = entry.getRecipients().iterator(); iter.hasNext(); ) {
+			String recipient = iter.next();
+			String key = entry.getDedupKey() == null 
+				? null 
+				: entry.getDedupKey() + ' ' + recipient.toLowerCase(Locale.ROOT);
+
+			if (key == null || !recent.containsKey(key)) {
+				long pause = admit();
+
+				if (pause > 0) {
+					save(entry);
+
+					synchronized (MUTEX) {
+						QUEUE.addFirst(entry);
+					}
+
+					return pause;
+				}
+
+				try {
+					sender.send(message, recipient);
+					SENT.incrementAndGet();
+
+					if (key != null) {
+						recent.put(key, Boolean.TRUE);
+					}
+				}
+				catch (Exception e) {
+					FAILURES.incrementAndGet();
+
+					if (!isPermanent(e)) {
+						sender.close();
+						entry.setLastError(e.toString());
+						retry(entry);
+						return 0;
+					}
+
+					LOGGER.warn("Not sending message " + entry.getId() + " to " + recipient + ": " + e);
+					GIVEN_UP.incrementAndGet();
+				}
+			}
+			else {
+				DUPLICATES.incrementAndGet();
+			}
+
+			iter.remove();
+			PENDING.decrementAndGet();
+
+			if (++sent % checkpoint == 0) {
+				save(entry);
+			}
+		}
+
+		delete(entry);
+		return 0;
+	}
+
+	/**
+	 * Takes the slot for sending the next email, according to <code>mail.smtp.delay</code>.
+	 * 
+	 * @return zero if the email can be sent now, or how many milliseconds to wait 
+	 */
+	private static long admit()
+	{
+		int delay = SystemGlobals.getIntValue(ConfigKeys.MAIL_SMTP_DELAY);
+
+		synchronized (MUTEX) {
+			if (dispatcher == null) {
+				return Long.MAX_VALUE;
+			}
+
+			if (delay <= 0) {
+				return 0;
+			}
+
+			long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+
+			if (nextSendAt > now) {
+				return nextSendAt - now;
+			}
+
+			nextSendAt = now + delay;
+			return 0;
+		}
+	}
+
+	/**
+	 * @return true if the recipient address will never accept the message
+	 */
+	private static boolean isPermanent(Exception e)
+	{
+		if (e instanceof AddressException) {
+			return true;
+		}
+
+		if (e instanceof SendFailedException) {
+			Address[] invalid = ((SendFailedException)e).getInvalidAddresses();
+			return invalid != null && invalid.length > 0;
+		}
+
+		return false;
+	}
+
+	private static void retry(OutboxMessage entry)
+	{
+		int attempts = entry.getAttempts() + 1;
+		entry.setAttempts(attempts);
+
+		if (attempts >= SystemGlobals.getIntValue(ConfigKeys.MAIL_OUTBOX_RETRY_MAX)) {
+			LOGGER.error("Giving up on message " + entry.getId() + " after " + attempts + " attempts: " + entry.getLastError());
+			giveUp(entry);
+			return;
+		}
+
+		long delay = Math.min(MAX_RETRY_DELAY, 
+			TimeUnit.SECONDS.toMillis(SystemGlobals.getIntValue(ConfigKeys.MAIL_OUTBOX_RETRY_DELAY)) << Math.min(attempts - 1, 20));
+
+		LOGGER.warn("Could not deliver message " + entry.getId() + ", retrying in " + delay / 1000 + "s: " + entry.getLastError());
+		save(entry);
+
+		synchronized (MUTEX) {
+			if (dispatcher != null) {
+				WAITING_RETRY.incrementAndGet();
+
+				dispatcher.schedule(() -> {
+					synchronized (MUTEX) {
+						WAITING_RETRY.decrementAndGet();
+						QUEUE.add(entry);
+						wake();
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	private static void giveUp(OutboxMessage entry)
+	{
+		GIVEN_UP.addAndGet(entry.getRecipients().size());
+		PENDING.addAndGet(-entry.getRecipients().size());
+
+		if (!isSpooled(entry)) {
+			return;
+		}
+
+		save(entry);
+
+		File failed = new File(spoolDir, FAILED_DIR);
+
+		try {
+			Files.createDirectories(failed.toPath());
+
+			for (String suffix : new String[] { MIME_SUFFIX, META_SUFFIX }) {
+				File file = file(entry, suffix);
+				Files.move(file.toPath(), new File(failed, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException e) {
+			LOGGER.error("Could not move message " + entry.getId() + " to " + failed + ": " + e, e);
+			delete(entry);
+		}
+	}
+
+	private static boolean isSpooled(OutboxMessage entry)
+	{
+		return entry.getMime() == null;
+	}
+
+	private static File file(OutboxMessage entry, String suffix)
+	{
+		return new File(spoolDir, entry.getId() + suffix);
+	}
+
+	/**
+	 * Writes the message and its recipients to the spool directory
+	 * 
+	 * @return true if the message is safely on disk
+	 */
+	private static boolean spool(OutboxMessage entry)
+	{
+		if (spoolDir == null) {
+			return false;
+		}
+
+		File mimeFile = file(entry, MIME_SUFFIX);
+		File temp = new File(spoolDir, mimeFile.getName() + TEMP_SUFFIX);
+
+		try {
+			Files.write(temp.toPath(), entry.getMime());
+			Files.move(temp.toPath(), mimeFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			writeMeta(entry);
+			return true;
+		}
+		catch (IOException e) {
+			LOGGER.warn("Could not write message " + entry.getId() + " to " + spoolDir + ", keeping it in memory: " + e);
+			temp.delete();
+			mimeFile.delete();
+			return false;
+		}
+	}
+
+	/**
+	 * Records the remaining recipients and the attempts of a spooled message
+	 */
+	private static void save(OutboxMessage entry)
+	{
+		if (isSpooled(entry)) {
+			try {
+				writeMeta(entry);
+			}
+			catch (IOException e) {
+				LOGGER.warn("Could not update message " + entry.getId() + ": " + e);
+			}
+		}
+	}
+
+	private static void delete(OutboxMessage entry)
+	{
+		if (isSpooled(entry)) {
+			// Without the meta file the message is discarded on startup, so it goes first
+			file(entry, META_SUFFIX).delete();
+			file(entry, MIME_SUFFIX).delete();
+		}
+	}
+
+	private static void writeMeta(OutboxMessage entry) throws IOException
+	{
+		File metaFile = file(entry, META_SUFFIX);
+		File temp = new File(spoolDir, metaFile.getName() + TEMP_SUFFIX);
+		String lastError = entry.getLastError();
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(FORMAT);
+			out.writeBoolean(entry.getDedupKey() != null);
+
+			if (entry.getDedupKey() != null) {
+				out.writeUTF(entry.getDedupKey());
+			}
+
+			out.writeInt(entry.getAttempts());
+			out.writeUTF(lastError == null ? "" : lastError.length() > 1000 ? lastError.substring(0, 1000) : lastError);
+			out.writeInt(entry.getRecipients().size());
+
+			for (String recipient : entry.getRecipients()) {
+				out.writeUTF(recipient);
+			}
+		}
+
+		Files.move(temp.toPath(), metaFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static OutboxMessage readMeta(File metaFile) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(metaFile)))) {
+			if (in.readInt() != FORMAT) {
+				throw new IOException("Unknown format");
+			}
+
+			String dedupKey = in.readBoolean() ? in.readUTF() : null;
+			int attempts = in.readInt();
+			String lastError = in.readUTF();
+			int count = in.readInt();
+			List<String> recipients = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				recipients.add(in.readUTF());
+			}
+
+			OutboxMessage entry = new OutboxMessage(null, dedupKey, recipients);
+			String name = metaFile.getName();
+
+			entry.setId(name.substring(0, name.length() - META_SUFFIX.length()));
+			entry.setAttempts(attempts);
+			entry.setLastError(lastError.isEmpty() ? null : lastError);
+
+			return entry;
+		}
+	}
+
+	/**
+	 * Queues the messages found in the spool directory, oldest first. Must hold MUTEX.
+	 */
+	private static void loadSpool()
+	{
+		File[] files = spoolDir.listFiles();
+
+		if (files == null) {
+			return;
+		}
+
+		Arrays.sort(files);
+
+		for (File file : files) {
+			String name = file.getName();
+
+			if (name.endsWith(META_SUFFIX)) {
+				OutboxMessage entry = null;
+
+				try {
+					entry = readMeta(file);
+				}
+				catch (IOException e) {
+					LOGGER.error("Could not read " + file + ", discarding it: " + e);
+				}
+
+				if (entry == null || !file(entry, MIME_SUFFIX).isFile()) {
+					file.delete();
+					continue;
+				}
+
+				QUEUE.add(entry);
+				PENDING.addAndGet(entry.getRecipients().size());
+			}
+			else if (name.endsWith(TEMP_SUFFIX)) {
+				file.delete();
+			}
+			else if (name.endsWith(MIME_SUFFIX)) {
+				// Written by an enqueue that didn't finish
+				String id = name.substring(0, name.length() - MIME_SUFFIX.length());
+
+				if (!new File(spoolDir, id + META_SUFFIX).isFile()) {
+					file.delete();
+				}
+			}
+		}
+
+		if (!QUEUE.isEmpty()) {
+			LOGGER.info("Resuming delivery of " + QUEUE.size() + " queued messages");
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.mail;
+
+import java.io.ByteArrayInputStream;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+import net.markenwerk.utils.mail.dkim.DkimMessage;
+import net.markenwerk.utils.mail.dkim.DkimSigner;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+import net.jforum.util.stats.StatsEvent;
+
+/**
+ * Sends messages through a single SMTP connection, taken from {@link SmtpTransportPool}
+ * on the first message and given back by {@link #close()}. Not thread safe.
+ */
+class MailSender implements AutoCloseable
+{
+	private static final Logger LOGGER = Logger.getLogger(MailSender.class);
+
+	// the regex looks for a property in form "prop_key.name=propValue"
+	private static final Pattern EXTRA_PROPS_PATTERN = Pattern.compile("([\\p{IsAlphabetic}0-9_\\-\\.]*)=(.*)$");
+
+	private final Session session;
+	private Transport transport;
+	private boolean used;
+
+	MailSender()
+	{
+		this.session = SmtpTransportPool.getSession();
+	}
+
+	Session getSession()
+	{
+		return this.session;
+	}
+
+	/**
+	 * @param mime a message, as written by <code>MimeMessage.writeTo()</code>
+	 * @return the message, bound to this sender's session
+	 */
+	MimeMessage parse(byte[] mime) throws MessagingException
+	{
+		return new MimeMessage(this.session, new ByteArrayInputStream(mime));
+	}
+
+	/**
+	 * Sends the message to a single recipient, which becomes its "To" header.
+	 */
+	void send(MimeMessage message, String recipient) throws MessagingException
+	{
+		Address address = new InternetAddress(recipient);
+		LOGGER.debug("Sending mail to: " + recipient);
+		message.setRecipient(Message.RecipientType.TO, address);
+
+		MimeMessage signed = message;
+		DkimSigner signer = DkimSignerCache.getSigner();
+
+		if (signer != null) {
+			try {
+				signed = new DkimMessage(message, signer);
+			}
+			catch (MessagingException e) {
+				LOGGER.warn("Can't use DKIM: " + e.getMessage());
+			}
+		}
+
+		Transport t = this.transport();
+
+		try {
+			t.sendMessage(signed, new Address[] { address });
+		}
+		catch (SendFailedException e) {
+			// The server refused the message or the recipient, the connection is still good
+			throw e;
+		}
+		catch (MessagingException e) {
+			this.discard();
+			throw e;
+		}
+
+		new StatsEvent("Sent email", recipient).record();
+	}
+
+	@Override public void close()
+	{
+		if (this.transport != null) {
+			SmtpTransportPool.release(this.session, this.transport);
+			this.transport = null;
+		}
+	}
+
+	private Transport transport() throws MessagingException
+	{
+		// isConnected() sends RSET between messages, see mail.smtp.userset
+		if (this.transport != null && this.used && !this.transport.isConnected()) {
+			this.discard();
+		}
+
+		if (this.transport == null) {
+			this.transport = SmtpTransportPool.borrow(this.session);
+		}
+
+		this.used = true;
+		return this.transport;
+	}
+
+	private void discard()
+	{
+		try {
+			this.transport.close();
+		}
+		catch (Exception e) {
+			LOGGER.debug("Error while closing an SMTP connection: " + e);
+		}
+
+		this.transport = null;
+	}
+
+	/**
+	 * Creates a mail session from the SMTP settings in SystemGlobals
+	 */
+	static Session createSession()
+	{
+		final boolean ssl = SystemGlobals.getBoolValue(ConfigKeys.MAIL_SMTP_SSL);
+		final Properties mailProps = new Properties();
+
+		mailProps.put(ssl ? ConfigKeys.MAIL_SMTP_SSL_HOST : ConfigKeys.MAIL_SMTP_HOST, 
+			SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_HOST));
+		mailProps.put(ssl ? ConfigKeys.MAIL_SMTP_SSL_PORT : ConfigKeys.MAIL_SMTP_PORT, 
+			SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_PORT));
+
+		String localhost = SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_LOCALHOST);
+		
+		if (StringUtils.isNotEmpty(localhost)) {
+			LOGGER.debug("localhost="+localhost);
+			mailProps.put(ssl ? ConfigKeys.MAIL_SMTP_SSL_LOCALHOST : ConfigKeys.MAIL_SMTP_LOCALHOST, localhost);
+		}
+		
+		mailProps.put("mail.mime.charset", SystemGlobals.getValue(ConfigKeys.MAIL_CHARSET));
+		mailProps.put(ssl ? ConfigKeys.MAIL_SMTP_SSL_AUTH : ConfigKeys.MAIL_SMTP_AUTH, 
+			SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_AUTH));
+		// Pooled connections are checked with RSET rather than NOOP before being used again
+		mailProps.put(ssl ? "mail.smtps.userset" : "mail.smtp.userset", "true");
+		applyExtraMailProperties(mailProps);
+
+		return Session.getInstance(mailProps);
+	}
+
+	/**
+	 * Check if there any extra mail parameters to be applied to mailProps before attempting to
+	 * connect to the mail server. Uses a regex matcher to avoid malformed strings.
+	 */
+	private static void applyExtraMailProperties(Properties mailProps) {
+		String mailProperties = SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_ADDITIONAL_PROPERTIES);
+
+		// if there are extra SMTP parameters to process
+		if (!StringUtils.isEmpty(mailProperties)) {
+			String[] propKeyVals = mailProperties.split(",");
+			for (String keyVal : propKeyVals) {
+				Matcher keyValMatcher = EXTRA_PROPS_PATTERN.matcher(keyVal);
+				if (keyValMatcher.matches()) {
+					String key = keyValMatcher.group(1).trim();
+					String value = keyValMatcher.group(2).trim();
+					LOGGER.debug("Additional SMTP property: " + key + "=" + value);
+					mailProps.put(key, value);
+				} else {
+					LOGGER.warn("Property " + keyVal + " is not valid");
+				}
+			}
+		}
+	}
+}
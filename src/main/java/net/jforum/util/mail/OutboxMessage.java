@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.mail;
+
+import java.util.List;
+
+/**
+ * A rendered message waiting in the {@link MailOutbox}, together with
+ * the recipients it was not delivered to yet.
+ */
+final class OutboxMessage
+{
+	private String id;
+	private byte[] mime;
+	private final String dedupKey;
+	private final List<String> recipients;
+	private int attempts;
+	private String lastError;
+
+	/**
+	 * @param mime the message, as written by <code>MimeMessage.writeTo()</code>
+	 * @param dedupKey the Message-ID, used to skip recipients that already got this message
+	 * @param recipients the email addresses to deliver to
+	 */
+	OutboxMessage(byte[] mime, String dedupKey, List<String> recipients)
+	{
+		this.mime = mime;
+		this.dedupKey = dedupKey;
+		this.recipients = recipients;
+	}
+
+	String getId()
+	{
+		return this.id;
+	}
+
+	void setId(String id)
+	{
+		this.id = id;
+	}
+
+	/**
+	 * @return the message contents, or <code>null</code> if they are only in the spool directory
+	 */
+	byte[] getMime()
+	{
+		return this.mime;
+	}
+
+	void setMime(byte[] mime)
+	{
+		this.mime = mime;
+	}
+
+	String getDedupKey()
+	{
+		return this.dedupKey;
+	}
+
+	List<String> getRecipients()
+	{
+		return this.recipients;
+	}
+
+	int getAttempts()
+	{
+		return this.attempts;
+	}
+
+	void setAttempts(int attempts)
+	{
+		this.attempts = attempts;
+	}
+
+	String getLastError()
+	{
+		return this.lastError;
+	}
+
+	void setLastError(String lastError)
+	{
+		this.lastError = lastError;
+	}
+}
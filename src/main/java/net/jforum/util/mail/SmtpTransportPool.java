@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.mail;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Keeps SMTP connections open between messages, so sending many emails 
+ * doesn't mean connecting and authenticating for each one of them.
+ * <p>
+ * Idle connections are kept for <code>mail.smtp.pool.idle</code> seconds. 
+ * Before a connection is used again it is checked with a RSET command, 
+ * which also clears whatever state the previous message left behind. 
+ * When the SMTP settings change, the connections made with the old ones are closed.
+ */
+final class SmtpTransportPool
+{
+	private static final Logger LOGGER = Logger.getLogger(SmtpTransportPool.class);
+
+	private static final Object MUTEX = new Object();
+	private static final Deque<Idle> IDLE = new ArrayDeque<>();
+
+	// Guarded by MUTEX
+	private static String settings;
+	private static Session session;
+
+	private SmtpTransportPool() {}
+
+	/**
+	 * @return the mail session for the current SMTP settings
+	 */
+	static Session getSession()
+	{
+		List<Transport> stale = null;
+		Session result;
+
+		synchronized (MUTEX) {
+			String current = currentSettings();
+
+			if (!current.equals(settings)) {
+				stale = drainIdle();
+				settings = current;
+				session = MailSender.createSession();
+			}
+
+			result = session;
+		}
+
+		close(stale);
+		return result;
+	}
+
+	/**
+	 * Takes an idle connection, or opens a new one if there is none
+	 * 
+	 * @param owner the session from {@link #getSession()}
+	 */
+	static Transport borrow(Session owner) throws MessagingException
+	{
+		long now = System.currentTimeMillis();
+		long maxIdle = TimeUnit.SECONDS.toMillis(SystemGlobals.getIntValue(ConfigKeys.MAIL_SMTP_POOL_IDLE));
+
+		for (;;) {
+			Idle idle;
+
+			synchronized (MUTEX) {
+				idle = owner == session ? IDLE.pollFirst() : null;
+			}
+
+			if (idle == null) {
+				return connect(owner);
+			}
+
+			// isConnected() sends RSET, see mail.smtp.userset in MailSender.createSession()
+			if (now - idle.since <= maxIdle && idle.transport.isConnected()) {
+				return idle.transport;
+			}
+
+			close(idle.transport);
+		}
+	}
+
+	/**
+	 * Gives a connection back to the pool, or closes it if the pool is full 
+	 * or the settings have changed since it was opened
+	 */
+	static void release(Session owner, Transport transport)
+	{
+		int max = SystemGlobals.getIntValue(ConfigKeys.MAIL_SMTP_POOL_SIZE);
+
+		synchronized (MUTEX) {
+			if (owner == session && IDLE.size() < max) {
+				IDLE.addFirst(new Idle(transport));
+				return;
+			}
+		}
+
+		close(transport);
+	}
+
+	/**
+	 * Closes the connections idle for longer than <code>mail.smtp.pool.idle</code> seconds
+	 */
+	static void evictIdle()
+	{
+		long oldest = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(SystemGlobals.getIntValue(ConfigKeys.MAIL_SMTP_POOL_IDLE));
+		List<Transport> stale = new ArrayList<>();
+
+		synchronized (MUTEX) {
+			// The most recently used connections are at the head
+			while (!IDLE.isEmpty() && IDLE.peekLast().since < oldest) {
+				stale.add(IDLE.pollLast().transport);
+			}
+		}
+
+		close(stale);
+	}
+
+	/**
+	 * Closes all idle connections
+	 */
+	static void closeAll()
+	{
+		List<Transport> stale;
+
+		synchronized (MUTEX) {
+			stale = drainIdle();
+		}
+
+		close(stale);
+	}
+
+	static int getIdleCount()
+	{
+		synchronized (MUTEX) {
+			return IDLE.size();
+		}
+	}
+
+	private static Transport connect(Session session) throws MessagingException
+	{
+		boolean ssl = SystemGlobals.getBoolValue(ConfigKeys.MAIL_SMTP_SSL);
+		Transport transport = session.getTransport(ssl ? "smtps" : "smtp");
+
+		if (SystemGlobals.getBoolValue(ConfigKeys.MAIL_SMTP_AUTH)) {
+			String username = SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_USERNAME);
+			String password = SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_PASSWORD);
+
+			if (StringUtils.isEmpty(username) || StringUtils.isEmpty(password)) {
+				throw new MessagingException("SMTP authentication is enabled, but no username or password is set");
+			}
+
+			transport.connect(SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_HOST), username, password);
+		}
+		else {
+			transport.connect();
+		}
+
+		return transport;
+	}
+
+	private static String currentSettings()
+	{
+		StringBuilder sb = new StringBuilder();
+
+		for (String key : new String[] { ConfigKeys.MAIL_SMTP_HOST, ConfigKeys.MAIL_SMTP_PORT, ConfigKeys.MAIL_SMTP_SSL, 
+				ConfigKeys.MAIL_SMTP_AUTH, ConfigKeys.MAIL_SMTP_USERNAME, ConfigKeys.MAIL_SMTP_PASSWORD, 
+				ConfigKeys.MAIL_SMTP_LOCALHOST, ConfigKeys.MAIL_CHARSET, ConfigKeys.MAIL_SMTP_ADDITIONAL_PROPERTIES }) {
+			sb.append(SystemGlobals.getValue(key)).append('\n');
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Must hold MUTEX
+	 */
+	private static List<Transport> drainIdle()
+	{
+		List<Transport> list = new ArrayList<>(IDLE.size());
+
+		for (Idle idle : IDLE) {
+			list.add(idle.transport);
+		}
+
+		IDLE.clear();
+		return list;
+	}
+
+	private static void close(List<Transport> transports)
+	{
+		if (transports != null) {
+			for (Transport transport : transports) {
+				close(transport);
+			}
+		}
+	}
+
+	private static void close(Transport transport)
+	{
+		try {
+			transport.close();
+		}
+		catch (Exception e) {
+			LOGGER.debug("Error while closing an SMTP connection: " + e);
+		}
+	}
+
+	private static final class Idle
+	{
+		final Transport transport;
+		final long since = System.currentTimeMillis();
+
+		Idle(Transport transport)
+		{
+			this.transport = transport;
+		}
+	}
+}
@@ -42,34 +42,22 @@
  */
 package net.jforum.util.mail;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import jakarta.mail.Address;
-import jakarta.mail.Header;
-import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
 import jakarta.mail.Session;
-import jakarta.mail.Transport;
-import jakarta.mail.event.TransportEvent;
-import jakarta.mail.event.TransportListener;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 
-import net.markenwerk.utils.mail.dkim.DkimMessage;
-import net.markenwerk.utils.mail.dkim.DkimSigner;
-
 import org.apache.commons.lang3.StringUtils;
-import org.apache.log4j.Logger;
 
 import freemarker.template.SimpleHash;
 import freemarker.template.Template;
@@ -79,7 +67,6 @@ import net.jforum.entities.User;
 import net.jforum.exceptions.MailException;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
-import net.jforum.util.stats.StatsEvent;
 
 /**
  * Dispatch emails to the world. 
@@ -88,215 +75,133 @@ import net.jforum.util.stats.StatsEvent;
  */
 public class Spammer
 {
-	private static final Logger LOGGER = Logger.getLogger(Spammer.class);
-
 	private static final int MESSAGE_HTML = 0;
 	private static final int MESSAGE_TEXT = 1;
 
-	// the regex looks for a property in form "prop_key.name=propValue"
-	private static final Pattern EXTRA_PROPS_PATTERN = Pattern.compile("([\\p{IsAlphabetic}0-9_\\-\\.]*)=(.*)$");
-
-	private static String signingDomain = SystemGlobals.getValue(ConfigKeys.MAIL_DKIM_SIGNING_DOMAIN);
-	private static String selector = SystemGlobals.getValue(ConfigKeys.MAIL_DKIM_SELECTOR);
-	private static String derFile = SystemGlobals.getValue(ConfigKeys.MAIL_DKIM_DER_FILE);
-	private static String identity = SystemGlobals.getValue(ConfigKeys.MAIL_DKIM_IDENTITY);
-
 	private int messageFormat;
 	private Session session;
-	private String username;
-	private String password;
 
-	private Properties mailProps = new Properties();
 	private MimeMessage message;
 	private List<User> users = new ArrayList<>();
 	private String messageId;
 	private String inReplyTo;
 	private boolean needCustomization;
+	private boolean variantsOnly;
 	private SimpleHash templateParams;
 	private Template template;
 
 	protected Spammer() throws MailException
 	{
-		final boolean ssl = SystemGlobals.getBoolValue(ConfigKeys.MAIL_SMTP_SSL);
+		messageFormat = SystemGlobals.getValue(ConfigKeys.MAIL_MESSAGE_FORMAT).trim().equals("html") 
+			? MESSAGE_HTML
+			: MESSAGE_TEXT;
+
+		this.session = SmtpTransportPool.getSession();
+	}
 
-		final String hostProperty = this.hostProperty(ssl);
-		final String portProperty = this.portProperty(ssl);
-		final String authProperty = this.authProperty(ssl);
-		final String localhostProperty = this.localhostProperty(ssl);
+	/**
+	 * Sends the messages right away, on the calling thread. 
+	 * Use {@link MailOutbox#enqueue(Spammer)} for anything but test messages.
+	 * 
+	 * @return true
+	 * @throws MailException if some message could not be sent
+	 */
+	public boolean dispatchMessages()
+	{
+		try {
+			MailOutbox.send(this.prepareMail());
+		}
+		catch (MessagingException e) {
+			throw new MailException(e);
+		}
 
-		mailProps.put(hostProperty, SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_HOST));
-		mailProps.put(portProperty, SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_PORT));
+		return true;
+	}
 
-		String localhost = SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_LOCALHOST);
-		
-		if (StringUtils.isNotEmpty(localhost)) {
-			LOGGER.debug("localhost="+localhost);
-			mailProps.put(localhostProperty, localhost);
+	/**
+	 * Renders the messages to send. Customized messages get one entry per user,
+	 * or one per variant (see {@link #setVariantsOnly(boolean)}). Otherwise 
+	 * all users share a single one.
+	 * 
+	 * @return the messages with their recipients
+	 */
+	List<OutboxMessage> prepareMail() throws MailException
+	{
+		if (this.needCustomization && this.variantsOnly) {
+			return this.prepareVariants();
 		}
-		
-		mailProps.put("mail.mime.charset", SystemGlobals.getValue(ConfigKeys.MAIL_CHARSET));
-		mailProps.put(authProperty, SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_AUTH));
-		applyExtraMailProperties();
 
-		username = SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_USERNAME);
-		password = SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_PASSWORD);
+		List<OutboxMessage> result = new ArrayList<>();
+		List<String> recipients = new ArrayList<>();
 
-		messageFormat = SystemGlobals.getValue(ConfigKeys.MAIL_MESSAGE_FORMAT).trim().equals("html") 
-			? MESSAGE_HTML
-			: MESSAGE_TEXT;
+		try {
+			for (User user : this.users) {
+				if (StringUtils.isEmpty(user.getEmail())) {
+					continue;
+				}
+
+				if (this.needCustomization) {
+					this.defineUserMessage(user);
+					result.add(this.toOutboxMessage(new ArrayList<>(Collections.singletonList(user.getEmail()))));
+				}
+				else {
+					recipients.add(user.getEmail());
+				}
+			}
 
-		this.session = Session.getInstance(mailProps);
+			if (!recipients.isEmpty()) {
+				result.add(this.toOutboxMessage(recipients));
+			}
+		}
+		catch (MessagingException | IOException e) {
+			throw new MailException(e);
+		}
+
+		return result;
 	}
 
 	/**
-	 * Check if there any extra mail parameters to be applied to mailProps before attempting to
-	 * connect to the mail server. Uses a regex matcher to avoid malformed strings.
+	 * Renders the message once for the users who want the contents as text, and once for the others
 	 */
-	private void applyExtraMailProperties() {
-		String mailProperties = SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_ADDITIONAL_PROPERTIES);
-
-		// if there are extra SMTP parameters to process
-		if (!StringUtils.isEmpty(mailProperties)) {
-			String[] propKeyVals = mailProperties.split(",");
-			for (String keyVal : propKeyVals) {
-				Matcher keyValMatcher = EXTRA_PROPS_PATTERN.matcher(keyVal);
-				if (keyValMatcher.matches()) {
-					String key = keyValMatcher.group(1).trim();
-					String value = keyValMatcher.group(2).trim();
-					LOGGER.debug("Additional SMTP property: " + key + "=" + value);
-					mailProps.put(key, value);
-				} else {
-					LOGGER.warn("Property " + keyVal + " is not valid");
+	private List<OutboxMessage> prepareVariants() throws MailException
+	{
+		List<OutboxMessage> result = new ArrayList<>();
+		List<String> withText = new ArrayList<>();
+		List<String> withoutText = new ArrayList<>();
+
+		for (User user : this.users) {
+			if (StringUtils.isNotEmpty(user.getEmail())) {
+				(user.notifyText() ? withText : withoutText).add(user.getEmail());
+			}
+		}
+
+		try {
+			for (List<String> recipients : Arrays.asList(withText, withoutText)) {
+				if (!recipients.isEmpty()) {
+					// Stands in for all users of the variant, so it carries nothing else
+					User variant = new User();
+					variant.setNotifyText(recipients == withText);
+
+					this.defineUserMessage(variant);
+					result.add(this.toOutboxMessage(recipients));
 				}
 			}
 		}
+		catch (MessagingException | IOException e) {
+			throw new MailException(e);
+		}
+
+		return result;
 	}
 
-	public boolean dispatchMessages()
+	private OutboxMessage toOutboxMessage(final List<String> recipients) throws MessagingException, IOException
 	{
-        try
-        {
-            int sendDelay = SystemGlobals.getIntValue(ConfigKeys.MAIL_SMTP_DELAY);
-
-			if (SystemGlobals.getBoolValue(ConfigKeys.MAIL_SMTP_AUTH)) {
-				if (StringUtils.isNotEmpty(username) && StringUtils.isNotEmpty(password)) {
-                	boolean ssl = SystemGlobals.getBoolValue(ConfigKeys.MAIL_SMTP_SSL);
-
-                    Transport transport = this.session.getTransport(ssl ? "smtps" : "smtp");
-					/*
-					transport.addTransportListener(new TransportListener() {
-						@Override
-						public void messagePartiallyDelivered (TransportEvent e) {
-	                       	LOGGER.debug("messagePartiallyDelivered "+e.toString());
-						}
-
-						@Override
-						public void messageNotDelivered (TransportEvent e) {
-	                       	LOGGER.debug("messageNotDelivered "+e.toString());
-						}
-
-						@Override
-						public void messageDelivered (TransportEvent e) {
-	                       	LOGGER.debug("messageDelivered "+e.toString());
-						}
-					});
-					*/
-
-                    try {
-	                    String host = SystemGlobals.getValue(ConfigKeys.MAIL_SMTP_HOST);
-
-	                    transport.connect(host, username, password);
-
-	                    if (transport.isConnected()) {
-	                        for (Iterator<User> userIter = this.users.iterator(); userIter.hasNext(); ) {
-	                        	User user = userIter.next();
-
-	                        	if (this.needCustomization) {
-	                        		this.defineUserMessage(user);
-	                        	}
-
-	                        	if (StringUtils.isNotEmpty(user.getEmail())) {
-	                        		Address address = new InternetAddress(user.getEmail());	                        	
-	                        		LOGGER.debug("Sending mail to: " + user.getEmail());	                        	
-	                        		this.message.setRecipient(Message.RecipientType.TO, address);	                            
-									this.message.saveChanges();
-									new StatsEvent("Sent email", user.getEmail()).record();
-
-									//Enumeration headers = this.message.getAllHeaders();
-									//while (headers.hasMoreElements()) {
-									//	Header hdr = (Header) headers.nextElement();
-									//	LOGGER.debug(hdr.getName()+"="+hdr.getValue());
-									//}
-
-									// no point in trying DKIM if the relevant properties have not been set
-									MimeMessage msg = this.message;
-									if (StringUtils.isNotEmpty(signingDomain) && StringUtils.isNotEmpty(derFile)) {
-										try {
-											DkimSigner dkimSigner = new DkimSigner(signingDomain, selector, new File(derFile));
-											dkimSigner.setIdentity(identity);
-											/*
-											dkimSigner.setHeaderCanonicalization(Canonicalization.SIMPLE);
-											dkimSigner.setBodyCanonicalization(Canonicalization.RELAXED);
-											dkimSigner.setSigningAlgorithm(SigningAlgorithm.SHA256_WITH_RSA);
-											dkimSigner.setLengthParam(true);
-											dkimSigner.setCopyHeaderFields(false);
-											*/
-											msg = new DkimMessage(msg, dkimSigner);
-										} catch (Exception ex) {
-											LOGGER.warn("Can't use DKIM: "+ex.getMessage());
-										}
-									}
-
-	                        		transport.sendMessage(msg, new Address[] { address });
-	                        	}
-	                        	if (sendDelay > 0) {
-		                        	try {
-		                            	Thread.sleep(sendDelay);
-		                            } catch (InterruptedException ie) {
-		                            	LOGGER.error("Error while Thread.sleep." + ie, ie);
-		                            }
-	                        	}
-	                        }
-	                    }
-                    } catch (Exception e) {
-                    	throw new MailException(e);
-                    }
-                    finally {
-                    	try { transport.close(); } catch (Exception e) { LOGGER.error(e); }
-                    }
-                }
-            }
-            else {
-            	for (Iterator<User> iter = this.users.iterator(); iter.hasNext();) {
-                	User user = iter.next();
-
-                	if (this.needCustomization) {
-                		this.defineUserMessage(user);
-                	}
-
-                	if (StringUtils.isNotEmpty(user.getEmail())) {
-                		Address address = new InternetAddress(user.getEmail());
-                		LOGGER.debug("Sending mail to: " + user.getEmail());
-                		this.message.setRecipient(Message.RecipientType.TO,address);
-						this.message.saveChanges();
-						new StatsEvent("Sent email", user.getEmail()).record();
-                		Transport.send(this.message, new Address[] { address });
-                	}
-                    if (sendDelay > 0) {
-	                    try {
-	                    	Thread.sleep(sendDelay);
-	                    } catch (InterruptedException ie) {
-	                    	LOGGER.error("Error while Thread.sleep." + ie, ie);
-	                    }
-                    }
-                }
-            }
-        }
-        catch (MessagingException e) {
-            LOGGER.error("Error while dispatching the message. " + e, e);
-        }
-
-        return true;
+		this.message.saveChanges();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.message.writeTo(out);
+
+		return new OutboxMessage(out.toByteArray(), this.message.getMessageID(), recipients);
 	}
 
 	private void defineUserMessage(final User user)
@@ -447,36 +352,34 @@ public class Spammer
 		this.inReplyTo = inReplyTo;
 	}
 	
-	protected void setUsers(final List<User> users)
-	{
-		this.users = users;
-	}
-
-	private String localhostProperty(final boolean ssl)
+	/**
+	 * Declares that the template uses nothing from the user but <code>notifyText()</code>,
+	 * so customized messages are rendered once for each value instead of once per user.
+	 * 
+	 * @param variantsOnly true if the template doesn't show any user data
+	 */
+	protected void setVariantsOnly(final boolean variantsOnly)
 	{
-		return ssl 
-			? ConfigKeys.MAIL_SMTP_SSL_LOCALHOST
-			: ConfigKeys.MAIL_SMTP_LOCALHOST;
+		this.variantsOnly = variantsOnly;
 	}
 
-	private String authProperty(final boolean ssl)
+	protected void setUsers(final List<User> users)
 	{
-		return ssl 
-			? ConfigKeys.MAIL_SMTP_SSL_AUTH
-			: ConfigKeys.MAIL_SMTP_AUTH;
+		this.users = users;
 	}
 
-	private String portProperty(final boolean ssl)
+	/**
+	 * @param users the users to notify
+	 * @return true if any of them wants the message's contents in the email
+	 */
+	protected static boolean wantsContents(final List<User> users)
 	{
-		return ssl 
-			? ConfigKeys.MAIL_SMTP_SSL_PORT
-			: ConfigKeys.MAIL_SMTP_PORT;
-	}
+		for (final User user : users) {
+			if (user.notifyText()) {
+				return true;
+			}
+		}
 
-	private String hostProperty(final boolean ssl)
-	{
-		return ssl 
-			? ConfigKeys.MAIL_SMTP_SSL_HOST
-			: ConfigKeys.MAIL_SMTP_HOST;
+		return false;
 	}
 }
@@ -95,10 +95,14 @@ public class TopicReplySpammer extends Spammer
 
 		this.setMessageId(MessageId.buildMessageId(post.getId(), topic.getId(), topic.getForumId()));
 
-		post = PostCommon.preparePostForDisplay(post);
-		params.put("message", post.getText());
+		// The contents only go to those who asked for them, see mailNewReply.txt
+		if (wantsContents(users)) {
+			post = PostCommon.prepareStoredPostForDisplay(post);
+			params.put("message", post.getText());
+		}
 
 		this.setUsers(users);
+		this.setVariantsOnly(true);
 
 		if (topic.getFirstPostId() != post.getId()) {
 			this.setInReplyTo(MessageId.buildInReplyTo(topic));
@@ -78,6 +78,12 @@ public final class ConfigKeys
 	public static final String DATABASE_POOL_MIN = "database.connection.pool.min";
 	public static final String DATABASE_POOL_MAX = "database.connection.pool.max";
 	public static final String DATABASE_USE_TRANSACTIONS = "database.use.transactions";
+	public static final String DATABASE_RELEASE_BEFORE_RENDER = "database.release.before.render";
+	public static final String DATABASE_REPLICA_URLS = "database.replica.urls";
+	public static final String DATABASE_REPLICA_ACTIONS = "database.replica.actions";
+	public static final String DATABASE_REPLICA_STICKINESS = "database.replica.stickiness.seconds";
+	public static final String DATABASE_REPLICA_TIMEOUT = "database.replica.timeout";
+	public static final String DATABASE_REPLICA_RETRY = "database.replica.retry.seconds";
 	public static final String DATABASE_DATASOURCE_NAME = "database.datasource.name";
 	public static final String DATABASE_PROPERTIES = "database.properties";
 	public static final String DATABASE_ERROR_PAGE = "database.error.page";
@@ -125,6 +131,7 @@ public final class ConfigKeys
 
 	public static final String STATS_RING_SIZE = "statistics.ringSize";
 	public static final String STATS_ACTIVE = "statistics.active";
+	public static final String METRICS_ENABLED = "metrics.enabled";
 
 	public static final String ANONYMOUS_USER_ID = "anonymous.userId";
 	public static final String DEFAULT_USER_GROUP = "defaultUserGroup";
@@ -166,6 +173,13 @@ public final class ConfigKeys
 	public static final String HOTTEST_TOPICS_SORT = "topic.hottest.sort";
 	public static final String POSTS_CACHE_SIZE = "posts.cache.size";
 	public static final String POSTS_CACHE_ENABLED = "posts.cache.enabled";
+	public static final String POSTS_RENDERED_CACHE_ENABLED = "posts.rendered.cache.enabled";
+	public static final String POSTS_RENDERED_CACHE_DIR = "posts.rendered.cache.dir";
+	public static final String POSTS_RENDERED_CACHE_MAX_SIZE = "posts.rendered.cache.max.size";
+	public static final String TOPIC_VIEWS_WRITEBEHIND_ENABLED = "topic.views.writebehind.enabled";
+	public static final String TOPIC_VIEWS_FLUSH_INTERVAL = "topic.views.flush.interval";
+	public static final String ATTACHMENTS_DOWNLOADS_WRITEBEHIND_ENABLED = "attachments.downloads.writebehind.enabled";
+	public static final String ATTACHMENTS_DOWNLOADS_FLUSH_INTERVAL = "attachments.downloads.flush.interval";
 	public static final String TOP_DOWNLOADS = "top.downloads";
 
 	public static final String CAPTCHA_IGNORE_CASE = "captcha.ignore.case";
@@ -216,6 +230,8 @@ public final class ConfigKeys
 	public static final String MAIL_SMTP_PASSWORD = "mail.smtp.password";
 	public static final String MAIL_SMTP_DELAY = "mail.smtp.delay";
 	public static final String MAIL_SMTP_ADDITIONAL_PROPERTIES = "mail.smtp.additional.properties";
+	public static final String MAIL_SMTP_POOL_SIZE = "mail.smtp.pool.size";
+	public static final String MAIL_SMTP_POOL_IDLE = "mail.smtp.pool.idle";
 
 	public static final String MAIL_USER_EMAIL_AUTH = "mail.user.email.auth";
 	public static final String MAIL_ACTIVATION_KEY_MESSAGE_FILE = "mail.activationKey.messageFile";
@@ -229,6 +245,13 @@ public final class ConfigKeys
 	public static final String MAIL_DKIM_DER_FILE = "mail.dkim.derFile";
 	public static final String MAIL_DKIM_IDENTITY = "mail.dkim.identity";
 
+	public static final String MAIL_OUTBOX_DIR = "mail.outbox.dir";
+	public static final String MAIL_OUTBOX_THREADS = "mail.outbox.threads";
+	public static final String MAIL_OUTBOX_CHECKPOINT = "mail.outbox.checkpoint";
+	public static final String MAIL_OUTBOX_RETRY_DELAY = "mail.outbox.retry.delay";
+	public static final String MAIL_OUTBOX_RETRY_MAX = "mail.outbox.retry.max";
+	public static final String MAIL_OUTBOX_DEDUP_SIZE = "mail.outbox.dedup.size";
+
 	public static final String HTML_TAGS_WELCOME = "html.tags.welcome";
 	public static final String HTML_ATTRIBUTES_WELCOME = "html.attributes.welcome";
 	public static final String HTML_LINKS_ALLOW_RELATIVE = "html.links.allow.relative";
@@ -249,16 +272,24 @@ public final class ConfigKeys
 	public static final String JBOSS_CACHE_PROPERTIES = "jboss.cache.properties";
 	public static final String EHCACHE_CACHE_PROPERTIES = "ehcache.cache.properties";
 	public static final String CACHE_IMPLEMENTATION = "cache.engine.implementation";
+	public static final String CACHE_CONCURRENT_MAX_ENTRIES = "cache.concurrent.max.entries";
+	public static final String CACHE_CONCURRENT_TTL = "cache.concurrent.ttl";
 
 	public static final String ATTACHMENTS_MAX_POST = "attachments.max.post";
 	public static final String ATTACHMENTS_IMAGES_CREATE_THUMB = "attachments.images.createthumb";
 	public static final String ATTACHMENTS_IMAGES_MAX_THUMB_W = "attachments.images.thumb.maxsize.w";
 	public static final String ATTACHMENTS_IMAGES_MAX_THUMB_H = "attachments.images.thumb.maxsize.h";
+	public static final String ATTACHMENTS_IMAGES_THUMB_SIZES = "attachments.images.thumb.sizes";
+	public static final String ATTACHMENTS_IMAGES_THUMB_THREADS = "attachments.images.thumb.threads";
+	public static final String ATTACHMENTS_IMAGES_THUMB_QUEUE = "attachments.images.thumb.queue";
+	public static final String ATTACHMENTS_IMAGES_THUMB_WAIT = "attachments.images.thumb.wait";
 	public static final String ATTACHMENTS_IMAGES_THUMB_BOX_SHOW = "attachments.images.thumb.box.show";
 	public static final String ATTACHMENTS_IMAGES_THUMB_HOVER_SHOW = "attachments.images.thumb.hover.show";
 	public static final String ATTACHMENTS_ICON = "attachments.icon";
 	public static final String ATTACHMENTS_STORE_DIR = "attachments.store.dir";
 	public static final String ATTACHMENTS_UPLOAD_DIR = "attachments.upload.dir";
+	public static final String ATTACHMENTS_STORE_CONTENT_ADDRESSED = "attachments.store.content.addressed";
+	public static final String ATTACHMENTS_STORE_CONTENT_GRACE_MINUTES = "attachments.store.content.grace.minutes";
 	public static final String ATTACHMENTS_ANONYMOUS = "attachments.anonymous";
 
 	public static final String ANNOUNCEMENT = "announcement";
@@ -325,7 +356,15 @@ public final class ConfigKeys
 	public static final String LUCENE_CURRENTLY_INDEXING = "lucene.currently.indexing";
 	public static final String LUCENE_INDEXER_RAM_NUMDOCS = "lucene.indexer.ram.numdocs";
 	public static final String LUCENE_INDEXER_DB_FETCH_COUNT = "lucene.indexer.db.fetch.count";
+	public static final String LUCENE_REINDEXER_READERS = "lucene.reindexer.readers";
+	public static final String LUCENE_REINDEXER_BUILDERS = "lucene.reindexer.builders";
+	public static final String LUCENE_REINDEXER_CHECKPOINT_DOCS = "lucene.reindexer.checkpoint.docs";
 	public static final String LUCENE_STOPWORDs = "lucene.analyzer.stopwords";
+	public static final String LUCENE_INDEXER_BATCH_SIZE = "lucene.indexer.batch.size";
+	public static final String LUCENE_INDEXER_COMMIT_DOCS = "lucene.indexer.commit.docs";
+	public static final String LUCENE_INDEXER_COMMIT_INTERVAL = "lucene.indexer.commit.interval";
+	public static final String LUCENE_SEARCH_EXACT_TOTAL_HITS = "lucene.search.exact.total.hits";
+	public static final String LUCENE_SEARCH_TOTAL_HITS_THRESHOLD = "lucene.search.total.hits.threshold";
 
 	public static final String MODERATION_LOGGING_ENABLED = "moderation.logging.enabled";
 	public static final String PROXIED_CONTEXT_PATH = "proxied.context.path";
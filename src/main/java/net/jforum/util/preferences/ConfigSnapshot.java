@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.preferences;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Immutable, compiled view of the configuration. Every key is looked up in 
+ * the installation and default settings and has its variables expanded once, 
+ * and numbers and booleans are parsed once, when the snapshot is built. 
+ * Keys which can't be expanded are left out, so they go through the regular 
+ * lookup and fail there as they always did.
+ */
+final class ConfigSnapshot
+{
+	private final Map<String, Value> values;
+
+	private ConfigSnapshot(Map<String, Value> values)
+	{
+		this.values = values;
+	}
+
+	/**
+	 * @param defaults the default settings
+	 * @param installation the installation settings, which take precedence
+	 * @param store where variables are looked up, usually {@link SystemGlobals}
+	 * @param expander the expander to use, which should belong to <code>store</code>
+	 * @return the snapshot
+	 */
+	static ConfigSnapshot compile(Properties defaults, Properties installation, VariableStore store, VariableExpander expander)
+	{
+		Map<String, Value> values = new HashMap<>();
+
+		for (String key : defaults.stringPropertyNames()) {
+			compile(values, key, store, expander);
+		}
+
+		for (String key : installation.stringPropertyNames()) {
+			compile(values, key, store, expander);
+		}
+
+		return new ConfigSnapshot(values);
+	}
+
+	private static void compile(Map<String, Value> values, String key, VariableStore store, VariableExpander expander)
+	{
+		if (values.containsKey(key)) {
+			return;
+		}
+
+		String value;
+
+		try {
+			value = store.getVariableValue(key);
+		}
+		catch (RuntimeException e) {
+			// An unknown variable. Reading the key will report it
+			return;
+		}
+
+		if (value != null) {
+			values.put(key, new Value(value));
+		}
+	}
+
+	/**
+	 * @param key the configuration key
+	 * @return the compiled value, or <code>null</code> if the key is unknown
+	 */
+	Value get(String key)
+	{
+		return this.values.get(key);
+	}
+
+	static final class Value
+	{
+		final String string;
+		final boolean bool;
+		final boolean isInt;
+		final int intValue;
+		final boolean isLong;
+		final long longValue;
+
+		Value(String string)
+		{
+			this.string = string;
+			this.bool = "true".equals(string);
+
+			long l = 0;
+			boolean parsed;
+
+			try {
+				l = Long.parseLong(string);
+				parsed = true;
+			}
+			catch (NumberFormatException e) {
+				parsed = false;
+			}
+
+			this.isLong = parsed;
+			this.longValue = l;
+			this.isInt = parsed && l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE;
+			this.intValue = (int)l;
+		}
+	}
+}
@@ -74,6 +74,12 @@ import net.jforum.exceptions.ForumException;
  * modified when you change a regular key's value. 
  * </p>
  * 
+ * <p>
+ * Reads go through an immutable snapshot with the values already 
+ * expanded and parsed. It is dropped whenever a value changes, and a 
+ * reload of the configuration files replaces it only when done.
+ * </p>
+ * 
  * @author Rafael Steil
  * @author Pieter Olivier
  */
@@ -92,10 +98,15 @@ public final class SystemGlobals implements VariableStore
     private Map<String, Object> objectProperties = new ConcurrentHashMap<>();
     private static List<File> additionalDefaultsList = new ArrayList<>();
     private static Properties queries = new Properties();
+    private static volatile Map<String, String> queryNames;
     private static Properties transientValues = new Properties();
 
     private VariableExpander expander = new VariableExpander(this, "${", "}");
 
+    /** Expanded and parsed settings, or <code>null</code> when they changed since it was built */
+    private volatile ConfigSnapshot snapshot;
+    private final Object snapshotLock = new Object();
+
     private SystemGlobals() {}
 
     /**
@@ -114,7 +125,9 @@ public final class SystemGlobals implements VariableStore
         globals.installation.clear();
         additionalDefaultsList.clear();
         queries.clear();
+        queryNames = null;
         transientValues.clear();
+        globals.changed();
     }
 
     private void buildSystem(String appPath, String mainConfigurationFile)
@@ -146,6 +159,48 @@ public final class SystemGlobals implements VariableStore
         }
         globals.expander.clearCache();
         debugValues( globals.installation, "installation" );
+
+        // Readers keep the previous settings until the new ones are complete
+        synchronized (this.snapshotLock) {
+            this.snapshot = this.compile();
+        }
+    }
+
+    /**
+     * Drops the compiled settings, so they are built again on the next read
+     */
+    private void changed()
+    {
+        synchronized (this.snapshotLock) {
+            this.snapshot = null;
+        }
+    }
+
+    private ConfigSnapshot compile()
+    {
+        return ConfigSnapshot.compile(this.defaults, this.installation, this, this.expander);
+    }
+
+    /**
+     * @param field the configuration key
+     * @return the compiled value, or <code>null</code> if the key is not set
+     */
+    private ConfigSnapshot.Value compiled(String field)
+    {
+        ConfigSnapshot current = this.snapshot;
+
+        if (current == null) {
+            synchronized (this.snapshotLock) {
+                current = this.snapshot;
+
+                if (current == null) {
+                    current = this.compile();
+                    this.snapshot = current;
+                }
+            }
+        }
+
+        return current.get(field);
     }
 
     /**
@@ -159,6 +214,7 @@ public final class SystemGlobals implements VariableStore
     {
         globals.installation.put(field, value);
         globals.expander.clearCache();
+        globals.changed();
     }
 
     public static void setObjectValue(String field, Object value)
@@ -213,6 +269,7 @@ public final class SystemGlobals implements VariableStore
             globals.loadAdditionalDefault( files[i] );
         }
         globals.expander.clearCache();
+        globals.changed();
         debugValues( globals.installation, "installation" );
     }
 
@@ -303,7 +360,9 @@ public final class SystemGlobals implements VariableStore
      * */
     public static String getValue(String field)
     {
-        return globals.getVariableValue(field);
+        ConfigSnapshot.Value value = globals.compiled(field);
+
+        return value != null ? value.string : globals.getVariableValue(field);
     }
 
     public static String getTransientValue(String field)
@@ -320,7 +379,23 @@ public final class SystemGlobals implements VariableStore
      */
     public static int getIntValue(String field)
     {
-        return Integer.parseInt(getValue(field));
+        ConfigSnapshot.Value value = globals.compiled(field);
+
+        return value != null && value.isInt ? value.intValue : Integer.parseInt(getValue(field));
+    }
+
+    /**
+     * Retrieve a long-valued configuration field
+     * 
+     * @param field Name of the configuration option
+     * @return The value of the configuration option
+     * @exception NumberFormatException when the field does not exists or is not a number
+     */
+    public static long getLongValue(String field)
+    {
+        ConfigSnapshot.Value value = globals.compiled(field);
+
+        return value != null && value.isLong ? value.longValue : Long.parseLong(getValue(field));
     }
 
     /**
@@ -332,7 +407,9 @@ public final class SystemGlobals implements VariableStore
      */
     public static boolean getBoolValue(String field)
     {
-        return "true".equals(getValue(field));
+        ConfigSnapshot.Value value = globals.compiled(field);
+
+        return value != null ? value.bool : "true".equals(getValue(field));
     }
 
     /**
@@ -428,6 +505,7 @@ public final class SystemGlobals implements VariableStore
         	}
             loadProps( queries, queryFiles[i] );
         }
+        queryNames = null;
         debugValues( queries, "queries" );
     }
 
@@ -471,6 +549,29 @@ public final class SystemGlobals implements VariableStore
         return queries.getProperty(sql);
     }
 
+    /**
+     * Gets the name of some SQL statement.
+     * 
+     * @param sql The statement, as returned by {@link #getSql(String)}
+     * @return The query's name, or <code>null</code> if the statement is not one of the loaded queries
+     */
+    public static String getSqlName(String sql)
+    {
+        Map<String, String> names = queryNames;
+
+        if (names == null) {
+            names = new ConcurrentHashMap<>();
+
+            for (String name : queries.stringPropertyNames()) {
+                names.put(queries.getProperty(name), name);
+            }
+
+            queryNames = names;
+        }
+
+        return names.get(sql);
+    }
+
     /**
      * Retrieve an iterator that iterates over all known configuration keys
      * 
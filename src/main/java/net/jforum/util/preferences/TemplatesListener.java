@@ -36,38 +36,47 @@
  * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
  * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
  * 
- * Created on 17/03/2007 20:36:18
+ * Created on 18/10/2026
  * The JForum Project
  * http://www.jforum.net
  */
-package net.jforum.util.concurrent;
+package net.jforum.util.preferences;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.io.File;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import net.jforum.repository.Tpl;
+import net.jforum.util.FileChangeListener;
+
 /**
- * @author Rafael Steil
- * @author Andowson Chang
+ * Listener for changes of the templates mapping file or of the template files.
+ * <p>
+ * The mapping is reloaded, and the template files are checked again 
+ * the next time they are used.
+ * </p>
  */
-public final class Executor
+public class TemplatesListener implements FileChangeListener
 {
-	private static final Logger LOGGER = Logger.getLogger(Executor.class);
-	private static ThreadPoolExecutor poolExecutor = new ThreadPoolExecutor(2, 10, 1000 * 60 * 10, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(5));
-	
-	public static void execute(final Runnable runnable) {
-		try {
-			poolExecutor.execute(runnable);
-		}
-		catch (Exception e) {
-			if (LOGGER.isEnabledFor(Level.ERROR)) {
-				LOGGER.error("Exception while running task: " + e, e);
-			}
-		}
-	}
-	
-	private Executor() {}
+    private static final Logger LOGGER = Logger.getLogger(TemplatesListener.class);
+
+    /** 
+     * @see net.jforum.util.FileChangeListener#fileChanged(java.lang.String)
+     */
+    @Override public void fileChanged(final String filename)
+    {
+    	if (LOGGER.isEnabledFor(Level.INFO)) {
+    		LOGGER.info("File change detected: "+ filename); 
+    	}
+
+        final String mapping = SystemGlobals.getValue(ConfigKeys.TEMPLATES_MAPPING);
+
+        if (new File(mapping).getAbsolutePath().equals(filename)) {
+            Tpl.load(mapping);
+        }
+        else {
+            Tpl.clearFiles();
+        }
+    }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations, in microseconds. Like an HDR histogram, 
+ * values under 16 have a bucket each and every power of two above is split 
+ * into 8 linear buckets, so any value is reported within 12.5% of what was 
+ * recorded, using a fixed array of counters.
+ */
+public final class LatencyHistogram
+{
+	private static final int LINEAR = 16;
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int MAX_MAGNITUDE = 40;
+	private static final int BUCKETS = LINEAR + (MAX_MAGNITUDE - 3) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * @param nanos the duration, in nanoseconds
+	 */
+	public void recordNanos(long nanos)
+	{
+		this.record(nanos / 1000);
+	}
+
+	/**
+	 * @param micros the duration, in microseconds
+	 */
+	public void record(long micros)
+	{
+		long value = Math.max(0, micros);
+
+		this.counts.incrementAndGet(bucket(value));
+		this.count.increment();
+		this.sum.add(value);
+		this.max.accumulate(value);
+	}
+
+	static int bucket(long value)
+	{
+		if (value < LINEAR) {
+			return (int)value;
+		}
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+
+		if (magnitude > MAX_MAGNITUDE) {
+			return BUCKETS - 1;
+		}
+
+		int sub = (int)(value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+		return LINEAR + (magnitude - 4) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @param bucket the bucket index
+	 * @return the highest value the bucket holds
+	 */
+	static long highestValue(int bucket)
+	{
+		if (bucket < LINEAR) {
+			return bucket;
+		}
+
+		int magnitude = (bucket - LINEAR) / SUB_BUCKETS + 4;
+		int sub = (bucket - LINEAR) % SUB_BUCKETS;
+		int shift = magnitude - SUB_BITS;
+
+		return ((long)(SUB_BUCKETS + sub + 1) << shift) - 1;
+	}
+
+	public long getCount()
+	{
+		return this.count.sum();
+	}
+
+	/**
+	 * @return the sum of all durations, in microseconds
+	 */
+	public long getSum()
+	{
+		return this.sum.sum();
+	}
+
+	/**
+	 * @return the longest duration, in microseconds
+	 */
+	public long getMax()
+	{
+		return this.max.get();
+	}
+
+	/**
+	 * @return the mean duration, in microseconds
+	 */
+	public double getMean()
+	{
+		long n = this.getCount();
+
+		return n == 0 ? 0 : (double)this.getSum() / n;
+	}
+
+	/**
+	 * @param quantile from 0 to 1
+	 * @return the duration, in microseconds, under which that part of the values fall
+	 */
+	public long getValueAt(double quantile)
+	{
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = this.counts.get(i);
+			total += snapshot[i];
+		}
+
+		if (total == 0) {
+			return 0;
+		}
+
+		long target = Math.max(1, (long)Math.ceil(quantile * total));
+		long seen = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+
+			if (seen >= target) {
+				return Math.min(highestValue(i), this.getMax());
+			}
+		}
+
+		return this.getMax();
+	}
+}
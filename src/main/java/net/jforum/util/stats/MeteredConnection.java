@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.stats;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Wraps a connection so the statements it prepares are timed in the 
+ * {@link Metrics#SQL} group, by the name of the query as found in the 
+ * queries files. Statements built some other way are timed as "other".
+ */
+public final class MeteredConnection implements InvocationHandler
+{
+	private static final String OTHER = "other";
+
+	private final Connection conn;
+
+	private MeteredConnection(Connection conn)
+	{
+		this.conn = conn;
+	}
+
+	/**
+	 * @param conn the connection to wrap
+	 * @return a connection which times the statements it prepares
+	 */
+	public static Connection wrap(Connection conn)
+	{
+		return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), 
+			new Class<?>[] { Connection.class }, new MeteredConnection(conn));
+	}
+
+	@Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+	{
+		Object result = call(this.conn, method, args);
+
+		if (result instanceof PreparedStatement && args != null && args.length > 0 && args[0] instanceof String) {
+			String name = SystemGlobals.getSqlName((String)args[0]);
+			Class<?> type = method.getReturnType().isInterface() ? method.getReturnType() : PreparedStatement.class;
+
+			result = Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { type }, 
+				new Statement((PreparedStatement)result, name == null ? OTHER : name));
+		}
+
+		return result;
+	}
+
+	private static Object call(Object target, Method method, Object[] args) throws Throwable
+	{
+		try {
+			return method.invoke(target, args);
+		}
+		catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static final class Statement implements InvocationHandler
+	{
+		private final PreparedStatement statement;
+		private final String name;
+
+		Statement(PreparedStatement statement, String name)
+		{
+			this.statement = statement;
+			this.name = name;
+		}
+
+		@Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			if (!method.getName().startsWith("execute")) {
+				return call(this.statement, method, args);
+			}
+
+			long started = Metrics.start();
+
+			try {
+				return call(this.statement, method, args);
+			}
+			finally {
+				Metrics.stop(Metrics.SQL, this.name, started);
+			}
+		}
+	}
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.stats;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import net.jforum.cache.CacheEngine;
+import net.jforum.cache.CacheStatistics;
+import net.jforum.cache.ConcurrentCacheEngine;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Counters and latency histograms, grouped by what they measure - 
+ * for example {@link #REQUEST} for whole page requests, {@link #ACTION} 
+ * for module actions, {@link #SQL} for statements, by query name, and 
+ * {@link #CONNECTION} for how long a request held its database connection.
+ * <p>
+ * Recording is lock-free. When <code>metrics.enabled</code> is off, 
+ * {@link #start()} returns 0 and nothing else is done.
+ * </p>
+ */
+public final class Metrics
+{
+	public static final String REQUEST = "request";
+	public static final String ACTION = "action";
+	public static final String SQL = "sql";
+	public static final String CONNECTION = "connection";
+
+	private static final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> TIMERS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> COUNTERS = new ConcurrentHashMap<>();
+
+	private Metrics() {}
+
+	public static boolean isEnabled()
+	{
+		return SystemGlobals.getBoolValue(ConfigKeys.METRICS_ENABLED);
+	}
+
+	/**
+	 * Starts timing something
+	 * 
+	 * @return the start time, to pass to {@link #stop(String, String, long)}, or 0 if metrics are disabled
+	 */
+	public static long start()
+	{
+		return isEnabled() ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the time since {@link #start()}
+	 * 
+	 * @param group what is measured
+	 * @param name the name of the measured item
+	 * @param start the value {@link #start()} returned
+	 */
+	public static void stop(String group, String name, long start)
+	{
+		if (start != 0) {
+			timer(group, name).recordNanos(System.nanoTime() - start);
+		}
+	}
+
+	public static void increment(String group, String name)
+	{
+		if (isEnabled()) {
+			counter(group, name).increment();
+		}
+	}
+
+	public static LatencyHistogram timer(String group, String name)
+	{
+		return entry(TIMERS, group, name, LatencyHistogram::new);
+	}
+
+	private static LongAdder counter(String group, String name)
+	{
+		return entry(COUNTERS, group, name, LongAdder::new);
+	}
+
+	private static <T> T entry(ConcurrentMap<String, ConcurrentMap<String, T>> map, String group, String name, Supplier<T> factory)
+	{
+		String key = name == null ? "" : name;
+		ConcurrentMap<String, T> byName = map.get(group);
+
+		if (byName == null) {
+			byName = map.computeIfAbsent(group, g -> new ConcurrentHashMap<>());
+		}
+
+		T value = byName.get(key);
+
+		if (value == null) {
+			value = byName.computeIfAbsent(key, k -> factory.get());
+		}
+
+		return value;
+	}
+
+	/**
+	 * @return the timers, ordered by group and name
+	 */
+	public static List<Timer> getTimers()
+	{
+		List<Timer> result = new ArrayList<>();
+
+		for (Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> group : TIMERS.entrySet()) {
+			for (Map.Entry<String, LatencyHistogram> entry : group.getValue().entrySet()) {
+				result.add(new Timer(group.getKey(), entry.getKey(), entry.getValue()));
+			}
+		}
+
+		result.sort(null);
+		return result;
+	}
+
+	/**
+	 * @return the counters, ordered by group and name
+	 */
+	public static List<Counter> getCounters()
+	{
+		List<Counter> result = new ArrayList<>();
+
+		for (Map.Entry<String, ConcurrentMap<String, LongAdder>> group : COUNTERS.entrySet()) {
+			for (Map.Entry<String, LongAdder> entry : group.getValue().entrySet()) {
+				result.add(new Counter(group.getKey(), entry.getKey(), entry.getValue().sum()));
+			}
+		}
+
+		result.sort(null);
+		return result;
+	}
+
+	public static void reset()
+	{
+		TIMERS.clear();
+		COUNTERS.clear();
+	}
+
+	/**
+	 * Writes everything in the Prometheus text exposition format: the timers and 
+	 * counters, the board statistics and the statistics of the cache, by FQN.
+	 * 
+	 * @param out where to write
+	 * @param cache the cache engine, may be <code>null</code>
+	 * @throws IOException on write errors
+	 */
+	public static void writeText(Writer out, CacheEngine cache) throws IOException
+	{
+		out.write("# TYPE jforum_latency_seconds summary\n");
+
+		for (Timer timer : getTimers()) {
+			String labels = "group=\"" + escape(timer.getGroup()) + "\",name=\"" + escape(timer.getName()) + "\"";
+			LatencyHistogram h = timer.histogram;
+
+			for (double q : new double[] { 0.5, 0.95, 0.99 }) {
+				sample(out, "jforum_latency_seconds", labels + ",quantile=\"" + q + "\"", h.getValueAt(q) / 1e6);
+			}
+
+			sample(out, "jforum_latency_seconds_sum", labels, h.getSum() / 1e6);
+			sample(out, "jforum_latency_seconds_count", labels, h.getCount());
+		}
+
+		out.write("# TYPE jforum_counter_total counter\n");
+
+		for (Map.Entry<String, ConcurrentMap<String, LongAdder>> group : COUNTERS.entrySet()) {
+			for (Map.Entry<String, LongAdder> entry : group.getValue().entrySet()) {
+				sample(out, "jforum_counter_total", "group=\"" + escape(group.getKey()) + "\",name=\"" 
+					+ escape(entry.getKey()) + "\"", entry.getValue().sum());
+			}
+		}
+
+		out.write("# TYPE jforum_events_total counter\n");
+
+		for (Stats.Record record : Stats.getRecords()) {
+			sample(out, "jforum_events_total", "tag=\"" + escape(record.getTag()) + "\"", record.getCount());
+		}
+
+		if (cache instanceof ConcurrentCacheEngine) {
+			// one pass over the regions, so the three families agree with each other
+			List<CacheStatistics> statistics = ((ConcurrentCacheEngine)cache).getStatistics();
+
+			out.write("# TYPE jforum_cache_lookups_total counter\n");
+
+			for (CacheStatistics s : statistics) {
+				sample(out, "jforum_cache_lookups_total", fqn(s) + ",result=\"hit\"", s.getHits());
+				sample(out, "jforum_cache_lookups_total", fqn(s) + ",result=\"miss\"", s.getMisses());
+			}
+
+			out.write("# TYPE jforum_cache_removals_total counter\n");
+
+			for (CacheStatistics s : statistics) {
+				sample(out, "jforum_cache_removals_total", fqn(s) + ",cause=\"eviction\"", s.getEvictions());
+				sample(out, "jforum_cache_removals_total", fqn(s) + ",cause=\"expiration\"", s.getExpirations());
+			}
+
+			out.write("# TYPE jforum_cache_entries gauge\n");
+
+			for (CacheStatistics s : statistics) {
+				sample(out, "jforum_cache_entries", fqn(s), s.getSize());
+			}
+		}
+
+		out.flush();
+	}
+
+	private static void sample(Writer out, String name, String labels, double value) throws IOException
+	{
+		out.write(name);
+		out.write('{');
+		out.write(labels);
+		out.write("} ");
+		out.write(value == Math.rint(value) && !Double.isInfinite(value) 
+			? Long.toString((long)value) : String.format(Locale.US, "%.6f", value));
+		out.write('\n');
+	}
+
+	private static String fqn(CacheStatistics s)
+	{
+		return "fqn=\"" + escape(s.getFqn()) + "\"";
+	}
+
+	private static String escape(String value)
+	{
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * Point in time view of a timer, in milliseconds
+	 */
+	public static final class Timer implements Comparable<Timer>
+	{
+		private final String group;
+		private final String name;
+		private final LatencyHistogram histogram;
+
+		Timer(String group, String name, LatencyHistogram histogram)
+		{
+			this.group = group;
+			this.name = name;
+			this.histogram = histogram;
+		}
+
+		public String getGroup()
+		{
+			return this.group;
+		}
+
+		public String getName()
+		{
+			return this.name;
+		}
+
+		public long getCount()
+		{
+			return this.histogram.getCount();
+		}
+
+		public double getMean()
+		{
+			return this.histogram.getMean() / 1000;
+		}
+
+		public double getP50()
+		{
+			return this.histogram.getValueAt(0.5) / 1000.0;
+		}
+
+		public double getP95()
+		{
+			return this.histogram.getValueAt(0.95) / 1000.0;
+		}
+
+		public double getP99()
+		{
+			return this.histogram.getValueAt(0.99) / 1000.0;
+		}
+
+		public double getMax()
+		{
+			return this.histogram.getMax() / 1000.0;
+		}
+
+		@Override public int compareTo(Timer other)
+		{
+			int result = this.group.compareTo(other.group);
+
+			return result != 0 ? result : this.name.compareTo(other.name);
+		}
+
+		@Override public boolean equals(Object o)
+		{
+			return o instanceof Timer && this.compareTo((Timer)o) == 0;
+		}
+
+		@Override public int hashCode()
+		{
+			return this.group.hashCode() * 31 + this.name.hashCode();
+		}
+	}
+
+	public static final class Counter implements Comparable<Counter>
+	{
+		private final String group;
+		private final String name;
+		private final long count;
+
+		Counter(String group, String name, long count)
+		{
+			this.group = group;
+			this.name = name;
+			this.count = count;
+		}
+
+		public String getGroup()
+		{
+			return this.group;
+		}
+
+		public String getName()
+		{
+			return this.name;
+		}
+
+		public long getCount()
+		{
+			return this.count;
+		}
+
+		@Override public int compareTo(Counter other)
+		{
+			int result = this.group.compareTo(other.group);
+
+			return result != 0 ? result : this.name.compareTo(other.name);
+		}
+
+		@Override public boolean equals(Object o)
+		{
+			return o instanceof Counter && this.compareTo((Counter)o) == 0;
+		}
+
+		@Override public int hashCode()
+		{
+			return this.group.hashCode() * 31 + this.name.hashCode();
+		}
+	}
+}
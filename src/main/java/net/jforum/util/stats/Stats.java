@@ -43,22 +43,21 @@
 package net.jforum.util.stats;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.greenrobot.eventbus.EventBus;
-import org.greenrobot.eventbus.Subscribe;
-
-import net.jforum.util.BoundedLinkedHashMap;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 
 /**
  * Collect generic performance statistics. Stores timestamped records in a ring buffer.
+ * Recording is lock-free, so events never wait on each other.
  */
 public class Stats {
     
@@ -67,30 +66,35 @@ public class Stats {
     private Date restartTime = new Date();
 
 	public static void init() {
-		EventBus.getDefault().register(INSTANCE);
+		INSTANCE.restartTime = new Date();
 	}
 	
 	public static void stop() {
-		for (Map.Entry<String, Data> entry : INSTANCE.buffers.entrySet()) {
-			entry.getValue().buffer.clear();
-		}
 		INSTANCE.buffers.clear();
-		
-		EventBus.getDefault().unregister(INSTANCE);
+		Metrics.reset();
 	}
 
     public static Data getStatsFor(String tag) {
-		INSTANCE.buffers.putIfAbsent(tag, new Data());
-        return INSTANCE.buffers.get(tag);
+        Data data = INSTANCE.buffers.get(tag);
+
+        if (data == null) {
+            data = INSTANCE.buffers.computeIfAbsent(tag, t -> new Data());
+        }
+
+        return data;
     }
 
-	/* called by EventBus */
-	@Subscribe
-	public void onEvent(StatsEvent event) {
+    /**
+     * Records an event, if statistics are active
+     * 
+     * @param tag the kind of event
+     * @param datum what to show about it in the recent history
+     */
+    static void record(String tag, Object datum) {
         if (active()) {
-            getStatsFor(event.getTag()).record(event.getData());
+            getStatsFor(tag).record(datum);
         }
-	}
+    }
 
     public static boolean active() {
         return SystemGlobals.getBoolValue(ConfigKeys.STATS_ACTIVE);
@@ -102,11 +106,12 @@ public class Stats {
             Record r = new Record();
             r.tag = entry.getKey();
             Data data = entry.getValue();
-            r.count = data.count;
-            if (data.buffer.size() > 0) {
-                long first = data.buffer.keySet().iterator().next().getTime();
-                long interval = System.currentTimeMillis() - first;
-                r.cps = data.buffer.size() / ((double) interval) * 60000.;
+            r.count = data.getCount();
+            List<Entry> values = data.getValues();
+            if (!values.isEmpty()) {
+                long first = values.get(values.size() - 1).time;
+                long interval = Math.max(1, System.currentTimeMillis() - first);
+                r.cps = values.size() / ((double) interval) * 60000.;
             }
 			result.add(r);
 		}
@@ -158,29 +163,60 @@ public class Stats {
     }
 
     public static class Data {
-        private long count;
-        private Map<Date, Object> buffer;
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong next = new AtomicLong();
+        private final AtomicReferenceArray<Entry> buffer;
         private static final String LINK = "<a href='%s'>%s</a>";
 
         private Data() {
-            int size = SystemGlobals.getIntValue(ConfigKeys.STATS_RING_SIZE);
-            buffer = Collections.synchronizedMap(new BoundedLinkedHashMap<Date, Object>(size));
+            int size = Math.max(1, SystemGlobals.getIntValue(ConfigKeys.STATS_RING_SIZE));
+            buffer = new AtomicReferenceArray<>(size);
         }
 
         public long getCount() {
-            return count;
+            return count.sum();
         }
 
         void record(Object datum) {
             if (datum != null && datum.toString().startsWith("http")) {
                 datum = String.format(LINK, datum, datum);
             }
-            buffer.put(new Date(), datum);
-            ++count;
+            long slot = next.getAndIncrement();
+            buffer.set((int) (slot % buffer.length()), new Entry(System.currentTimeMillis(), datum));
+            count.increment();
         }
 
-        public Map<Date, Object> getValues() {
-            return buffer;
+        /**
+         * @return the recent events, newest first
+         */
+        public List<Entry> getValues() {
+            List<Entry> values = new ArrayList<>(buffer.length());
+            for (int i = 0; i < buffer.length(); i++) {
+                Entry e = buffer.get(i);
+                if (e != null) {
+                    values.add(e);
+                }
+            }
+            values.sort((e1, e2) -> Long.compare(e2.time, e1.time));
+            return values;
+        }
+    }
+
+    public static class Entry {
+        private final long time;
+        private final Object value;
+
+        Entry(long time, Object value) {
+            this.time = time;
+            this.value = value;
+        }
+
+        public Date getTime() {
+            return new Date(time);
+        }
+
+        public Object getValue() {
+            return value;
         }
     }
     
@@ -56,8 +56,16 @@ public class StatsEvent {
 		this.data = data;
 	}
 
+	/**
+	 * Records the event in the board statistics. It is posted to the 
+	 * event bus only when something else subscribed to it.
+	 */
 	public void record() {
-		eventBus.post(this);
+		Stats.record(tag, data);
+
+		if (eventBus.hasSubscriberForEvent(StatsEvent.class)) {
+			eventBus.post(this);
+		}
 	}
 
 	public String getTag() {
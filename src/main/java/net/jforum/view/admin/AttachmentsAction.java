@@ -55,6 +55,7 @@ import net.jforum.util.TreeGroup;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 import net.jforum.util.preferences.TemplateKeys;
+import net.jforum.view.forum.common.AttachmentDeduplicator;
 
 /**
  * @author Rafael Steil
@@ -69,6 +70,8 @@ public class AttachmentsAction extends AdminCommand
 		this.context.put("thumbW", SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_IMAGES_MAX_THUMB_W));
 		this.context.put("maxPost", SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_MAX_POST));
 		this.context.put("thumbBorder", SystemGlobals.getBoolValue(ConfigKeys.ATTACHMENTS_IMAGES_THUMB_BOX_SHOW));
+		this.context.put("contentAddressed", SystemGlobals.getBoolValue(ConfigKeys.ATTACHMENTS_STORE_CONTENT_ADDRESSED));
+		this.context.put("deduplicator", AttachmentDeduplicator.current());
 
 		this.setTemplateName(TemplateKeys.ATTACHMENTS_CONFIG);
 	}
@@ -81,6 +84,13 @@ public class AttachmentsAction extends AdminCommand
 		this.configurations();
 	}
 	
+	public void deduplicate()
+	{
+		AttachmentDeduplicator.start();
+		
+		this.configurations();
+	}
+	
 	public void quotaLimit()
 	{
 		AttachmentDAO am = DataAccessDriver.getInstance().newAttachmentDAO();
@@ -49,12 +49,8 @@ import java.net.URLDecoder;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 
 import javax.management.MBeanServer;
@@ -62,9 +58,11 @@ import javax.management.ObjectName;
 
 import org.apache.log4j.Logger;
 
+import net.jforum.util.mail.MailOutbox;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 import net.jforum.util.preferences.TemplateKeys;
+import net.jforum.util.stats.Metrics;
 import net.jforum.util.stats.Stats;
 
 public class BoardStatsAction extends AdminCommand {
@@ -77,6 +75,8 @@ public class BoardStatsAction extends AdminCommand {
     @Override public void list() {
         this.setTemplateName(TemplateKeys.BOARD_STATS_LIST);
         this.context.put("records", Stats.getRecords());
+        this.context.put("timers", Metrics.getTimers());
+        this.context.put("counters", Metrics.getCounters());
 
         SimpleDateFormat sdf = new SimpleDateFormat(SystemGlobals.getValue(ConfigKeys.DATE_TIME_FORMAT), Locale.getDefault());
 		NumberFormat nf = NumberFormat.getInstance();
@@ -92,6 +92,12 @@ public class BoardStatsAction extends AdminCommand {
         sysInfo.add(new Item("Last board restart", sdf.format(Stats.getRestartTime())));
         sysInfo.add(new Item("Database", SystemGlobals.getValue(ConfigKeys.DATABASE_CONNECTION_DBNAME)
 										+" @ "+SystemGlobals.getValue(ConfigKeys.DATABASE_DRIVER_NAME)));
+        sysInfo.add(new Item("Mail outbox queued messages", ""+MailOutbox.getQueuedMessages()));
+        sysInfo.add(new Item("Mail outbox pending recipients", ""+MailOutbox.getPendingRecipients()));
+        sysInfo.add(new Item("Mail outbox emails sent", ""+MailOutbox.getSent()));
+        sysInfo.add(new Item("Mail outbox failed attempts", ""+MailOutbox.getFailures()));
+        sysInfo.add(new Item("Mail outbox recipients given up", ""+MailOutbox.getGivenUp()));
+        sysInfo.add(new Item("Mail outbox duplicates skipped", ""+MailOutbox.getDuplicates()));
 		try {
 			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
 			Double result = (Double) server.getAttribute(new ObjectName("java.lang:type=OperatingSystem"), "SystemLoadAverage");
@@ -108,23 +114,14 @@ public class BoardStatsAction extends AdminCommand {
         String tag = this.request.getParameter("tag");
         try {
             tag = URLDecoder.decode(tag, "UTF-8");
-            Map<Date, Object> values = new HashMap<>();
+            List<Stats.Entry> values = new ArrayList<>();
             if (tag != null && !Stats.ForbidDetailDisplay.isForbidden(tag)) {
                 tag = URLDecoder.decode(tag, "UTF-8");
                 Stats.Data data = Stats.getStatsFor(tag);
                 values = data.getValues();
             }
-			List<Date> times = new ArrayList<>(values.keySet());
-			// sort list of descending time
-			Collections.sort(times,
-				(obj1, obj2) -> {
-					if (obj1.getTime() < obj2.getTime())	return 1;
-					if (obj1.getTime() > obj2.getTime())	return -1;
-					else 									return 0;
-				});
             this.context.put("tag", tag);
-            this.context.put("times", times);     
-            this.context.put("data", values);     
+            this.context.put("entries", values);
         } catch (UnsupportedEncodingException e) {
             // Whatever
         }
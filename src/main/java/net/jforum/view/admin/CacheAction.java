@@ -44,7 +44,10 @@ package net.jforum.view.admin;
 
 import java.util.Collection;
 
+import net.jforum.ConfigLoader;
 import net.jforum.SessionFacade;
+import net.jforum.cache.CacheEngine;
+import net.jforum.cache.ConcurrentCacheEngine;
 import net.jforum.dao.DataAccessDriver;
 import net.jforum.repository.BBCodeRepository;
 import net.jforum.repository.ForumRepository;
@@ -81,6 +84,11 @@ public class CacheAction extends AdminCommand
 		this.context.put("topic", new TopicRepository());
 		this.context.put("session", new SessionFacade());
 		this.context.put("posts", new PostRepository());
+		
+		final CacheEngine engine = ConfigLoader.getCacheEngine();
+		if (engine instanceof ConcurrentCacheEngine) {
+			this.context.put("cacheStatistics", ((ConcurrentCacheEngine)engine).getStatistics());
+		}
 	}
 	
 	public void bbReload()
@@ -60,6 +60,7 @@ import net.jforum.entities.Category;
 import net.jforum.entities.Forum;
 import net.jforum.exceptions.ForumException;
 import net.jforum.repository.ForumRepository;
+import net.jforum.repository.RenderedPostStore;
 import net.jforum.repository.TopicRepository;
 import net.jforum.search.SearchFacade;
 import net.jforum.view.forum.common.ForumCommon;
@@ -157,6 +158,7 @@ public class ConfigAction extends AdminCommand
 
 		// list of welcome HTML tags and attributes
 		SafeHtml.updateConfiguration();
+		RenderedPostStore.invalidate();
 
 		// languages for stop words might have changed
 		SearchFacade.manager().init();
@@ -213,8 +213,8 @@ public class GroupAction extends AdminCommand
 		
 		new PermissionProcessHelper(pc, id).processData();
 
-		SecurityRepository.clean();
-		RolesRepository.clear();
+		SecurityRepository.invalidateGroup(id);
+		RolesRepository.clear(id);
 		ForumRepository.clearModeratorList();
 		
 		this.list();
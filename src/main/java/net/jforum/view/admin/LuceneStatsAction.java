@@ -62,9 +62,12 @@ import net.jforum.context.RequestContext;
 import net.jforum.context.ResponseContext;
 import net.jforum.exceptions.ForumException;
 import net.jforum.repository.ForumRepository;
+import net.jforum.search.LuceneIndexer;
+import net.jforum.search.LuceneManager;
 import net.jforum.search.LuceneReindexArgs;
 import net.jforum.search.LuceneReindexer;
 import net.jforum.search.LuceneSettings;
+import net.jforum.search.SearchFacade;
 import net.jforum.search.SearchFields;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
@@ -103,6 +106,19 @@ public class LuceneStatsAction extends AdminCommand
 			this.context.put("indexExists", DirectoryReader.indexExists(fsDir));
 			this.context.put("currentlyIndexing", "1".equals(SystemGlobals.getValue(ConfigKeys.LUCENE_CURRENTLY_INDEXING)));
 
+			LuceneManager manager = SearchFacade.manager();
+			if (manager != null && manager.luceneIndexer() != null) {
+				LuceneIndexer indexer = manager.luceneIndexer();
+				this.context.put("indexerQueueDepth", Integer.valueOf(indexer.getQueueDepth()));
+				this.context.put("indexerLag", Long.valueOf(indexer.getIndexingLag()));
+				this.context.put("indexerLastCommit", indexer.getLastCommitTime());
+			}
+
+			LuceneReindexer reindexer = LuceneReindexer.current();
+			if (reindexer != null) {
+				this.context.put("reindexer", reindexer);
+			}
+
 			if (isInformationAvailable) {
 				this.context.put("isLocked", isWriterLocked(fsDir));
 				this.context.put("isUpToDate", reader.isCurrent());
@@ -6,6 +6,7 @@ import org.apache.log4j.Logger;
 
 import net.jforum.dao.DataAccessDriver;
 import net.jforum.dao.SpamDAO;
+import net.jforum.repository.SpamRepository;
 import net.jforum.util.preferences.TemplateKeys;
 
 public class SpamBlockAction extends AdminCommand {
@@ -16,6 +17,7 @@ public class SpamBlockAction extends AdminCommand {
     public void list() {
         final List<String> words = getSpamDao().selectAll();
         context.put("spamPatterns", words);
+        context.put("spamHits", SpamRepository.hitCounts());
         setTemplateName(TemplateKeys.SPAM_BLOCK_LIST);
     }
 
@@ -42,10 +42,9 @@
  */
 package net.jforum.view.forum;
 
+import java.awt.Dimension;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -79,6 +78,7 @@ import net.jforum.entities.User;
 import net.jforum.entities.UserSession;
 import net.jforum.exceptions.AttachmentException;
 import net.jforum.exceptions.ForumException;
+import net.jforum.repository.AttachmentDownloadCounter;
 import net.jforum.repository.ForumRepository;
 import net.jforum.repository.PostRepository;
 import net.jforum.repository.RankingRepository;
@@ -86,14 +86,17 @@ import net.jforum.repository.SecurityRepository;
 import net.jforum.repository.SmiliesRepository;
 import net.jforum.repository.SpamRepository;
 import net.jforum.repository.TopicRepository;
+import net.jforum.repository.TopicViewCounter;
 import net.jforum.security.PermissionControl;
 import net.jforum.security.SecurityConstants;
 import net.jforum.util.I18n;
+import net.jforum.util.image.ThumbnailGenerator;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 import net.jforum.util.preferences.TemplateKeys;
 import net.jforum.util.stats.StatsEvent;
 import net.jforum.view.forum.common.AttachmentCommon;
+import net.jforum.view.forum.common.AttachmentStreamer;
 import net.jforum.view.forum.common.ForumCommon;
 import net.jforum.view.forum.common.PollCommon;
 import net.jforum.view.forum.common.PostCommon;
@@ -187,8 +190,7 @@ public class PostAction extends Command
 			}
 		}
 
-		topicDao.incrementTotalViews(topic.getId());
-		topic.setTotalViews(topic.getTotalViews() + 1);
+		TopicViewCounter.increment(topic);
 
 		if (us.getUserId() != anonymousUser) {
 			SessionFacade.getTopicsReadTime().put(Integer.valueOf(topic.getId()),
@@ -1419,8 +1421,105 @@ public class PostAction extends Command
 
 	public void downloadAttach()
 	{
-		int id = this.request.getIntParameter("attach_id");
+		Attachment a = this.downloadableAttachment(this.request.getIntParameter("attach_id"));
 
+		if (a == null) {
+			return;
+		}
+
+		File file = attachmentFile(a);
+		AttachmentDAO am = DataAccessDriver.getInstance().newAttachmentDAO();
+
+		try {
+			if (am.isPhysicalDownloadMode(a.getInfo().getExtension().getExtensionGroupId())) {
+				this.response.setContentType("application/octet-stream");
+			}
+			else {
+				this.response.setContentType(a.getInfo().getMimetype());
+			}
+
+			String userAgent = this.request.getHeader("User-Agent");
+
+			if (userAgent != null && userAgent.indexOf("Firefox") != -1) {
+				this.response.setHeader("Content-Disposition", "attachment; filename=\""
+					+ new String(a.getInfo().getRealFilename().getBytes(SystemGlobals.getValue(ConfigKeys.ENCODING)),
+						SystemGlobals.getValue(ConfigKeys.DEFAULT_CONTAINER_ENCODING)) + "\";");
+			}
+			else {
+				this.response.setHeader("Content-Disposition", "attachment; filename=\""
+					+ ViewCommon.toUtf8String(a.getInfo().getRealFilename()) + "\";");
+			}
+
+			JForumExecutionContext.enableCustomContent(true);
+
+			// Large files take long to send, and the database is not needed for that
+			JForumExecutionContext.releaseConnection();
+
+			// the preview should not count for the download count, nor the rest of a download resumed
+			if (AttachmentStreamer.send(this.request, this.response, file) && this.request.getParameter("pv") == null) {
+				AttachmentDownloadCounter.increment(a.getId());
+			}
+		}
+		catch (IOException e) {
+			throw new ForumException(e);
+		}
+	}
+
+	/**
+	 * Sends the thumbnail of an attached image, creating it if needed. 
+	 * The size is the default one, or one of <code>attachments.images.thumb.sizes</code>.
+	 */
+	public void thumbnail()
+	{
+		Attachment a = this.downloadableAttachment(this.request.getIntParameter("attach_id"));
+
+		if (a == null) {
+			return;
+		}
+
+		if (!Attachment.isPicture(a.getInfo().getExtension().getExtension().toLowerCase())) {
+			this.setTemplateName(TemplateKeys.POSTS_ATTACH_NOTFOUND);
+			this.context.put("message", I18n.getMessage("Attachments.notFound"));
+			return;
+		}
+
+		Dimension size = ThumbnailGenerator.findSize(this.request.getParameter("size"));
+
+		if (size == null) {
+			size = ThumbnailGenerator.getDefaultSize();
+		}
+
+		JForumExecutionContext.enableCustomContent(true);
+
+		// Creating the thumb may take a while, and the database is not needed for that
+		JForumExecutionContext.releaseConnection();
+
+		File file = attachmentFile(a);
+		File thumb = ThumbnailGenerator.get(file.getPath(), size);
+
+		try {
+			if (thumb != null) {
+				this.response.setContentType("image/jpeg");
+				AttachmentStreamer.send(this.request, this.response, thumb);
+			}
+			else {
+				this.response.setContentType(a.getInfo().getMimetype());
+				AttachmentStreamer.send(this.request, this.response, file);
+			}
+		}
+		catch (IOException e) {
+			throw new ForumException(e);
+		}
+	}
+
+	/**
+	 * Checks if the user can download the attachment, and if its file exists
+	 * 
+	 * @param id the attachment id
+	 * @return the attachment, or <code>null</code> after setting the template which tells why not
+	 */
+	private Attachment downloadableAttachment(int id)
+	{
 		if (!SessionFacade.isLogged() && !SystemGlobals.getBoolValue(ConfigKeys.ATTACHMENTS_ANONYMOUS)) {
 			String referer = this.request.getHeader("Referer");
 
@@ -1431,7 +1530,7 @@ public class PostAction extends Command
 				this.setTemplateName(ViewCommon.contextToLogin());
 			}
 
-			return;
+			return null;
 		}
 
 		AttachmentDAO am = DataAccessDriver.getInstance().newAttachmentDAO();
@@ -1439,7 +1538,7 @@ public class PostAction extends Command
 		if (a == null) {
 			this.setTemplateName(TemplateKeys.POSTS_ATTACH_NOTFOUND);
 			this.context.put("message", I18n.getMessage("Attachments.notFound"));
-			return;
+			return null;
 		}
 
 		PostDAO postDao = DataAccessDriver.getInstance().newPostDAO();
@@ -1453,59 +1552,23 @@ public class PostAction extends Command
 		if (!attachmentsEnabled && !attachmentsDownload) {
 			this.setTemplateName(TemplateKeys.POSTS_CANNOT_DOWNLOAD);
 			this.context.put("message", I18n.getMessage("Attachments.featureDisabled"));
-			return;
+			return null;
 		}
 
-		String filename = SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_STORE_DIR)
-			+ "/"
-			+ a.getInfo().getPhysicalFilename();
-
-		if (!new File(filename).exists()) {
+		if (!attachmentFile(a).exists()) {
 			this.setTemplateName(TemplateKeys.POSTS_ATTACH_NOTFOUND);
 			this.context.put("message", I18n.getMessage("Attachments.notFound"));
-			return;
+			return null;
 		}
 
-		try (FileInputStream fis = new FileInputStream(filename);
-				OutputStream os = response.getOutputStream())
-			{
-			// the preview should not count for the download count
-			if (this.request.getParameter("pv") == null) {
-				a.getInfo().setDownloadCount(a.getInfo().getDownloadCount() + 1);
-			}
-			am.updateAttachment(a);
-
-			if (am.isPhysicalDownloadMode(a.getInfo().getExtension().getExtensionGroupId())) {
-				this.response.setContentType("application/octet-stream");
-			}
-			else {
-				this.response.setContentType(a.getInfo().getMimetype());
-			}
-
-			if (this.request.getHeader("User-Agent").indexOf("Firefox") != -1) {
-				this.response.setHeader("Content-Disposition", "attachment; filename=\""
-					+ new String(a.getInfo().getRealFilename().getBytes(SystemGlobals.getValue(ConfigKeys.ENCODING)),
-						SystemGlobals.getValue(ConfigKeys.DEFAULT_CONTAINER_ENCODING)) + "\";");
-			}
-			else {
-				this.response.setHeader("Content-Disposition", "attachment; filename=\""
-					+ ViewCommon.toUtf8String(a.getInfo().getRealFilename()) + "\";");
-			}
-
-			this.response.setContentLength((int)a.getInfo().getFilesize());
-
-			int c;
-			byte[] b = new byte[4096];
-			while ((c = fis.read(b)) != -1) {
-				os.write(b, 0, c);
-			}
-
+		return a;
+	}
 
-			JForumExecutionContext.enableCustomContent(true);
-		}
-		catch (IOException e) {
-			throw new ForumException(e);
-		}
+	private static File attachmentFile(Attachment a)
+	{
+		return new File(SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_STORE_DIR)
+			+ "/"
+			+ a.getInfo().getPhysicalFilename());
 	}
 
 	private void cannotEdit()
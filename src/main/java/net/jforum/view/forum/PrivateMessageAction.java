@@ -57,8 +57,7 @@ import net.jforum.entities.UserSession;
 import net.jforum.repository.SmiliesRepository;
 import net.jforum.util.I18n;
 import net.jforum.util.SafeHtml;
-import net.jforum.util.concurrent.Executor;
-import net.jforum.util.mail.EmailSenderTask;
+import net.jforum.util.mail.MailOutbox;
 import net.jforum.util.mail.PrivateMessageSpammer;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
@@ -283,7 +282,7 @@ public class PrivateMessageAction extends Command
 			if (toUser.getEmail() != null 
 				&& toUser.getEmail().trim().length() > 0
 				&& SystemGlobals.getBoolValue(ConfigKeys.MAIL_NOTIFY_ANSWERS)) {
-				Executor.execute(new EmailSenderTask(new PrivateMessageSpammer(toUser)));
+				MailOutbox.enqueue(new PrivateMessageSpammer(toUser));
 			}
 
 			new StatsEvent(Stats.ForbidDetailDisplay.SENT_PMS.toString(),
@@ -145,6 +145,10 @@ public class SearchAction extends Command
 		//ViewCommon.contextToPagination(start, results.size(), recordsPerPage);
 		//ViewCommon.contextToPagination(start, searchResults.getNumberOfHits(), recordsPerPage);
 		ViewCommon.contextToPagination(start, searchResults.getTotalHits(), recordsPerPage);
+		this.context.put("totalHitsExact", searchResults.isTotalHitsExact());
+		if (searchResults.getNextCursor() != null) {
+			this.context.put("nextCursor", searchResults.getNextCursor());
+		}
 		TopicsCommon.topicListingBase();
 	}
 
@@ -158,6 +162,7 @@ public class SearchAction extends Command
         args.setOrderBy(this.request.getParameter("sort_by"));
         args.setOrderDir(this.request.getParameter("sort_dir"));
         args.startFetchingAtRecord(ViewCommon.getStartPage());
+        args.setSearchAfter(this.request.getParameter("search_after"));
         args.setMatchType(this.request.getParameter("match_type"));
 
         // setter handles these optional properties if not passed
@@ -77,11 +77,10 @@ import net.jforum.security.SecurityConstants;
 import net.jforum.security.StopForumSpam;
 import net.jforum.util.Hash;
 import net.jforum.util.I18n;
-import net.jforum.util.concurrent.Executor;
 import net.jforum.util.mail.ActivationKeySpammer;
-import net.jforum.util.mail.EmailSenderTask;
 import net.jforum.util.mail.LostPasswordSpammer;
 import net.jforum.util.mail.MailChecker;
+import net.jforum.util.mail.MailOutbox;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 import net.jforum.util.preferences.TemplateKeys;
@@ -366,7 +365,7 @@ public class UserAction extends Command
 		int newUserId = userDao.addNew(user, groupId);
 
 		if (needMailActivation) {
-			Executor.execute(new EmailSenderTask(new ActivationKeySpammer(user)));
+			MailOutbox.enqueue(new ActivationKeySpammer(user));
 
 			this.setTemplateName(TemplateKeys.USER_INSERT_ACTIVATE_MAIL);
 			this.context.put(MESSAGE, I18n.getMessage("User.GoActivateAccountMessage"));
@@ -422,6 +421,7 @@ public class UserAction extends Command
 		userSession.setAutoLogin(true);
 		userSession.setUserId(userId);
 		userSession.setUsername(user.getUsername());
+		userSession.setEmail(user.getEmail());
 		userSession.setLastVisit(new Date(System.currentTimeMillis()));
 		userSession.setStartTime(new Date(System.currentTimeMillis()));
 		SessionFacade.makeLogged();
@@ -753,7 +753,7 @@ public class UserAction extends Command
 		}
 		*/
 		if (user != null) {
-			Executor.execute(new EmailSenderTask(new LostPasswordSpammer(user)));
+			MailOutbox.enqueue(new LostPasswordSpammer(user));
 		}
 
 		this.setTemplateName(TemplateKeys.USER_LOSTPASSWORD_SEND);
@@ -42,9 +42,7 @@
  */
 package net.jforum.view.forum.common;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -55,10 +53,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import javax.imageio.ImageIO;
-
 import org.apache.commons.fileupload.FileItem;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.log4j.Logger;
 
 import net.jforum.SessionFacade;
@@ -75,11 +70,12 @@ import net.jforum.entities.User;
 import net.jforum.exceptions.AttachmentException;
 import net.jforum.exceptions.AttachmentSizeTooBigException;
 import net.jforum.exceptions.BadExtensionException;
+import net.jforum.repository.AttachmentDownloadCounter;
 import net.jforum.repository.SecurityRepository;
 import net.jforum.security.SecurityConstants;
 import net.jforum.util.Hash;
 import net.jforum.util.I18n;
-import net.jforum.util.image.ImageUtils;
+import net.jforum.util.image.ThumbnailGenerator;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 import net.jforum.util.stats.StatsEvent;
@@ -112,6 +108,9 @@ public class AttachmentCommon
 			return;
 		}
 		
+		// Files the upload already stopped at, when they arrived
+		AttachmentReceiver.checkRejected(this.request);
+		
 		final String totalFiles = this.request.getParameter("total_files");
 		
 		if (totalFiles == null || "".equals(totalFiles)) {
@@ -148,13 +147,7 @@ public class AttachmentCommon
 			final UploadUtils uploadUtils = new UploadUtils(item);
 
 			// Check if the extension is allowed
-			boolean containsExtension = extensions.containsKey(uploadUtils.getExtension());
-			boolean denyAll = extensions.containsKey(DENY_ALL);
-
-			boolean isAllowed = (!denyAll && !containsExtension)
-				|| (containsExtension && extensions.get(uploadUtils.getExtension()).equals(Boolean.TRUE));
-
-			if (!isAllowed) { 
+			if (!isAllowed(extensions, uploadUtils.getExtension())) { 
 				throw new BadExtensionException(I18n.getMessage("Attachments.badExtension", 
 					new String[] { uploadUtils.getExtension() }));
 			}
@@ -179,13 +172,12 @@ public class AttachmentCommon
 			info.setRealFilename(realName);
 			info.setUploadTimeInMillis(System.currentTimeMillis());
 			
-			AttachmentExtension ext = this.attachmentDao.selectExtension(uploadUtils.getExtension().toLowerCase());
-			if (ext.isUnknown()) {
-				ext.setExtension(uploadUtils.getExtension());
-			}
+			info.setExtension(findExtension(this.attachmentDao, uploadUtils.getExtension()));
 			
-			info.setExtension(ext);
-			String savePath = this.makeStoreFilename(info);
+			// Files received while uploaded are already in their place
+			String savePath = item instanceof StoredUpload
+				? ((StoredUpload)item).getPhysicalFilename()
+				: makeStoreFilename(info.getRealFilename(), info.getExtension().getExtension(), userId);
 			info.setPhysicalFilename(savePath);
 			
 			attachment.setInfo(info);
@@ -245,8 +237,9 @@ public class AttachmentCommon
 			this.attachmentDao.addAttachment(attachment);
 			entry.getKey().saveUploadedFile(path);
 			
+			// Checking the image size and resizing it is left to the background threads
 			if (this.shouldCreateThumb(attachment)) {
-				this.createSaveThumb(path);
+				ThumbnailGenerator.submit(path);
 			}
 
 			new StatsEvent("File upload", entry.getKey().getOriginalName()).record();
@@ -255,45 +248,22 @@ public class AttachmentCommon
 	
 	private boolean shouldCreateThumb(final Attachment attachment) {
 		String extension = attachment.getInfo().getExtension().getExtension().toLowerCase();
-		if (SystemGlobals.getBoolValue(ConfigKeys.ATTACHMENTS_IMAGES_CREATE_THUMB)
-            && Attachment.isPicture(extension)) {
-            String path = SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_STORE_DIR)
-			     + "/" 
-			     + attachment.getInfo().getPhysicalFilename();
-		    File imageFile = new File(path);
-		    BufferedImage image = null;
-		    try {
-			    image = ImageIO.read(imageFile);
-		    } catch (IOException e) {
-		    	LOGGER.error(e.toString(), e);
-		    }
-		    int width = image.getWidth(null);
-		    int height = image.getHeight(null);
-		    return (width > SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_IMAGES_MAX_THUMB_W) 
-		        || height > SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_IMAGES_MAX_THUMB_H));
-        }
-        return false;
+		return SystemGlobals.getBoolValue(ConfigKeys.ATTACHMENTS_IMAGES_CREATE_THUMB) && Attachment.isPicture(extension);
 	}
 	
-	private void createSaveThumb(final String path) {
-		try {
-			BufferedImage image = ImageUtils.resizeImage(path, ImageUtils.IMAGE_JPEG, 
-				SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_IMAGES_MAX_THUMB_W),
-				SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_IMAGES_MAX_THUMB_H));
-			ImageUtils.saveImage(image, path + "_thumb", ImageUtils.IMAGE_JPEG);
-		}
-		catch (Exception e) {
-			LOGGER.error(e.toString(), e);
-		}
+	public QuotaLimit getQuotaLimit(final int userId)
+	{
+		return findQuotaLimit(userId);
 	}
 	
-	public QuotaLimit getQuotaLimit(final int userId)
+	static QuotaLimit findQuotaLimit(final int userId)
 	{
 		QuotaLimit ql = new QuotaLimit();
 		User user = DataAccessDriver.getInstance().newUserDAO().selectById(userId);
+		AttachmentDAO attachmentDao = DataAccessDriver.getInstance().newAttachmentDAO();
 		
 		for (Iterator<Group> iter = user.getGroupsList().iterator(); iter.hasNext();) {
-			QuotaLimit l = this.attachmentDao.selectQuotaLimitByGroup(iter.next().getId());
+			QuotaLimit l = attachmentDao.selectQuotaLimitByGroup(iter.next().getId());
 			if (l == null) {
 				continue;
 			}
@@ -332,44 +302,8 @@ public class AttachmentCommon
 					
 					am.removeAttachment(id, postId);
 					
-					String filename = SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_STORE_DIR)
-						+ "/" + a.getInfo().getPhysicalFilename();
-					
-					File f = new File(filename);
-					
-					if (f.exists()) {
-						boolean result = f.delete();
-						if (result != true) {
-							LOGGER.error("Delete file failed: " + f.getName());
-						}
-					}
-					
-					// Check if we have a thumb to delete
-					f = new File(filename + "_thumb");
-					
-					if (f.exists()) {
-						boolean result = f.delete();
-						if (result != true) {
-							LOGGER.error("Delete thumb file failed: " + f.getName());
-						}
-					}
-					
-					// Remove the empty parent directory
-					File parent = f.getParentFile();
-					if (parent != null && ArrayUtils.nullToEmpty(parent.list()).length == 0) {
-						boolean result = parent.delete();
-						if (result != true) {
-							LOGGER.error("Delete parent directory failed: " + parent.getName());
-						}
-						// Remove the empty grand parent directory
-						File grandparent = parent.getParentFile();
-						if (grandparent != null && ArrayUtils.nullToEmpty(grandparent.list()).length == 0) {
-							result = grandparent.delete();
-							if (result != true) {
-								LOGGER.error("Delete grand parent directory failed: " + grandparent.getName());
-							}
-						}
-					}
+					// The file may be shared with other attachments
+					AttachmentStore.release(a.getInfo().getPhysicalFilename());
 				}
 			}
 			
@@ -405,7 +339,31 @@ public class AttachmentCommon
 		}
 	}
 	
-	private String makeStoreFilename(AttachmentInfo attInfo)
+	/**
+	 * @param extensions the extensions from {@link AttachmentDAO#extensionsForSecurity()}
+	 * @param extension the extension of an uploaded file
+	 * @return <code>true</code> if files with the extension may be attached
+	 */
+	static boolean isAllowed(final Map<String, Boolean> extensions, final String extension)
+	{
+		boolean containsExtension = extensions.containsKey(extension);
+		boolean denyAll = extensions.containsKey(DENY_ALL);
+
+		return (!denyAll && !containsExtension)
+			|| (containsExtension && extensions.get(extension).equals(Boolean.TRUE));
+	}
+	
+	static AttachmentExtension findExtension(final AttachmentDAO attachmentDao, final String extension)
+	{
+		AttachmentExtension ext = attachmentDao.selectExtension(extension.toLowerCase());
+		if (ext.isUnknown()) {
+			ext.setExtension(extension);
+		}
+		
+		return ext;
+	}
+	
+	static String makeStoreFilename(final String realFilename, final String extension, final int userId)
 	{
 		Calendar cal = new GregorianCalendar();
 		cal.setTimeInMillis(System.currentTimeMillis());
@@ -428,11 +386,11 @@ public class AttachmentCommon
 		}		
 		
 		return dir
-			.append(Hash.md5(attInfo.getRealFilename() + System.currentTimeMillis() + SystemGlobals.getValue(ConfigKeys.USER_HASH_SEQUENCE) + new SecureRandom().nextInt(999999)))
+			.append(Hash.md5(realFilename + System.currentTimeMillis() + SystemGlobals.getValue(ConfigKeys.USER_HASH_SEQUENCE) + new SecureRandom().nextInt(999999)))
 			.append('_')
-			.append(SessionFacade.getUserSession().getUserId())
+			.append(userId)
 			.append('.')
-			.append(attInfo.getExtension().getExtension())
+			.append(extension)
 			.append('_')
 			.toString();
 	}
@@ -445,7 +403,15 @@ public class AttachmentCommon
 			return new ArrayList<>();
 		}
 		
-		return this.attachmentDao.selectAttachments(postId);
+		List<Attachment> attachments = this.attachmentDao.selectAttachments(postId);
+
+		for (Attachment attachment : attachments) {
+			// Downloads not written to the database yet
+			AttachmentInfo info = attachment.getInfo();
+			info.setDownloadCount(info.getDownloadCount() + AttachmentDownloadCounter.pending(attachment.getId()));
+		}
+
+		return attachments;
 	}
 	
 	public boolean isPhysicalDownloadMode(final int extensionGroupId) 
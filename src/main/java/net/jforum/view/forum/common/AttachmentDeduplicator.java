@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.view.forum.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+
+import net.jforum.JForumExecutionContext;
+import net.jforum.dao.AttachmentDAO;
+import net.jforum.dao.DataAccessDriver;
+
+/**
+ * Moves the attachments stored before <code>attachments.store.content.addressed</code> was set to
+ * the files named by their content, so attachments with the same content share one file. Each
+ * file gets a link by its content, or a copy where links are not supported; the attachments are
+ * moved to it, and the old file is deleted. Then the shared files no attachment uses anymore are
+ * deleted, with the uploads that were never saved.
+ * <p>
+ * It runs in the background, started from the attachments configuration, and may be run again.
+ */
+public class AttachmentDeduplicator
+{
+	private static final Logger LOGGER = Logger.getLogger(AttachmentDeduplicator.class);
+	private static final long STOP_TIMEOUT = 30 * 1000L;
+
+	private static volatile AttachmentDeduplicator current;
+
+	// progress, written by the thread running the deduplication
+	private volatile long startTime;
+	private volatile long endTime;
+	private volatile int totalFiles;
+	private volatile int movedFiles;
+	private volatile int duplicateFiles;
+	private volatile long freedBytes;
+	private volatile int missingFiles;
+	private volatile int failedFiles;
+	private volatile int deletedFiles;
+
+	private volatile Thread runner;
+	private volatile boolean stopped;
+
+	/**
+	 * @return the deduplication running now, or the last one to run; <code>null</code> if none did
+	 */
+	public static AttachmentDeduplicator current()
+	{
+		return current;
+	}
+
+	/**
+	 * Starts a deduplication in the background, unless one is running
+	 * 
+	 * @return the deduplication running
+	 */
+	public static synchronized AttachmentDeduplicator start()
+	{
+		if (current != null && current.isRunning()) {
+			return current;
+		}
+
+		AttachmentDeduplicator deduplicator = new AttachmentDeduplicator();
+		deduplicator.startTime = System.currentTimeMillis();
+		current = deduplicator;
+
+		Thread thread = new Thread(() -> deduplicator.run(), "jforum-attachment-deduplicator");
+		thread.setDaemon(true);
+		deduplicator.runner = thread;
+		thread.start();
+
+		return deduplicator;
+	}
+
+	/**
+	 * Stops the deduplication running, after the file being moved. It continues from
+	 * there the next time it is started.
+	 */
+	public static void stop()
+	{
+		AttachmentDeduplicator deduplicator = current;
+
+		if (deduplicator == null) {
+			return;
+		}
+
+		deduplicator.stopped = true;
+
+		Thread thread = deduplicator.runner;
+		if (thread != null && thread != Thread.currentThread()) {
+			try {
+				thread.join(STOP_TIMEOUT);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public boolean isRunning()
+	{
+		return this.startTime > 0 && this.endTime == 0;
+	}
+
+	public Date getStartTime()
+	{
+		return this.startTime > 0 ? new Date(this.startTime) : null;
+	}
+
+	public long getElapsedMillis()
+	{
+		if (this.startTime == 0) {
+			return 0;
+		}
+
+		return (this.endTime > 0 ? this.endTime : System.currentTimeMillis()) - this.startTime;
+	}
+
+	public int getTotalFiles()
+	{
+		return this.totalFiles;
+	}
+
+	public int getMovedFiles()
+	{
+		return this.movedFiles;
+	}
+
+	public int getDuplicateFiles()
+	{
+		return this.duplicateFiles;
+	}
+
+	public long getFreedBytes()
+	{
+		return this.freedBytes;
+	}
+
+	public int getMissingFiles()
+	{
+		return this.missingFiles;
+	}
+
+	public int getFailedFiles()
+	{
+		return this.failedFiles;
+	}
+
+	public int getDeletedFiles()
+	{
+		return this.deletedFiles;
+	}
+
+	private void run()
+	{
+		LOGGER.info("Storing attachments by their content");
+
+		try {
+			Map<String, List<Integer>> files = this.filesToMove();
+			this.totalFiles = files.size();
+
+			for (Map.Entry<String, List<Integer>> entry : files.entrySet()) {
+				if (this.stopped) {
+					break;
+				}
+
+				this.move(entry.getKey(), entry.getValue());
+			}
+
+			if (!this.stopped) {
+				this.deleteUnused();
+			}
+		}
+		catch (Exception e) {
+			LOGGER.error("Storing attachments by their content failed: " + e, e);
+		}
+		finally {
+			JForumExecutionContext.finish();
+			this.endTime = System.currentTimeMillis();
+		}
+
+		LOGGER.info("Attachments stored by their content: " + this.movedFiles + " of " + this.totalFiles 
+			+ " files moved, " + this.duplicateFiles + " duplicates, " + this.deletedFiles + " unused files deleted");
+	}
+
+	/**
+	 * @return the files not stored by their content, and the attachments stored in each
+	 */
+	private Map<String, List<Integer>> filesToMove()
+	{
+		Map<String, List<Integer>> files = new LinkedHashMap<>();
+
+		try {
+			for (Map.Entry<Integer, String> entry : this.dao().selectPhysicalFilenames().entrySet()) {
+				if (!AttachmentStore.isContentAddressed(entry.getValue())) {
+					files.computeIfAbsent(entry.getValue(), name -> new ArrayList<>()).add(entry.getKey());
+				}
+			}
+		}
+		finally {
+			JForumExecutionContext.finish();
+		}
+
+		return files;
+	}
+
+	private void move(String physicalFilename, List<Integer> attachIds)
+	{
+		File file = AttachmentStore.file(physicalFilename);
+
+		if (!file.exists()) {
+			this.missingFiles++;
+			return;
+		}
+
+		try {
+			long length = file.length();
+			String target = AttachmentStore.physicalFilename(AttachmentStore.hash(file), 
+				AttachmentStore.extensionOf(physicalFilename));
+			boolean duplicate = AttachmentStore.link(file, target);
+
+			try {
+				AttachmentDAO dao = this.dao();
+
+				for (Integer attachId : attachIds) {
+					dao.updatePhysicalFilename(attachId.intValue(), target);
+				}
+			}
+			catch (RuntimeException e) {
+				JForumExecutionContext.enableRollback();
+				throw e;
+			}
+			finally {
+				JForumExecutionContext.finish();
+				AttachmentStore.discard(target, false);
+			}
+
+			// No attachment uses it anymore
+			AttachmentStore.deleteFile(file);
+
+			this.movedFiles++;
+
+			if (duplicate) {
+				this.duplicateFiles++;
+				this.freedBytes += length;
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			this.failedFiles++;
+			LOGGER.error("Could not store " + physicalFilename + " by its content: " + e, e);
+		}
+	}
+
+	/**
+	 * Deletes the files stored by their content that no attachment uses, and the uploads that 
+	 * were never stored, once they are older than <code>attachments.store.content.grace.minutes</code>
+	 */
+	private void deleteUnused() throws IOException
+	{
+		Path root = AttachmentStore.file(AttachmentStore.CONTENT_DIR).toPath();
+
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+
+		Set<String> used;
+		try {
+			used = new HashSet<>(this.dao().selectPhysicalFilenames().values());
+		}
+		finally {
+			JForumExecutionContext.finish();
+		}
+
+		List<Path> paths;
+		try (Stream<Path> stream = Files.walk(root)) {
+			paths = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+
+		Path incoming = root.resolve(AttachmentStore.INCOMING_DIR);
+
+		try {
+			for (Path path : paths) {
+				if (this.stopped) {
+					break;
+				}
+
+				File file = path.toFile();
+
+				if (path.startsWith(incoming)) {
+					if (!AttachmentStore.isRecent(file.lastModified()) && file.delete()) {
+						this.deletedFiles++;
+					}
+
+					continue;
+				}
+
+				if (file.getName().endsWith(AttachmentStore.PENDING_SUFFIX)) {
+					AttachmentStore.deleteExpired(file);
+					continue;
+				}
+
+				// Thumbnails are deleted with their image
+				String physicalFilename = AttachmentStore.CONTENT_DIR + "/" 
+					+ root.relativize(path).toString().replace(File.separatorChar, '/');
+
+				if (physicalFilename.endsWith("_") && !used.contains(physicalFilename)
+						&& AttachmentStore.release(physicalFilename)) {
+					this.deletedFiles++;
+				}
+			}
+		}
+		finally {
+			JForumExecutionContext.finish();
+		}
+	}
+
+	private AttachmentDAO dao()
+	{
+		return DataAccessDriver.getInstance().newAttachmentDAO();
+	}
+}
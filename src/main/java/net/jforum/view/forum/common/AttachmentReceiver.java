@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.view.forum.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.log4j.Logger;
+
+import net.jforum.SessionFacade;
+import net.jforum.context.RequestContext;
+import net.jforum.context.web.UploadReceiver;
+import net.jforum.context.web.WebRequestContext;
+import net.jforum.dao.AttachmentDAO;
+import net.jforum.dao.DataAccessDriver;
+import net.jforum.entities.QuotaLimit;
+import net.jforum.entities.UserSession;
+import net.jforum.exceptions.AttachmentSizeTooBigException;
+import net.jforum.exceptions.BadExtensionException;
+import net.jforum.repository.SecurityRepository;
+import net.jforum.security.SecurityConstants;
+import net.jforum.util.Hash;
+import net.jforum.util.I18n;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Receives the attachments of a message while it is posted. Each file is checked as soon as its
+ * headers arrive, and the content is written once, straight to its place in the attachments
+ * directory, and hashed on the way. Stored by content, it is written to a new file and then
+ * moved to the one named by the hash, unless that one exists already. The upload stops writing at the first file with a forbidden
+ * extension or going over the quota; {@link AttachmentCommon#preProcess()} then tells why.
+ * <p>
+ * The form fields sent before the files, as <code>forum_id</code> and <code>total_files</code>,
+ * are the only ones known while they are received. Files sent without a known session, without
+ * <code>forum_id</code>, or by a user who may not attach files to the forum, are skipped
+ * without writing them.
+ */
+public class AttachmentReceiver implements UploadReceiver
+{
+	private static final Logger LOGGER = Logger.getLogger(AttachmentReceiver.class);
+	private static final String STATE = AttachmentReceiver.class.getName();
+	private static final String FIELD = "file_";
+
+	@Override public boolean accepts(WebRequestContext request, String fieldName)
+	{
+		return fieldName.startsWith(FIELD) && "posts".equals(request.getParameter("module"));
+	}
+
+	@Override public FileItem receive(WebRequestContext request, FileItemStream part) throws IOException
+	{
+		Received received = this.state(request);
+
+		if (!received.allowed || received.rejectedExtension != null || received.rejectedSize > 0) {
+			return null;
+		}
+
+		// The same files AttachmentCommon looks for
+		int index = parseIndex(part.getFieldName());
+		int total = Math.min(parseInt(request.getParameter("total_files")), SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_MAX_POST));
+
+		if (index < 0 || index >= total) {
+			return null;
+		}
+
+		String name = part.getName();
+
+		if (name.indexOf('\000') > -1) {
+			LOGGER.warn("Possible bad attachment (null char): " + name + " - user_id: " + received.userId);
+			return null;
+		}
+
+		String extension = name.substring(name.lastIndexOf('.') + 1);
+
+		if (!AttachmentCommon.isAllowed(received.extensions, extension)) {
+			received.rejectedExtension = extension;
+			return null;
+		}
+
+		String storeExtension = AttachmentCommon.findExtension(DataAccessDriver.getInstance().newAttachmentDAO(), 
+			extension).getExtension();
+		boolean contentAddressed = AttachmentStore.isContentAddressed();
+
+		// Stored by its content, the file is only named once all of it was read
+		String physicalFilename = contentAddressed 
+			? null 
+			: AttachmentCommon.makeStoreFilename(name, storeExtension, received.userId);
+		File file = contentAddressed 
+			? AttachmentStore.createIncomingFile() 
+			: AttachmentStore.file(physicalFilename);
+
+		MessageDigest digest = AttachmentStore.sha256();
+		long size = 0;
+		boolean tooBig = false;
+
+		try (InputStream in = part.openStream(); OutputStream out = new FileOutputStream(file)) {
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while ((read = in.read(buffer)) != -1) {
+				size += read;
+
+				if (received.quota != null && received.quota.exceedsQuota(received.totalSize + size)) {
+					tooBig = true;
+					break;
+				}
+
+				digest.update(buffer, 0, read);
+				out.write(buffer, 0, read);
+			}
+		}
+		catch (IOException e) {
+			delete(file);
+			throw e;
+		}
+
+		if (tooBig) {
+			// The rest of the file is skipped without being written
+			delete(file);
+			received.rejectedSize = received.totalSize + size;
+			return null;
+		}
+
+		received.totalSize += size;
+
+		String hash = Hash.hex(digest.digest());
+		boolean created = true;
+
+		if (contentAddressed) {
+			physicalFilename = AttachmentStore.physicalFilename(hash, storeExtension);
+
+			try {
+				created = AttachmentStore.store(file, physicalFilename);
+				file = AttachmentStore.file(physicalFilename);
+			}
+			catch (IOException e) {
+				delete(file);
+				throw e;
+			}
+		}
+
+		return new StoredUpload(part.getFieldName(), name, part.getContentType(), file, 
+			physicalFilename, size, hash, created);
+	}
+
+	/**
+	 * Throws the exception for the file the upload stopped at, if any
+	 * 
+	 * @param request the request
+	 * @throws BadExtensionException if the extension of a file is not allowed
+	 * @throws AttachmentSizeTooBigException if the files are over the quota of the user
+	 */
+	static void checkRejected(RequestContext request)
+	{
+		Received received = (Received)request.getAttribute(STATE);
+
+		if (received == null) {
+			return;
+		}
+
+		if (received.rejectedExtension != null) {
+			throw new BadExtensionException(I18n.getMessage("Attachments.badExtension", 
+				new String[] { received.rejectedExtension }));
+		}
+
+		if (received.rejectedSize > 0) {
+			throw new AttachmentSizeTooBigException(I18n.getMessage("Attachments.tooBig", 
+				new Integer[] { Integer.valueOf(received.quota.getSizeInBytes() / 1024), 
+				Integer.valueOf((int)(received.rejectedSize / 1024)) }));
+		}
+	}
+
+	private Received state(RequestContext request)
+	{
+		Received received = (Received)request.getAttribute(STATE);
+
+		if (received != null) {
+			return received;
+		}
+
+		received = new Received();
+
+		// The session of the request is set up later, but the user posting has one already
+		UserSession us = SessionFacade.getUserSession(request.getSessionContext().getId());
+		String forumId = request.getParameter("forum_id");
+
+		// Without them nothing is written, as the files could not be attached anyway
+		if (us != null && forumId != null) {
+			received.userId = us.getUserId();
+			received.allowed = SecurityRepository.canAccess(us.getUserId(), 
+				SecurityConstants.PERM_ATTACHMENTS_ENABLED, forumId);
+		}
+
+		if (received.allowed) {
+			received.quota = AttachmentCommon.findQuotaLimit(received.userId);
+
+			AttachmentDAO dao = DataAccessDriver.getInstance().newAttachmentDAO();
+			received.extensions = dao.extensionsForSecurity();
+		}
+
+		request.setAttribute(STATE, received);
+
+		return received;
+	}
+
+	private static int parseIndex(String fieldName)
+	{
+		return parseInt(fieldName.substring(FIELD.length()));
+	}
+
+	private static int parseInt(String value)
+	{
+		try {
+			return value == null ? -1 : Integer.parseInt(value);
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static void delete(File file)
+	{
+		if (file.exists() && !file.delete()) {
+			LOGGER.error("Delete file failed: " + file.getName());
+		}
+	}
+
+	private static final class Received
+	{
+		int userId;
+		boolean allowed;
+		QuotaLimit quota;
+		Map<String, Boolean> extensions;
+		long totalSize;
+		String rejectedExtension;
+		long rejectedSize;
+	}
+}
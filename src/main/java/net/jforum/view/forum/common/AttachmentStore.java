@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.view.forum.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.log4j.Logger;
+
+import net.jforum.dao.DataAccessDriver;
+import net.jforum.exceptions.ForumException;
+import net.jforum.util.Hash;
+import net.jforum.util.image.ThumbnailGenerator;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * The files of the attachments. When <code>attachments.store.content.addressed</code> is set,
+ * a new file is named by the SHA-256 of its content, as <code>content/ab/cd/abcd...ef.ext_</code>,
+ * and attachments with the same content share it. 
+ * <p>
+ * A file is deleted by {@link #release(String)} once no attachment uses it. As the attachment
+ * with an upload is only added when its post is saved, a file is held by each upload until its
+ * request is done, and a file held in the last <code>attachments.store.content.grace.minutes</code>,
+ * maybe by another application sharing the directory, is kept as well. The time it was held is
+ * that of a <code>.pending</code> file next to it, so the time of the file itself does not change.
+ * {@link AttachmentDeduplicator} deletes the files still unused after that.
+ */
+public final class AttachmentStore
+{
+	private static final Logger LOGGER = Logger.getLogger(AttachmentStore.class);
+	private static final Object MUTEX = new Object();
+
+	// Uploads of this application not saved or discarded yet, by file
+	private static final Map<String, Integer> HOLDERS = new HashMap<>();
+
+	static final String CONTENT_DIR = "content";
+	static final String INCOMING_DIR = "incoming";
+	static final String PENDING_SUFFIX = ".pending";
+
+	private AttachmentStore() {}
+
+	/**
+	 * @return <code>true</code> if new attachments are stored by their content
+	 */
+	public static boolean isContentAddressed()
+	{
+		return SystemGlobals.getBoolValue(ConfigKeys.ATTACHMENTS_STORE_CONTENT_ADDRESSED);
+	}
+
+	/**
+	 * @param physicalFilename a file, relative to the attachments directory
+	 * @return <code>true</code> if it is named by its content, and may be shared
+	 */
+	public static boolean isContentAddressed(String physicalFilename)
+	{
+		return physicalFilename.startsWith(CONTENT_DIR + "/");
+	}
+
+	/**
+	 * @param hash the SHA-256 of the content, in hexadecimal
+	 * @param extension the extension of the attachment
+	 * @return the file for the content, relative to the attachments directory
+	 */
+	public static String physicalFilename(String hash, String extension)
+	{
+		return new StringBuilder(96)
+			.append(CONTENT_DIR).append('/')
+			.append(hash, 0, 2).append('/')
+			.append(hash, 2, 4).append('/')
+			.append(hash)
+			.append('.')
+			.append(extension.toLowerCase())
+			.append('_')
+			.toString();
+	}
+
+	/**
+	 * @param physicalFilename a file, relative to the attachments directory
+	 * @return the extension of the attachment stored in it
+	 */
+	static String extensionOf(String physicalFilename)
+	{
+		String name = physicalFilename.endsWith("_") 
+			? physicalFilename.substring(0, physicalFilename.length() - 1)
+			: physicalFilename;
+
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * @param physicalFilename a file, relative to the attachments directory
+	 * @return the complete path of the file
+	 */
+	public static File file(String physicalFilename)
+	{
+		return new File(SystemGlobals.getValue(ConfigKeys.ATTACHMENTS_STORE_DIR) + "/" + physicalFilename);
+	}
+
+	/**
+	 * Creates the file an upload is written to before its content is known
+	 * 
+	 * @return a new, empty file
+	 * @throws IOException if the file can not be created
+	 */
+	static File createIncomingFile() throws IOException
+	{
+		File dir = file(CONTENT_DIR + "/" + INCOMING_DIR);
+
+		if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+			throw new IOException("Create directory failed: " + dir);
+		}
+
+		return File.createTempFile("upload", null, dir);
+	}
+
+	/**
+	 * Moves an upload to the file for its content. If that file exists already, the upload is
+	 * deleted instead. The file is held until {@link #discard(String, boolean)} is called,
+	 * once the request with the upload is done.
+	 * 
+	 * @param incoming the file with the upload
+	 * @param physicalFilename the file for the content, from {@link #physicalFilename(String, String)}
+	 * @return <code>true</code> if the file for the content was created by this upload
+	 * @throws IOException if the upload can not be moved
+	 */
+	static boolean store(File incoming, String physicalFilename) throws IOException
+	{
+		File file = file(physicalFilename);
+
+		synchronized (MUTEX) {
+			boolean created = false;
+
+			if (!file.exists()) {
+				createParent(file);
+
+				try {
+					Files.move(incoming.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+					created = true;
+				}
+				catch (IOException e) {
+					if (!file.exists()) {
+						throw e;
+					}
+				}
+			}
+
+			if (incoming.exists()) {
+				delete(incoming);
+			}
+
+			hold(physicalFilename);
+
+			return created;
+		}
+	}
+
+	/**
+	 * Stores an existing attachment by its content. The file for the content is a link to the
+	 * current one, or a copy where links are not supported, with the same modification time. 
+	 * The file is held until {@link #discard(String, boolean)} is called, once the attachment
+	 * is moved to it.
+	 * 
+	 * @param current the current file of the attachment
+	 * @param physicalFilename the file for the content, from {@link #physicalFilename(String, String)}
+	 * @return <code>true</code> if the file for the content existed already
+	 * @throws IOException if the file can not be linked or copied
+	 */
+	static boolean link(File current, String physicalFilename) throws IOException
+	{
+		File file = file(physicalFilename);
+
+		synchronized (MUTEX) {
+			boolean existed = file.exists();
+
+			if (!existed) {
+				createParent(file);
+
+				try {
+					Files.createLink(file.toPath(), current.toPath());
+				}
+				catch (IOException | UnsupportedOperationException e) {
+					File incoming = createIncomingFile();
+					Files.copy(current.toPath(), incoming.toPath(), 
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+					Files.move(incoming.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				}
+			}
+
+			hold(physicalFilename);
+
+			return existed;
+		}
+	}
+
+	/**
+	 * Lets go of a file held by {@link #store(File, String)} or {@link #link(File, String)}, after
+	 * the attachment using it was saved, or not. A file created by the upload is deleted right
+	 * away if no attachment uses it and no other upload holds it.
+	 * 
+	 * @param physicalFilename the file, relative to the attachments directory
+	 * @param created <code>true</code> if the file was created by the upload
+	 */
+	static void discard(String physicalFilename, boolean created)
+	{
+		synchronized (MUTEX) {
+			Integer holders = HOLDERS.get(physicalFilename);
+
+			if (holders == null || holders.intValue() <= 1) {
+				HOLDERS.remove(physicalFilename);
+			}
+			else {
+				HOLDERS.put(physicalFilename, Integer.valueOf(holders.intValue() - 1));
+				return;
+			}
+
+			if (created && DataAccessDriver.getInstance().newAttachmentDAO().countReferences(physicalFilename) == 0) {
+				deleteFile(file(physicalFilename));
+			}
+		}
+	}
+
+	/**
+	 * Deletes a file, and its thumbnails, if no attachment uses it anymore. Called once the 
+	 * attachment is removed from the database.
+	 * 
+	 * @param physicalFilename the file, relative to the attachments directory
+	 * @return <code>true</code> if the file was deleted
+	 */
+	public static boolean release(String physicalFilename)
+	{
+		File file = file(physicalFilename);
+
+		synchronized (MUTEX) {
+			if (isContentAddressed(physicalFilename) 
+					&& (HOLDERS.containsKey(physicalFilename) || isRecent(pendingFile(file).lastModified()))) {
+				return false;
+			}
+
+			if (DataAccessDriver.getInstance().newAttachmentDAO().countReferences(physicalFilename) > 0) {
+				return false;
+			}
+
+			deleteFile(file);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param modified a modification time
+	 * @return <code>true</code> if it is in the last <code>attachments.store.content.grace.minutes</code>
+	 */
+	static boolean isRecent(long modified)
+	{
+		long grace = TimeUnit.MINUTES.toMillis(SystemGlobals.getIntValue(ConfigKeys.ATTACHMENTS_STORE_CONTENT_GRACE_MINUTES));
+
+		return System.currentTimeMillis() - modified < grace;
+	}
+
+	/**
+	 * Deletes the <code>.pending</code> file of a file stored by its content, if it is older than
+	 * <code>attachments.store.content.grace.minutes</code>
+	 * 
+	 * @param pending the <code>.pending</code> file
+	 * @return <code>true</code> if it was deleted
+	 */
+	static boolean deleteExpired(File pending)
+	{
+		synchronized (MUTEX) {
+			return !isRecent(pending.lastModified()) && pending.delete();
+		}
+	}
+
+	/**
+	 * @param file a file stored by its content
+	 * @return the file whose modification time is the last time the file was held, kept apart 
+	 * so the time of the file itself, sent to the browsers, does not change
+	 */
+	static File pendingFile(File file)
+	{
+		return new File(file.getPath() + PENDING_SUFFIX);
+	}
+
+	/**
+	 * Deletes a file, its thumbnails and the directories left empty
+	 * 
+	 * @param file the complete path of the file
+	 */
+	static void deleteFile(File file)
+	{
+		if (file.exists()) {
+			delete(file);
+		}
+
+		File pending = pendingFile(file);
+		if (pending.exists()) {
+			delete(pending);
+		}
+
+		// Check if we have thumbs to delete
+		ThumbnailGenerator.delete(file.getPath());
+
+		// Remove the empty parent directory
+		File parent = file.getParentFile();
+		if (parent != null && ArrayUtils.nullToEmpty(parent.list()).length == 0) {
+			boolean result = parent.delete();
+			if (result != true) {
+				LOGGER.error("Delete parent directory failed: " + parent.getName());
+			}
+			// Remove the empty grand parent directory
+			File grandparent = parent.getParentFile();
+			if (grandparent != null && ArrayUtils.nullToEmpty(grandparent.list()).length == 0) {
+				result = grandparent.delete();
+				if (result != true) {
+					LOGGER.error("Delete grand parent directory failed: " + grandparent.getName());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param file a file
+	 * @return the SHA-256 of its content, in hexadecimal
+	 * @throws IOException if the file can not be read
+	 */
+	static String hash(File file) throws IOException
+	{
+		MessageDigest digest = sha256();
+
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+
+		return Hash.hex(digest.digest());
+	}
+
+	static MessageDigest sha256()
+	{
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new ForumException(e);
+		}
+	}
+
+	private static void createParent(File file) throws IOException
+	{
+		File parent = file.getParentFile();
+
+		if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+			throw new IOException("Create directory failed: " + parent);
+		}
+	}
+
+	/**
+	 * Holds a file for an upload in this application, and marks the time for the others 
+	 * sharing the attachments directory
+	 */
+	private static void hold(String physicalFilename) throws IOException
+	{
+		HOLDERS.merge(physicalFilename, Integer.valueOf(1), (a, b) -> Integer.valueOf(a.intValue() + b.intValue()));
+
+		File pending = pendingFile(file(physicalFilename));
+
+		if (!pending.createNewFile() && !pending.setLastModified(System.currentTimeMillis())) {
+			LOGGER.warn("Could not set the time of " + pending);
+		}
+	}
+
+	private static void delete(File file)
+	{
+		if (!file.delete()) {
+			LOGGER.error("Delete file failed: " + file.getName());
+		}
+	}
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.view.forum.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import net.jforum.context.RequestContext;
+import net.jforum.context.ResponseContext;
+
+/**
+ * Sends attachment files, with support for single byte ranges 
+ * (<code>Range</code> and <code>If-Range</code>) and conditional requests 
+ * (<code>If-None-Match</code> and <code>If-Modified-Since</code>).
+ * <p>
+ * When the container can send files by itself, as Tomcat does with sendfile, 
+ * the file is handed to it and the request thread is free right away. 
+ * Otherwise the file is copied with {@link FileChannel#transferTo}.
+ * </p>
+ */
+public final class AttachmentStreamer
+{
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	/** Smaller files are faster to copy than to hand to the container */
+	private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+	private static final long[] UNSATISFIABLE = new long[0];
+
+	private AttachmentStreamer() {}
+
+	/**
+	 * Sends a file, or the part of it the client asked for. 
+	 * The content type and disposition must be set already.
+	 * 
+	 * @param request the request
+	 * @param response the response
+	 * @param file the file to send
+	 * @return <code>true</code> if the file was sent from its first byte, 
+	 * so it is a new download, and not the rest of one or an unchanged file
+	 * @throws IOException if the file could not be sent
+	 */
+	public static boolean send(final RequestContext request, final ResponseContext response, final File file) throws IOException
+	{
+		final long length = file.length();
+		final long lastModified = file.lastModified() / 1000 * 1000;
+		final String etag = etag(length, lastModified);
+
+		response.setHeader("ETag", etag);
+		response.setHeader("Last-Modified", httpDate(lastModified));
+		response.setHeader("Accept-Ranges", "bytes");
+
+		if (isNotModified(request.getHeader("If-None-Match"), request.getHeader("If-Modified-Since"), etag, lastModified)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return false;
+		}
+
+		long start = 0;
+		long end = length - 1;
+		final String rangeHeader = request.getHeader("Range");
+
+		if (rangeHeader != null && ifRangeMatches(request.getHeader("If-Range"), etag, lastModified)) {
+			final long[] range = parseRange(rangeHeader, length);
+
+			if (range == UNSATISFIABLE) {
+				response.setHeader("Content-Range", "bytes */" + length);
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return false;
+			}
+
+			if (range != null) {
+				start = range[0];
+				end = range[1];
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+			}
+		}
+
+		final long count = end - start + 1;
+		// setContentLength() takes an int, which is not enough above 2 GB
+		response.setHeader("Content-Length", Long.toString(Math.max(0, count)));
+
+		if (count <= 0) {
+			return true;
+		}
+
+		if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+			request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+			request.setAttribute(SENDFILE_START, Long.valueOf(start));
+			request.setAttribute(SENDFILE_END, Long.valueOf(end + 1));
+		}
+		else {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				final OutputStream out = response.getOutputStream();
+				final WritableByteChannel target = Channels.newChannel(out);
+				long position = start;
+
+				while (position <= end) {
+					final long sent = channel.transferTo(position, end + 1 - position, target);
+
+					if (sent <= 0) {
+						break;
+					}
+
+					position += sent;
+				}
+
+				out.flush();
+			}
+		}
+
+		return start == 0;
+	}
+
+	static String etag(final long length, final long lastModified)
+	{
+		return "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+	}
+
+	static String httpDate(final long time)
+	{
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneOffset.UTC));
+	}
+
+	/**
+	 * @return the date in milliseconds, or -1 if it is not a valid HTTP date
+	 */
+	static long parseHttpDate(final String value)
+	{
+		try {
+			return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+		}
+		catch (DateTimeParseException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * If-None-Match wins over If-Modified-Since, and uses the weak comparison
+	 */
+	static boolean isNotModified(final String ifNoneMatch, final String ifModifiedSince, final String etag, final long lastModified)
+	{
+		if (ifNoneMatch != null) {
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+
+				if (tag.startsWith("W/")) {
+					tag = tag.substring(2);
+				}
+
+				if ("*".equals(tag) || etag.equals(tag)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		if (ifModifiedSince != null) {
+			final long since = parseHttpDate(ifModifiedSince);
+			return since >= 0 && lastModified <= since;
+		}
+
+		return false;
+	}
+
+	/**
+	 * If-Range uses the strong comparison, so a weak tag never matches
+	 */
+	static boolean ifRangeMatches(final String ifRange, final String etag, final long lastModified)
+	{
+		if (ifRange == null) {
+			return true;
+		}
+
+		final String value = ifRange.trim();
+
+		if (value.startsWith("\"") || value.startsWith("W/")) {
+			return etag.equals(value);
+		}
+
+		return parseHttpDate(value) == lastModified;
+	}
+
+	/**
+	 * Parses a <code>Range</code> header with a single range.
+	 * 
+	 * @param header the header
+	 * @param length the file length
+	 * @return the first and last byte of the range, {@link #UNSATISFIABLE} if it is outside 
+	 * the file, or <code>null</code> to send the whole file - when the header is not valid, 
+	 * or asks for more than one range
+	 */
+	static long[] parseRange(final String header, final long length)
+	{
+		if (!header.startsWith("bytes=")) {
+			return null;
+		}
+
+		final String spec = header.substring("bytes=".length()).trim();
+		final int dash = spec.indexOf('-');
+
+		if (dash < 0 || spec.indexOf(',') >= 0) {
+			return null;
+		}
+
+		final String first = spec.substring(0, dash).trim();
+		final String last = spec.substring(dash + 1).trim();
+
+		try {
+			if (first.isEmpty()) {
+				// The last n bytes
+				final long suffix = Long.parseLong(last);
+
+				if (suffix <= 0 || length == 0) {
+					return UNSATISFIABLE;
+				}
+
+				return new long[] { Math.max(0, length - suffix), length - 1 };
+			}
+
+			final long start = Long.parseLong(first);
+			final long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+
+			if (end < start) {
+				return null;
+			}
+
+			if (start >= length) {
+				return UNSATISFIABLE;
+			}
+
+			return new long[] { start, Math.min(end, length - 1) };
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
@@ -60,9 +60,8 @@ import net.jforum.entities.Topic;
 import net.jforum.entities.User;
 import net.jforum.entities.UserSession;
 import net.jforum.repository.ForumRepository;
-import net.jforum.util.concurrent.Executor;
-import net.jforum.util.mail.EmailSenderTask;
 import net.jforum.util.mail.ForumNewTopicSpammer;
+import net.jforum.util.mail.MailOutbox;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 
@@ -187,9 +186,7 @@ public final class ForumCommon
 				// we only have to send an email if there are users
 				// subscribed to the topic
 				if (usersToNotify != null && !usersToNotify.isEmpty()) {
-					Executor.execute(
-						new EmailSenderTask(
-							new ForumNewTopicSpammer(forum, topic, post, usersToNotify)));
+					MailOutbox.enqueue(new ForumNewTopicSpammer(forum, topic, post, usersToNotify));
 				}
 			}
 			catch (Exception e) {
@@ -43,15 +43,12 @@
 package net.jforum.view.forum.common;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.log4j.Logger;
-
 import net.jforum.JForumExecutionContext;
 import net.jforum.SessionFacade;
 import net.jforum.context.RequestContext;
@@ -63,13 +60,13 @@ import net.jforum.entities.Smilie;
 import net.jforum.entities.Topic;
 import net.jforum.repository.BBCodeRepository;
 import net.jforum.repository.PostRepository;
+import net.jforum.repository.RenderedPostStore;
 import net.jforum.repository.SecurityRepository;
 import net.jforum.repository.SmiliesRepository;
 import net.jforum.security.SecurityConstants;
 import net.jforum.util.SafeHtml;
 import net.jforum.util.bbcode.BBCode;
 import net.jforum.util.bbcode.BBCodeHandler;
-import net.jforum.util.bbcode.Substitution;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
 
@@ -78,7 +75,7 @@ import net.jforum.util.preferences.SystemGlobals;
  */
 public class PostCommon
 {
-    private static final Logger LOGGER = Logger.getLogger(PostCommon.class);
+	private static final Pattern CODE_BLOCK = Pattern.compile("(\\[code.*?\\])(.*)(\\[/code\\])", Pattern.DOTALL);
 
 	public static Post preparePostForDisplay (Post post)
 	{
@@ -107,6 +104,26 @@ public class PostCommon
 		return post;
 	}
 
+	/**
+	 * Same as {@link #preparePostForDisplay(Post)}, but reuses the HTML 
+	 * kept by {@link RenderedPostStore}, rendering and storing it on a miss.
+	 * Only for posts as they are in the database, never for previews.
+	 */
+	public static Post prepareStoredPostForDisplay (Post post)
+	{
+		if (!RenderedPostStore.isEnabled() || post.getText() == null) {
+			return preparePostForDisplay(post);
+		}
+
+		if (!RenderedPostStore.load(post)) {
+			Post source = new Post(post);
+			preparePostForDisplay(post);
+			RenderedPostStore.store(source, post);
+		}
+
+		return post;
+	}
+
 	private static void processText (Post post)
 	{
 		int codeIndex = post.getText().indexOf("[code");
@@ -160,7 +177,7 @@ public class PostCommon
 	private static String parseCode (String origText)
 	{
 		StringBuilder processed = new StringBuilder(origText.length());
-		Matcher contentMatcher = Pattern.compile("(\\[code.*?\\])(.*)(\\[/code\\])", Pattern.DOTALL).matcher(origText);
+		Matcher contentMatcher = CODE_BLOCK.matcher(origText);
 		if (contentMatcher.matches()) {
 			StringBuilder contents = new StringBuilder(contentMatcher.group(2));
 			ViewCommon.replaceAll(contents, "<br>", "\n");
@@ -175,14 +192,7 @@ public class PostCommon
 			return origText; 
 		}
 		// now apply the regular expressions from the xml-config
-		String text = processed.toString();
-		for (Iterator<BBCode> iter = BBCodeRepository.getBBCollection().getBbList().iterator(); iter.hasNext();) {
-			BBCode bb = iter.next();
-
-			if (bb.getTagName().startsWith("code")) {
-				text = text.replaceAll(bb.getRegex(), bb.getReplace());
-			}
-		}
+		String text = BBCodeRepository.getBBCollection().processCodeTags(processed.toString());
 
 		// Escape & to &amp;
 		text = text.replaceAll("&", "&amp;");
@@ -203,31 +213,7 @@ public class PostCommon
             text = processSmilies(new StringBuilder(text));
         }
         if (isBBCodeEnabled && text.indexOf('[') > -1 && text.indexOf(']') > -1) {
-            for (BBCode bb : BBCodeRepository.getBBCollection().getBbList()) {
-                if (!bb.getTagName().startsWith("code")) {
-                    if (bb.isRegexpReplace()) {
-                        // regular expression text replacement
-                        text = text.replaceAll(bb.getRegex(), bb.getReplace());
-                    } else {
-                        // Java code-based text replacement
-                        try {
-                            Substitution subst = (Substitution) Class.forName(bb.getClassName()).getDeclaredConstructor().newInstance();
-                            Pattern pat = Pattern.compile(bb.getRegex());
-                            Matcher match = pat.matcher(text);
-                            // the counter is just in case something goes wrong and the code enters a loop
-                            int count = 0;
-                            while (match.find() && count < 100) {
-                                text = text.substring(0, match.start(0)) + subst.substitute(match.group(1))
-                                        + text.substring(match.end(0));
-                                match.reset(text);
-                                count++;
-                            }
-                        } catch (Exception ex) {
-                            LOGGER.error("error handling '" + bb.getTagName() + "' BB code: " + ex.getMessage());
-                        }
-                    }
-                }
-            }
+            text = BBCodeRepository.getBBCollection().processTags(text);
         }
         text = parseDefaultRequiredBBCode(text);
         return text;
@@ -235,15 +221,7 @@ public class PostCommon
 
 	public static String parseDefaultRequiredBBCode (String origText)
 	{
-		String text = origText;
-		Collection<BBCode> list = BBCodeRepository.getBBCollection().getAlwaysProcessList();
-
-		for (Iterator<BBCode> iter = list.iterator(); iter.hasNext(); ) {
-			BBCode bb = iter.next();
-			text = text.replaceAll(bb.getRegex(), bb.getReplace());
-		}
-
-		return text;
+		return BBCodeRepository.getBBCollection().processAlwaysProcessTags(origText);
 	}
 
 	/**
@@ -368,7 +346,7 @@ public class PostCommon
 		for (Post post : posts) {
 			post.setCanEdit(PostCommon.canEditPost(post));
 
-			helperList.add(needPrepare ? PostCommon.preparePostForDisplay(post) : post);
+			helperList.add(needPrepare ? PostCommon.prepareStoredPostForDisplay(post) : post);
 
 			if (!hasCodeBlock && post.getText().indexOf("code class=\"language-") != -1) {
 				hasCodeBlock = true;
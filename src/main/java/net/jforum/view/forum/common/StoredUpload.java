@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.view.forum.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemHeaders;
+
+import net.jforum.exceptions.ForumException;
+
+/**
+ * An attachment written straight to its place in the attachments directory while it was uploaded.
+ * Writing it to that same file, with {@link #write(File)}, keeps it; otherwise it is deleted
+ * when the request is done.
+ */
+public class StoredUpload implements FileItem
+{
+	private static final long serialVersionUID = 1L;
+
+	private String fieldName;
+	private final String name;
+	private final String contentType;
+	private final String physicalFilename;
+	private final long size;
+	private final String hash;
+	private final boolean created;
+	private File file;
+	private transient FileItemHeaders headers;
+	private boolean kept;
+	private boolean deleted;
+
+	/**
+	 * @param fieldName the form field
+	 * @param name the file name sent by the browser
+	 * @param contentType the content type sent by the browser
+	 * @param file where the content was written
+	 * @param physicalFilename the name of the file, relative to the attachments directory
+	 * @param size the number of bytes
+	 * @param hash the SHA-256 of the content, in hexadecimal
+	 * @param created <code>false</code> if the file was stored already, by its content
+	 */
+	public StoredUpload(String fieldName, String name, String contentType, File file, 
+		String physicalFilename, long size, String hash, boolean created)
+	{
+		this.fieldName = fieldName;
+		this.name = name;
+		this.contentType = contentType;
+		this.file = file;
+		this.physicalFilename = physicalFilename;
+		this.size = size;
+		this.hash = hash;
+		this.created = created;
+	}
+
+	public String getPhysicalFilename()
+	{
+		return this.physicalFilename;
+	}
+
+	public String getHash()
+	{
+		return this.hash;
+	}
+
+	public File getFile()
+	{
+		return this.file;
+	}
+
+	@Override public InputStream getInputStream() throws IOException
+	{
+		return new FileInputStream(this.file);
+	}
+
+	@Override public String getContentType()
+	{
+		return this.contentType;
+	}
+
+	@Override public String getName()
+	{
+		return this.name;
+	}
+
+	@Override public boolean isInMemory()
+	{
+		return false;
+	}
+
+	@Override public long getSize()
+	{
+		return this.size;
+	}
+
+	@Override public byte[] get()
+	{
+		try {
+			return Files.readAllBytes(this.file.toPath());
+		}
+		catch (IOException e) {
+			throw new ForumException(e);
+		}
+	}
+
+	@Override public String getString(String encoding) throws UnsupportedEncodingException
+	{
+		return new String(this.get(), encoding);
+	}
+
+	@Override public String getString()
+	{
+		return new String(this.get());
+	}
+
+	/**
+	 * Keeps the file. It is moved if the destination is not where it was written.
+	 */
+	@Override public void write(File destination) throws Exception
+	{
+		if (!destination.getCanonicalFile().equals(this.file.getCanonicalFile())) {
+			Files.move(this.file.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			this.file = destination;
+		}
+
+		this.kept = true;
+	}
+
+	/**
+	 * Deletes the file, unless it was kept with {@link #write(File)}. A file named by its
+	 * content may be shared, and is deleted by {@link AttachmentStore#discard(String, boolean)}
+	 * only if no attachment uses it once the request is done.
+	 */
+	@Override public void delete()
+	{
+		if (this.deleted) {
+			return;
+		}
+
+		this.deleted = true;
+
+		if (AttachmentStore.isContentAddressed(this.physicalFilename)) {
+			AttachmentStore.discard(this.physicalFilename, this.created);
+			return;
+		}
+
+		if (this.kept) {
+			return;
+		}
+
+		if (this.file.exists() && !this.file.delete()) {
+			throw new ForumException("Could not delete " + this.file);
+		}
+	}
+
+	@Override public String getFieldName()
+	{
+		return this.fieldName;
+	}
+
+	@Override public void setFieldName(String name)
+	{
+		this.fieldName = name;
+	}
+
+	@Override public boolean isFormField()
+	{
+		return false;
+	}
+
+	@Override public void setFormField(boolean state)
+	{
+		throw new UnsupportedOperationException("An upload is not a form field");
+	}
+
+	@Override public OutputStream getOutputStream() throws IOException
+	{
+		throw new IOException(this.name + " is already written");
+	}
+
+	@Override public FileItemHeaders getHeaders()
+	{
+		return this.headers;
+	}
+
+	@Override public void setHeaders(FileItemHeaders headers)
+	{
+		this.headers = headers;
+	}
+}
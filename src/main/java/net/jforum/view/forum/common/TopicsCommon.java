@@ -43,6 +43,7 @@
 package net.jforum.view.forum.common;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -62,12 +63,12 @@ import net.jforum.repository.ForumRepository;
 import net.jforum.repository.PostRepository;
 import net.jforum.repository.SecurityRepository;
 import net.jforum.repository.TopicRepository;
+import net.jforum.repository.TopicViewCounter;
 import net.jforum.security.PermissionControl;
 import net.jforum.security.SecurityConstants;
 import net.jforum.util.I18n;
 import net.jforum.util.TopicTypeComparator;
-import net.jforum.util.concurrent.Executor;
-import net.jforum.util.mail.EmailSenderTask;
+import net.jforum.util.mail.MailOutbox;
 import net.jforum.util.mail.TopicReplySpammer;
 import net.jforum.util.preferences.ConfigKeys;
 import net.jforum.util.preferences.SystemGlobals;
@@ -80,11 +81,18 @@ import net.jforum.view.forum.ModerationHelper;
  */
 public class TopicsCommon 
 {
-	private static final Object MUTEXT = new Object();
+	private static final Comparator<Topic> TYPE_COMPARATOR = new TopicTypeComparator();
+
+	/** Pages further than this from the closest known position are selected by offset */
+	private static final int MAX_KEYSET_PAGES = 10;
 
 	/**
 	 * List all first 'n' topics of a given forum.
 	 * This method returns no more than <code>ConfigKeys.TOPICS_PER_PAGE</code> topics for the forum. 
+	 * <p>
+	 * The first <code>ConfigKeys.TOPIC_CACHE_SIZE</code> topics come from the cache. 
+	 * The pages after them are selected starting after the last topic of the page 
+	 * before, when it's known, so the database doesn't go through all topics in between.
 	 * 
 	 * @param forumId The forum id to which the topics belongs to
 	 * @param start The start fetching index
@@ -94,37 +102,111 @@ public class TopicsCommon
 	{
 		TopicDAO tm = DataAccessDriver.getInstance().newTopicDAO();
 		int topicsPerPage = SystemGlobals.getIntValue(ConfigKeys.TOPICS_PER_PAGE);
-		List<Topic> topics;
 
-		// Try to get the first's page of topics from the cache
-		if (SystemGlobals.getBoolValue(ConfigKeys.TOPIC_CACHE_ENABLED)) {
-			int topicCacheSize = SystemGlobals.getIntValue(ConfigKeys.TOPIC_CACHE_SIZE);
-			topics = TopicRepository.getTopics(forumId);
-
-			if (topics.isEmpty() || !TopicRepository.isLoaded(forumId) || start+topicsPerPage >= topicCacheSize) {
-				synchronized (MUTEXT) {
-					if (topics.isEmpty() || !TopicRepository.isLoaded(forumId) || start+topicsPerPage >= topicCacheSize) {
-						topics = tm.selectAllByForum(forumId);
-						TopicRepository.addAll(forumId, topics);
-					}
+		if (!SystemGlobals.getBoolValue(ConfigKeys.TOPIC_CACHE_ENABLED)) {
+			List<Topic> topics = tm.selectAllByForumByLimit(forumId, start, topicsPerPage);
+			topics.sort(TYPE_COMPARATOR);
+			return topics;
+		}
+
+		// Try to get the first pages of topics from the cache
+		int topicCacheSize = SystemGlobals.getIntValue(ConfigKeys.TOPIC_CACHE_SIZE);
+		List<Topic> topics = TopicRepository.getTopics(forumId);
+
+		if (topics.isEmpty() || !TopicRepository.isLoaded(forumId)) {
+			synchronized (TopicRepository.getForumLock(forumId)) {
+				topics = TopicRepository.getTopics(forumId);
+
+				if (topics.isEmpty() || !TopicRepository.isLoaded(forumId)) {
+					topics = tm.selectAllByForumAfter(forumId, null, topicCacheSize);
+					TopicRepository.addAll(forumId, topics);
 				}
 			}
 		}
+
+		// Either the cache has all topics of the forum, or the page is among them
+		if (topics.size() < topicCacheSize || start + topicsPerPage <= topics.size()) {
+			int size = topics.size();
+			while (size <= start) {
+				start -= topicsPerPage;
+			}
+			if (start < 0) {
+				start = 0;
+			}
+
+			return topics.subList(start, (size < start + topicsPerPage) ? size : start + topicsPerPage);
+		}
+
+		return topicsAfterCache(tm, forumId, topics, start, topicsPerPage);
+	}
+
+	/**
+	 * Selects a page which is not entirely in the cache
+	 * 
+	 * @param tm the topic DAO
+	 * @param forumId the forum id
+	 * @param cached the cached topics of the forum, which fill up the cache
+	 * @param start the start fetching index
+	 * @param topicsPerPage the page size
+	 * @return the topics of the page
+	 */
+	private static List<Topic> topicsAfterCache(TopicDAO tm, int forumId, List<Topic> cached, int start, int topicsPerPage)
+	{
+		List<Topic> page = new ArrayList<>(topicsPerPage);
+		int position = cached.size();
+		Topic after = cached.get(position - 1);
+
+		if (start < position) {
+			page.addAll(cached.subList(start, position));
+		}
 		else {
+			Map.Entry<Integer, Topic> anchor = TopicRepository.getPageAnchor(forumId, start);
+
+			if (anchor != null && anchor.getKey().intValue() > position) {
+				position = anchor.getKey().intValue();
+				after = anchor.getValue();
+			}
+		}
+
+		int skip = Math.max(0, start - position);
+		List<Topic> topics;
+
+		if (skip > MAX_KEYSET_PAGES * topicsPerPage) {
+			// Too far from any known position, so let the database skip the rows
 			topics = tm.selectAllByForumByLimit(forumId, start, topicsPerPage);
+			topics.sort(TYPE_COMPARATOR);
+
+			if (topics.isEmpty()) {
+				Forum forum = ForumRepository.getForum(forumId);
+				int last = forum == null ? 0 : Math.max(0, forum.getTotalTopics() - 1) / topicsPerPage * topicsPerPage;
+
+				return last < start ? topicsByForum(forumId, last) : topics;
+			}
 		}
+		else {
+			topics = tm.selectAllByForumAfter(forumId, after, skip + topicsPerPage - page.size());
+
+			if (skip > 0 && topics.size() <= skip) {
+				// Past the end of the forum, show its last page instead
+				int total = position + topics.size();
+				return topicsByForum(forumId, Math.max(0, total - 1) / topicsPerPage * topicsPerPage);
+			}
 
-		topics.sort(new TopicTypeComparator());
+			// Every page passed on the way can be started from now on
+			for (int next = start - topicsPerPage; next > position; next -= topicsPerPage) {
+				TopicRepository.addPageAnchor(forumId, next, topics.get(next - position - 1));
+			}
 
-		int size = topics.size();
-		while (size <= start) {
-			start -= topicsPerPage;
+			topics = topics.subList(skip, topics.size());
 		}
-		if (start < 0) {
-			start = 0;
+
+		page.addAll(topics);
+
+		if (page.size() == topicsPerPage) {
+			TopicRepository.addPageAnchor(forumId, start + topicsPerPage, page.get(topicsPerPage - 1));
 		}
 
-		return topics.subList(start, (size < start + topicsPerPage) ? size : start + topicsPerPage);
+		return page;
 	}
 
 	/**
@@ -186,6 +268,7 @@ public class TopicsCommon
 			}
 
 			topic.setRead(read);
+			topic.setPendingViews(TopicViewCounter.pending(topic.getId()));
 			newTopics.add(topic);
 		}
 
@@ -273,7 +356,7 @@ public class TopicsCommon
 
 			// We only have to send an email if there are users subscribed to the topic
 			if (usersToNotify != null && !usersToNotify.isEmpty()) {
-				Executor.execute(new EmailSenderTask(new TopicReplySpammer(topic, post, usersToNotify)));
+				MailOutbox.enqueue(new TopicReplySpammer(topic, post, usersToNotify));
 			}
 		}
 	}
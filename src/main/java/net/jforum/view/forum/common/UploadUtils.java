@@ -42,9 +42,7 @@
  */
 package net.jforum.view.forum.common;
 
-import java.io.BufferedInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.io.File;
 
 import org.apache.commons.fileupload.FileItem;
 
@@ -80,39 +78,26 @@ public class UploadUtils
 		return item.get();
 	}
 
+	/**
+	 * Writes the file to its place. Files in the temporary directory are moved there when possible,
+	 * and files received in their place, see {@link StoredUpload}, are just kept.
+	 * 
+	 * @param filename the complete path to write to
+	 */
 	public void saveUploadedFile(String filename) 
 	{
-		BufferedInputStream inputStream = null;
-		FileOutputStream outputStream = null;
+		File file = new File(filename);
 
-		try {
-			inputStream = new BufferedInputStream(this.item.getInputStream());
-			outputStream = new FileOutputStream(filename);
+		// Moving the temporary file does not replace an existing one
+		if (!(this.item instanceof StoredUpload) && file.exists() && !file.delete()) {
+			throw new ForumException("Could not replace " + filename);
+		}
 
-			int c;
-			byte[] b = new byte[4096];
-			while ((c = inputStream.read(b)) != -1) {
-				outputStream.write(b, 0, c);
-			}
+		try {
+			this.item.write(file);
 		}
-		catch (IOException e) {
+		catch (Exception e) {
 			throw new ForumException(e);
 		}
-		finally {
-			if (outputStream != null) {
-				try {
-					outputStream.flush();
-					outputStream.close();
-				}
-				catch (IOException e) { }
-			}
-
-			if (inputStream != null) {
-				try {
-					inputStream.close();
-				}
-				catch (IOException e) { }
-			}
-		}
 	}
 }
@@ -219,6 +219,9 @@ public final class UserCommon
 
 		if (errors.isEmpty()) {
 			userDao.update(user);
+
+			// also when an admin changes someone else's email
+			SessionFacade.updateUserEmail(userId, user.getEmail());
 		}
 
 		if (SessionFacade.getUserSession().getUserId() == userId) {
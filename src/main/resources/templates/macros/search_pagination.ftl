@@ -86,9 +86,9 @@
 		<#-- --------- -->
 		<#-- Next page -->
 		<#-- --------- -->
-		<#if (thisPage < totalPages)>
+		<#if (thisPage < totalPages) || nextCursor??>
 			<#assign start = thisPage * recordsPerPage/>
-			<a href="${baseUrl}&amp;start=${start}">&#9658;</a>
+			<a href="${baseUrl}&amp;start=${start}<#if nextCursor??>&amp;search_after=${nextCursor}</#if>">&#9658;</a>
 		</#if>
 
 		<a href="#goto" onclick="return overlay(this, 'goToBox', 'rightbottom');">${I18n.getMessage("ForumIndex.goToGo")}</a>
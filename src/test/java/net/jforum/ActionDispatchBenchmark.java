@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import net.jforum.repository.Tpl;
+
+/**
+ * Compares dispatching an action through {@link ActionTable} with the reflection 
+ * {@link JForum} and {@link Command} used before: creating the command, running an 
+ * existing action and falling back to <code>list()</code> for an unknown one, 
+ * then checking that the template file exists.
+ * Run it from the project directory with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.jforum.ActionDispatchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActionDispatchBenchmark
+{
+	private static final String COMMAND = BenchmarkCommand.class.getName();
+	private static final String TEMPLATE = "default/forum_list.htm";
+
+	private File templates;
+
+	public static class BenchmarkCommand extends Command
+	{
+		int calls;
+
+		@Override public void list()
+		{
+			this.calls++;
+		}
+
+		public void show()
+		{
+			this.calls++;
+		}
+	}
+
+	@Setup public void setup() throws IOException
+	{
+		this.templates = Files.createTempDirectory("templates").toFile();
+		new File(this.templates, "default").mkdir();
+		new File(this.templates, TEMPLATE).createNewFile();
+	}
+
+	@TearDown public void tearDown()
+	{
+		new File(this.templates, TEMPLATE).delete();
+		new File(this.templates, "default").delete();
+		this.templates.delete();
+	}
+
+	@Benchmark public void actionTable(Blackhole bh) throws Throwable
+	{
+		for (String action : new String[] { "show", "unknown" }) {
+			Command command = ActionTable.newCommand(COMMAND);
+			MethodHandle handle = ActionTable.getAction(command.getClass(), action);
+
+			if (handle == null) {
+				command.list();
+			}
+			else {
+				handle.invokeExact(command);
+			}
+
+			bh.consume(Tpl.fileExists(this.templates.getPath(), TEMPLATE));
+			bh.consume(command);
+		}
+	}
+
+	@Benchmark public void reflection(Blackhole bh) throws Exception
+	{
+		for (String action : new String[] { "show", "unknown" }) {
+			Command command = (Command)Class.forName(COMMAND).getDeclaredConstructor().newInstance();
+
+			try {
+				Method method = command.getClass().getMethod(action, new Class<?>[0]);
+				method.invoke(command, new Object[0]);
+			}
+			catch (NoSuchMethodException e) {
+				command.list();
+			}
+
+			bh.consume(new File(this.templates, TEMPLATE).isFile());
+			bh.consume(command);
+		}
+	}
+
+	public static void main(final String[] args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(ActionDispatchBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.context.RequestContext;
+import net.jforum.exceptions.DatabaseException;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+import net.jforum.util.stats.Metrics;
+
+public class JForumExecutionContextTest extends TestCase
+{
+	private static final String URL = "jdbc:hsqldb:mem:executioncontext";
+
+	private static final AtomicInteger OPENED = new AtomicInteger();
+	private static final AtomicInteger RELEASED = new AtomicInteger();
+
+	private Connection keeper;
+
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+
+		// Keeps the in-memory database while the context opens and closes its connections
+		this.keeper = DriverManager.getConnection(URL, "sa", "");
+
+		try (Statement stmt = this.keeper.createStatement()) {
+			stmt.execute("CREATE TABLE IF NOT EXISTS items (id INT)");
+			stmt.execute("DELETE FROM items");
+		}
+
+		SystemGlobals.setValue(ConfigKeys.DATABASE_CONNECTION_IMPLEMENTATION, CountingConnections.class.getName());
+		SystemGlobals.setValue(ConfigKeys.DATABASE_USE_TRANSACTIONS, "true");
+		SystemGlobals.setValue(ConfigKeys.METRICS_ENABLED, "true");
+		assertTrue(DBConnection.createInstance());
+
+		OPENED.set(0);
+		RELEASED.set(0);
+		Metrics.reset();
+		JForumExecutionContext.finish();
+	}
+
+	@After
+	@Override protected void tearDown() throws Exception
+	{
+		JForumExecutionContext.finish();
+		Metrics.reset();
+
+		try (Statement stmt = this.keeper.createStatement()) {
+			stmt.execute("SHUTDOWN");
+		}
+
+		this.keeper.close();
+		super.tearDown();
+	}
+
+	@Test
+	public void testReleaseKeepsTheRestOfTheContext() throws Exception
+	{
+		Connection first = JForumExecutionContext.getConnection();
+		JForumExecutionContext.setRedirect("/forums/list.page");
+
+		JForumExecutionContext.releaseConnection();
+
+		assertEquals(1, RELEASED.get());
+		assertEquals("/forums/list.page", JForumExecutionContext.getRedirectTo());
+
+		// A template that reaches the database gets a new connection
+		Connection second = JForumExecutionContext.getConnection();
+
+		assertNotSame(first, second);
+		assertEquals(2, OPENED.get());
+	}
+
+	@Test
+	public void testReleaseCommits() throws Exception
+	{
+		this.insert();
+		JForumExecutionContext.releaseConnection();
+
+		assertEquals(1, this.countItems());
+	}
+
+	@Test
+	public void testReleaseRollsBack() throws Exception
+	{
+		this.insert();
+		JForumExecutionContext.enableRollback();
+		JForumExecutionContext.releaseConnection();
+
+		assertEquals(0, this.countItems());
+	}
+
+	@Test
+	public void testConnectionTimeIsRecordedByTheInvokedAction()
+	{
+		new TestCommand().process(this.request("list<script>"), null, JForumExecutionContext.newSimpleHash());
+		JForumExecutionContext.releaseConnection();
+
+		assertEquals(1, RELEASED.get());
+		assertTrue(this.hasTimer(Metrics.CONNECTION, "TestCommand.list"));
+		assertFalse(this.hasTimer(Metrics.CONNECTION, "test.list<script>"));
+	}
+
+	@Test
+	public void testBackgroundConnections()
+	{
+		JForumExecutionContext.getConnection();
+		JForumExecutionContext.finish();
+
+		assertTrue(this.hasTimer(Metrics.CONNECTION, "background"));
+	}
+
+	private void insert() throws SQLException
+	{
+		try (Statement stmt = JForumExecutionContext.getConnection().createStatement()) {
+			stmt.executeUpdate("INSERT INTO items (id) VALUES (1)");
+		}
+	}
+
+	private int countItems() throws SQLException
+	{
+		try (Statement stmt = this.keeper.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM items")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	private boolean hasTimer(String group, String name)
+	{
+		for (Metrics.Timer timer : Metrics.getTimers()) {
+			if (group.equals(timer.getGroup()) && name.equals(timer.getName())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private RequestContext request(String action)
+	{
+		return (RequestContext)Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class<?>[] { RequestContext.class },
+			(proxy, method, args) -> {
+				switch (method.getName()) {
+					case "getAction": return action;
+					case "getModule": return "test";
+					default: return null;
+				}
+			});
+	}
+
+	public static class TestCommand extends Command
+	{
+		@Override public void list()
+		{
+			JForumExecutionContext.getConnection();
+			JForumExecutionContext.enableCustomContent(true);
+		}
+	}
+
+	public static class CountingConnections extends DBConnection
+	{
+		@Override public void init()
+		{
+			this.databaseUp = true;
+		}
+
+		@Override public Connection getConnection()
+		{
+			try {
+				OPENED.incrementAndGet();
+				return DriverManager.getConnection(URL, "sa", "");
+			}
+			catch (SQLException e) {
+				throw new DatabaseException(e);
+			}
+		}
+
+		@Override public void releaseConnection(Connection conn)
+		{
+			RELEASED.incrementAndGet();
+			super.releaseConnection(conn);
+		}
+	}
+}
@@ -169,6 +169,32 @@ public class OnlineUsersTest extends TestCase
         }		
     }
 
+    /**
+     * An email changed by an admin reaches all sessions of that user, and no other
+     */
+    @Test
+    public void testEmailChangeReachesAllSessionsOfTheUser()
+    {
+        String[] sessionId = new String[3];
+        SessionFacade.setAttribute("logged", "1");
+        for (int i = 0; i < sessionId.length; i++) {
+            sessionId[i] = "email" + i + "_" + System.currentTimeMillis();
+            this.createUserSession(i == 2 ? 3 : 2, sessionId[i]);
+            SessionFacade.getUserSession(sessionId[i]).setEmail("old@example.com");
+        }
+
+        SessionFacade.updateUserEmail(2, "new@example.com");
+
+        assertEquals("new@example.com", SessionFacade.getUserSession(sessionId[0]).getEmail());
+        assertEquals("new@example.com", SessionFacade.getUserSession(sessionId[1]).getEmail());
+        assertEquals("old@example.com", SessionFacade.getUserSession(sessionId[2]).getEmail());
+
+        // clean up to prevent Cache error
+        for (int i = 0; i < sessionId.length; i++) {
+            SessionFacade.remove(sessionId[i]);
+        }
+    }
+
     private void createUserSession(int userId, String sessionId)
     {
         UserSession us = new UserSession();
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Runs against two in-memory HSQLDB databases, and one 
+ * server URL where nothing listens, for a replica that is down.
+ */
+public class ReplicaConnectionsTest extends TestCase
+{
+	private static final String FIRST = "jdbc:hsqldb:mem:replica1";
+	private static final String SECOND = "jdbc:hsqldb:mem:replica2";
+	private static final String DOWN = "jdbc:hsqldb:hsql://localhost:1/down";
+
+	@Override public void setUp() throws SQLException
+	{
+		createReplica(FIRST, "first");
+		createReplica(SECOND, "second");
+	}
+
+	@Test
+	public void testUsesTheReplicasInTurn() throws SQLException
+	{
+		ReplicaConnections replicas = newReplicas(Arrays.asList(FIRST, SECOND));
+
+		try {
+			Set<String> names = new HashSet<>();
+			names.add(name(replicas));
+			names.add(name(replicas));
+
+			assertEquals(new HashSet<>(Arrays.asList("first", "second")), names);
+		}
+		finally {
+			replicas.close();
+		}
+	}
+
+	@Test
+	public void testSkipsAReplicaThatIsDown() throws SQLException
+	{
+		ReplicaConnections replicas = newReplicas(Arrays.asList(DOWN, FIRST));
+
+		try {
+			for (int i = 0; i < 4; i++) {
+				assertEquals("first", name(replicas));
+			}
+		}
+		finally {
+			replicas.close();
+		}
+	}
+
+	@Test
+	public void testNoReplicaAvailable()
+	{
+		ReplicaConnections replicas = newReplicas(Collections.singletonList(DOWN));
+
+		try {
+			assertTrue(replicas.isEnabled());
+			assertNull(replicas.getConnection());
+		}
+		finally {
+			replicas.close();
+		}
+	}
+
+	@Test
+	public void testReadOnlyActions()
+	{
+		ReplicaConnections replicas = new ReplicaConnections(Collections.<String>emptyList(), null, 0, 0, 0, 0,
+			new HashSet<>(Arrays.asList("forums.show", "rss.*")));
+
+		assertFalse(replicas.isEnabled());
+		assertNull(replicas.getConnection());
+		assertTrue(replicas.isReadOnlyAction("forums", "show"));
+		assertFalse(replicas.isReadOnlyAction("forums", "list"));
+		assertTrue(replicas.isReadOnlyAction("rss", "forumTopics"));
+		assertFalse(replicas.isReadOnlyAction("posts", "insertSave"));
+	}
+
+	private static ReplicaConnections newReplicas(List<String> urls)
+	{
+		return new ReplicaConnections(urls, "org.hsqldb.jdbc.JDBCDriver", 0, 2, 250, 60000, 
+			Collections.<String>emptySet());
+	}
+
+	private static String name(ReplicaConnections replicas) throws SQLException
+	{
+		Connection conn = replicas.getConnection();
+		assertNotNull(conn);
+
+		try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT name FROM replica")) {
+			assertTrue(rs.next());
+			return rs.getString(1);
+		}
+		finally {
+			replicas.releaseConnection(conn);
+		}
+	}
+
+	private static void createReplica(String url, String name) throws SQLException
+	{
+		try (Connection conn = DriverManager.getConnection(url, "SA", ""); Statement stmt = conn.createStatement()) {
+			stmt.execute("DROP TABLE replica IF EXISTS");
+			stmt.execute("CREATE TABLE replica (name VARCHAR(10))");
+			stmt.execute("INSERT INTO replica VALUES ('" + name + "')");
+		}
+	}
+}
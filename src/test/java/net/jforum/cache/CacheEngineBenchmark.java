@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on Oct 18, 2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+/**
+ * Compares the cache engines under concurrent get / add load.
+ * <p>
+ * The key space is populated up front, so writes only replace values and 
+ * never resize the maps - otherwise {@link DefaultCacheEngine} could not 
+ * take part at all. Run it from the project directory with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.jforum.cache.CacheEngineBenchmark
+ * </pre>
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheEngineBenchmark
+{
+	private static final String FQN = "benchmark";
+	private static final int KEYS = 10000;
+	
+	@Param({ "net.jforum.cache.DefaultCacheEngine", "net.jforum.cache.EhCacheEngine", "net.jforum.cache.ConcurrentCacheEngine" })
+	public String engineClass;
+	
+	/** Bounds the region of the concurrent engine, 0 for unbounded */
+	@Param({ "0", "5000" })
+	public int maxEntries;
+	
+	private CacheEngine engine;
+	private String[] keys;
+	
+	@Setup public void setup() throws Exception
+	{
+		SystemGlobals.setValue(ConfigKeys.EHCACHE_CACHE_PROPERTIES, "src/main/config/ehcache.xml");
+		SystemGlobals.setValue(ConfigKeys.CACHE_CONCURRENT_MAX_ENTRIES, Integer.toString(this.maxEntries));
+		SystemGlobals.setValue(ConfigKeys.CACHE_CONCURRENT_TTL, "0");
+		
+		this.engine = (CacheEngine)Class.forName(this.engineClass).getDeclaredConstructor().newInstance();
+		this.engine.init();
+		
+		this.keys = new String[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			this.keys[i] = Integer.toString(i);
+			this.engine.add(FQN, this.keys[i], Integer.valueOf(i));
+		}
+	}
+	
+	@TearDown public void tearDown()
+	{
+		this.engine.stop();
+	}
+	
+	@Benchmark @Group("readMostly") @GroupThreads(7)
+	public Object readMostlyGet()
+	{
+		return this.engine.get(FQN, this.randomKey());
+	}
+	
+	@Benchmark @Group("readMostly") @GroupThreads(1)
+	public void readMostlyAdd()
+	{
+		final String key = this.randomKey();
+		this.engine.add(FQN, key, key);
+	}
+	
+	@Benchmark @Group("mixed") @GroupThreads(4)
+	public Object mixedGet()
+	{
+		return this.engine.get(FQN, this.randomKey());
+	}
+	
+	@Benchmark @Group("mixed") @GroupThreads(4)
+	public void mixedAdd()
+	{
+		final String key = this.randomKey();
+		this.engine.add(FQN, key, key);
+	}
+	
+	private String randomKey()
+	{
+		return this.keys[ThreadLocalRandom.current().nextInt(KEYS)];
+	}
+	
+	public static void main(final String[] args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(CacheEngineBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Created on 18/10/2026
+ */
+package net.jforum.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentCacheEngineTest extends TestCase
+{
+	private ConcurrentCacheEngine engine;
+	
+	@Before
+	@Override public void setUp()
+	{
+		SystemGlobals.setValue(ConfigKeys.CACHE_CONCURRENT_MAX_ENTRIES, "0");
+		SystemGlobals.setValue(ConfigKeys.CACHE_CONCURRENT_TTL, "0");
+		SystemGlobals.setValue(ConfigKeys.CACHE_CONCURRENT_MAX_ENTRIES + ".bounded", "3");
+		SystemGlobals.setValue(ConfigKeys.CACHE_CONCURRENT_TTL + ".expiring", "1");
+		
+		this.engine = new ConcurrentCacheEngine();
+		this.engine.init();
+	}
+	
+	@Test
+	public void testAddAndGet()
+	{
+		this.engine.add("fqn", "a", "1");
+		this.engine.add("fqn", "a", "2");
+		this.engine.add("key", "3");
+		
+		assertEquals("2", this.engine.get("fqn", "a"));
+		assertEquals("3", this.engine.get(CacheEngine.DUMMY_FQN, "key"));
+		assertNull(this.engine.get("fqn", "b"));
+		assertNull(this.engine.get("other", "a"));
+	}
+	
+	@Test
+	public void testGetFqnAndValues()
+	{
+		assertNull(this.engine.get("fqn"));
+		
+		this.engine.add("fqn", "a", "1");
+		this.engine.add("fqn", "b", "2");
+		
+		Map<?, ?> map = (Map<?, ?>)this.engine.get("fqn");
+		assertEquals(2, map.size());
+		assertEquals("1", map.get("a"));
+		
+		Collection<Object> values = this.engine.getValues("fqn");
+		assertEquals(2, values.size());
+		assertTrue(values.contains("2"));
+		assertTrue(this.engine.getValues("other").isEmpty());
+	}
+	
+	@Test
+	public void testRemove()
+	{
+		this.engine.add("fqn", "a", "1");
+		this.engine.add("fqn", "b", "2");
+		
+		this.engine.remove("fqn", "a");
+		assertNull(this.engine.get("fqn", "a"));
+		assertEquals("2", this.engine.get("fqn", "b"));
+		
+		this.engine.remove("fqn");
+		assertNull(this.engine.get("fqn", "b"));
+		assertTrue(this.engine.getValues("fqn").isEmpty());
+	}
+	
+	@Test
+	public void testBoundedRegionEvictsNotRecentlyUsed()
+	{
+		this.engine.add("bounded", "a", "1");
+		this.engine.add("bounded", "b", "2");
+		this.engine.add("bounded", "c", "3");
+		
+		// Give "a" a second chance
+		assertEquals("1", this.engine.get("bounded", "a"));
+		
+		this.engine.add("bounded", "d", "4");
+		
+		assertEquals(3, this.engine.getValues("bounded").size());
+		assertEquals("1", this.engine.get("bounded", "a"));
+		assertNull(this.engine.get("bounded", "b"));
+		assertEquals("4", this.engine.get("bounded", "d"));
+		
+		CacheStatistics stats = this.statisticsFor("bounded");
+		assertEquals(3, stats.getMaxEntries());
+		assertEquals(1, stats.getEvictions());
+	}
+	
+	@Test
+	public void testUnboundedRegionNeverEvicts()
+	{
+		for (int i = 0; i < 1000; i++) {
+			this.engine.add("fqn", Integer.toString(i), Integer.valueOf(i));
+		}
+		
+		assertEquals(1000, this.engine.getValues("fqn").size());
+	}
+	
+	@Test
+	public void testExpiredEntriesAreNotReturned() throws InterruptedException
+	{
+		this.engine.add("expiring", "a", "1");
+		assertEquals("1", this.engine.get("expiring", "a"));
+		
+		Thread.sleep(1100);
+		
+		assertNull(this.engine.get("expiring", "a"));
+		assertEquals(1, this.statisticsFor("expiring").getExpirations());
+	}
+	
+	@Test
+	public void testHitAndMissCounters()
+	{
+		this.engine.add("fqn", "a", "1");
+		this.engine.get("fqn", "a");
+		this.engine.get("fqn", "a");
+		this.engine.get("fqn", "b");
+		
+		CacheStatistics stats = this.statisticsFor("fqn");
+		assertEquals(2, stats.getHits());
+		assertEquals(1, stats.getMisses());
+		assertEquals(1, stats.getSize());
+	}
+	
+	private CacheStatistics statisticsFor(String fqn)
+	{
+		for (CacheStatistics stats : this.engine.getStatistics()) {
+			if (stats.getFqn().equals(fqn)) {
+				return stats;
+			}
+		}
+		
+		fail("No statistics for " + fqn);
+		return null;
+	}
+}
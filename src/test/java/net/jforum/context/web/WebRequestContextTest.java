@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.context.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemStream;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.TestCaseUtils;
+import net.jforum.exceptions.MultipartHandlingException;
+import net.jforum.http.FakeMultipartRequest;
+import net.jforum.view.forum.common.StoredUpload;
+
+public class WebRequestContextTest extends TestCase
+{
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+	}
+
+	@Test
+	public void testFilesAreGivenToTheReceiver() throws IOException
+	{
+		RecordingReceiver receiver = new RecordingReceiver();
+		WebRequestContext request = new WebRequestContext(new FakeMultipartRequest()
+			.field("module", "posts")
+			.field("total_files", "1")
+			.file("file_0", "a.txt", "first file")
+			.file("avatar", "b.txt", "second file")
+			.field("message", "after the files"), receiver);
+
+		assertEquals("posts", request.getParameter("module"));
+		assertEquals("after the files", request.getParameter("message"));
+		assertEquals(1, receiver.received.size());
+		assertSame(receiver.received.get(0), request.getObjectParameter("file_0"));
+		assertEquals("second file", ((FileItem)request.getObjectParameter("avatar")).getString());
+
+		File file = receiver.received.get(0).getFile();
+		assertEquals("first file", new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+
+		request.deleteUploads();
+
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void testFileSkippedByTheReceiver() throws IOException
+	{
+		RecordingReceiver receiver = new RecordingReceiver();
+		receiver.skip = true;
+
+		WebRequestContext request = new WebRequestContext(new FakeMultipartRequest()
+			.file("file_0", "a.txt", "not read")
+			.field("message", "after the file"), receiver);
+
+		assertNull(request.getObjectParameter("file_0"));
+		assertEquals("after the file", request.getParameter("message"));
+	}
+
+	@Test
+	public void testFailedReceiveDeletesEarlierUploads() throws IOException
+	{
+		RecordingReceiver receiver = new RecordingReceiver();
+		receiver.failOn = "file_1";
+
+		try {
+			new WebRequestContext(new FakeMultipartRequest()
+				.file("file_0", "a.txt", "kept until the failure")
+				.file("file_1", "b.txt", "rejected"), receiver);
+			fail("The upload should have failed");
+		}
+		catch (IOException e) {
+			assertEquals("rejected", e.getMessage());
+		}
+
+		assertEquals(1, receiver.received.size());
+		assertFalse(receiver.received.get(0).getFile().exists());
+	}
+
+	@Test
+	public void testTooManyParts() throws IOException
+	{
+		RecordingReceiver receiver = new RecordingReceiver();
+		FakeMultipartRequest multipart = new FakeMultipartRequest().file("file_0", "a.txt", "uploaded");
+
+		for (int i = 0; i < 100; i++) {
+			multipart.field("field" + i, "value");
+		}
+
+		try {
+			new WebRequestContext(multipart, receiver);
+			fail("More than 100 parts should be refused");
+		}
+		catch (MultipartHandlingException e) {
+			assertTrue(e.getMessage().contains("more than 100 parts"));
+		}
+
+		assertFalse(receiver.received.get(0).getFile().exists());
+	}
+
+	/**
+	 * Stores the files of the <code>file_*</code> fields in the temporary directory
+	 */
+	private static class RecordingReceiver implements UploadReceiver
+	{
+		final List<StoredUpload> received = new ArrayList<>();
+		boolean skip;
+		String failOn;
+
+		@Override public boolean accepts(WebRequestContext request, String fieldName)
+		{
+			return fieldName.startsWith("file_");
+		}
+
+		@Override public FileItem receive(WebRequestContext request, FileItemStream part) throws IOException
+		{
+			if (this.skip) {
+				return null;
+			}
+
+			if (part.getFieldName().equals(this.failOn)) {
+				throw new IOException("rejected");
+			}
+
+			File file = File.createTempFile("upload", null);
+			long size;
+
+			try (InputStream in = part.openStream()) {
+				size = Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			StoredUpload upload = new StoredUpload(part.getFieldName(), part.getName(), part.getContentType(), 
+				file, file.getName(), size, null, true);
+			this.received.add(upload);
+
+			return upload;
+		}
+	}
+}
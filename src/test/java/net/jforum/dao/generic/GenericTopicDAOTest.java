@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.dao.generic;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.JForumExecutionContext;
+import net.jforum.TestCaseUtils;
+import net.jforum.entities.Topic;
+import net.jforum.util.TopicTypeComparator;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+public class GenericTopicDAOTest extends TestCase
+{
+	private static final long BASE = 1_000_000_000_000L;
+
+	private Connection conn;
+
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+		SystemGlobals.loadQueries(SystemGlobals.getValue(ConfigKeys.SQL_QUERIES_GENERIC));
+
+		this.conn = DriverManager.getConnection("jdbc:hsqldb:mem:topics" + System.nanoTime(), "sa", "");
+		this.createTables("jforum_topics", "jforum_posts", "jforum_users");
+
+		try (Statement stmt = this.conn.createStatement()) {
+			stmt.executeUpdate("INSERT INTO jforum_users (user_id, username) VALUES (1, 'admin')");
+		}
+
+		this.insertTopic(1, 1, Topic.TYPE_NORMAL, 1000, null, 0);
+		this.insertTopic(2, 1, Topic.TYPE_STICKY, 500, null, 0);
+		this.insertTopic(3, 1, Topic.TYPE_ANNOUNCE, 100, null, 0);
+		// Wiki pages are listed as normal topics, by the time of their last edit
+		this.insertTopic(4, 1, Topic.TYPE_WIKI, 50, Integer.valueOf(3000), 0);
+		this.insertTopic(5, 1, Topic.TYPE_NORMAL, 2000, null, 0);
+		this.insertTopic(6, 1, Topic.TYPE_NORMAL, 2000, null, 0);
+		this.insertTopic(7, 2, Topic.TYPE_NORMAL, 1500, null, 0);
+		this.insertTopic(8, 1, Topic.TYPE_NORMAL, 1500, null, 1);
+
+		JForumExecutionContext ex = JForumExecutionContext.get();
+		ex.setConnection(this.conn);
+		JForumExecutionContext.set(ex);
+	}
+
+	@After
+	@Override protected void tearDown() throws Exception
+	{
+		JForumExecutionContext.get().setConnection(null);
+		JForumExecutionContext.finish();
+
+		try (Statement stmt = this.conn.createStatement()) {
+			stmt.execute("SHUTDOWN");
+		}
+
+		this.conn.close();
+		super.tearDown();
+	}
+
+	@Test
+	public void testListsTopicsInTheListingOrder()
+	{
+		List<Topic> topics = new GenericTopicDAO().selectAllByForumAfter(1, null, 100);
+
+		assertEquals(Arrays.asList(3, 2, 4, 6, 5, 1), this.ids(topics));
+	}
+
+	@Test
+	public void testPagesStartAfterTheGivenTopic()
+	{
+		GenericTopicDAO dao = new GenericTopicDAO();
+		List<Integer> ids = new ArrayList<>();
+		List<Topic> page = dao.selectAllByForumAfter(1, null, 2);
+
+		while (!page.isEmpty()) {
+			assertTrue(page.size() <= 2);
+			ids.addAll(this.ids(page));
+			page = dao.selectAllByForumAfter(1, page.get(page.size() - 1), 2);
+		}
+
+		// Topics 6 and 5 have the same last post time, and are split by the id
+		assertEquals(Arrays.asList(3, 2, 4, 6, 5, 1), ids);
+	}
+
+	@Test
+	public void testStartsAfterAWikiPageByItsEditTime()
+	{
+		GenericTopicDAO dao = new GenericTopicDAO();
+		Topic wiki = dao.selectAllByForumAfter(1, null, 3).get(2);
+
+		assertEquals(4, wiki.getId());
+		assertEquals(Arrays.asList(6, 5, 1), this.ids(dao.selectAllByForumAfter(1, wiki, 10)));
+	}
+
+	@Test
+	public void testEditedTopicKeepsItsPlaceAfterTheCache() throws Exception
+	{
+		// Only wiki pages are sorted by the edit time of their last post
+		this.insertTopic(9, 1, Topic.TYPE_NORMAL, 1500, Integer.valueOf(2500), 0);
+
+		GenericTopicDAO dao = new GenericTopicDAO();
+		List<Topic> all = dao.selectAllByForumAfter(1, null, 100);
+		assertEquals(Arrays.asList(3, 2, 4, 6, 5, 9, 1), this.ids(all));
+
+		// The cache sorts the same way, even when it knows the edit time of a normal topic
+		Topic edited = all.get(5);
+		edited.setLastEditTime(new Timestamp(BASE + 2500 * 1000L));
+		List<Topic> sorted = new ArrayList<>(all);
+		sorted.sort(new TopicTypeComparator());
+		assertEquals(this.ids(all), this.ids(sorted));
+
+		// Wherever the cached topics end, the database goes on with the next one
+		for (int cached = 1; cached < all.size(); cached++) {
+			List<Topic> rest = dao.selectAllByForumAfter(1, all.get(cached - 1), 100);
+			assertEquals(this.ids(all.subList(cached, all.size())), this.ids(rest));
+		}
+	}
+
+	private void createTables(String... tables) throws Exception
+	{
+		File struct = new File(SystemGlobals.getValue(ConfigKeys.CONFIG_DIR), "database/hsqldb/hsqldb_db_struct.sql");
+		String sql = new String(Files.readAllBytes(struct.toPath()), StandardCharsets.UTF_8);
+
+		try (Statement stmt = this.conn.createStatement()) {
+			for (String table : tables) {
+				int start = sql.indexOf("CREATE TABLE " + table + " (");
+				stmt.execute(sql.substring(start, sql.indexOf(';', start)));
+			}
+		}
+	}
+
+	private void insertTopic(int id, int forumId, int type, int postTime, Integer editTime, int needModerate) throws Exception
+	{
+		try (PreparedStatement pstmt = this.conn.prepareStatement("INSERT INTO jforum_topics "
+				+ "(topic_id, forum_id, topic_title, user_id, topic_type, topic_first_post_id, topic_last_post_id) "
+				+ "VALUES (?, ?, ?, 1, ?, ?, ?)")) {
+			pstmt.setInt(1, id);
+			pstmt.setInt(2, forumId);
+			pstmt.setString(3, "Topic " + id);
+			pstmt.setInt(4, type);
+			pstmt.setInt(5, id);
+			pstmt.setInt(6, id);
+			pstmt.executeUpdate();
+		}
+
+		try (PreparedStatement pstmt = this.conn.prepareStatement("INSERT INTO jforum_posts "
+				+ "(post_id, topic_id, forum_id, user_id, post_time, post_edit_time, need_moderate) VALUES (?, ?, ?, 1, ?, ?, ?)")) {
+			pstmt.setInt(1, id);
+			pstmt.setInt(2, id);
+			pstmt.setInt(3, forumId);
+			pstmt.setTimestamp(4, new Timestamp(BASE + postTime * 1000L));
+			pstmt.setTimestamp(5, editTime == null ? null : new Timestamp(BASE + editTime.intValue() * 1000L));
+			pstmt.setInt(6, needModerate);
+			pstmt.executeUpdate();
+		}
+	}
+
+	private List<Integer> ids(List<Topic> topics)
+	{
+		List<Integer> ids = new ArrayList<>();
+
+		for (Topic topic : topics) {
+			ids.add(Integer.valueOf(topic.getId()));
+		}
+
+		return ids;
+	}
+}
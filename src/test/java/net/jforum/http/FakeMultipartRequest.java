@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+
+/**
+ * A POST with a multipart/form-data body, built part after part
+ */
+public class FakeMultipartRequest extends FakeHttpRequest
+{
+	private static final String BOUNDARY = "----jforum-test-boundary";
+
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+	public FakeMultipartRequest field(String name, String value)
+	{
+		this.write("--" + BOUNDARY + "\r\n"
+			+ "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+			+ value + "\r\n");
+		return this;
+	}
+
+	public FakeMultipartRequest file(String name, String filename, String content)
+	{
+		this.write("--" + BOUNDARY + "\r\n"
+			+ "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+			+ "Content-Type: application/octet-stream\r\n\r\n"
+			+ content + "\r\n");
+		return this;
+	}
+
+	private void write(String s)
+	{
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		this.body.write(bytes, 0, bytes.length);
+	}
+
+	private byte[] bytes()
+	{
+		return (this.body.toString() + "--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override public String getMethod()
+	{
+		return "POST";
+	}
+
+	@Override public String getRequestURI()
+	{
+		return "/jforum.page";
+	}
+
+	@Override public String getContentType()
+	{
+		return "multipart/form-data; boundary=" + BOUNDARY;
+	}
+
+	@Override public int getContentLength()
+	{
+		return this.bytes().length;
+	}
+
+	@Override public long getContentLengthLong()
+	{
+		return this.bytes().length;
+	}
+
+	@Override public String getCharacterEncoding()
+	{
+		return "UTF-8";
+	}
+
+	@Override public ServletInputStream getInputStream() throws IOException
+	{
+		final ByteArrayInputStream in = new ByteArrayInputStream(this.bytes());
+
+		return new ServletInputStream() {
+			@Override public int read()
+			{
+				return in.read();
+			}
+
+			@Override public int read(byte[] b, int off, int len)
+			{
+				return in.read(b, off, len);
+			}
+
+			@Override public boolean isFinished()
+			{
+				return in.available() == 0;
+			}
+
+			@Override public boolean isReady()
+			{
+				return true;
+			}
+
+			@Override public void setReadListener(ReadListener listener)
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import net.jforum.entities.Banlist;
+
+public class BanlistIndexTest extends TestCase
+{
+	@Test
+	public void testWildcardsBehaveAsTheBanlistEntity()
+	{
+		String[][] cases = {
+			{ "*.*.*.*", "172.55.7.2" },
+			{ "172.*.7.2", "172.55.7.2" },
+			{ "*.168.7.*", "172.168.7.2" },
+			{ "*.168.7.*", "172.168.1.2" },
+			{ "192.168.7.*", "192.168.1.2" },
+			{ "192.168.7", "192.168.1.2" },
+			{ "192.168.1.1", "192.168.1.1" },
+			{ "192.168.1.1", "192.168.1.2" },
+			{ "192.168.*.*", "192.168.200.3" },
+			{ "192.168.*.*", "192.169.0.3" },
+		};
+
+		for (String[] c : cases) {
+			Banlist entry = this.newBanlist(0, null, c[0]);
+			boolean expected = entry.matches(this.newBanlist(0, null, c[1]));
+
+			assertEquals(c[0] + " vs " + c[1], expected, this.index(entry).matches(0, null, c[1]));
+		}
+	}
+
+	@Test
+	public void testCidrIPv4()
+	{
+		BanlistIndex index = this.index(this.newBanlist(0, null, "10.20.0.0/14"));
+
+		assertTrue(index.matches(0, null, "10.20.0.1"));
+		assertTrue(index.matches(0, null, "10.23.255.255"));
+		assertFalse(index.matches(0, null, "10.24.0.0"));
+		assertFalse(index.matches(0, null, "10.19.255.255"));
+	}
+
+	@Test
+	public void testIPv6ExactAndCidr()
+	{
+		BanlistIndex index = this.index(
+			this.newBanlist(0, null, "2001:db8::/32"),
+			this.newBanlist(0, null, "fe80::1"));
+
+		assertTrue(index.matches(0, null, "2001:0db8:1234::5"));
+		assertFalse(index.matches(0, null, "2001:db9::5"));
+		assertTrue(index.matches(0, null, "fe80:0:0:0:0:0:0:1"));
+		assertFalse(index.matches(0, null, "fe80::2"));
+		assertFalse(index.matches(0, null, "10.0.0.1"));
+	}
+
+	@Test
+	public void testIPv4MappedAddressMatchesIPv4Entry()
+	{
+		BanlistIndex index = this.index(this.newBanlist(0, null, "192.0.2.7"));
+
+		assertTrue(index.matches(0, null, "::ffff:192.0.2.7"));
+	}
+
+	@Test
+	public void testUserIdAndEmail()
+	{
+		BanlistIndex index = this.index(
+			this.newBanlist(2, null, null),
+			this.newBanlist(0, "email@2", null));
+
+		assertTrue(index.matches(2, null, "127.0.0.1"));
+		assertFalse(index.matches(3, null, "127.0.0.1"));
+		assertTrue(index.matches(3, "email@2", null));
+		assertFalse(index.matches(3, "email@3", null));
+		assertFalse(index.matches(0, null, null));
+	}
+
+	@Test
+	public void testNonAddressEntryIsComparedAsText()
+	{
+		BanlistIndex index = this.index(this.newBanlist(0, null, "Some.Proxy.Example"));
+
+		assertTrue(index.matches(0, null, "some.proxy.example"));
+		assertFalse(index.matches(0, null, "other.proxy.example"));
+		assertNull(BanlistIndex.parseAddress("localhost:8080"));
+	}
+
+	private BanlistIndex index(Banlist... entries)
+	{
+		List<Banlist> list = new ArrayList<>();
+
+		for (Banlist entry : entries) {
+			list.add(entry);
+		}
+
+		return BanlistIndex.build(list);
+	}
+
+	private Banlist newBanlist(int userId, String email, String ip) {
+		Banlist b = new Banlist();
+		
+		b.setUserId(userId);
+		b.setEmail(email);
+		b.setIp(ip);
+		
+		return b;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import net.jforum.entities.Topic;
+import net.jforum.util.TopicTypeComparator;
+
+public class ForumTopicIndexTest extends TestCase
+{
+	@Test
+	public void testKeepsTheComparatorOrder()
+	{
+		List<Topic> topics = Arrays.asList(
+			this.newTopic(1, Topic.TYPE_NORMAL, 100),
+			this.newTopic(2, Topic.TYPE_ANNOUNCE, 10),
+			this.newTopic(3, Topic.TYPE_WIKI, 300),
+			this.newTopic(4, Topic.TYPE_STICKY, 50),
+			this.newTopic(5, Topic.TYPE_NORMAL, 200));
+
+		ForumTopicIndex index = new ForumTopicIndex(topics);
+		List<Topic> expected = new ArrayList<>(topics);
+		expected.sort(new TopicTypeComparator());
+
+		assertEquals(expected, index.getTopics());
+	}
+
+	@Test
+	public void testNewReplyMovesTheTopic()
+	{
+		ForumTopicIndex index = new ForumTopicIndex(Arrays.asList(
+			this.newTopic(1, Topic.TYPE_NORMAL, 300),
+			this.newTopic(2, Topic.TYPE_NORMAL, 200),
+			this.newTopic(3, Topic.TYPE_NORMAL, 100)));
+
+		List<Topic> before = index.getTopics();
+
+		// The cached instance itself changes, as when a reply is posted
+		Topic topic = index.get(3);
+		topic.setLastPostDate(new Date(400));
+		assertTrue(index.add(topic, 3));
+
+		assertEquals(3, index.size());
+		assertEquals(Arrays.asList(3, 1, 2), this.ids(index.getTopics()));
+		assertEquals(Arrays.asList(1, 2, 3), this.ids(before));
+	}
+
+	@Test
+	public void testFullIndexDropsTheLastTopic()
+	{
+		ForumTopicIndex index = new ForumTopicIndex(Arrays.asList(
+			this.newTopic(1, Topic.TYPE_NORMAL, 300),
+			this.newTopic(2, Topic.TYPE_NORMAL, 200)));
+
+		assertTrue(index.add(this.newTopic(3, Topic.TYPE_NORMAL, 400), 2));
+		assertEquals(Arrays.asList(3, 1), this.ids(index.getTopics()));
+		assertFalse(index.contains(2));
+		assertNull(index.get(2));
+	}
+
+	@Test
+	public void testTopicMovedToTheEndOfAFullIndexClearsIt()
+	{
+		ForumTopicIndex index = new ForumTopicIndex(Arrays.asList(
+			this.newTopic(1, Topic.TYPE_STICKY, 100),
+			this.newTopic(2, Topic.TYPE_NORMAL, 200)));
+
+		Topic topic = this.newTopic(1, Topic.TYPE_NORMAL, 100);
+
+		assertFalse(index.update(topic, 2));
+		assertTrue(index.getTopics().isEmpty());
+	}
+
+	@Test
+	public void testUpdateIgnoresTopicsNotInTheIndex()
+	{
+		ForumTopicIndex index = new ForumTopicIndex(Arrays.asList(this.newTopic(1, Topic.TYPE_NORMAL, 100)));
+
+		assertTrue(index.update(this.newTopic(2, Topic.TYPE_NORMAL, 200), 10));
+		assertEquals(Arrays.asList(1), this.ids(index.getTopics()));
+	}
+
+	private List<Integer> ids(List<Topic> topics)
+	{
+		List<Integer> ids = new ArrayList<>();
+
+		for (Topic topic : topics) {
+			ids.add(Integer.valueOf(topic.getId()));
+		}
+
+		return ids;
+	}
+
+	private Topic newTopic(int id, int type, long time)
+	{
+		Topic topic = new Topic(id);
+		topic.setType(type);
+		topic.setLastPostDate(new Date(time));
+
+		return topic;
+	}
+}
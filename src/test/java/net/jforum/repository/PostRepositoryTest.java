@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.ConfigLoader;
+import net.jforum.TestCaseUtils;
+import net.jforum.cache.ConcurrentCacheEngine;
+import net.jforum.dao.DataAccessDriver;
+import net.jforum.dao.PostDAO;
+import net.jforum.dao.generic.GenericDataAccessDriver;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+public class PostRepositoryTest extends TestCase
+{
+	private final AtomicInteger loads = new AtomicInteger();
+	private DataAccessDriver driver;
+
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+		SystemGlobals.setValue(ConfigKeys.POSTS_CACHE_SIZE, "3");
+
+		// cache.concurrent.max.entries.posts follows posts.cache.size
+		ConcurrentCacheEngine cache = new ConcurrentCacheEngine();
+		cache.init();
+		new PostRepository().setCacheEngine(cache);
+
+		// Topics have no posts, only the loads are counted
+		PostDAO dao = (PostDAO) Proxy.newProxyInstance(PostDAO.class.getClassLoader(), new Class<?>[] { PostDAO.class }, 
+			(proxy, method, args) -> {
+				if ("selectAllByTopic".equals(method.getName())) {
+					this.loads.incrementAndGet();
+					return new ArrayList<>();
+				}
+				throw new UnsupportedOperationException(method.getName());
+			});
+
+		// GenericDataAccessDriver's user DAO wants it
+		ConfigLoader.createLoginAuthenticator();
+		this.driver = DataAccessDriver.getInstance();
+		DataAccessDriver.init(new GenericDataAccessDriver() {
+			@Override public PostDAO newPostDAO()
+			{
+				return dao;
+			}
+		});
+	}
+
+	@After
+	@Override protected void tearDown() throws Exception
+	{
+		DataAccessDriver.init(this.driver);
+		super.tearDown();
+	}
+
+	@Test
+	public void testEngineBoundsTheTopics()
+	{
+		this.load(1, 2, 3, 4, 5);
+
+		assertEquals(3, PostRepository.size());
+		assertTrue(PostRepository.cachedTopics().contains("5"));
+		assertEquals(5, this.loads.get());
+	}
+
+	@Test
+	public void testClearedTopicIsLoadedAgain()
+	{
+		this.load(1);
+		PostRepository.clearCache(1);
+
+		assertEquals(0, PostRepository.size());
+		this.load(1);
+		assertEquals(2, this.loads.get());
+	}
+
+	private void load(int... topicIds)
+	{
+		for (int topicId : topicIds) {
+			PostRepository.selectAllByTopicByLimit(topicId, 0, 10);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.TestCaseUtils;
+import net.jforum.cache.DefaultCacheEngine;
+import net.jforum.entities.Post;
+import net.jforum.util.bbcode.BBCodeHandler;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+public class RenderedPostStoreTest extends TestCase
+{
+	private File dir;
+
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+
+		this.dir = Files.createTempDirectory("rendered").toFile();
+		SystemGlobals.setValue(ConfigKeys.POSTS_RENDERED_CACHE_ENABLED, "true");
+		SystemGlobals.setValue(ConfigKeys.POSTS_RENDERED_CACHE_DIR, this.dir.getPath());
+		SystemGlobals.setValue(ConfigKeys.POSTS_RENDERED_CACHE_MAX_SIZE, "0");
+
+		DefaultCacheEngine cache = new DefaultCacheEngine();
+		cache.init();
+		new BBCodeRepository().setCacheEngine(cache);
+		new SmiliesRepository().setCacheEngine(cache);
+		cache.add("smilies", "entries", new ArrayList<>());
+
+		BBCodeRepository.setBBCollection(new BBCodeHandler().parse());
+		RenderedPostStore.invalidate();
+	}
+
+	@After
+	@Override protected void tearDown() throws Exception
+	{
+		try (Stream<File> files = Files.walk(this.dir.toPath()).map(path -> path.toFile())) {
+			files.sorted(Comparator.reverseOrder()).forEach(File::delete);
+		}
+
+		super.tearDown();
+	}
+
+	@Test
+	public void testLoadsTheStoredPost()
+	{
+		RenderedPostStore.store(this.newPost(1, "[b]bold[/b]"), this.newPost(1, "<b>bold</b>"));
+
+		Post post = this.newPost(1, "[b]bold[/b]");
+
+		assertTrue(RenderedPostStore.load(post));
+		assertEquals("<b>bold</b>", post.getText());
+	}
+
+	@Test
+	public void testEditedPostMisses()
+	{
+		RenderedPostStore.store(this.newPost(1, "[b]bold[/b]"), this.newPost(1, "<b>bold</b>"));
+
+		Post post = this.newPost(1, "[b]bold[/b]");
+		post.setEditTime(new Date(2000));
+
+		assertFalse(RenderedPostStore.load(post));
+		assertEquals("[b]bold[/b]", post.getText());
+	}
+
+	@Test
+	public void testStartDeletesOtherVersions() throws Exception
+	{
+		File stale = new File(this.dir, "0123456789abcdef");
+		File other = new File(this.dir, "backup");
+		assertTrue(new File(stale, "0").mkdirs());
+		assertTrue(other.mkdirs());
+		Files.write(new File(stale, "0/1").toPath(), new byte[] { 1 });
+
+		RenderedPostStore.start();
+
+		for (int i = 0; i < 50 && stale.exists(); i++) {
+			Thread.sleep(100);
+		}
+
+		assertFalse(stale.exists());
+		assertTrue(other.exists());
+	}
+
+	@Test
+	public void testTrimDeletesTheOldestEntries() throws IOException
+	{
+		char[] text = new char[200 * 1024];
+		Arrays.fill(text, 'a');
+
+		for (int id = 1; id <= 10; id++) {
+			RenderedPostStore.store(this.newPost(id, "source"), this.newPost(id, new String(text)));
+			assertTrue(RenderedPostStore.entryFile(id).setLastModified(1_000_000_000_000L + id * 1000L));
+		}
+
+		SystemGlobals.setValue(ConfigKeys.POSTS_RENDERED_CACHE_MAX_SIZE, "1");
+		RenderedPostStore.trim();
+
+		for (int id = 1; id <= 7; id++) {
+			assertFalse("post " + id, RenderedPostStore.entryFile(id).exists());
+		}
+
+		for (int id = 8; id <= 10; id++) {
+			assertTrue("post " + id, RenderedPostStore.load(this.newPost(id, "source")));
+		}
+	}
+
+	private Post newPost(int id, String text)
+	{
+		Post post = new Post(id);
+		post.setSubject("Subject");
+		post.setText(text);
+		post.setTime(new Date(1000));
+		return post;
+	}
+}
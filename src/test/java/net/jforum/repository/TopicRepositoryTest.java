@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.TestCaseUtils;
+import net.jforum.cache.DefaultCacheEngine;
+import net.jforum.entities.Topic;
+
+public class TopicRepositoryTest extends TestCase
+{
+	private static final int FORUM_ID = 1;
+
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+
+		DefaultCacheEngine cache = new DefaultCacheEngine();
+		cache.init();
+		new TopicRepository().setCacheEngine(cache);
+
+		TopicRepository.addAll(FORUM_ID, Arrays.asList(this.newTopic(1, 300), this.newTopic(2, 200)));
+	}
+
+	@Test
+	public void testFindsTheClosestAnchor()
+	{
+		TopicRepository.addPageAnchor(FORUM_ID, 60, this.newTopic(3, 100));
+		TopicRepository.addPageAnchor(FORUM_ID, 90, this.newTopic(4, 50));
+
+		assertEquals(Integer.valueOf(60), TopicRepository.getPageAnchor(FORUM_ID, 75).getKey());
+		assertNull(TopicRepository.getPageAnchor(FORUM_ID, 45));
+	}
+
+	@Test
+	public void testNewTopicClearsTheAnchors()
+	{
+		TopicRepository.addPageAnchor(FORUM_ID, 60, this.newTopic(3, 100));
+		TopicRepository.addTopic(this.newTopic(5, 400));
+
+		assertNull(TopicRepository.getPageAnchor(FORUM_ID, 60));
+	}
+
+	@Test
+	public void testUpdatedTopicClearsTheAnchors()
+	{
+		TopicRepository.addPageAnchor(FORUM_ID, 60, this.newTopic(3, 100));
+		TopicRepository.updateTopic(this.newTopic(2, 500));
+
+		assertNull(TopicRepository.getPageAnchor(FORUM_ID, 60));
+	}
+
+	@Test
+	public void testOtherForumsKeepTheirAnchors()
+	{
+		TopicRepository.addPageAnchor(FORUM_ID + 1, 60, this.newTopic(3, 100));
+		TopicRepository.addTopic(this.newTopic(5, 400));
+
+		assertNotNull(TopicRepository.getPageAnchor(FORUM_ID + 1, 60));
+	}
+
+	private Topic newTopic(int id, long lastPost)
+	{
+		Topic topic = new Topic(id);
+		topic.setForumId(FORUM_ID);
+		topic.setType(Topic.TYPE_NORMAL);
+		topic.setLastPostDate(new Date(lastPost));
+		return topic;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.TestCaseUtils;
+import net.jforum.util.preferences.ConfigKeys;
+
+public class WriteBehindCounterTest extends TestCase
+{
+	private final Map<Integer, Integer> written = new ConcurrentHashMap<>();
+	private final AtomicBoolean failing = new AtomicBoolean();
+	private WriteBehindCounter counter;
+
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+
+		this.counter = new WriteBehindCounter("test events", ConfigKeys.TOPIC_VIEWS_FLUSH_INTERVAL, deltas -> {
+			if (this.failing.get()) {
+				throw new IllegalStateException("database is down");
+			}
+
+			for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+				this.written.merge(entry.getKey(), entry.getValue(), Integer::sum);
+			}
+		});
+	}
+
+	@After
+	@Override protected void tearDown() throws Exception
+	{
+		this.counter.stop();
+		super.tearDown();
+	}
+
+	@Test
+	public void testFlushWritesPendingCounts()
+	{
+		this.counter.increment(1);
+		this.counter.increment(1);
+		this.counter.increment(2);
+
+		assertEquals(2, this.counter.pending(1));
+
+		Map<Integer, Integer> deltas = this.counter.flush();
+
+		assertEquals(Integer.valueOf(2), deltas.get(Integer.valueOf(1)));
+		assertEquals(Integer.valueOf(1), this.written.get(Integer.valueOf(2)));
+		assertEquals(0, this.counter.pending(1));
+		assertTrue(this.counter.flush().isEmpty());
+	}
+
+	@Test
+	public void testFailedFlushIsRetried()
+	{
+		this.counter.increment(1);
+		this.failing.set(true);
+
+		assertTrue(this.counter.flush().isEmpty());
+		assertEquals(1, this.counter.pending(1));
+
+		this.failing.set(false);
+		this.counter.flush();
+
+		assertEquals(Integer.valueOf(1), this.written.get(Integer.valueOf(1)));
+		assertEquals(0, this.counter.pending(1));
+	}
+
+	@Test
+	public void testIdleCountersAreDropped()
+	{
+		this.counter.increment(1);
+		this.counter.flush();
+		this.counter.flush();
+		assertEquals(1, this.counter.size());
+
+		this.counter.flush();
+		assertEquals(0, this.counter.size());
+
+		this.counter.increment(1);
+		this.counter.flush();
+		assertEquals(Integer.valueOf(2), this.written.get(Integer.valueOf(1)));
+	}
+
+	@Test
+	public void testConcurrentIncrementsAreNotLost() throws Exception
+	{
+		final int threads = 8;
+		final int increments = 20000;
+		final AtomicInteger running = new AtomicInteger(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> writers = new ArrayList<>();
+
+		for (int i = 0; i < threads; i++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+
+					for (int j = 0; j < increments; j++) {
+						// Few increments per id, so counters keep going idle and getting dropped
+						this.counter.increment(ThreadLocalRandom.current().nextInt(500));
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				finally {
+					running.decrementAndGet();
+				}
+			});
+
+			thread.start();
+			writers.add(thread);
+		}
+
+		start.countDown();
+
+		while (running.get() > 0) {
+			this.counter.flush();
+		}
+
+		for (Thread thread : writers) {
+			thread.join();
+		}
+
+		this.counter.flush();
+
+		int total = 0;
+
+		for (Integer value : this.written.values()) {
+			total += value.intValue();
+		}
+
+		assertEquals(threads * increments, total);
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.TestCaseUtils;
+import net.jforum.entities.Post;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+public class LuceneSearchTest extends TestCase
+{
+	private LuceneSettings settings;
+	private LuceneSearch search;
+
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+		SystemGlobals.setValue(ConfigKeys.TOPICS_PER_PAGE, "5");
+		SystemGlobals.setValue(ConfigKeys.LUCENE_SEARCH_EXACT_TOTAL_HITS, "true");
+
+		this.settings = new LuceneSettings(PorterStandardAnalyzer.class);
+		this.settings.useRAMDirectory();
+	}
+
+	@After
+	@Override protected void tearDown() throws Exception
+	{
+		this.settings.close();
+		SystemGlobals.setValue(ConfigKeys.TOPICS_PER_PAGE, "15");
+		SystemGlobals.setValue(ConfigKeys.LUCENE_SEARCH_EXACT_TOTAL_HITS, "true");
+		SystemGlobals.setValue(ConfigKeys.LUCENE_SEARCH_TOTAL_HITS_THRESHOLD, "1000");
+		super.tearDown();
+	}
+
+	@Test
+	public void testCursorPagesThroughHitsWithTheSameDate() throws IOException
+	{
+		this.index(12, true);
+
+		List<Integer> ids = new ArrayList<>();
+		String cursor = null;
+		for (int page = 0; page < 3; page++) {
+			SearchResult<Post> result = this.search(page * 5, cursor);
+			assertEquals(12, result.getTotalHits());
+			assertTrue(result.isTotalHitsExact());
+			for (Post post : result.getRecords()) {
+				ids.add(post.getId());
+			}
+			cursor = result.getNextCursor();
+			assertEquals(page < 2, cursor != null);
+		}
+
+		List<Integer> expected = new ArrayList<>();
+		for (int id = 12; id > 0; id--) {
+			expected.add(id);
+		}
+		assertEquals(expected, ids);
+	}
+
+	@Test
+	public void testCursorSurvivesMerges() throws IOException
+	{
+		this.index(12, true);
+		String cursor = this.search(0, null).getNextCursor();
+
+		// renumbers the documents
+		IndexWriter writer = this.settings.indexWriter();
+		writer.forceMerge(1);
+		writer.commit();
+		this.search.newDocumentAdded();
+
+		List<Post> records = this.search(5, cursor).getRecords();
+		assertEquals(7, records.get(0).getId());
+		assertEquals(3, records.get(4).getId());
+	}
+
+	@Test
+	public void testApproximateTotalOnLaterPages() throws IOException
+	{
+		SystemGlobals.setValue(ConfigKeys.LUCENE_SEARCH_EXACT_TOTAL_HITS, "false");
+		SystemGlobals.setValue(ConfigKeys.LUCENE_SEARCH_TOTAL_HITS_THRESHOLD, "3");
+		this.index(12, true);
+
+		SearchResult<Post> first = this.search(0, null);
+		SearchResult<Post> second = this.search(5, first.getNextCursor());
+
+		assertFalse(second.isTotalHitsExact());
+		assertTrue(second.getTotalHits() >= 3 && second.getTotalHits() <= 12);
+		assertEquals(5, second.getRecords().size());
+	}
+
+	@Test
+	public void testIndexWithoutPostIdValuesFallsBackToOffsets() throws IOException
+	{
+		this.index(12, false);
+
+		SearchResult<Post> second = this.search(5, null);
+		assertNull(second.getNextCursor());
+		assertEquals(12, second.getTotalHits());
+		assertEquals(5, second.getRecords().size());
+	}
+
+	private SearchResult<Post> search (int start, String cursor)
+	{
+		SearchArgs args = new SearchArgs();
+		args.setForumId(1);
+		args.setOrderBy("time");
+		args.setOrderDir("DESC");
+		args.startFetchingAtRecord(start);
+		args.setSearchAfter(cursor);
+
+		return this.search.search(args);
+	}
+
+	// all posts have the same date, in two segments
+	private void index (int count, boolean postIdValues) throws IOException
+	{
+		IndexWriter writer = this.settings.indexWriter();
+
+		for (int id = 1; id <= count; id++) {
+			Document doc = new Document();
+			doc.add(new StringField(SearchFields.Keyword.POST_ID, String.valueOf(id), Field.Store.YES));
+			if (postIdValues) {
+				doc.add(new NumericDocValuesField(SearchFields.Keyword.POST_ID, id));
+			}
+			doc.add(new StringField(SearchFields.Keyword.FORUM_ID, "1", Field.Store.YES));
+			doc.add(new NumericDocValuesField(SearchFields.Keyword.DATE, 1000L));
+			doc.add(new TextField(SearchFields.Indexed.CONTENTS, "post " + id, Field.Store.NO));
+			writer.addDocument(doc);
+
+			if (id == count / 2) {
+				writer.commit();
+			}
+		}
+
+		writer.commit();
+		this.search = new LuceneSearch(this.settings, new PostIdCollector(this.settings));
+		this.search.newDocumentAdded();
+	}
+
+	private static class PostIdCollector extends LuceneContentCollector
+	{
+		public PostIdCollector (LuceneSettings settings)
+		{
+			super(settings);
+		}
+
+		@Override public List<Post> collect (SearchArgs args, ScoreDoc[] hits, Query query, IndexSearcher searcher)
+		{
+			List<Post> list = new ArrayList<>();
+
+			try {
+				for (ScoreDoc hit : hits) {
+					Post post = new Post();
+					post.setId(Integer.parseInt(searcher.doc(hit.doc).get(SearchFields.Keyword.POST_ID)));
+					list.add(post);
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+
+			return list;
+		}
+	}
+}
@@ -49,8 +49,10 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.xml.DOMConfigurator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -60,6 +62,8 @@ import net.jforum.ForumStartup;
 import net.jforum.TestCaseUtils;
 import net.jforum.entities.Post;
 import net.jforum.repository.ForumRepository;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
 
 /**
  * @author Rafael Steil
@@ -72,6 +76,7 @@ public class LuceneSearchTestCase extends TestCase
     private LuceneSearch search;
     private LuceneSettings settings;
     private LuceneIndexer indexer;
+    private int lastPostId;
 
     @Test
     public void testFivePostsInTwoForumsSearchOneForumAndTwoValidTermsAndOneInvalidTermExpectThreeResults()
@@ -109,7 +114,7 @@ public class LuceneSearchTestCase extends TestCase
         args.setMatchType("ANY");
         args.setKeywords("open lucene xpto authoritative");
 
-        List<?> results = this.search.search(args).getRecords();
+        List<?> results = this.search(args).getRecords();
 
         assertEquals(3, results.size());
     }
@@ -131,7 +136,7 @@ public class LuceneSearchTestCase extends TestCase
         args.setMatchType("ANY");
         args.setKeywords("open lucene");
 
-        List<?> results = this.search.search(args).getRecords();
+        List<?> results = this.search(args).getRecords();
 
         assertEquals(3, results.size());
     }
@@ -178,7 +183,7 @@ public class LuceneSearchTestCase extends TestCase
         args.setMatchType("all");
         args.setKeywords("magic regular");
 
-        List<Post> results = this.search.search(args).getRecords();
+        List<Post> results = this.search(args).getRecords();
 
         assertEquals(1, results.size());
     }
@@ -208,7 +213,7 @@ public class LuceneSearchTestCase extends TestCase
         SearchArgs args = new SearchArgs();
         args.setKeywords("java");
 
-        List<?> results = this.search.search(args).getRecords();
+        List<?> results = this.search(args).getRecords();
 
         assertEquals(1, results.size());
     }
@@ -229,14 +234,74 @@ public class LuceneSearchTestCase extends TestCase
         SearchArgs args = new SearchArgs();
         args.setForumId(1);
 
-        List<?> results = this.search.search(args).getRecords();
+        List<?> results = this.search(args).getRecords();
 
         assertEquals(1, results.size());
     }
 
+    @Test
+    public void testSecondPageByOffsetAndByCursorExpectRemainingResults()
+    {
+        int perPage = SystemGlobals.getIntValue(ConfigKeys.TOPICS_PER_PAGE);
+        for (int i = 0; i < perPage + 3; i++) {
+            Post post = this.newPost();
+            post.setText("paging through lucene results");
+            this.indexer.create(post);
+            ForumRepository.incrementTotalMessages();
+        }
+
+        SearchArgs args = new SearchArgs();
+        args.setKeywords("paging");
+
+        SearchResult<Post> first = this.search(args);
+        assertEquals(perPage, first.getRecords().size());
+        assertEquals(perPage + 3, first.getTotalHits());
+        assertNotNull(first.getNextCursor());
+
+        args.startFetchingAtRecord(perPage);
+        assertEquals(3, this.search(args).getRecords().size());
+
+        args.setSearchAfter(first.getNextCursor());
+        SearchResult<Post> second = this.search(args);
+        assertEquals(3, second.getRecords().size());
+        assertEquals(perPage + 3, second.getTotalHits());
+    }
+
+    @Test
+    public void testChangesToTheSamePostAreCoalescedExpectLatestVersion()
+    {
+        Post post = this.newPost();
+        post.setText("first version");
+        this.indexer.create(post);
+
+        Post edited = new Post(post);
+        edited.setText("second version");
+        this.indexer.update(edited);
+
+        Post removed = this.newPost();
+        removed.setText("second thoughts");
+        this.indexer.create(removed);
+        this.indexer.delete(removed);
+
+        SearchArgs args = new SearchArgs();
+        args.setKeywords("second");
+        assertEquals(1, this.search(args).getRecords().size());
+
+        args.setKeywords("first");
+        assertEquals(0, this.search(args).getRecords().size());
+        assertEquals(0, this.indexer.getQueueDepth());
+    }
+
+    private SearchResult<Post> search(SearchArgs args)
+    {
+        // posts are indexed in the background
+        this.indexer.flush();
+        return this.search.search(args);
+    }
+
     private Post newPost() 
     {
-        Post post = new Post();
+        Post post = new Post(++this.lastPostId);
 
         post.setText("");
         post.setTime(new Date());
@@ -275,6 +340,14 @@ public class LuceneSearchTestCase extends TestCase
         this.indexer.watchNewDocuDocumentAdded(this.search);        
     }
 
+    @Override
+    @After
+    protected void tearDown() throws Exception
+    {
+        this.indexer.stop();
+        this.settings.close();
+    }
+
     private static class FakeResultCollector extends LuceneContentCollector
     {
         public FakeResultCollector(LuceneSettings settings)
@@ -283,7 +356,7 @@ public class LuceneSearchTestCase extends TestCase
         }
 
         @Override
-        public List<Post> collect(SearchArgs args, ScoreDoc[] hits, Query query)
+        public List<Post> collect(SearchArgs args, ScoreDoc[] hits, Query query, IndexSearcher searcher)
         {
             List<Post> list = new ArrayList<Post>();
             for (int i = 0; i < hits.length; i++) {
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.security;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class PermissionControlTest extends TestCase
+{
+	@Test
+	public void testRolesAndValues()
+	{
+		Role forums = new Role();
+		forums.setName("perm_forum");
+		forums.getValues().add(new RoleValue("3"));
+		forums.getValues().add(new RoleValue("12"));
+		forums.getValues().add(new RoleValue("x"));
+
+		Role admin = new Role();
+		admin.setName("perm_administration");
+
+		RoleCollection roles = new RoleCollection();
+		roles.add(forums);
+		roles.add(admin);
+
+		PermissionControl pc = new PermissionControl();
+		pc.setRoles(roles);
+
+		assertTrue(pc.canAccess("perm_administration"));
+		assertTrue(pc.canAccess("perm_forum"));
+		assertFalse(pc.canAccess("perm_moderation"));
+		assertTrue(pc.canAccess("perm_forum", "3"));
+		assertTrue(pc.canAccess("perm_forum", "12"));
+		assertTrue(pc.canAccess("perm_forum", "x"));
+		assertFalse(pc.canAccess("perm_forum", "4"));
+		assertFalse(pc.canAccess("perm_forum", "03"));
+		assertFalse(pc.canAccess("perm_administration", "3"));
+	}
+
+	@Test
+	public void testSetRolesRecompiles()
+	{
+		Role role = new Role();
+		role.setName("perm_forum");
+		role.getValues().add(new RoleValue("1"));
+
+		RoleCollection roles = new RoleCollection();
+		roles.add(role);
+
+		PermissionControl pc = new PermissionControl();
+		pc.setRoles(roles);
+		assertTrue(pc.canAccess("perm_forum", "1"));
+
+		pc.setRoles(new RoleCollection());
+		assertFalse(pc.canAccess("perm_forum", "1"));
+	}
+
+	@Test
+	public void testBitValue()
+	{
+		assertEquals(0, PermissionControl.bitValue("0"));
+		assertEquals(42, PermissionControl.bitValue("42"));
+		assertEquals(-1, PermissionControl.bitValue("042"));
+		assertEquals(-1, PermissionControl.bitValue("-1"));
+		assertEquals(-1, PermissionControl.bitValue(""));
+		assertEquals(-1, PermissionControl.bitValue(null));
+		assertEquals(-1, PermissionControl.bitValue("99999999"));
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class SpamFilterTest extends TestCase
+{
+	private static final List<String> PATTERNS = Arrays.asList(
+		"cheap viagra", "casino", "buy.*now", "Online Pharmacy", "free\\-money", "\\bloan\\b", "he", "she", "hers");
+
+	@Test
+	public void testSameResultAsOneRegexPerPattern()
+	{
+		SpamFilter filter = new SpamFilter(PATTERNS, null);
+		String[] texts = {
+			"nothing to see here",
+			"Get CHEAP Viagra today",
+			"best Casino\nin town",
+			"BUY it\nright NOW",
+			"visit our online pharmacy",
+			"free-money for all",
+			"a loan for you",
+			"aloans are not loans",
+			"ushers",
+			"",
+		};
+
+		for (String text : texts) {
+			assertEquals(text, this.legacyFindSpam(text), filter.find(text));
+		}
+	}
+
+	@Test
+	public void testRandomTextsAgainstOverlappingLiterals()
+	{
+		List<String> patterns = Arrays.asList("abab", "bab", "ba", "aab", "bbb", "abba");
+		SpamFilter filter = new SpamFilter(patterns, null);
+		Random random = new Random(42);
+
+		for (int i = 0; i < 2000; i++) {
+			char[] chars = new char[random.nextInt(8)];
+
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = random.nextBoolean() ? 'a' : 'B';
+			}
+
+			String text = new String(chars);
+			String expected = null;
+
+			for (String pattern : patterns) {
+				if (text.matches("(?si).*" + pattern + ".*")) {
+					expected = pattern;
+					break;
+				}
+			}
+
+			assertEquals(text, expected, filter.find(text));
+		}
+	}
+
+	@Test
+	public void testHitCountsAreKeptAcrossReloads()
+	{
+		SpamFilter filter = new SpamFilter(PATTERNS, null);
+		filter.find("casino casino");
+		filter.find("CASINO");
+		filter.find("clean");
+
+		List<String> patterns = new ArrayList<>(PATTERNS);
+		patterns.add("new one");
+		SpamFilter reloaded = new SpamFilter(patterns, filter);
+
+		assertEquals(Long.valueOf(2), reloaded.hitCounts().get("casino"));
+		assertEquals(Long.valueOf(0), reloaded.hitCounts().get("new one"));
+	}
+
+	@Test
+	public void testInvalidAndEmptyPatternsAreIgnored()
+	{
+		SpamFilter filter = new SpamFilter(Arrays.asList("", "[unclosed", "spam"), null);
+
+		assertNull(filter.find("perfectly fine"));
+		assertEquals("spam", filter.find("some spam here"));
+	}
+
+	@Test
+	public void testLiteralDetection()
+	{
+		assertEquals("free-money", SpamFilter.asLiteral("free\\-money"));
+		assertEquals("a.b", SpamFilter.asLiteral("a\\.b"));
+		assertNull(SpamFilter.asLiteral("a.b"));
+		assertNull(SpamFilter.asLiteral("\\bloan"));
+	}
+
+	private String legacyFindSpam(String text)
+	{
+		for (String pattern : PATTERNS) {
+			if (text.matches("(?si).*" + pattern + ".*")) {
+				return pattern;
+			}
+		}
+
+		return null;
+	}
+}
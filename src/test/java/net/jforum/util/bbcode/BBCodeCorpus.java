@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.bbcode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sample posts for the BB code tests and benchmark, along with the way 
+ * the codes used to be applied, to compare against.
+ */
+final class BBCodeCorpus
+{
+	private static final String SEPARATOR = "-----";
+
+	private BBCodeCorpus() {}
+
+	/**
+	 * @return the posts in bbcode/posts.txt, with line breaks as they are when the codes are applied
+	 */
+	static List<String> posts() throws IOException
+	{
+		final List<String> posts = new ArrayList<>();
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				BBCodeCorpus.class.getResourceAsStream("/bbcode/posts.txt"), StandardCharsets.UTF_8))) {
+			StringBuilder post = new StringBuilder();
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				if (SEPARATOR.equals(line)) {
+					posts.add(post.toString());
+					post = new StringBuilder();
+				}
+				else {
+					post.append(line).append("<br>");
+				}
+			}
+
+			posts.add(post.toString());
+		}
+
+		return posts;
+	}
+
+	static String render(BBCodeHandler handler, String text)
+	{
+		text = handler.processCodeTags(text);
+		text = handler.processTags(text);
+		return handler.processAlwaysProcessTags(text);
+	}
+
+	/**
+	 * Applies the codes the way PostCommon did before they were compiled.
+	 */
+	static String renderLegacy(BBCodeHandler handler, String text) throws Exception
+	{
+		for (BBCode bb : handler.getBbList()) {
+			if (bb.getTagName().startsWith("code")) {
+				text = text.replaceAll(bb.getRegex(), bb.getReplace());
+			}
+		}
+
+		for (BBCode bb : handler.getBbList()) {
+			if (!bb.getTagName().startsWith("code")) {
+				if (bb.isRegexpReplace()) {
+					text = text.replaceAll(bb.getRegex(), bb.getReplace());
+				}
+				else {
+					Substitution subst = (Substitution)Class.forName(bb.getClassName()).getDeclaredConstructor().newInstance();
+					Matcher match = Pattern.compile(bb.getRegex()).matcher(text);
+					int count = 0;
+					while (match.find() && count < 100) {
+						text = text.substring(0, match.start(0)) + subst.substitute(match.group(1))
+							+ text.substring(match.end(0));
+						match.reset(text);
+						count++;
+					}
+				}
+			}
+		}
+
+		for (BBCode bb : handler.getAlwaysProcessList()) {
+			text = text.replaceAll(bb.getRegex(), bb.getReplace());
+		}
+
+		return text;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.bbcode;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+import net.jforum.TestCaseUtils;
+
+public class BBCodeHandlerTest extends TestCase
+{
+	private BBCodeHandler handler;
+
+	@Override
+	@Before
+	protected void setUp() throws Exception
+	{
+		TestCaseUtils.loadEnvironment();
+		this.handler = new BBCodeHandler().parse();
+	}
+
+	@Test
+	public void testCorpusRendersAsBefore() throws Exception
+	{
+		List<String> posts = BBCodeCorpus.posts();
+		assertTrue(posts.size() > 10);
+
+		for (String post : posts) {
+			assertEquals(BBCodeCorpus.renderLegacy(this.handler, post), BBCodeCorpus.render(this.handler, post));
+		}
+	}
+
+	@Test
+	public void testUpperCaseTagsAreNotSkipped() throws Exception
+	{
+		String post = "[B]bold[/B] [QUOTE=\"someone\"]quoted[/Quote] [URL]http://www.jforum.net[/url] [Hr] [hr]";
+
+		String rendered = BBCodeCorpus.render(this.handler, post);
+
+		assertEquals(BBCodeCorpus.renderLegacy(this.handler, post), rendered);
+		assertTrue(rendered.contains("<b>bold</b>"));
+		assertTrue(rendered.contains("href='http://www.jforum.net'"));
+	}
+
+	@Test
+	public void testTextWithoutTagsIsReturnedAsIs()
+	{
+		String post = "no tags here, just [brackets] and a http://www.jforum.net link";
+
+		assertSame(post, this.handler.processTags(post));
+	}
+}
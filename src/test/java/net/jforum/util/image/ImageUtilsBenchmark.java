@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.image;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link ImageUtils#resample(BufferedImage, boolean, int, int)} with 
+ * {@link ImageUtils#createHeadlessSmoothBufferedImage(BufferedImage, int, int, int)},
+ * which made the thumbnails before, scaling a photo sized image to a 400 pixels wide thumbnail.
+ * Run it from the project directory with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.jforum.util.image.ImageUtilsBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageUtilsBenchmark
+{
+	@Param({ "1600x1200", "4000x3000" })
+	public String size;
+
+	private BufferedImage image;
+	private int width;
+	private int height;
+
+	@Setup public void setup()
+	{
+		int sourceWidth = Integer.parseInt(this.size.substring(0, this.size.indexOf('x')));
+		int sourceHeight = Integer.parseInt(this.size.substring(this.size.indexOf('x') + 1));
+
+		// Decoded JPEGs are 3 bytes per pixel
+		this.image = new BufferedImage(sourceWidth, sourceHeight, BufferedImage.TYPE_3BYTE_BGR);
+		Random random = new Random(42);
+
+		for (int y = 0; y < sourceHeight; y++) {
+			for (int x = 0; x < sourceWidth; x++) {
+				this.image.setRGB(x, y, ((x * 255 / sourceWidth) << 16) | ((y * 255 / sourceHeight) << 8) | random.nextInt(256));
+			}
+		}
+
+		this.width = 400;
+		this.height = 400 * sourceHeight / sourceWidth;
+	}
+
+	@Benchmark public BufferedImage resample()
+	{
+		return ImageUtils.resample(this.image, false, this.width, this.height);
+	}
+
+	@Benchmark public BufferedImage smoothBufferedImage()
+	{
+		return ImageUtils.createHeadlessSmoothBufferedImage(this.image, ImageUtils.IMAGE_JPEG, this.width, this.height);
+	}
+
+	public static void main(final String[] args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(ImageUtilsBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.image;
+
+import java.awt.image.BufferedImage;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class ImageUtilsTest extends TestCase
+{
+	@Test
+	public void testResampleAveragesEveryPixel()
+	{
+		// A black and white checkerboard should become gray, not black or white
+		BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_3BYTE_BGR);
+
+		for (int y = 0; y < 600; y++) {
+			for (int x = 0; x < 800; x++) {
+				image.setRGB(x, y, (x + y) % 2 == 0 ? 0xFFFFFF : 0);
+			}
+		}
+
+		BufferedImage resized = ImageUtils.resample(image, false, 300, 225);
+
+		assertEquals(300, resized.getWidth());
+		assertEquals(225, resized.getHeight());
+
+		for (int y = 0; y < 225; y += 10) {
+			for (int x = 0; x < 300; x += 10) {
+				int blue = resized.getRGB(x, y) & 0xFF;
+				assertTrue("pixel " + x + "," + y + " is " + blue, Math.abs(blue - 0x80) <= 2);
+			}
+		}
+	}
+
+	@Test
+	public void testResampleKeepsTransparency()
+	{
+		BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+
+		for (int y = 0; y < 64; y++) {
+			for (int x = 0; x < 64; x++) {
+				image.setRGB(x, y, x < 32 ? 0x00000000 : 0xFFFF0000);
+			}
+		}
+
+		BufferedImage resized = ImageUtils.resample(image, true, 8, 8);
+
+		assertEquals(BufferedImage.TYPE_INT_ARGB, resized.getType());
+		assertEquals(0, resized.getRGB(0, 4) >>> 24);
+		assertEquals(0xFFFF0000, resized.getRGB(7, 4));
+	}
+
+	@Test
+	public void testResizeImageKeepsAspectRatio()
+	{
+		BufferedImage image = new BufferedImage(1000, 250, BufferedImage.TYPE_INT_RGB);
+		BufferedImage resized = ImageUtils.resizeImage(image, ImageUtils.IMAGE_JPEG, 400, 400);
+
+		assertEquals(400, resized.getWidth());
+		assertEquals(100, resized.getHeight());
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.mail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A minimal SMTP server for tests. It is listening once the constructor 
+ * returns, records the "To" header of each message as soon as it is 
+ * accepted, and {@link #stop()} returns only after every connection is closed.
+ */
+final class FakeSmtpServer
+{
+	private final ServerSocket serverSocket;
+	private final Thread acceptor;
+	private final List<Socket> clients = new ArrayList<>();
+	private final List<Thread> handlers = new ArrayList<>();
+	private final List<String> receivedTo = new ArrayList<>();
+	private int connections;
+
+	FakeSmtpServer() throws IOException
+	{
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		this.acceptor = new Thread(this::accept, "fake-smtp-accept");
+		this.acceptor.setDaemon(true);
+		this.acceptor.start();
+	}
+
+	int getPort()
+	{
+		return this.serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return the recipient of each message received so far
+	 */
+	synchronized List<String> getReceivedTo()
+	{
+		return new ArrayList<>(this.receivedTo);
+	}
+
+	/**
+	 * @return how many connections were opened so far
+	 */
+	synchronized int getConnections()
+	{
+		return this.connections;
+	}
+
+	/**
+	 * Closes the server and all connections, and waits for their threads to finish
+	 */
+	void stop() throws InterruptedException
+	{
+		List<Thread> threads;
+
+		synchronized (this) {
+			closeQuietly(this.serverSocket);
+
+			for (Socket client : this.clients) {
+				closeQuietly(client);
+			}
+
+			threads = new ArrayList<>(this.handlers);
+		}
+
+		this.acceptor.join();
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+	private void accept()
+	{
+		while (true) {
+			Socket client;
+
+			try {
+				client = this.serverSocket.accept();
+			}
+			catch (IOException e) {
+				// closed by stop()
+				return;
+			}
+
+			synchronized (this) {
+				if (this.serverSocket.isClosed()) {
+					closeQuietly(client);
+					return;
+				}
+
+				Thread handler = new Thread(() -> this.handle(client), "fake-smtp-" + this.connections);
+				handler.setDaemon(true);
+				this.connections++;
+				this.clients.add(client);
+				this.handlers.add(handler);
+				handler.start();
+			}
+		}
+	}
+
+	private void handle(Socket client)
+	{
+		try (Socket socket = client;
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+			reply(out, "220 localhost ESMTP");
+
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+
+				if ("QUIT".equals(command)) {
+					reply(out, "221 Bye");
+					return;
+				}
+				else if ("DATA".equals(command)) {
+					reply(out, "354 End data with <CR><LF>.<CR><LF>");
+					String to = null;
+					boolean headers = true;
+
+					for (String data = in.readLine(); data != null && !".".equals(data); data = in.readLine()) {
+						if (data.isEmpty()) {
+							headers = false;
+						}
+						else if (headers && data.regionMatches(true, 0, "To:", 0, 3)) {
+							to = data.substring(3).trim();
+						}
+					}
+
+					synchronized (this) {
+						this.receivedTo.add(to);
+					}
+
+					reply(out, "250 OK");
+				}
+				else {
+					// EHLO, HELO, MAIL, RCPT, RSET and NOOP
+					reply(out, "250 OK");
+				}
+			}
+		}
+		catch (IOException e) {
+			// closed by the client or by stop()
+		}
+	}
+
+	private static void reply(PrintWriter out, String line)
+	{
+		out.print(line + "\r\n");
+		out.flush();
+	}
+
+	private static void closeQuietly(AutoCloseable closeable)
+	{
+		try {
+			closeable.close();
+		}
+		catch (Exception e) {
+			// nothing to do
+		}
+	}
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.mail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Provider;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+import junit.framework.TestCase;
+import net.jforum.TestCaseUtils;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MailOutboxTest extends TestCase
+{
+	private static final List<String> SENT_TO = Collections.synchronizedList(new ArrayList<>());
+	private static final AtomicInteger CONNECTIONS = new AtomicInteger();
+	private static final AtomicInteger FAILURES_LEFT = new AtomicInteger();
+
+	private File spoolDir;
+
+	@Before
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+
+		this.spoolDir = Files.createTempDirectory("outbox").toFile();
+		SystemGlobals.setValue(ConfigKeys.MAIL_OUTBOX_DIR, this.spoolDir.getPath());
+		SystemGlobals.setValue(ConfigKeys.MAIL_OUTBOX_THREADS, "1");
+		SystemGlobals.setValue(ConfigKeys.MAIL_OUTBOX_RETRY_DELAY, "0");
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_DELAY, "0");
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_SSL, "false");
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_AUTH, "false");
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_LOCALHOST, "outbox.test");
+		SystemGlobals.setValue(ConfigKeys.MAIL_DKIM_SIGNING_DOMAIN, "");
+
+		// Every connection of the pool goes to RecordingTransport
+		SmtpTransportPool.getSession().setProvider(new Provider(Provider.Type.TRANSPORT, "smtp", 
+			RecordingTransport.class.getName(), "JForum", null));
+
+		SENT_TO.clear();
+		CONNECTIONS.set(0);
+		FAILURES_LEFT.set(0);
+	}
+
+	@After
+	protected void tearDown() throws Exception
+	{
+		MailOutbox.stop();
+		SmtpTransportPool.closeAll();
+
+		try (Stream<Path> files = Files.walk(this.spoolDir.toPath())) {
+			files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+
+		super.tearDown();
+	}
+
+	@Test
+	public void testEnqueueWhileStoppedSendsRightAway() throws Exception
+	{
+		MailOutbox.enqueue(new FixedSpammer(this.newMessage("one@example.com", "two@example.com")));
+
+		assertEquals(Arrays.asList("one@example.com", "two@example.com"), SENT_TO);
+		assertEquals(0, this.spooled(this.spoolDir).length);
+	}
+
+	@Test
+	public void testEnqueuedMessagesAreDelivered() throws Exception
+	{
+		long duplicates = MailOutbox.getDuplicates();
+		MailOutbox.start();
+
+		MailOutbox.enqueue(new FixedSpammer(
+			this.newMessage("one@example.com", "two@example.com", "ONE@example.com"),
+			this.newMessage("three@example.com")));
+		this.waitForDelivery();
+
+		assertEquals(Arrays.asList("one@example.com", "two@example.com", "three@example.com"), SENT_TO);
+		assertEquals(1, MailOutbox.getDuplicates() - duplicates);
+	}
+
+	@Test
+	public void testRecipientsShareOneConnection() throws Exception
+	{
+		SystemGlobals.setValue(ConfigKeys.MAIL_OUTBOX_CHECKPOINT, "10");
+		MailOutbox.start();
+
+		List<String> recipients = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			recipients.add("user" + i + "@example.com");
+		}
+
+		MailOutbox.enqueue(new FixedSpammer(this.newMessage(recipients.toArray(new String[0]))));
+		this.waitForDelivery();
+
+		assertEquals(recipients, SENT_TO);
+		assertEquals(1, CONNECTIONS.get());
+	}
+
+	@Test
+	public void testDeliveryIsPaced() throws Exception
+	{
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_DELAY, "100");
+		MailOutbox.start();
+
+		long start = System.nanoTime();
+		MailOutbox.enqueue(new FixedSpammer(this.newMessage("one@example.com", "two@example.com", "three@example.com")));
+		this.waitForDelivery();
+
+		assertEquals(3, SENT_TO.size());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+	}
+
+	@Test
+	public void testFailedDeliveryIsRetried() throws Exception
+	{
+		long failures = MailOutbox.getFailures();
+		FAILURES_LEFT.set(1);
+		MailOutbox.start();
+
+		MailOutbox.enqueue(new FixedSpammer(this.newMessage("one@example.com", "two@example.com")));
+		this.waitForDelivery();
+
+		assertEquals(Arrays.asList("one@example.com", "two@example.com"), SENT_TO);
+		assertEquals(1, MailOutbox.getFailures() - failures);
+		assertEquals(2, CONNECTIONS.get());
+	}
+
+	@Test
+	public void testMessageIsGivenUpAfterMaxAttempts() throws Exception
+	{
+		long givenUp = MailOutbox.getGivenUp();
+		SystemGlobals.setValue(ConfigKeys.MAIL_OUTBOX_RETRY_MAX, "3");
+		FAILURES_LEFT.set(Integer.MAX_VALUE);
+		MailOutbox.start();
+
+		MailOutbox.enqueue(new FixedSpammer(this.newMessage("one@example.com", "two@example.com")));
+		File failed = new File(this.spoolDir, "failed");
+		this.waitFor(() -> this.spooled(failed).length == 2);
+
+		assertTrue(SENT_TO.isEmpty());
+		assertEquals(2, MailOutbox.getGivenUp() - givenUp);
+		assertEquals(0, this.spooled(this.spoolDir).length);
+	}
+
+	@Test
+	public void testInvalidRecipientIsSkipped() throws Exception
+	{
+		long givenUp = MailOutbox.getGivenUp();
+		MailOutbox.start();
+
+		MailOutbox.enqueue(new FixedSpammer(this.newMessage("one@example.com", "invalid@example.com", "two@example.com")));
+		this.waitForDelivery();
+
+		assertEquals(Arrays.asList("one@example.com", "two@example.com"), SENT_TO);
+		assertEquals(1, MailOutbox.getGivenUp() - givenUp);
+	}
+
+	@Test
+	public void testStopKeepsUndeliveredMessagesForNextStart() throws Exception
+	{
+		// The second email has to wait a minute for its turn
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_DELAY, "60000");
+		MailOutbox.start();
+
+		MailOutbox.enqueue(new FixedSpammer(this.newMessage("one@example.com"), this.newMessage("two@example.com")));
+		this.waitFor(() -> SENT_TO.size() == 1 && MailOutbox.getQueuedMessages() == 1);
+		MailOutbox.stop();
+
+		assertEquals(0, MailOutbox.getQueuedMessages());
+		assertEquals(2, this.spooled(this.spoolDir).length);
+
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_DELAY, "0");
+		MailOutbox.start();
+		this.waitForDelivery();
+
+		assertEquals(Arrays.asList("one@example.com", "two@example.com"), SENT_TO);
+	}
+
+	private void waitForDelivery() throws InterruptedException
+	{
+		// Messages are deleted from the spool right after their last recipient
+		this.waitFor(() -> MailOutbox.getQueuedMessages() == 0 && MailOutbox.getPendingRecipients() == 0 
+			&& this.spooled(this.spoolDir).length == 0);
+	}
+
+	private void waitFor(BooleanSupplier condition) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 10000;
+
+		while (!condition.getAsBoolean()) {
+			assertTrue("Timed out waiting for the outbox", System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * @return the message and meta files in the directory
+	 */
+	private File[] spooled(File dir)
+	{
+		File[] files = dir.listFiles((parent, name) -> name.endsWith(".eml") || name.endsWith(".meta"));
+		return files == null ? new File[0] : files;
+	}
+
+	private OutboxMessage newMessage(String... recipients) throws Exception
+	{
+		MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+		message.setFrom(new InternetAddress("jforum@example.com"));
+		message.setSubject("Outbox test");
+		message.setText("Test mail from JForum", "UTF-8");
+		message.saveChanges();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		message.writeTo(out);
+
+		return new OutboxMessage(out.toByteArray(), message.getMessageID(), new ArrayList<>(Arrays.asList(recipients)));
+	}
+
+	private static class FixedSpammer extends Spammer
+	{
+		private final List<OutboxMessage> messages;
+
+		FixedSpammer(OutboxMessage... messages)
+		{
+			this.messages = Arrays.asList(messages);
+		}
+
+		@Override List<OutboxMessage> prepareMail()
+		{
+			return this.messages;
+		}
+	}
+
+	/**
+	 * Records the recipients instead of talking to a server. Addresses starting with 
+	 * "invalid" are refused, and the first FAILURES_LEFT sends fail and drop the connection.
+	 */
+	public static class RecordingTransport extends Transport
+	{
+		public RecordingTransport(Session session, URLName url)
+		{
+			super(session, url);
+		}
+
+		@Override protected boolean protocolConnect(String host, int port, String user, String password)
+		{
+			CONNECTIONS.incrementAndGet();
+			return true;
+		}
+
+		@Override public void sendMessage(Message message, Address[] addresses) throws MessagingException
+		{
+			String to = addresses[0].toString();
+
+			if (to.startsWith("invalid")) {
+				throw new SendFailedException("Unknown user", null, new Address[0], new Address[0], addresses);
+			}
+
+			if (FAILURES_LEFT.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+				throw new MessagingException("Connection lost");
+			}
+
+			SENT_TO.add(to);
+		}
+	}
+}
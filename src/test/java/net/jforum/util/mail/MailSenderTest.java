@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.mail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import net.markenwerk.utils.mail.dkim.DkimSigner;
+
+import junit.framework.TestCase;
+import net.jforum.TestCaseUtils;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MailSenderTest extends TestCase
+{
+	private FakeSmtpServer smtpServer;
+
+	@Before
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+
+		// A new server on a free port for each test, listening before it is used
+		smtpServer = new FakeSmtpServer();
+
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_HOST, "localhost");
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_PORT, String.valueOf(smtpServer.getPort()));
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_SSL, String.valueOf(false));
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_AUTH, String.valueOf(false));
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_LOCALHOST, "");
+		SystemGlobals.setValue(ConfigKeys.MAIL_DKIM_SIGNING_DOMAIN, "");
+	}
+
+	@After
+	protected void tearDown() throws Exception
+	{
+		SmtpTransportPool.closeAll();
+		smtpServer.stop();
+		super.tearDown();
+	}
+
+	@Test
+	public void testConnectionIsReused() throws Exception
+	{
+		try (MailSender sender = new MailSender()) {
+			MimeMessage message = this.newMessage(sender, "first");
+			sender.send(message, "one@example.com");
+			sender.send(message, "two@example.com");
+		}
+
+		assertEquals(1, SmtpTransportPool.getIdleCount());
+
+		try (MailSender sender = new MailSender()) {
+			sender.send(this.newMessage(sender, "second"), "three@example.com");
+		}
+
+		assertEquals(1, SmtpTransportPool.getIdleCount());
+		assertEquals(1, smtpServer.getConnections());
+		assertEquals(Arrays.asList("one@example.com", "two@example.com", "three@example.com"), smtpServer.getReceivedTo());
+	}
+
+	@Test
+	public void testSettingsChangeClosesIdleConnections() throws Exception
+	{
+		try (MailSender sender = new MailSender()) {
+			sender.send(this.newMessage(sender, "first"), "one@example.com");
+		}
+
+		assertEquals(1, SmtpTransportPool.getIdleCount());
+
+		SystemGlobals.setValue(ConfigKeys.MAIL_SMTP_LOCALHOST, "jforum.test");
+		Object session = new MailSender().getSession();
+
+		assertEquals(0, SmtpTransportPool.getIdleCount());
+		assertSame(session, new MailSender().getSession());
+	}
+
+	@Test
+	public void testOutboxMessageIsSentToEveryRecipient() throws Exception
+	{
+		List<String> recipients = new ArrayList<>();
+		recipients.add("one@example.com");
+		recipients.add("two@example.com");
+
+		byte[] mime;
+
+		try (MailSender sender = new MailSender()) {
+			MimeMessage message = this.newMessage(sender, "outbox");
+			message.saveChanges();
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			message.writeTo(out);
+			mime = out.toByteArray();
+		}
+
+		List<OutboxMessage> messages = new ArrayList<>();
+		messages.add(new OutboxMessage(mime, null, recipients));
+		MailOutbox.send(messages);
+
+		assertEquals(recipients, smtpServer.getReceivedTo());
+	}
+
+	@Test
+	public void testMissingDkimKeyIsIgnored()
+	{
+		SystemGlobals.setValue(ConfigKeys.MAIL_DKIM_SIGNING_DOMAIN, "example.com");
+		SystemGlobals.setValue(ConfigKeys.MAIL_DKIM_DER_FILE, "/does/not/exist.der");
+
+		try {
+			assertNull(DkimSignerCache.getSigner());
+		}
+		finally {
+			SystemGlobals.setValue(ConfigKeys.MAIL_DKIM_SIGNING_DOMAIN, "");
+		}
+	}
+
+	@Test
+	public void testEachEmailGetsItsOwnDkimSigner() throws Exception
+	{
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		File der = File.createTempFile("dkim", ".der");
+		Files.write(der.toPath(), generator.generateKeyPair().getPrivate().getEncoded());
+
+		SystemGlobals.setValue(ConfigKeys.MAIL_DKIM_SIGNING_DOMAIN, "example.com");
+		SystemGlobals.setValue(ConfigKeys.MAIL_DKIM_DER_FILE, der.getPath());
+		SystemGlobals.setValue(ConfigKeys.MAIL_DKIM_IDENTITY, "jforum@example.com");
+
+		try {
+			// Signers keep their digest while signing, so the outbox threads can't share one
+			DkimSigner first = DkimSignerCache.getSigner();
+			assertNotNull(first);
+			assertEquals("jforum@example.com", first.getIdentity());
+			assertNotSame(first, DkimSignerCache.getSigner());
+		}
+		finally {
+			SystemGlobals.setValue(ConfigKeys.MAIL_DKIM_SIGNING_DOMAIN, "");
+			der.delete();
+		}
+	}
+
+	private MimeMessage newMessage(MailSender sender, String subject) throws Exception
+	{
+		MimeMessage message = new MimeMessage(sender.getSession());
+		message.setSentDate(new Date());
+		message.setFrom(new InternetAddress("jforum@example.com"));
+		message.setSubject(subject);
+		message.setText("Test mail from JForum", "UTF-8");
+		return message;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.mail;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import junit.framework.TestCase;
+import net.jforum.JForumExecutionContext;
+import net.jforum.TestCaseUtils;
+import net.jforum.entities.Topic;
+import net.jforum.entities.User;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import freemarker.template.SimpleHash;
+
+public class SpammerTest extends TestCase
+{
+	@Before
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+	}
+
+	@Test
+	public void testOneMessagePerVariant() throws Exception
+	{
+		List<User> users = Arrays.asList(
+			this.newUser("one@example.com", true),
+			this.newUser("two@example.com", false),
+			this.newUser("", true),
+			this.newUser("three@example.com", true),
+			this.newUser("four@example.com", false));
+
+		List<OutboxMessage> messages = new ReplySpammer(users).prepareMail();
+
+		assertEquals(2, messages.size());
+		assertEquals(Arrays.asList("one@example.com", "three@example.com"), messages.get(0).getRecipients());
+		assertEquals(Arrays.asList("two@example.com", "four@example.com"), messages.get(1).getRecipients());
+		assertTrue(this.text(messages.get(0)).contains("Reply contents"));
+		assertFalse(this.text(messages.get(1)).contains("Reply contents"));
+		assertEquals("<1.2.3@example.com>", messages.get(0).getDedupKey());
+		assertEquals("<1.2.3@example.com>", messages.get(1).getDedupKey());
+	}
+
+	@Test
+	public void testSingleVariant() throws Exception
+	{
+		List<User> users = Arrays.asList(
+			this.newUser("one@example.com", true),
+			this.newUser("two@example.com", true));
+
+		List<OutboxMessage> messages = new ReplySpammer(users).prepareMail();
+
+		assertEquals(1, messages.size());
+		assertEquals(Arrays.asList("one@example.com", "two@example.com"), messages.get(0).getRecipients());
+		assertTrue(this.text(messages.get(0)).contains("Reply contents"));
+	}
+
+	@Test
+	public void testWithoutContentsAllUsersShareOneMessage() throws Exception
+	{
+		List<User> users = Arrays.asList(
+			this.newUser("one@example.com", false),
+			this.newUser("two@example.com", false));
+
+		List<OutboxMessage> messages = new ReplySpammer(users).prepareMail();
+
+		assertEquals(1, messages.size());
+		assertEquals(Arrays.asList("one@example.com", "two@example.com"), messages.get(0).getRecipients());
+		assertFalse(this.text(messages.get(0)).contains("Reply contents"));
+	}
+
+	@Test
+	public void testWantsContents()
+	{
+		assertFalse(Spammer.wantsContents(new ArrayList<User>()));
+		assertFalse(Spammer.wantsContents(Arrays.asList(this.newUser("one@example.com", false))));
+		assertTrue(Spammer.wantsContents(Arrays.asList(this.newUser("one@example.com", false), this.newUser("two@example.com", true))));
+	}
+
+	private User newUser(String email, boolean notifyText)
+	{
+		User user = new User();
+		user.setEmail(email);
+		user.setNotifyText(notifyText);
+		return user;
+	}
+
+	private String text(OutboxMessage entry) throws Exception
+	{
+		MimeMessage message = new MimeMessage(Session.getInstance(new Properties()), new ByteArrayInputStream(entry.getMime()));
+		return message.getContent().toString();
+	}
+
+	/**
+	 * Sends the new reply email like TopicReplySpammer, without needing a post to render
+	 */
+	private static class ReplySpammer extends Spammer
+	{
+		ReplySpammer(List<User> users)
+		{
+			Topic topic = new Topic();
+			topic.setTitle("Variants");
+
+			SimpleHash params = JForumExecutionContext.newSimpleHash();
+			params.put("topic", topic);
+			params.put("path", "http://localhost/posts/list/3.page");
+			params.put("forumLink", "http://localhost/");
+			params.put("unwatch", "http://localhost/posts/unwatch/3.page");
+			params.put("isWiki", false);
+
+			if (wantsContents(users)) {
+				params.put("message", "Reply contents");
+			}
+
+			this.setMessageId("<1.2.3@example.com>");
+			this.setUsers(users);
+			this.setVariantsOnly(true);
+			this.setTemplateParams(params);
+			this.prepareMessage("Variants", SystemGlobals.getValue(ConfigKeys.MAIL_NEW_ANSWER_MESSAGE_FILE));
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.preferences;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares reading settings through the compiled snapshot of {@link SystemGlobals} 
+ * with the lookup it replaced: installation and default properties, variable 
+ * expansion and parsing on every read. Both read the same keys a topic listing does.
+ * Run it from the project directory with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.jforum.util.preferences.SystemGlobalsBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SystemGlobalsBenchmark implements VariableStore
+{
+	private static final String CONFIG = "src/main/config/SystemGlobals.properties";
+
+	private static final String[] INT_KEYS = { ConfigKeys.TOPICS_PER_PAGE, ConfigKeys.POSTS_PER_PAGE, 
+		ConfigKeys.TOPIC_CACHE_SIZE, ConfigKeys.HOTTEST_TOPICS, ConfigKeys.ANONYMOUS_USER_ID };
+	private static final String[] BOOL_KEYS = { ConfigKeys.TOPIC_CACHE_ENABLED, ConfigKeys.POSTS_CACHE_ENABLED, 
+		ConfigKeys.RSS_ENABLED, ConfigKeys.DEVELOPMENT };
+	private static final String[] STRING_KEYS = { ConfigKeys.FORUM_LINK, ConfigKeys.TEMPLATE_DIR, ConfigKeys.RESOURCE_DIR };
+
+	private final Properties installation = new Properties();
+	private final Properties defaults = new Properties();
+	private final VariableExpander expander = new VariableExpander(this, "${", "}");
+
+	@Setup public void setup() throws IOException
+	{
+		SystemGlobals.initGlobals(".", CONFIG);
+
+		this.defaults.put(ConfigKeys.APPLICATION_PATH, ".");
+		this.defaults.put(ConfigKeys.DEFAULT_CONFIG, CONFIG);
+
+		try (InputStream is = new FileInputStream(CONFIG)) {
+			this.defaults.load(is);
+		}
+	}
+
+	@Benchmark public void snapshot(Blackhole bh)
+	{
+		for (String key : INT_KEYS) {
+			bh.consume(SystemGlobals.getIntValue(key));
+		}
+
+		for (String key : BOOL_KEYS) {
+			bh.consume(SystemGlobals.getBoolValue(key));
+		}
+
+		for (String key : STRING_KEYS) {
+			bh.consume(SystemGlobals.getValue(key));
+		}
+	}
+
+	@Benchmark public void expandOnEveryRead(Blackhole bh)
+	{
+		for (String key : INT_KEYS) {
+			bh.consume(Integer.parseInt(this.getVariableValue(key)));
+		}
+
+		for (String key : BOOL_KEYS) {
+			bh.consume("true".equals(this.getVariableValue(key)));
+		}
+
+		for (String key : STRING_KEYS) {
+			bh.consume(this.getVariableValue(key));
+		}
+	}
+
+	/**
+	 * The lookup {@link SystemGlobals} did before the snapshot
+	 */
+	@Override public String getVariableValue(String field)
+	{
+		String preExpansion = this.installation.getProperty(field);
+
+		if (preExpansion == null) {
+			preExpansion = this.defaults.getProperty(field);
+
+			if (preExpansion == null) {
+				return null;
+			}
+		}
+
+		return this.expander.expandVariables(preExpansion);
+	}
+
+	public static void main(final String[] args) throws RunnerException
+	{
+		new Runner(new OptionsBuilder().include(SystemGlobalsBenchmark.class.getSimpleName()).build()).run();
+	}
+}
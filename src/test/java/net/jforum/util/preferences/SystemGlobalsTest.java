@@ -86,6 +86,28 @@ public class SystemGlobalsTest extends TestCase
 		assertEquals("some string", SystemGlobals.getValue("string.key"));
 	}
 	
+	@Test
+	public void testChangedValueIsReadBack()
+	{
+		assertEquals(123, SystemGlobals.getIntValue("int.key"));
+		
+		SystemGlobals.setValue("int.key", "456");
+		assertEquals(456, SystemGlobals.getIntValue("int.key"));
+		assertEquals(456L, SystemGlobals.getLongValue("int.key"));
+		assertEquals("456", SystemGlobals.getValue("int.key"));
+		
+		SystemGlobals.setValue("long.key", "8589934592");
+		assertEquals(8589934592L, SystemGlobals.getLongValue("long.key"));
+		
+		try {
+			SystemGlobals.getIntValue("long.key");
+			fail("The value does not fit in an int");
+		}
+		catch (NumberFormatException e) {
+			// Expected
+		}
+	}
+	
 	@Test
 	public void testUserDefaults() throws Exception
 	{
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.stats;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest extends TestCase
+{
+	@Test
+	public void testBucketsCoverEveryValue()
+	{
+		long previous = -1;
+
+		for (int i = 0; i < 300; i++) {
+			long highest = LatencyHistogram.highestValue(i);
+
+			assertTrue(highest > previous);
+			assertEquals(i, LatencyHistogram.bucket(previous + 1));
+			assertEquals(i, LatencyHistogram.bucket(highest));
+			previous = highest;
+		}
+	}
+
+	@Test
+	public void testPercentilesWithinPrecision()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 100L);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(100000, histogram.getMax());
+		assertEquals(50050.0, histogram.getMean(), 0.001);
+		assertWithin(50000, histogram.getValueAt(0.5));
+		assertWithin(99000, histogram.getValueAt(0.99));
+		assertEquals(100000, histogram.getValueAt(1));
+	}
+
+	@Test
+	public void testEmpty()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getValueAt(0.99));
+		assertEquals(0.0, histogram.getMean(), 0);
+	}
+
+	private static void assertWithin(long expected, long actual)
+	{
+		assertTrue(expected + " vs " + actual, actual >= expected && actual <= expected * 1.125);
+	}
+}
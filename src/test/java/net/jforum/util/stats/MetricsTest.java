@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.util.stats;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.jforum.TestCaseUtils;
+import net.jforum.cache.ConcurrentCacheEngine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsTest extends TestCase
+{
+	@Before
+	@Override
+	public void setUp() throws Exception
+	{
+		TestCaseUtils.loadEnvironment();
+	}
+
+	@Test
+	public void testCacheFamiliesAreContiguousAndTyped() throws Exception
+	{
+		ConcurrentCacheEngine cache = new ConcurrentCacheEngine();
+		cache.init();
+		cache.add("topics", "1", "one");
+		cache.get("topics", "1");
+		cache.add("posts", "1", "one");
+		cache.get("posts", "2");
+
+		StringWriter out = new StringWriter();
+		Metrics.writeText(out, cache);
+
+		List<String> families = new ArrayList<>();
+		String family = null;
+
+		for (String line : out.toString().split("\n")) {
+			if (line.startsWith("# TYPE ")) {
+				family = line.split(" ")[2];
+				assertFalse("typed twice: " + family, families.contains(family));
+				families.add(family);
+				continue;
+			}
+
+			String name = line.substring(0, line.indexOf('{'));
+			assertTrue(line + " outside of " + family, name.equals(family) || name.startsWith(family + "_"));
+		}
+
+		assertTrue(families.contains("jforum_cache_lookups_total"));
+		assertTrue(families.contains("jforum_cache_removals_total"));
+		assertTrue(families.contains("jforum_cache_entries"));
+		assertTrue(out.toString().contains("# TYPE jforum_cache_entries gauge\n"));
+	}
+}
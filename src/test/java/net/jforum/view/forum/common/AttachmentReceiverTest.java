@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.view.forum.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.SessionFacade;
+import net.jforum.TestCaseUtils;
+import net.jforum.cache.DefaultCacheEngine;
+import net.jforum.context.web.WebRequestContext;
+import net.jforum.http.FakeMultipartRequest;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+public class AttachmentReceiverTest extends TestCase
+{
+	private File dir;
+
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+
+		DefaultCacheEngine cache = new DefaultCacheEngine();
+		cache.init();
+		new SessionFacade().setCacheEngine(cache);
+
+		this.dir = Files.createTempDirectory("attachments").toFile();
+		SystemGlobals.setValue(ConfigKeys.ATTACHMENTS_STORE_DIR, this.dir.getPath());
+	}
+
+	@After
+	@Override protected void tearDown() throws Exception
+	{
+		assertTrue(this.dir.delete());
+		super.tearDown();
+	}
+
+	@Test
+	public void testOnlyPostFilesAreAccepted() throws IOException
+	{
+		AttachmentReceiver receiver = new AttachmentReceiver();
+		WebRequestContext posts = new WebRequestContext(new FakeMultipartRequest().field("module", "posts"));
+		WebRequestContext user = new WebRequestContext(new FakeMultipartRequest().field("module", "user"));
+
+		assertTrue(receiver.accepts(posts, "file_0"));
+		assertFalse(receiver.accepts(posts, "avatar"));
+		assertFalse(receiver.accepts(user, "file_0"));
+	}
+
+	@Test
+	public void testNothingIsWrittenWithoutSession() throws IOException
+	{
+		// The fake request has a session SessionFacade does not know
+		WebRequestContext request = new WebRequestContext(new FakeMultipartRequest()
+			.field("module", "posts")
+			.field("forum_id", "1")
+			.field("total_files", "1")
+			.file("file_0", "a.txt", "not written")
+			.field("message", "after the file"), new AttachmentReceiver());
+
+		assertNull(request.getObjectParameter("file_0"));
+		assertEquals("after the file", request.getParameter("message"));
+		assertEquals(0, this.dir.list().length);
+
+		// Nothing to tell either
+		AttachmentReceiver.checkRejected(request);
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.view.forum.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.jforum.TestCaseUtils;
+import net.jforum.util.preferences.ConfigKeys;
+import net.jforum.util.preferences.SystemGlobals;
+
+public class AttachmentStoreTest extends TestCase
+{
+	private static final String HASH = "315f5bdb76d078c43b8ac0064e4a0164612b1fce77c869345bfc94c75894edd3";
+
+	private File dir;
+
+	@Before
+	@Override protected void setUp() throws Exception
+	{
+		super.setUp();
+		TestCaseUtils.loadEnvironment();
+
+		this.dir = Files.createTempDirectory("attachments").toFile();
+		SystemGlobals.setValue(ConfigKeys.ATTACHMENTS_STORE_DIR, this.dir.getPath());
+		SystemGlobals.setValue(ConfigKeys.ATTACHMENTS_STORE_CONTENT_GRACE_MINUTES, "60");
+	}
+
+	@After
+	@Override protected void tearDown() throws Exception
+	{
+		try (Stream<File> files = Files.walk(this.dir.toPath()).map(p -> p.toFile())) {
+			files.sorted(Comparator.reverseOrder()).forEach(File::delete);
+		}
+
+		super.tearDown();
+	}
+
+	@Test
+	public void testPhysicalFilename()
+	{
+		String physicalFilename = AttachmentStore.physicalFilename(HASH, "PNG");
+
+		assertEquals("content/31/5f/" + HASH + ".png_", physicalFilename);
+		assertTrue(AttachmentStore.isContentAddressed(physicalFilename));
+		assertEquals("png", AttachmentStore.extensionOf(physicalFilename));
+		assertFalse(AttachmentStore.isContentAddressed("2026/10/18/0123456789abcdef_2.pdf_"));
+		assertEquals("pdf", AttachmentStore.extensionOf("2026/10/18/0123456789abcdef_2.pdf_"));
+	}
+
+	@Test
+	public void testStoreKeepsOneFileForTheSameContent() throws IOException
+	{
+		File first = this.incoming("Hello world!");
+		File second = this.incoming("Hello world!");
+		String hash = AttachmentStore.hash(first);
+
+		assertEquals(HASH.length(), hash.length());
+		assertEquals(hash, AttachmentStore.hash(second));
+
+		String physicalFilename = AttachmentStore.physicalFilename(hash, "txt");
+		File stored = AttachmentStore.file(physicalFilename);
+
+		assertTrue(AttachmentStore.store(first, physicalFilename));
+		long modified = stored.lastModified();
+		assertFalse(AttachmentStore.store(second, physicalFilename));
+		assertEquals("Hello world!", new String(Files.readAllBytes(stored.toPath()), StandardCharsets.UTF_8));
+		assertFalse(first.exists());
+		assertFalse(second.exists());
+
+		// The time sent to the browsers stays the same
+		assertEquals(modified, stored.lastModified());
+		assertTrue(AttachmentStore.isRecent(AttachmentStore.pendingFile(stored).lastModified()));
+
+		// Held by the second upload, and then not created by it
+		AttachmentStore.discard(physicalFilename, true);
+		assertTrue(stored.exists());
+		AttachmentStore.discard(physicalFilename, false);
+		assertTrue(stored.exists());
+	}
+
+	@Test
+	public void testHeldFileIsKept() throws IOException
+	{
+		File upload = this.incoming("Not saved yet");
+		String physicalFilename = AttachmentStore.physicalFilename(AttachmentStore.hash(upload), "txt");
+		File stored = AttachmentStore.file(physicalFilename);
+
+		assertTrue(AttachmentStore.store(upload, physicalFilename));
+
+		// Held by the upload, and then for the grace period
+		assertFalse(AttachmentStore.release(physicalFilename));
+		AttachmentStore.discard(physicalFilename, false);
+		assertFalse(AttachmentStore.release(physicalFilename));
+		assertTrue(stored.exists());
+
+		AttachmentStore.deleteFile(stored);
+
+		assertFalse(stored.exists());
+		assertFalse(AttachmentStore.pendingFile(stored).exists());
+	}
+
+	@Test
+	public void testLinkExistingFiles() throws IOException
+	{
+		File first = AttachmentStore.file("2026/10/18/first.txt_");
+		File second = AttachmentStore.file("2026/10/18/second.txt_");
+		Files.createDirectories(first.getParentFile().toPath());
+		Files.write(first.toPath(), "Hello world!".getBytes(StandardCharsets.UTF_8));
+		Files.write(second.toPath(), "Hello world!".getBytes(StandardCharsets.UTF_8));
+
+		String physicalFilename = AttachmentStore.physicalFilename(AttachmentStore.hash(first), "txt");
+
+		assertFalse(AttachmentStore.link(first, physicalFilename));
+		assertTrue(AttachmentStore.link(second, physicalFilename));
+
+		AttachmentStore.deleteFile(first);
+		AttachmentStore.deleteFile(second);
+
+		assertEquals("Hello world!", new String(Files.readAllBytes(AttachmentStore.file(physicalFilename).toPath()), 
+			StandardCharsets.UTF_8));
+	}
+
+	private File incoming(String content) throws IOException
+	{
+		File file = AttachmentStore.createIncomingFile();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
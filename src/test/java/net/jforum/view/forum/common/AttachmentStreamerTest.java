@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.view.forum.common;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class AttachmentStreamerTest extends TestCase
+{
+	private static final long MODIFIED = 784111777000L;
+	private static final String ETAG = AttachmentStreamer.etag(1000, MODIFIED);
+
+	@Test
+	public void testRanges()
+	{
+		assertRange(0, 499, AttachmentStreamer.parseRange("bytes=0-499", 1000));
+		assertRange(500, 999, AttachmentStreamer.parseRange("bytes=500-", 1000));
+		assertRange(900, 999, AttachmentStreamer.parseRange("bytes=-100", 1000));
+		assertRange(0, 999, AttachmentStreamer.parseRange("bytes=-5000", 1000));
+		assertRange(990, 999, AttachmentStreamer.parseRange("bytes=990-5000", 1000));
+	}
+
+	@Test
+	public void testRangesSendingTheWholeFile()
+	{
+		assertNull(AttachmentStreamer.parseRange("items=0-1", 1000));
+		assertNull(AttachmentStreamer.parseRange("bytes=0-1,5-6", 1000));
+		assertNull(AttachmentStreamer.parseRange("bytes=5-1", 1000));
+		assertNull(AttachmentStreamer.parseRange("bytes=a-", 1000));
+	}
+
+	@Test
+	public void testUnsatisfiableRanges()
+	{
+		assertEquals(0, AttachmentStreamer.parseRange("bytes=1000-", 1000).length);
+		assertEquals(0, AttachmentStreamer.parseRange("bytes=-0", 1000).length);
+		assertEquals(0, AttachmentStreamer.parseRange("bytes=-10", 0).length);
+	}
+
+	@Test
+	public void testConditionalRequests()
+	{
+		String date = AttachmentStreamer.httpDate(MODIFIED);
+
+		assertTrue(AttachmentStreamer.isNotModified(ETAG, null, ETAG, MODIFIED));
+		assertTrue(AttachmentStreamer.isNotModified("\"x\", W/" + ETAG, null, ETAG, MODIFIED));
+		assertTrue(AttachmentStreamer.isNotModified("*", null, ETAG, MODIFIED));
+		assertFalse(AttachmentStreamer.isNotModified("\"x\"", date, ETAG, MODIFIED));
+		assertTrue(AttachmentStreamer.isNotModified(null, date, ETAG, MODIFIED));
+		assertFalse(AttachmentStreamer.isNotModified(null, AttachmentStreamer.httpDate(MODIFIED - 1000), ETAG, MODIFIED));
+		assertFalse(AttachmentStreamer.isNotModified(null, "yesterday", ETAG, MODIFIED));
+		assertFalse(AttachmentStreamer.isNotModified(null, null, ETAG, MODIFIED));
+	}
+
+	@Test
+	public void testIfRange()
+	{
+		assertTrue(AttachmentStreamer.ifRangeMatches(null, ETAG, MODIFIED));
+		assertTrue(AttachmentStreamer.ifRangeMatches(ETAG, ETAG, MODIFIED));
+		assertFalse(AttachmentStreamer.ifRangeMatches("W/" + ETAG, ETAG, MODIFIED));
+		assertTrue(AttachmentStreamer.ifRangeMatches(AttachmentStreamer.httpDate(MODIFIED), ETAG, MODIFIED));
+		assertFalse(AttachmentStreamer.ifRangeMatches(AttachmentStreamer.httpDate(MODIFIED + 1000), ETAG, MODIFIED));
+	}
+
+	private static void assertRange(long start, long end, long[] range)
+	{
+		assertNotNull(range);
+		assertEquals(start, range[0]);
+		assertEquals(end, range[1]);
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) JForum Team
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, 
+ * with or without modification, are permitted provided 
+ * that the following conditions are met:
+ * 
+ * 1) Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the 
+ * following disclaimer.
+ * 2) Redistributions in binary form must reproduce the 
+ * above copyright notice, this list of conditions and 
+ * the following disclaimer in the documentation and/or 
+ * other materials provided with the distribution.
+ * 3) Neither the name of "Rafael Steil" nor 
+ * the names of its contributors may be used to endorse 
+ * or promote products derived from this software without 
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT 
+ * HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, 
+ * BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL 
+ * THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE 
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER 
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER 
+ * IN CONTRACT, STRICT LIABILITY, OR TORT 
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN 
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF 
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE
+ * 
+ * Created on 18/10/2026
+ * The JForum Project
+ * http://www.jforum.net
+ */
+package net.jforum.view.forum.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class StoredUploadTest extends TestCase
+{
+	@Test
+	public void testWrittenToItsFileIsKept() throws Exception
+	{
+		File file = newFile("kept");
+		StoredUpload upload = upload(file);
+
+		upload.write(file);
+		upload.delete();
+
+		assertTrue(file.exists());
+		assertTrue(file.delete());
+	}
+
+	@Test
+	public void testWrittenElsewhereIsMoved() throws Exception
+	{
+		File file = newFile("moved");
+		File destination = new File(file.getPath() + ".moved");
+		StoredUpload upload = upload(file);
+
+		upload.write(destination);
+		upload.delete();
+
+		assertFalse(file.exists());
+		assertEquals("moved", new String(Files.readAllBytes(destination.toPath()), StandardCharsets.UTF_8));
+		assertEquals("moved", upload.getString());
+		assertTrue(destination.delete());
+	}
+
+	@Test
+	public void testNotWrittenIsDeleted() throws Exception
+	{
+		File file = newFile("not saved");
+		StoredUpload upload = upload(file);
+
+		assertEquals("not saved", upload.getString());
+
+		upload.delete();
+		upload.delete();
+
+		assertFalse(file.exists());
+	}
+
+	private static StoredUpload upload(File file)
+	{
+		return new StoredUpload("file_0", "a.txt", "text/plain", file, "2026/10/18/" + file.getName(), 
+			file.length(), null, true);
+	}
+
+	private static File newFile(String content) throws IOException
+	{
+		File file = File.createTempFile("upload", null);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
@@ -2,6 +2,7 @@ package net.jforum.tools.search;
 
 import jargs.gnu.CmdLineParser;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -9,6 +10,7 @@ import java.util.Locale;
 
 import net.jforum.ConfigLoader;
 import net.jforum.ForumStartup;
+import net.jforum.exceptions.ForumException;
 import net.jforum.search.LuceneReindexArgs;
 import net.jforum.search.LuceneReindexer;
 import net.jforum.search.LuceneSettings;
@@ -20,6 +22,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.xml.DOMConfigurator;
 
 /**
+ * Only one process can write to the index, so this can't run while JForum is 
+ * running on the same index. That includes <code>--resume</code>: JForum resumes
+ * an interrupted reindex by itself when it starts.
+ * 
  * @author Rafael Steil
  * @version $Id$
  */
@@ -27,6 +33,7 @@ public class LuceneCommandLineReindexer
 {
 	private LuceneReindexArgs reindexerArgs;
 	private boolean recreate;
+	private boolean resume;
 	private String path;
 	
 	public static void main(String[] args)
@@ -44,11 +51,34 @@ public class LuceneCommandLineReindexer
 	
 	private void start()
 	{
-		LuceneReindexer reindexer = new LuceneReindexer(
-			(LuceneSettings)SystemGlobals.getObjectValue(ConfigKeys.LUCENE_SETTINGS),
-			this.reindexerArgs, this.recreate);
+		LuceneSettings settings = (LuceneSettings)SystemGlobals.getObjectValue(ConfigKeys.LUCENE_SETTINGS);
+
+		if (this.resume) {
+			try {
+				this.reindexerArgs = LuceneReindexer.interruptedReindexArgs(settings);
+			}
+			catch (IOException e) {
+				throw new ForumException(e);
+			}
+
+			if (this.reindexerArgs == null) {
+				System.out.println("*** There is no interrupted reindex to resume");
+				return;
+			}
+
+			System.out.println("*** Resuming from Post #" + this.reindexerArgs.getFirstPostId() 
+				+ " to Post #" + this.reindexerArgs.getLastPostId() + "\n");
+		}
+
+		LuceneReindexer reindexer = new LuceneReindexer(settings, this.reindexerArgs);
+
+		// stop cleanly on CTRL+C, so the next run can resume
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> SearchFacade.stop()));
 
 		reindexer.startProcess();
+
+		System.out.println("*** Indexed " + reindexer.getIndexedPosts() + " posts in " 
+			+ (reindexer.getElapsedMillis() / 1000) + " seconds (" + reindexer.getPostsPerSecond() + " per second)");
 	}
 	
 	private void init(String[] args)
@@ -67,9 +97,10 @@ public class LuceneCommandLineReindexer
 		ConfigLoader.createLoginAuthenticator();
 		ConfigLoader.loadDaoImplementation();
 		
-		SearchFacade.init();
-		
+		// the search index may start reindexing right away, which reads the posts
 		ForumStartup.startDatabase();
+		
+		SearchFacade.init();
 	}
 	
 	private void parseCmdArgs(String[] args)
@@ -87,6 +118,7 @@ public class LuceneCommandLineReindexer
 		CmdLineParser.Option fromDateOption = parser.addStringOption("fromDate");
 		CmdLineParser.Option toDateOption = parser.addStringOption("toDate");
 		CmdLineParser.Option avoidDuplicatedOption = parser.addBooleanOption("avoidDuplicatedRecords");
+		CmdLineParser.Option resumeOption = parser.addBooleanOption("resume");
 		
 		try {
 			parser.parse(args);
@@ -100,10 +132,18 @@ public class LuceneCommandLineReindexer
 			this.printUsage();
 		}
 		
+		// Resume
+		this.resume = ((Boolean)parser.getOptionValue(resumeOption, Boolean.FALSE)).booleanValue();
+		
 		// Type
 		String type = (String)parser.getOptionValue(typeOption);
 		
-		if (StringUtils.isEmpty(type) || (!"date".equals(type) && !"message".equals(type))) {
+		if (this.resume) {
+			// the range comes from the index itself
+			type = "message";
+			description.append("\t-> Resuming an interrupted reindex\n");
+		}
+		else if (StringUtils.isEmpty(type) || (!"date".equals(type) && !"message".equals(type))) {
 			System.out.println("*** --type should be either date or message");
 			this.printUsage();
 		}
@@ -124,7 +164,7 @@ public class LuceneCommandLineReindexer
 		int firstPostId = ((Integer)parser.getOptionValue(firstPostIdOption, Integer.valueOf(0))).intValue();
 		int lastPostId = ((Integer)parser.getOptionValue(lastPostIdOption, Integer.valueOf(0))).intValue();
 		
-		if ("message".equals(type)) {
+		if ("message".equals(type) && !this.resume) {
 			if (firstPostId == 0 || lastPostId == 0 || lastPostId <= firstPostId) {
 				System.out.println("*** --firstPostId and --lastPostId are required fields when --type=message. "
 					+ "Also, --lastPostId should be greater than --firstPostId");
@@ -160,7 +200,8 @@ public class LuceneCommandLineReindexer
 		
 		this.reindexerArgs = new LuceneReindexArgs(fromDate, toDate, firstPostId, 
 			lastPostId, avoidDuplicated, 
-			"date".equals(type) ? LuceneReindexArgs.TYPE_DATE : LuceneReindexArgs.TYPE_MESSAGE);
+			"date".equals(type) ? LuceneReindexArgs.TYPE_DATE : LuceneReindexArgs.TYPE_MESSAGE,
+			this.recreate);
 		
 		System.out.println(description);
 	}
@@ -189,7 +230,11 @@ public class LuceneCommandLineReindexer
 			+ " --fromDate dd/MM/yyyy \n"
 			+ " --toDate dd/MM/yyyy \n"
 			+ " [--recreateIndex]\n" 
-			+ " [--avoidDuplicatedRecords]");
+			+ " [--avoidDuplicatedRecords]\n"
+			+ " [--resume]\n"
+			+ "\nJForum must be stopped, as it holds the index write lock while running. \n"
+			+ "It resumes an interrupted reindex by itself when it starts, so --resume \n"
+			+ "is only needed to finish the reindex before starting it.");
 		System.exit(1);
 	}
 }